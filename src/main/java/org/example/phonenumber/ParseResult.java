@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+/**
+ * Outcome of parsing one value in a stream or batch: either the parsed
+ * {@link PhoneNumber} or the {@link PhoneNumberParseException} explaining why
+ * the value was rejected.
+ */
+public final class ParseResult {
+
+  private final long sequence;
+
+  private final String input;
+
+  private final PhoneNumber phoneNumber;
+
+  private final PhoneNumberParseException error;
+
+  private ParseResult(long sequence, String input, PhoneNumber phoneNumber, PhoneNumberParseException error) {
+    this.sequence = sequence;
+    this.input = input;
+    this.phoneNumber = phoneNumber;
+    this.error = error;
+  }
+
+  public static ParseResult success(long sequence, String input, PhoneNumber phoneNumber) {
+    return new ParseResult(sequence, input, phoneNumber, null);
+  }
+
+  public static ParseResult failure(long sequence, String input, PhoneNumberParseException error) {
+    return new ParseResult(sequence, input, null, error);
+  }
+
+  /**
+   * Parses {@code input} with {@code recognizer}, capturing a parse failure in
+   * the result rather than throwing it.
+   */
+  static ParseResult parse(long sequence, String input, PhoneNumberRecognizer recognizer) {
+    try {
+      PhoneNumber phoneNumber = new PhoneNumber();
+      phoneNumber.setValue(input, recognizer);
+      return success(sequence, input, phoneNumber);
+    } catch (PhoneNumberParseException e) {
+      return failure(sequence, input, e);
+    } catch (RuntimeException e) {
+      return failure(sequence, input, new PhoneNumberParseException(e));
+    }
+  }
+
+  /**
+   * Position of the value in the sequence it came from, starting at 0.
+   */
+  public long getSequence() {
+    return sequence;
+  }
+
+  public String getInput() {
+    return input;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  public PhoneNumber getPhoneNumber() {
+    return phoneNumber;
+  }
+
+  public PhoneNumberParseException getError() {
+    return error;
+  }
+
+  public String getErrorMessage() {
+    return error != null ? error.getMessage() : null;
+  }
+
+  /**
+   * @see PhoneNumberParseException#getErrorOffset()
+   */
+  public int getErrorOffset() {
+    return error != null ? error.getErrorOffset() : -1;
+  }
+
+  @Override
+  public String toString() {
+    return isSuccess()
+        ? "ParseResult(sequence=" + sequence + ", phoneNumber=" + phoneNumber.getValue() + ")"
+        : "ParseResult(sequence=" + sequence + ", input=" + input + ", errorOffset=" + getErrorOffset() + ", error=" + getErrorMessage() + ")";
+  }
+}
@@ -22,16 +22,17 @@
  */
 package org.example.phonenumber;
 
-import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.tree.ParseTree;
-import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.apache.commons.lang3.StringUtils;
+import org.example.phonenumber.PhoneNumberObserver.ErrorKind;
+import org.example.phonenumber.PhoneNumberObserver.Operation;
+import org.example.phonenumber.PhoneNumberObserver.ParsePath;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * Scim core schema, <a
@@ -45,8 +46,26 @@ public class PhoneNumber {
 
   private static final String VISUAL_SEPARATORS = "[\\(\\)\\-\\.]";
 
+  private static final String VISUAL_SEPARATOR_CHARS = "()-.";
+
+  private static final String TEL_PREFIX = "tel:";
+
+  private static final String EXTENSION_PREFIX = ";ext=";
+
+  private static final String ISUB_PREFIX = ";isub=";
+
+  private static final String CONTEXT_PREFIX = ";phone-context=";
+
   private static boolean strict = true;
 
+  private static volatile PhoneNumberParseLimits parseLimits = PhoneNumberParseLimits.DEFAULT;
+
+  private static volatile PhoneNumberErrorDiagnostics errorDiagnostics = new PhoneNumberErrorDiagnostics();
+
+  private static volatile boolean perThreadDfa = false;
+
+  private static volatile PhoneNumberObserver observer;
+
   String value;
 
   String display;
@@ -67,7 +86,9 @@ public class PhoneNumber {
 
   boolean isDomainPhoneContext = false;
 
-  Map<String, String> params;
+  PhoneNumberParams params;
+
+  private String e164;
 
   public static boolean isStrict() {
     return PhoneNumber.strict;
@@ -77,9 +98,65 @@ public class PhoneNumber {
     PhoneNumber.strict = strict;
   }
 
+  public static PhoneNumberParseLimits getParseLimits() {
+    return PhoneNumber.parseLimits;
+  }
+
+  /**
+   * Sets the limits applied when values are parsed, by default
+   * {@link PhoneNumberParseLimits#DEFAULT}.
+   */
+  public static void setParseLimits(PhoneNumberParseLimits parseLimits) {
+    if (parseLimits == null) {
+      throw new IllegalArgumentException("PhoneNumber parseLimits cannot be null.");
+    }
+    PhoneNumber.parseLimits = parseLimits;
+  }
+
+  /**
+   * Where the reasons values are rejected by the parser are counted and
+   * summarized.
+   */
+  public static PhoneNumberErrorDiagnostics getErrorDiagnostics() {
+    return PhoneNumber.errorDiagnostics;
+  }
+
+  public static void setErrorDiagnostics(PhoneNumberErrorDiagnostics errorDiagnostics) {
+    if (errorDiagnostics == null) {
+      throw new IllegalArgumentException("PhoneNumber errorDiagnostics cannot be null.");
+    }
+    PhoneNumber.errorDiagnostics = errorDiagnostics;
+  }
+
+  public static boolean isPerThreadDfa() {
+    return PhoneNumber.perThreadDfa;
+  }
+
+  /**
+   * Gives each parsing thread its own lexer and parser DFA instead of the ones
+   * all threads share, trading memory and a warm-up per thread for no
+   * synchronization when the DFA learns new input. Threads switch the next
+   * time they parse a value.
+   */
+  public static void setPerThreadDfa(boolean perThreadDfa) {
+    PhoneNumber.perThreadDfa = perThreadDfa;
+  }
+
+  public static PhoneNumberObserver getObserver() {
+    return PhoneNumber.observer;
+  }
+
+  /**
+   * Registers the observer told about every value parsed, or none with null,
+   * the default. Combine several with {@link PhoneNumberObserver#all}.
+   */
+  public static void setObserver(PhoneNumberObserver observer) {
+    PhoneNumber.observer = observer;
+  }
+
   public void addParam(String name, String value) {
     if (this.params == null) {
-      this.params = new HashMap<String, String>();
+      this.params = new PhoneNumberParams();
     }
 
     this.params.put(name, value);
@@ -93,44 +170,436 @@ public class PhoneNumber {
     return value;
   }
 
+  /**
+   * Appends the value, the canonical tel URI of a parsed number, without
+   * creating an intermediate string.
+   */
+  public StringBuilder appendTo(StringBuilder sb) {
+    return sb.append(value);
+  }
+
+  public Appendable appendTo(Appendable out) throws IOException {
+    return out.append(value);
+  }
+
+  /**
+   * Digits only rendering prefixed with a plus, such as {@code +12015550123},
+   * for global numbers and for local numbers with a global number phone
+   * context. Computed once and kept until the value changes.
+   *
+   * @return the E.164 style number, or null if the number has no such form
+   */
+  public String getE164() {
+    if (e164 == null && hasE164()) {
+      e164 = appendE164Digits(new StringBuilder(16)).toString();
+    }
+    return e164;
+  }
+
+  /**
+   * Appends {@link #getE164()} without creating an intermediate string.
+   *
+   * @return false, with nothing appended, if the number has no E.164 form
+   */
+  public boolean appendE164To(StringBuilder sb) {
+    if (!hasE164()) {
+      return false;
+    }
+    if (e164 != null) {
+      sb.append(e164);
+    } else {
+      appendE164Digits(sb);
+    }
+    return true;
+  }
+
+  public boolean appendE164To(Appendable out) throws IOException {
+    if (!hasE164()) {
+      return false;
+    }
+    if (e164 != null) {
+      out.append(e164);
+      return true;
+    }
+    out.append('+');
+    if (!isGlobalNumber) {
+      appendDigits(out, phoneContext);
+    }
+    appendDigits(out, number);
+    return true;
+  }
+
+  /**
+   * The value in the form RFC 3966 compares, so that numbers {@link #equals}
+   * treats as equal have the same key: visual separators removed, the
+   * case-insensitive parts in lower case and the params sorted by name after
+   * the extension, sub-address and phone context. The display, type and
+   * primary attributes are not part of the value and not part of the key.
+   *
+   * @return the key, or null if there is no parsed number
+   */
+  public String getCanonicalKey() {
+    if (number == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(TEL_PREFIX.length() + (value != null ? value.length() : 32));
+    sb.append(TEL_PREFIX);
+    appendWithoutVisualSeparators(sb, number);
+    if (!StringUtils.isEmpty(extension)) {
+      appendWithoutVisualSeparators(sb.append(EXTENSION_PREFIX), extension);
+    }
+    if (!StringUtils.isEmpty(subAddress)) {
+      sb.append(ISUB_PREFIX).append(subAddress.toLowerCase());
+    }
+    if (!StringUtils.isBlank(phoneContext)) {
+      if (isDomainPhoneContext) {
+        sb.append(CONTEXT_PREFIX).append(phoneContext.toLowerCase());
+      } else {
+        appendWithoutVisualSeparators(sb.append(CONTEXT_PREFIX), phoneContext);
+      }
+    }
+    if (params != null) {
+      int[] order = new int[params.size()];
+      for (int i = 0; i < order.length; i++) {
+        int j = i;
+        while (j > 0 && params.lowerCaseName(order[j - 1]).compareTo(params.lowerCaseName(i)) > 0) {
+          order[j] = order[j - 1];
+          j--;
+        }
+        order[j] = i;
+      }
+      for (int i : order) {
+        sb.append(';').append(params.lowerCaseName(i));
+        if (params.value(i) != null) {
+          sb.append('=').append(params.value(i).toLowerCase());
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void appendWithoutVisualSeparators(StringBuilder sb, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (VISUAL_SEPARATOR_CHARS.indexOf(c) < 0) {
+        sb.append(c);
+      }
+    }
+  }
+
+  private StringBuilder appendE164Digits(StringBuilder sb) {
+    sb.append('+');
+    if (!isGlobalNumber) {
+      appendDigits(sb, phoneContext);
+    }
+    appendDigits(sb, number);
+    return sb;
+  }
+
+  boolean hasE164() {
+    if (number == null) {
+      return false;
+    }
+    if (isGlobalNumber) {
+      return true;
+    }
+    if (isDomainPhoneContext || phoneContext == null) {
+      return false;
+    }
+    // local numbers may also use *, # and A-F, which have no E.164 equivalent
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (!(c >= '0' && c <= '9') && VISUAL_SEPARATOR_CHARS.indexOf(c) < 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static void appendDigits(StringBuilder sb, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        sb.append(c);
+      }
+    }
+  }
+
+  private static void appendDigits(Appendable out, String s) throws IOException {
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        out.append(c);
+      }
+    }
+  }
+
   public void setValue(String value) throws PhoneNumberParseException {
+    setValue(value, null);
+  }
+
+  /*
+   * Parses with the given recognizer instead of the calling thread's one, for
+   * callers that pool recognizers themselves.
+   */
+  void setValue(String value, PhoneNumberRecognizer recognizer) throws PhoneNumberParseException {
+    setValue(value, recognizer, Operation.SET_VALUE);
+  }
+
+  private void setValue(String value, PhoneNumberRecognizer recognizer, Operation operation) throws PhoneNumberParseException {
     if (value == null) {
       throw new PhoneNumberParseException("null values are illegal for phone numbers");
     }
 
     if (strict) {
-      PhoneNumberLexer phoneNumberLexer = new PhoneNumberLexer(new ANTLRInputStream(value));
-      PhoneNumberParser p = new PhoneNumberParser(new CommonTokenStream(phoneNumberLexer));
-      p.setBuildParseTree(true);
-
-      p.addErrorListener(new BaseErrorListener() {
-        @Override
-        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
-          throw new IllegalStateException("failed to parse at line " + line + " due to " + msg, e);
-        }
-      });
-
-      PhoneNumberParseTreeListener tpl = new PhoneNumberParseTreeListener();
-      try {
-        ParseTree tree = p.phoneNumber();
-        ParseTreeWalker.DEFAULT.walk(tpl, tree);
-      } catch (IllegalStateException e) {
-        throw new PhoneNumberParseException(e);
+      if (recognizer == null) {
+        recognizer = PhoneNumberRecognizer.acquire();
+      }
+      PhoneNumberObserver observer = PhoneNumber.observer;
+      copyComponents(observer == null ? recognizer.parse(value) : parse(observer, operation, recognizer, value, null));
+    } else {
+      this.value = value;
+      this.e164 = null;
+    }
+  }
+
+  /**
+   * Sets the value from the UTF-8 encoded bytes remaining in {@code utf8}. The
+   * bytes are lexed in place; the buffer's position and limit are not changed.
+   * Error offsets are byte offsets from the position, and malformed UTF-8 is
+   * rejected rather than decoded.
+   */
+  public void setValue(ByteBuffer utf8) throws PhoneNumberParseException {
+    if (utf8 == null) {
+      throw new PhoneNumberParseException("null values are illegal for phone numbers");
+    }
+
+    if (strict) {
+      PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+      PhoneNumberObserver observer = PhoneNumber.observer;
+      copyComponents(observer == null ? recognizer.parse(utf8) : parse(observer, Operation.SET_VALUE, recognizer, null, utf8));
+    } else {
+      this.value = StandardCharsets.UTF_8.decode(utf8.duplicate()).toString();
+      this.e164 = null;
+    }
+  }
+
+  /**
+   * Sets the value from {@code length} UTF-8 encoded bytes of {@code utf8}
+   * starting at {@code offset}.
+   */
+  public void setValue(byte[] utf8, int offset, int length) throws PhoneNumberParseException {
+    if (utf8 == null) {
+      throw new PhoneNumberParseException("null values are illegal for phone numbers");
+    }
+
+    setValue(ByteBuffer.wrap(utf8, offset, length));
+  }
+
+  /*
+   * Parses value, or utf8 if value is null, reporting the outcome to observer.
+   */
+  private static PhoneNumber parse(PhoneNumberObserver observer, Operation operation, PhoneNumberRecognizer recognizer,
+      String value, ByteBuffer utf8) throws PhoneNumberParseException {
+    int length = value != null ? value.length() : utf8.remaining();
+    long start = System.nanoTime();
+    PhoneNumber parsed;
+    try {
+      parsed = value != null ? recognizer.parse(value) : recognizer.parse(utf8);
+    } catch (PhoneNumberParseException e) {
+      String failedRule = recognizer.failedRule();
+      ErrorKind kind = e instanceof PhoneNumberLimitExceededException ? ErrorKind.LIMIT : failedRule != null ? ErrorKind.SYNTAX : ErrorKind.INVALID;
+      observer.rejected(operation, kind, failedRule, length, System.nanoTime() - start);
+      throw e;
+    }
+    observer.accepted(operation, recognizer.usedFullContext() ? ParsePath.LL : ParsePath.SLL, length, System.nanoTime() - start);
+    return parsed;
+  }
+
+  PhoneNumber copy() {
+    PhoneNumber copy = new PhoneNumber();
+    copy.copyComponents(this);
+    copy.params = this.params != null ? this.params.copy() : null;
+    copy.display = this.display;
+    copy.type = this.type;
+    copy.primary = this.primary;
+    return copy;
+  }
+
+  private void copyComponents(PhoneNumber parsedPhoneNumber) {
+    this.value = parsedPhoneNumber.getValue();
+    this.number = parsedPhoneNumber.getNumber();
+    this.extension = parsedPhoneNumber.getExtension();
+    this.subAddress = parsedPhoneNumber.getSubAddress();
+    this.phoneContext = parsedPhoneNumber.getPhoneContext();
+    this.params = parsedPhoneNumber.params;
+    this.isGlobalNumber = parsedPhoneNumber.isGlobalNumber();
+    this.isDomainPhoneContext = parsedPhoneNumber.isDomainPhoneContext();
+    this.e164 = parsedPhoneNumber.e164;
+  }
+
+  /**
+   * Returns a copy with the parameter {@code name} set to {@code value}, or
+   * without a value ({@code ;name}) if {@code value} is null, replacing a
+   * parameter of the same name ignoring case.
+   *
+   * Like the other {@code with} methods only the changed component is
+   * validated and spliced into the value; the result is the same as parsing
+   * the new value.
+   */
+  public PhoneNumber withParam(String name, String value) {
+    if (StringUtils.isEmpty(name) || value != null && value.isEmpty()) {
+      throw new IllegalArgumentException("PhoneNumber params names cannot be null or empty, nor values empty.");
+    }
+    PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+    if (value == null ? !recognizer.lexesAs(name, PhoneNumberLexer.PARAM, PhoneNumberLexer.ParamName)
+        : !recognizer.lexesAs(name + '=', PhoneNumberLexer.PARAM, PhoneNumberLexer.ParamName, PhoneNumberLexer.ParamWithValue)) {
+      throw new IllegalArgumentException("PhoneNumber param name " + name + " is not a valid parameter name.");
+    }
+    if (value != null && !recognizer.lexesAs(value, PhoneNumberLexer.PARAM_VALUE, PhoneNumberLexer.ParamValue)) {
+      throw new IllegalArgumentException("PhoneNumber param value " + value + " is not a valid parameter value.");
+    }
+
+    PhoneNumber copy = parsedCopy();
+    if (copy.params == null) {
+      copy.params = new PhoneNumberParams();
+    }
+    copy.params.put(name, value);
+    copy.value = copy.spliceParams();
+    return copy;
+  }
+
+  public PhoneNumber withoutParam(String name) {
+    PhoneNumber copy = parsedCopy();
+    if (copy.params != null && copy.params.remove(name)) {
+      if (copy.params.isEmpty()) {
+        copy.params = null;
+      }
+      copy.value = copy.spliceParams();
+    }
+    return copy;
+  }
+
+  /**
+   * @param extension the new extension, or null to remove it
+   */
+  public PhoneNumber withExtension(String extension) {
+    if (StringUtils.isEmpty(extension)) {
+      extension = null;
+    } else {
+      if (!StringUtils.isEmpty(subAddress)) {
+        throw new IllegalArgumentException("PhoneNumber cannot have a value for both extension and subAddress.");
+      }
+      if (!PhoneNumberRecognizer.acquire().lexesAs(extension, PhoneNumberLexer.EXTENSION, PhoneNumberLexer.Ext)) {
+        throw new IllegalArgumentException("PhoneNumber extension must contain only numeric characters and optional ., -, (, ) visual separator characters.");
       }
+    }
 
-      PhoneNumber parsedPhoneNumber = tpl.getPhoneNumber();
+    PhoneNumber copy = parsedCopy();
+    int start = TEL_PREFIX.length() + number.length();
+    copy.value = splice(start, start + segmentLength(EXTENSION_PREFIX, this.extension), EXTENSION_PREFIX, extension);
+    copy.extension = extension;
+    return copy;
+  }
 
-      this.value = parsedPhoneNumber.getValue();
-      this.number = parsedPhoneNumber.getNumber();
-      this.extension = parsedPhoneNumber.getExtension();
-      this.subAddress = parsedPhoneNumber.getSubAddress();
-      this.phoneContext = parsedPhoneNumber.getPhoneContext();
-      this.params = parsedPhoneNumber.getParams();
-      this.isGlobalNumber = parsedPhoneNumber.isGlobalNumber();
-      this.isDomainPhoneContext = parsedPhoneNumber.isDomainPhoneContext();
+  /**
+   * @param subAddress the new sub-address, or null to remove it
+   */
+  public PhoneNumber withSubAddress(String subAddress) {
+    if (StringUtils.isEmpty(subAddress)) {
+      subAddress = null;
     } else {
-      this.value = value;
+      if (!StringUtils.isEmpty(extension)) {
+        throw new IllegalArgumentException("PhoneNumber cannot have a value for both extension and subAddress.");
+      }
+      if (!PhoneNumberRecognizer.acquire().lexesAs(subAddress, PhoneNumberLexer.ISUB, PhoneNumberLexer.Isub)) {
+        throw new IllegalArgumentException("PhoneNumber subAddress " + subAddress + " is not a valid sub-address.");
+      }
+    }
+
+    PhoneNumber copy = parsedCopy();
+    int start = TEL_PREFIX.length() + number.length() + segmentLength(EXTENSION_PREFIX, extension);
+    copy.value = splice(start, start + segmentLength(ISUB_PREFIX, this.subAddress), ISUB_PREFIX, subAddress);
+    copy.subAddress = subAddress;
+    return copy;
+  }
+
+  /**
+   * Replaces the phone context of a local number with a domain name or a
+   * global number prefix.
+   */
+  public PhoneNumber withPhoneContext(String phoneContext) {
+    if (isGlobalNumber) {
+      throw new IllegalArgumentException("PhoneNumber phoneContext is not allowed on a global number.");
+    }
+    if (StringUtils.isEmpty(phoneContext)) {
+      throw new IllegalArgumentException("PhoneNumber phoneContext of a local number cannot be null or empty.");
     }
+    PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+    boolean isDomain = recognizer.lexesAs(phoneContext, PhoneNumberLexer.PHONE_CTX, PhoneNumberLexer.DomainName);
+    if (!isDomain && !recognizer.lexesAs(phoneContext, PhoneNumberLexer.PHONE_CTX, PhoneNumberLexer.CtxPlus, PhoneNumberLexer.GlobalNumberDigits)) {
+      throw new IllegalArgumentException("PhoneNumber phoneContext must be a domain name or a global number prefix.");
+    }
+
+    PhoneNumber copy = parsedCopy();
+    int start = TEL_PREFIX.length() + number.length() + segmentLength(EXTENSION_PREFIX, extension) + segmentLength(ISUB_PREFIX, subAddress);
+    copy.value = splice(start, start + segmentLength(CONTEXT_PREFIX, this.phoneContext), CONTEXT_PREFIX, phoneContext);
+    copy.phoneContext = phoneContext;
+    copy.isDomainPhoneContext = isDomain;
+    copy.e164 = null;
+    return copy;
+  }
+
+  /*
+   * The value of a parsed number is always laid out by the builder as number,
+   * extension, sub-address, phone context then params, so the offset of every
+   * component follows from the lengths of the ones before it.
+   */
+  private PhoneNumber parsedCopy() {
+    if (value == null || number == null) {
+      throw new IllegalStateException("PhoneNumber value has not been parsed into its components.");
+    }
+    return copy();
+  }
+
+  private static int segmentLength(String prefix, String component) {
+    return StringUtils.isEmpty(component) ? 0 : prefix.length() + component.length();
+  }
+
+  private String splice(int start, int end, String prefix, String component) {
+    StringBuilder sb = new StringBuilder(value.length() + segmentLength(prefix, component));
+    sb.append(value, 0, start);
+    if (component != null) {
+      sb.append(prefix).append(component);
+    }
+    sb.append(value, end, value.length());
+    return sb.toString();
+  }
+
+  private String spliceParams() {
+    int start = TEL_PREFIX.length() + number.length() + segmentLength(EXTENSION_PREFIX, extension)
+        + segmentLength(ISUB_PREFIX, subAddress) + segmentLength(CONTEXT_PREFIX, phoneContext);
+    StringBuilder sb = new StringBuilder(value.length() + 16);
+    sb.append(value, 0, start);
+    return appendParams(sb, params).toString();
+  }
+
+  private static void appendComponent(StringBuilder sb, String prefix, String component) {
+    if (component != null && !component.isEmpty()) {
+      sb.append(prefix).append(component);
+    }
+  }
+
+  private static StringBuilder appendParams(StringBuilder sb, PhoneNumberParams params) {
+    if (params != null) {
+      for (int i = 0; i < params.size(); i++) {
+        sb.append(';').append(params.name(i));
+        if (params.value(i) != null) {
+          sb.append('=').append(params.value(i));
+        }
+      }
+    }
+    return sb;
   }
 
   /*
@@ -220,41 +689,22 @@ public class PhoneNumber {
     result = prime * result + ((extension == null) ? 0 : extension.replaceAll(VISUAL_SEPARATORS, "").hashCode());
     result = prime * result + ((subAddress == null) ? 0 : subAddress.toLowerCase().hashCode());
     result = prime * result + ((phoneContext == null) ? 0 : (isDomainPhoneContext ? phoneContext.toLowerCase().hashCode() : phoneContext.replaceAll(VISUAL_SEPARATORS, "").hashCode()));
-    result = prime * result + ((params == null) ? 0 : paramsToLowerCase().hashCode());
+    result = prime * result + ((params == null) ? 0 : params.hashCodeIgnoreCase());
     result = prime * result + ((primary == null) ? 0 : primary.hashCode());
     result = prime * result + ((type == null) ? 0 : type.toLowerCase().hashCode());
     return result;
   }
 
-  HashMap<String, String> paramsToLowerCase() {
-    HashMap<String, String> paramsLowercase = new HashMap<String, String>();
-    for (Entry<String, String> entry : params.entrySet()) {
-      paramsLowercase.put(entry.getKey().toLowerCase(), entry.getValue().toLowerCase());
-    }
-
-    return paramsLowercase;
-  }
-
-  boolean equalsIgnoreCaseAndOrderParams(Map<String, String> otherParams) {
+  boolean equalsIgnoreCaseAndOrderParams(PhoneNumberParams otherParams) {
     if (params == null && otherParams == null) {
       return true;
     }
 
-    if ((params == null && otherParams != null) || (params != null && otherParams == null) || (params.size() != otherParams.size())) {
+    if (params == null || otherParams == null) {
       return false;
     }
 
-    HashMap<String, String> paramsLowercase = paramsToLowerCase();
-
-    for (Entry<String, String> entry : otherParams.entrySet()) {
-      String foundValue = paramsLowercase.get(entry.getKey().toLowerCase());
-
-      if (!entry.getValue().equalsIgnoreCase(foundValue)) {
-        return false;
-      }
-    }
-
-    return true;
+    return params.equalsIgnoreCaseAndOrder(otherParams);
   }
 
   public String getDisplay() {
@@ -294,7 +744,7 @@ public class PhoneNumber {
   }
 
   public Map<String, String> getParams() {
-    return this.params;
+    return this.params != null ? this.params.asMap() : null;
   }
 
   public PhoneNumber setDisplay(String display) {
@@ -333,7 +783,7 @@ public class PhoneNumber {
     String extension;
     String subAddress;
     String phoneContext;
-    Map<String, String> params;
+    PhoneNumberParams params;
 
     boolean isGlobalNumber = false;
     boolean isDomainPhoneContext = false;
@@ -363,73 +813,27 @@ public class PhoneNumber {
 
     public PhoneNumberBuilder param(String name, String value) {
       if (this.params == null) {
-        this.params = new HashMap<String, String>();
+        this.params = new PhoneNumberParams();
       }
 
       this.params.put(name, value);
       return this;
     }
 
-    String getFormattedExtension() {
-      if (this.extension != null && !this.extension.isEmpty()) {
-        return String.format(EXTENSTION_PREFIX, this.extension);
-      }
-
-      return null;
-    }
-
-    String getFormattedSubAddress() {
-      if (this.subAddress != null && !this.subAddress.isEmpty()) {
-        return String.format(ISUB_PREFIX, this.subAddress);
-      }
-
-      return null;
-    }
-
-    String getFormattedPhoneContext() {
-      if (this.phoneContext != null && !this.phoneContext.isEmpty()) {
-        return String.format(CONTEXT_PREFIX, this.phoneContext);
-      }
-
-      return null;
-    }
-
-    String getFormattedParams() {
-      String paramsFormatted = "";
-
-      if (params != null) {
-        for (Map.Entry<String, String> entry : params.entrySet()) {
-          paramsFormatted += String.format(PARAMS_STRING, entry.getKey(), entry.getValue() != null ? entry.getValue() : "");
-        }
-      }
-
-      return !paramsFormatted.isEmpty() ? paramsFormatted : null;
-    }
-
     String getFormattedValue() {
-      String valueString = String.format(PREFIX, this.number);
-
-      String fExtension = getFormattedExtension();
-      if (fExtension != null) {
-        valueString += fExtension;
-      }
-
-      String fSubAddr = getFormattedSubAddress();
-      if (fSubAddr != null) {
-        valueString += fSubAddr;
-      }
-
-      String fContext = getFormattedPhoneContext();
-      if (fContext != null) {
-        valueString += fContext;
-      }
-
-      String fParams = getFormattedParams();
-      if (fParams != null) {
-        valueString += fParams;
-      }
+      return appendFormattedValue(new StringBuilder(64)).toString();
+    }
 
-      return !valueString.isEmpty() ? valueString : null;
+    /*
+     * Appends piece by piece rather than formatting and concatenating, the
+     * builder runs for every parsed value.
+     */
+    StringBuilder appendFormattedValue(StringBuilder sb) {
+      sb.append(TEL_PREFIX).append(number);
+      appendComponent(sb, EXTENSION_PREFIX, extension);
+      appendComponent(sb, PhoneNumber.ISUB_PREFIX, subAddress);
+      appendComponent(sb, PhoneNumber.CONTEXT_PREFIX, phoneContext);
+      return appendParams(sb, params);
     }
 
     public PhoneNumber build() throws PhoneNumberParseException {
@@ -446,18 +850,20 @@ public class PhoneNumber {
       }
 
       if (params != null && !params.isEmpty()) {
-        if (params.get("") != null || params.get(null) != null || params.values().contains(null) || params.values().contains("")) {
-          throw new IllegalArgumentException("PhoneNumberBuilder params names and values cannot be null or empty.");
+        for (int i = 0; i < params.size(); i++) {
+          if (StringUtils.isEmpty(params.name(i))) {
+            throw new IllegalArgumentException("PhoneNumberBuilder params names cannot be null or empty.");
+          }
         }
       }
 
       PhoneNumber phoneNumber = new PhoneNumber();
 
       String formattedValue = getFormattedValue();
-      LOGGER.debug("" + formattedValue);
+      LOGGER.debug("{}", formattedValue);
 
       if (validate) {
-        phoneNumber.setValue(formattedValue);
+        phoneNumber.setValue(formattedValue, null, Operation.BUILD);
       } else {
         phoneNumber.value = formattedValue;
         phoneNumber.extension = this.extension;
@@ -536,7 +942,7 @@ public class PhoneNumber {
     }
 
     public Map<String, String> getParams() {
-      return this.params;
+      return this.params != null ? this.params.asMap() : null;
     }
 
     public boolean isGlobalNumber() {
@@ -573,7 +979,7 @@ public class PhoneNumber {
     }
 
     public PhoneNumberBuilder setParams(Map<String, String> params) {
-      this.params = params;
+      this.params = params != null ? new PhoneNumberParams(params) : null;
       return this;
     }
 
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * Bloom filter for large sets of phone numbers, such as blocklists, keyed on
+ * {@link PhoneNumber#getCanonicalKey()} so that numbers {@link PhoneNumber#equals}
+ * treats as equal are the same entry.
+ *
+ * The bits are kept off heap, either in memory or in a memory-mapped file
+ * which can be reopened later, or by other processes, without loading it.
+ * Lookups and additions are lock-free: bits are read with volatile reads and
+ * set with compare-and-set, so any number of threads can query the filter
+ * while others add to it.
+ *
+ * A filter answers "maybe" for every number added and for a configurable
+ * fraction of the others. {@link #contains(PhoneNumber, Predicate)} adds an
+ * exact check, for instance against a database, for the numbers that pass.
+ */
+public final class PhoneNumberBloomFilter {
+
+  private static final int MAGIC = 0x504E4246;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_BYTES = 32;
+
+  private static final int MAX_HASH_COUNT = 64;
+
+  private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private final ByteBuffer buffer;
+
+  private final long bitCount;
+
+  private final int hashCount;
+
+  private final long expectedInsertions;
+
+  private PhoneNumberBloomFilter(ByteBuffer buffer) {
+    this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter data has no filter header.");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter version " + buffer.getInt(4) + " is not supported.");
+    }
+    this.hashCount = buffer.getInt(8);
+    this.bitCount = buffer.getLong(16);
+    this.expectedInsertions = buffer.getLong(24);
+    if (hashCount < 1 || hashCount > MAX_HASH_COUNT || bitCount < 64 || bitCount % 64 != 0
+        || buffer.capacity() != HEADER_BYTES + bitCount / 8) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter data is corrupt.");
+    }
+  }
+
+  /**
+   * Creates an in-memory filter holding {@code expectedInsertions} numbers
+   * with a false positive probability of {@code fpp}.
+   */
+  public static PhoneNumberBloomFilter create(long expectedInsertions, double fpp) {
+    long bitCount = bitCount(expectedInsertions, fpp);
+    ByteBuffer buffer = ByteBuffer.allocateDirect((int) (HEADER_BYTES + bitCount / 8));
+    writeHeader(buffer, expectedInsertions, bitCount);
+    return new PhoneNumberBloomFilter(buffer);
+  }
+
+  /**
+   * Creates a filter like {@link #create(long, double)} backed by a new file
+   * mapped into memory. Bits set are written back by the operating system, or
+   * on {@link #force()}.
+   */
+  public static PhoneNumberBloomFilter create(Path file, long expectedInsertions, double fpp) throws IOException {
+    long bitCount = bitCount(expectedInsertions, fpp);
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      MappedByteBuffer buffer = map(channel, FileChannel.MapMode.READ_WRITE, HEADER_BYTES + bitCount / 8);
+      writeHeader(buffer, expectedInsertions, bitCount);
+      return new PhoneNumberBloomFilter(buffer);
+    }
+  }
+
+  /**
+   * Maps a filter written by {@link #create(Path, long, double)} or
+   * {@link #writeTo(Path)}.
+   *
+   * @param writable whether numbers may be added, changing the file
+   */
+  public static PhoneNumberBloomFilter open(Path file, boolean writable) throws IOException {
+    StandardOpenOption[] options = writable
+        ? new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE}
+        : new StandardOpenOption[] {StandardOpenOption.READ};
+    try (FileChannel channel = FileChannel.open(file, options)) {
+      return new PhoneNumberBloomFilter(map(channel, writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY, channel.size()));
+    }
+  }
+
+  /**
+   * Writes a copy of the filter to a new file, to be mapped with
+   * {@link #open(Path, boolean)}.
+   */
+  public void writeTo(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      ByteBuffer source = buffer.duplicate();
+      source.clear();
+      while (source.hasRemaining()) {
+        channel.write(source);
+      }
+    }
+  }
+
+  /**
+   * Writes the bits set so far of a file backed filter to the file.
+   */
+  public void force() {
+    if (buffer instanceof MappedByteBuffer && !buffer.isReadOnly()) {
+      ((MappedByteBuffer) buffer).force();
+    }
+  }
+
+  /**
+   * @return true if the filter changed, false if the number may already have
+   *     been added
+   * @throws IllegalArgumentException if {@code phoneNumber} has no parsed number
+   */
+  public boolean put(PhoneNumber phoneNumber) {
+    String key = canonicalKey(phoneNumber);
+    if (buffer.isReadOnly()) {
+      throw new IllegalStateException("PhoneNumberBloomFilter was opened read-only.");
+    }
+    long h1 = hash(key, 0x9E3779B97F4A7C15L);
+    long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+    boolean changed = false;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      int offset = HEADER_BYTES + (int) (bit >>> 6) * 8;
+      long mask = 1L << bit;
+      long word = (long) WORDS.getVolatile(buffer, offset);
+      while ((word & mask) == 0) {
+        if (WORDS.compareAndSet(buffer, offset, word, word | mask)) {
+          changed = true;
+          break;
+        }
+        word = (long) WORDS.getVolatile(buffer, offset);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * @return false if the number was certainly not added, true if it probably was
+   */
+  public boolean mightContain(PhoneNumber phoneNumber) {
+    return mightContain(canonicalKey(phoneNumber));
+  }
+
+  /**
+   * Checks the filter, then confirms a match with {@code exactCheck}, which is
+   * given the canonical key of the number and only called for the numbers
+   * which pass the filter.
+   */
+  public boolean contains(PhoneNumber phoneNumber, Predicate<? super String> exactCheck) {
+    String key = canonicalKey(phoneNumber);
+    return mightContain(key) && exactCheck.test(key);
+  }
+
+  private boolean mightContain(String key) {
+    long h1 = hash(key, 0x9E3779B97F4A7C15L);
+    long h2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+      long word = (long) WORDS.getVolatile(buffer, HEADER_BYTES + (int) (bit >>> 6) * 8);
+      if ((word & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  public long getBitCount() {
+    return bitCount;
+  }
+
+  public int getHashCount() {
+    return hashCount;
+  }
+
+  public long getExpectedInsertions() {
+    return expectedInsertions;
+  }
+
+  /**
+   * The false positive probability given the bits set so far, which grows
+   * past the configured one when more numbers than expected are added.
+   */
+  public double getCurrentFpp() {
+    long set = 0;
+    for (int offset = HEADER_BYTES; offset < buffer.capacity(); offset += 8) {
+      set += Long.bitCount((long) WORDS.getVolatile(buffer, offset));
+    }
+    return Math.pow((double) set / bitCount, hashCount);
+  }
+
+  private static String canonicalKey(PhoneNumber phoneNumber) {
+    String key = phoneNumber != null ? phoneNumber.getCanonicalKey() : null;
+    if (key == null) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter numbers must be parsed phone numbers.");
+    }
+    return key;
+  }
+
+  private static long bitCount(long expectedInsertions, double fpp) {
+    if (expectedInsertions < 1) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter expectedInsertions must be positive.");
+    }
+    if (!(fpp > 0 && fpp < 1)) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter fpp must be between 0 and 1.");
+    }
+    double bits = -expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2));
+    // whole words, addressable with an int offset into the buffer
+    long bitCount = Math.max(64, ((long) Math.ceil(bits) + 63) & ~63L);
+    if (HEADER_BYTES + bitCount / 8 > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter of " + bitCount + " bits exceeds the 2 GB limit.");
+    }
+    return bitCount;
+  }
+
+  private static void writeHeader(ByteBuffer buffer, long expectedInsertions, long bitCount) {
+    int hashCount = (int) Math.round((double) bitCount / expectedInsertions * Math.log(2));
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, Math.max(1, Math.min(MAX_HASH_COUNT, hashCount)));
+    buffer.putLong(16, bitCount);
+    buffer.putLong(24, expectedInsertions);
+  }
+
+  private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long size) throws IOException {
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("PhoneNumberBloomFilter file of " + size + " bytes exceeds the 2 GB limit.");
+    }
+    return channel.map(mode, 0, size);
+  }
+
+  /*
+   * 64 bit hash of the UTF-16 code units, stable across runs and JVMs as it
+   * ends up in files.
+   */
+  static long hash(String key, long seed) {
+    long h = seed ^ key.length();
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001B3L;
+      h = Long.rotateLeft(h, 29);
+    }
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -0,0 +1,673 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Command line tool normalizing the phone numbers of a CSV or NDJSON export.
+ *
+ * <pre>
+ * java -cp ... org.example.phonenumber.PhoneNumberBulkNormalizer --input users.csv [options]
+ *
+ *   --input FILE        CSV (with a header line) or NDJSON file to read
+ *   --format FORMAT     csv or ndjson, by default taken from the file extension
+ *   --column NAME       CSV column or NDJSON field holding the phone number, by
+ *                       default the first one whose name contains "phone"
+ *   --output FILE       normalized records, by default INPUT.normalized.EXT
+ *   --rejects FILE      rejected records, by default INPUT.rejects.csv
+ *   --threads N         parser threads, by default the number of processors
+ *   --batch-size N      records handed to a thread at a time, by default 1000
+ * </pre>
+ *
+ * Values are parsed with the same rules as {@link PhoneNumber#setValue(String)}
+ * and replaced by the formatted value of the parsed number; every other field
+ * is copied as is. Records that fail to parse go to the rejects file with the
+ * offset and reason of the failure. A throughput, latency and GC summary is
+ * printed when done.
+ */
+public final class PhoneNumberBulkNormalizer {
+
+  enum Format {
+    CSV, NDJSON
+  }
+
+  static final class Options {
+    Path input;
+    Path output;
+    Path rejects;
+    Format format;
+    String column;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int batchSize = 1000;
+  }
+
+  static final class Summary {
+    long records;
+    long rejected;
+    long elapsedNanos;
+    long gcCount;
+    long gcMillis;
+    final LatencyHistogram latencies = new LatencyHistogram();
+
+    double recordsPerSecond() {
+      return elapsedNanos > 0 ? records * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    void print(PrintStream out) {
+      out.printf(Locale.ROOT, "records:     %d (%d normalized, %d rejected)%n", records, records - rejected, rejected);
+      out.printf(Locale.ROOT, "elapsed:     %.3f s%n", elapsedNanos / 1e9);
+      out.printf(Locale.ROOT, "throughput:  %.0f records/s%n", recordsPerSecond());
+      out.printf(Locale.ROOT, "latency p50: %.1f us%n", latencies.getValueAtPercentile(50) / 1000.0);
+      out.printf(Locale.ROOT, "latency p99: %.1f us%n", latencies.getValueAtPercentile(99) / 1000.0);
+      out.printf(Locale.ROOT, "gc:          %d collections, %d ms%n", gcCount, gcMillis);
+    }
+  }
+
+  private static final class Batch {
+    // the line each record starts on, as blank lines and multi-line records leave gaps
+    final long[] lineNumbers;
+    final List<String> records;
+    final StringBuilder output = new StringBuilder();
+    final StringBuilder rejects = new StringBuilder();
+    long rejected;
+
+    Batch(long[] lineNumbers, List<String> records) {
+      this.lineNumbers = lineNumbers;
+      this.records = records;
+    }
+  }
+
+  private final RecordCodec codec;
+
+  PhoneNumberBulkNormalizer(RecordCodec codec) {
+    this.codec = codec;
+  }
+
+  public static void main(String[] args) {
+    Options options;
+    try {
+      options = parseArguments(args);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println("usage: PhoneNumberBulkNormalizer --input FILE [--format csv|ndjson] [--column NAME] [--output FILE] [--rejects FILE] [--threads N] [--batch-size N]");
+      System.exit(2);
+      return;
+    }
+
+    try {
+      run(options).print(System.out);
+    } catch (IOException | IllegalArgumentException e) {
+      System.err.println("PhoneNumberBulkNormalizer failed: " + e.getMessage());
+      System.exit(1);
+    }
+  }
+
+  static Options parseArguments(String[] args) {
+    Options options = new Options();
+    for (int i = 0; i < args.length; i++) {
+      String arg = args[i];
+      if (i + 1 >= args.length) {
+        throw new IllegalArgumentException("missing value for " + arg);
+      }
+      String value = args[++i];
+      switch (arg) {
+        case "--input":
+          options.input = Paths.get(value);
+          break;
+        case "--output":
+          options.output = Paths.get(value);
+          break;
+        case "--rejects":
+          options.rejects = Paths.get(value);
+          break;
+        case "--format":
+          options.format = Format.valueOf(value.toUpperCase(Locale.ROOT));
+          break;
+        case "--column":
+          options.column = value;
+          break;
+        case "--threads":
+          options.threads = positive(arg, value);
+          break;
+        case "--batch-size":
+          options.batchSize = positive(arg, value);
+          break;
+        default:
+          throw new IllegalArgumentException("unknown option " + arg);
+      }
+    }
+
+    if (options.input == null) {
+      throw new IllegalArgumentException("--input is required");
+    }
+    String fileName = options.input.getFileName().toString();
+    int dot = fileName.lastIndexOf('.');
+    String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+    String extension = dot > 0 ? fileName.substring(dot + 1) : "";
+    if (options.format == null) {
+      options.format = extension.equalsIgnoreCase("ndjson") || extension.equalsIgnoreCase("jsonl") ? Format.NDJSON : Format.CSV;
+    }
+    if (options.output == null) {
+      options.output = options.input.resolveSibling(baseName + ".normalized" + (extension.isEmpty() ? "" : "." + extension));
+    }
+    if (options.rejects == null) {
+      options.rejects = options.input.resolveSibling(baseName + ".rejects.csv");
+    }
+    return options;
+  }
+
+  private static int positive(String option, String value) {
+    try {
+      int n = Integer.parseInt(value);
+      if (n > 0) {
+        return n;
+      }
+    } catch (NumberFormatException e) {
+      // reported below
+    }
+    throw new IllegalArgumentException(option + " must be a positive number");
+  }
+
+  static Summary run(Options options) throws IOException {
+    Summary summary = new Summary();
+    long gcCountBefore = gcCount();
+    long gcMillisBefore = gcMillis();
+    long start = System.nanoTime();
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService workers = Executors.newFixedThreadPool(options.threads, r -> {
+      Thread thread = new Thread(r, "phone-number-normalizer-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try (BufferedReader reader = Files.newBufferedReader(options.input, StandardCharsets.UTF_8);
+         BufferedWriter output = Files.newBufferedWriter(options.output, StandardCharsets.UTF_8);
+         BufferedWriter rejects = Files.newBufferedWriter(options.rejects, StandardCharsets.UTF_8)) {
+
+      long lineNumber = 0;
+      RecordCodec codec;
+      if (options.format == Format.CSV) {
+        String header = CsvCodec.readRecord(reader);
+        if (header == null) {
+          throw new IllegalArgumentException(options.input + " is empty");
+        }
+        lineNumber += CsvCodec.lineCount(header);
+        codec = CsvCodec.forHeader(header, options.column);
+        output.write(header);
+        output.newLine();
+      } else {
+        codec = new NdjsonCodec(options.column);
+      }
+      rejects.write("line,offset,error,record");
+      rejects.newLine();
+
+      PhoneNumberBulkNormalizer normalizer = new PhoneNumberBulkNormalizer(codec);
+      // results are written in input order; keep enough batches queued to keep every thread busy
+      ArrayDeque<Future<Batch>> pending = new ArrayDeque<>();
+      List<String> records = new ArrayList<>(options.batchSize);
+      long[] lineNumbers = new long[options.batchSize];
+      String record;
+      while ((record = options.format == Format.CSV ? CsvCodec.readRecord(reader) : reader.readLine()) != null) {
+        long recordLine = lineNumber + 1;
+        lineNumber += options.format == Format.CSV ? CsvCodec.lineCount(record) : 1;
+        if (record.isEmpty()) {
+          continue;
+        }
+        lineNumbers[records.size()] = recordLine;
+        records.add(record);
+        if (records.size() == options.batchSize) {
+          pending.add(normalizer.submit(workers, lineNumbers, records, summary.latencies));
+          records = new ArrayList<>(options.batchSize);
+          lineNumbers = new long[options.batchSize];
+          while (pending.size() > options.threads * 2) {
+            write(pending.poll(), output, rejects, summary);
+          }
+        }
+      }
+      if (!records.isEmpty()) {
+        pending.add(normalizer.submit(workers, lineNumbers, records, summary.latencies));
+      }
+      while (!pending.isEmpty()) {
+        write(pending.poll(), output, rejects, summary);
+      }
+    } finally {
+      workers.shutdownNow();
+    }
+
+    summary.elapsedNanos = System.nanoTime() - start;
+    summary.gcCount = gcCount() - gcCountBefore;
+    summary.gcMillis = gcMillis() - gcMillisBefore;
+    return summary;
+  }
+
+  private Future<Batch> submit(ExecutorService workers, long[] lineNumbers, List<String> records, LatencyHistogram latencies) {
+    Batch batch = new Batch(lineNumbers, records);
+    return workers.submit(() -> normalize(batch, latencies));
+  }
+
+  private Batch normalize(Batch batch, LatencyHistogram latencies) {
+    PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+    for (int i = 0; i < batch.records.size(); i++) {
+      String record = batch.records.get(i);
+      long start = System.nanoTime();
+      ParseResult result;
+      try {
+        result = ParseResult.parse(i, codec.readPhoneNumber(record), recognizer);
+      } catch (IllegalArgumentException e) {
+        // a record the codec cannot read is rejected like an invalid value, not the whole run
+        result = ParseResult.failure(i, null, new PhoneNumberParseException(e.getMessage()));
+      }
+      String normalized = result.isSuccess() ? codec.replacePhoneNumber(record, result.getPhoneNumber().getValue()) : null;
+      latencies.record(System.nanoTime() - start);
+
+      if (normalized != null) {
+        batch.output.append(normalized).append(System.lineSeparator());
+      } else {
+        batch.rejected++;
+        batch.rejects.append(batch.lineNumbers[i]).append(',')
+            .append(result.getErrorOffset()).append(',')
+            .append(CsvCodec.quote(result.getErrorMessage())).append(',')
+            .append(CsvCodec.quote(record)).append(System.lineSeparator());
+      }
+    }
+    return batch;
+  }
+
+  private static void write(Future<Batch> future, BufferedWriter output, BufferedWriter rejects, Summary summary) throws IOException {
+    Batch batch;
+    try {
+      batch = future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while normalizing", e);
+    } catch (ExecutionException e) {
+      throw new IOException("normalizing failed", e.getCause());
+    }
+    output.append(batch.output);
+    rejects.append(batch.rejects);
+    summary.records += batch.records.size();
+    summary.rejected += batch.rejected;
+  }
+
+  private static long gcCount() {
+    long count = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(gc.getCollectionCount(), 0);
+    }
+    return count;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(gc.getCollectionTime(), 0);
+    }
+    return millis;
+  }
+
+  /**
+   * Reads and replaces the phone number field of a single record.
+   */
+  interface RecordCodec {
+
+    /**
+     * @return the phone number, or null if the record doesn't have one
+     */
+    String readPhoneNumber(String record);
+
+    String replacePhoneNumber(String record, String phoneNumber);
+  }
+
+  static final class CsvCodec implements RecordCodec {
+
+    private final int column;
+
+    CsvCodec(int column) {
+      this.column = column;
+    }
+
+    static CsvCodec forHeader(String header, String columnName) {
+      List<String> names = split(header);
+      for (int i = 0; i < names.size(); i++) {
+        String name = names.get(i).trim();
+        if (columnName != null ? name.equalsIgnoreCase(columnName) : name.toLowerCase(Locale.ROOT).contains("phone")) {
+          return new CsvCodec(i);
+        }
+      }
+      throw new IllegalArgumentException(columnName != null ? "no column named " + columnName : "no phone column found in header, use --column");
+    }
+
+    /**
+     * Reads one record, which spans several lines when a quoted field contains
+     * line breaks.
+     */
+    static String readRecord(BufferedReader reader) throws IOException {
+      String line = reader.readLine();
+      if (line == null) {
+        return null;
+      }
+      StringBuilder record = null;
+      while (countQuotes(line) % 2 != 0) {
+        String next = reader.readLine();
+        if (next == null) {
+          break;
+        }
+        if (record == null) {
+          record = new StringBuilder(line);
+        }
+        record.append('\n').append(next);
+        line = record.toString();
+      }
+      return line;
+    }
+
+    /**
+     * Number of physical lines a record read by {@link #readRecord} spans.
+     */
+    static int lineCount(String record) {
+      int lines = 1;
+      for (int i = 0; i < record.length(); i++) {
+        if (record.charAt(i) == '\n') {
+          lines++;
+        }
+      }
+      return lines;
+    }
+
+    private static int countQuotes(String s) {
+      int quotes = 0;
+      for (int i = 0; i < s.length(); i++) {
+        if (s.charAt(i) == '"') {
+          quotes++;
+        }
+      }
+      return quotes;
+    }
+
+    static List<String> split(String record) {
+      List<String> fields = new ArrayList<>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      for (int i = 0; i < record.length(); i++) {
+        char c = record.charAt(i);
+        if (quoted) {
+          if (c == '"') {
+            if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+              field.append('"');
+              i++;
+            } else {
+              quoted = false;
+            }
+          } else {
+            field.append(c);
+          }
+        } else if (c == '"') {
+          quoted = true;
+        } else if (c == ',') {
+          fields.add(field.toString());
+          field.setLength(0);
+        } else {
+          field.append(c);
+        }
+      }
+      fields.add(field.toString());
+      return fields;
+    }
+
+    static String quote(String field) {
+      if (field == null) {
+        return "";
+      }
+      for (int i = 0; i < field.length(); i++) {
+        char c = field.charAt(i);
+        if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+          return '"' + field.replace("\"", "\"\"") + '"';
+        }
+      }
+      return field;
+    }
+
+    @Override
+    public String readPhoneNumber(String record) {
+      List<String> fields = split(record);
+      return column < fields.size() ? fields.get(column) : null;
+    }
+
+    @Override
+    public String replacePhoneNumber(String record, String phoneNumber) {
+      List<String> fields = split(record);
+      StringBuilder sb = new StringBuilder(record.length() + 16);
+      for (int i = 0; i < fields.size(); i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        sb.append(quote(i == column ? phoneNumber : fields.get(i)));
+      }
+      return sb.toString();
+    }
+  }
+
+  /**
+   * Finds a top level string field of a JSON object without building a tree.
+   */
+  static final class NdjsonCodec implements RecordCodec {
+
+    private final String field;
+
+    NdjsonCodec(String field) {
+      this.field = field;
+    }
+
+    @Override
+    public String readPhoneNumber(String record) {
+      int[] span = find(record);
+      return span != null ? unescape(record, span[0] + 1, span[1] - 1) : null;
+    }
+
+    @Override
+    public String replacePhoneNumber(String record, String phoneNumber) {
+      int[] span = find(record);
+      StringBuilder sb = new StringBuilder(record.length() + 16);
+      sb.append(record, 0, span[0]);
+      appendQuoted(sb, phoneNumber);
+      sb.append(record, span[1], record.length());
+      return sb.toString();
+    }
+
+    /*
+     * Returns the start and end (exclusive, quotes included) of the string
+     * value of the wanted field, or null if the record has no such field.
+     */
+    private int[] find(String json) {
+      int i = skipWhitespace(json, 0);
+      if (i >= json.length() || json.charAt(i) != '{') {
+        return null;
+      }
+      i++;
+      while (true) {
+        i = skipWhitespace(json, i);
+        if (i >= json.length() || json.charAt(i) != '"') {
+          return null;
+        }
+        int keyEnd = skipString(json, i);
+        String key = unescape(json, i + 1, keyEnd - 1);
+        i = skipWhitespace(json, keyEnd);
+        if (i >= json.length() || json.charAt(i) != ':') {
+          return null;
+        }
+        i = skipWhitespace(json, i + 1);
+        int valueStart = i;
+        int valueEnd = skipValue(json, i);
+        boolean wanted = field != null ? field.equals(key) : key.toLowerCase(Locale.ROOT).contains("phone");
+        if (wanted && valueStart < json.length() && json.charAt(valueStart) == '"') {
+          return new int[] { valueStart, valueEnd };
+        }
+        i = skipWhitespace(json, valueEnd);
+        if (i >= json.length() || json.charAt(i) != ',') {
+          return null;
+        }
+        i++;
+      }
+    }
+
+    private static int skipWhitespace(String json, int i) {
+      while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+        i++;
+      }
+      return i;
+    }
+
+    private static int skipString(String json, int i) {
+      i++;
+      while (i < json.length()) {
+        char c = json.charAt(i++);
+        if (c == '\\') {
+          i++;
+        } else if (c == '"') {
+          return i;
+        }
+      }
+      return json.length();
+    }
+
+    private static int skipValue(String json, int i) {
+      if (i >= json.length()) {
+        return i;
+      }
+      char c = json.charAt(i);
+      if (c == '"') {
+        return skipString(json, i);
+      }
+      if (c == '{' || c == '[') {
+        int depth = 0;
+        while (i < json.length()) {
+          c = json.charAt(i);
+          if (c == '"') {
+            i = skipString(json, i);
+            continue;
+          }
+          if (c == '{' || c == '[') {
+            depth++;
+          } else if (c == '}' || c == ']') {
+            depth--;
+            if (depth == 0) {
+              return i + 1;
+            }
+          }
+          i++;
+        }
+        return i;
+      }
+      while (i < json.length() && json.charAt(i) != ',' && json.charAt(i) != '}' && !Character.isWhitespace(json.charAt(i))) {
+        i++;
+      }
+      return i;
+    }
+
+    static String unescape(String json, int start, int end) {
+      if (json.indexOf('\\', start) < 0 || json.indexOf('\\', start) >= end) {
+        return json.substring(start, end);
+      }
+      StringBuilder sb = new StringBuilder(end - start);
+      for (int i = start; i < end; i++) {
+        char c = json.charAt(i);
+        if (c != '\\' || i + 1 >= end) {
+          sb.append(c);
+          continue;
+        }
+        char escaped = json.charAt(++i);
+        switch (escaped) {
+          case 'b':
+            sb.append('\b');
+            break;
+          case 'f':
+            sb.append('\f');
+            break;
+          case 'n':
+            sb.append('\n');
+            break;
+          case 'r':
+            sb.append('\r');
+            break;
+          case 't':
+            sb.append('\t');
+            break;
+          case 'u':
+            int code = i + 4 < end ? hex(json, i + 1, i + 5) : -1;
+            if (code < 0) {
+              throw new IllegalArgumentException("invalid unicode escape at offset " + (i - 1));
+            }
+            sb.append((char) code);
+            i += 4;
+            break;
+          default:
+            sb.append(escaped);
+        }
+      }
+      return sb.toString();
+    }
+
+    private static int hex(String s, int start, int end) {
+      int code = 0;
+      for (int i = start; i < end; i++) {
+        int digit = Character.digit(s.charAt(i), 16);
+        if (digit < 0) {
+          return -1;
+        }
+        code = code * 16 + digit;
+      }
+      return code;
+    }
+
+    static void appendQuoted(StringBuilder sb, String s) {
+      sb.append('"');
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c == '"' || c == '\\') {
+          sb.append('\\').append(c);
+        } else if (c < 0x20) {
+          sb.append(String.format("\\u%04x", (int) c));
+        } else {
+          sb.append(c);
+        }
+      }
+      sb.append('"');
+    }
+  }
+}
@@ -0,0 +1,654 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps the components of millions of parsed phone numbers off heap, in
+ * columns of direct buffers, rather than as {@link PhoneNumber} objects with
+ * their strings and params, which the garbage collector has to trace.
+ *
+ * Each number appended gets the next int id and a fixed size row pointing
+ * into the other columns: the number, packed two characters to a byte when
+ * it only has digits, visual separators and a plus; the extension and
+ * sub-address; and the params. Phone contexts, shared by many numbers, are
+ * kept once in a dictionary and referred to by index.
+ *
+ * A {@link Row} reads a number in place with the getters of
+ * {@link PhoneNumber}, building strings only for the components asked for.
+ * The scans go over the rows without building any, passing the ids which
+ * match to an {@link IntConsumer}.
+ *
+ * Appends are not synchronized with reads: fill the store, then share it;
+ * rows and scans may then run in any number of threads.
+ */
+public final class PhoneNumberColumnStore {
+
+  private static final int ROW_BYTES = 28;
+
+  private static final int MAX_LENGTH = 0xFFFF;
+
+  private static final int GLOBAL_NUMBER = 1;
+
+  private static final int DOMAIN_PHONE_CONTEXT = 2;
+
+  // the number has characters without a nibble code, so it takes a byte per character
+  private static final int BYTE_NUMBER = 4;
+
+  private static final char[] NIBBLE_CHARS = "0123456789-.()+".toCharArray();
+
+  private static final byte[] NIBBLES = new byte[128];
+
+  static {
+    Arrays.fill(NIBBLES, (byte) -1);
+    for (int i = 0; i < NIBBLE_CHARS.length; i++) {
+      NIBBLES[NIBBLE_CHARS[i]] = (byte) i;
+    }
+  }
+
+  private static final String TEL_PREFIX = "tel:";
+
+  private static final String EXTENSION_PREFIX = ";ext=";
+
+  private static final String ISUB_PREFIX = ";isub=";
+
+  private static final String CONTEXT_PREFIX = ";phone-context=";
+
+  private final Column rows = new Column(ROW_BYTES * 1024);
+
+  private final Column numbers = new Column(8 * 1024);
+
+  private final Column texts = new Column(1024);
+
+  private final Column params = new Column(4 * 1024);
+
+  private final List<String> phoneContexts = new ArrayList<>();
+
+  private final Map<String, Integer> phoneContextIds = new HashMap<>();
+
+  private int size;
+
+  /**
+   * @return the id of the number
+   * @throws IllegalArgumentException if {@code phoneNumber} has no parsed number
+   */
+  public int append(PhoneNumber phoneNumber) {
+    String number = phoneNumber != null ? phoneNumber.getNumber() : null;
+    if (number == null) {
+      throw new IllegalArgumentException("PhoneNumberColumnStore numbers must be parsed phone numbers.");
+    }
+    String extension = phoneNumber.getExtension();
+    String subAddress = phoneNumber.getSubAddress();
+    String phoneContext = phoneNumber.getPhoneContext();
+    PhoneNumberParams numberParams = phoneNumber.params;
+    int paramCount = numberParams != null ? numberParams.size() : 0;
+    boolean tooLong = number.length() > MAX_LENGTH || length(extension) + length(subAddress) > MAX_LENGTH || paramCount > MAX_LENGTH;
+    for (int i = 0; i < paramCount; i++) {
+      tooLong |= numberParams.name(i).length() > MAX_LENGTH || length(numberParams.value(i)) > MAX_LENGTH;
+    }
+    if (tooLong) {
+      throw new IllegalArgumentException("PhoneNumberColumnStore components cannot be longer than " + MAX_LENGTH + " characters.");
+    }
+
+    int flags = (phoneNumber.isGlobalNumber() ? GLOBAL_NUMBER : 0) | (phoneNumber.isDomainPhoneContext() ? DOMAIN_PHONE_CONTEXT : 0);
+    for (int i = 0; i < number.length(); i++) {
+      if (nibble(number.charAt(i)) < 0) {
+        flags |= BYTE_NUMBER;
+        break;
+      }
+    }
+    int numberOffset;
+    if ((flags & BYTE_NUMBER) != 0) {
+      numberOffset = numbers.reserve(number.length());
+      putAscii(numbers.buffer, numberOffset, number);
+    } else {
+      numberOffset = numbers.reserve((number.length() + 1) / 2);
+      for (int i = 0; i < number.length(); i += 2) {
+        int high = nibble(number.charAt(i));
+        int low = i + 1 < number.length() ? nibble(number.charAt(i + 1)) : 0;
+        numbers.buffer.put(numberOffset + i / 2, (byte) (high << 4 | low));
+      }
+    }
+
+    int textOffset = texts.reserve(length(extension) + length(subAddress));
+    if (extension != null) {
+      putAscii(texts.buffer, textOffset, extension);
+    }
+    if (subAddress != null) {
+      putAscii(texts.buffer, textOffset + length(extension), subAddress);
+    }
+
+    int paramsOffset = params.size;
+    for (int i = 0; i < paramCount; i++) {
+      putParam(numberParams.name(i));
+      // an empty value reads back as no value
+      putParam(numberParams.value(i) != null ? numberParams.value(i) : "");
+    }
+
+    int phoneContextId = -1;
+    if (phoneContext != null) {
+      phoneContextId = phoneContextIds.computeIfAbsent(phoneContext, key -> {
+        phoneContexts.add(key);
+        return phoneContexts.size() - 1;
+      });
+    }
+
+    int row = rows.reserve(ROW_BYTES);
+    ByteBuffer buffer = rows.buffer;
+    buffer.putInt(row, numberOffset);
+    buffer.putShort(row + 4, (short) number.length());
+    buffer.put(row + 6, (byte) flags);
+    buffer.putInt(row + 8, phoneContextId);
+    buffer.putInt(row + 12, textOffset);
+    buffer.putShort(row + 16, (short) length(extension));
+    buffer.putShort(row + 18, (short) length(subAddress));
+    buffer.putInt(row + 20, paramsOffset);
+    buffer.putShort(row + 24, (short) paramCount);
+    return size++;
+  }
+
+  /**
+   * Appends the numbers of the successful results of a parsed batch, such as
+   * those a {@link PhoneNumberNormalizationProcessor} publishes.
+   *
+   * @return the id of each result's number, in the order of the results, or
+   *     -1 for a failed result
+   */
+  public int[] appendAll(Iterable<ParseResult> results) {
+    int[] ids = new int[16];
+    int count = 0;
+    for (ParseResult result : results) {
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, count * 2);
+      }
+      ids[count++] = result.isSuccess() ? append(result.getPhoneNumber()) : -1;
+    }
+    return Arrays.copyOf(ids, count);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return a row reading the number {@code id}, which can be moved to other
+   *     ids with {@link Row#moveTo(int)}
+   */
+  public Row row(int id) {
+    return new Row().moveTo(id);
+  }
+
+  /**
+   * Calls {@code action} with the id of every number {@code filter} accepts.
+   * The row given to the filter is moved from number to number, so it is only
+   * valid during the call.
+   */
+  public void scan(Predicate<? super Row> filter, IntConsumer action) {
+    Row row = new Row();
+    for (int id = 0; id < size; id++) {
+      if (filter.test(row.moveTo(id))) {
+        action.accept(id);
+      }
+    }
+  }
+
+  /**
+   * Calls {@code action} with the id of every local number whose phone context
+   * is {@code phoneContext}, compared as {@link PhoneNumber#equals} does:
+   * ignoring visual separators in a global number context and case in a
+   * domain name.
+   */
+  public void scanPhoneContext(String phoneContext, IntConsumer action) {
+    String key = phoneContextKey(phoneContext);
+    boolean[] matches = new boolean[phoneContexts.size()];
+    boolean any = false;
+    for (int i = 0; i < matches.length; i++) {
+      matches[i] = phoneContextKey(phoneContexts.get(i)).equals(key);
+      any |= matches[i];
+    }
+    if (!any) {
+      return;
+    }
+    for (int id = 0; id < size; id++) {
+      int phoneContextId = rows.buffer.getInt(id * ROW_BYTES + 8);
+      if (phoneContextId >= 0 && matches[phoneContextId]) {
+        action.accept(id);
+      }
+    }
+  }
+
+  /**
+   * Calls {@code action} with the id of every number whose
+   * {@link PhoneNumber#getE164() E.164 form} starts with the digits of
+   * {@code prefix}, such as a country or area code.
+   */
+  public void scanE164Prefix(CharSequence prefix, IntConsumer action) {
+    StringBuilder sb = new StringBuilder(prefix.length());
+    for (int i = 0; i < prefix.length(); i++) {
+      if (isDigit(prefix.charAt(i))) {
+        sb.append(prefix.charAt(i));
+      }
+    }
+    String digits = sb.toString();
+    // how many digits of the prefix each phone context matches, or -1
+    int[] contextMatches = new int[phoneContexts.size()];
+    for (int i = 0; i < contextMatches.length; i++) {
+      contextMatches[i] = matchDigits(phoneContexts.get(i), digits);
+    }
+    ByteBuffer buffer = rows.buffer;
+    for (int id = 0, row = 0; id < size; id++, row += ROW_BYTES) {
+      int flags = buffer.get(row + 6);
+      int matched = 0;
+      if ((flags & GLOBAL_NUMBER) == 0) {
+        int phoneContextId = buffer.getInt(row + 8);
+        if ((flags & (DOMAIN_PHONE_CONTEXT | BYTE_NUMBER)) != 0 || phoneContextId < 0) {
+          continue;
+        }
+        matched = contextMatches[phoneContextId];
+      }
+      if (matched == digits.length()
+          || matched >= 0 && matchNibbles(buffer.getInt(row), buffer.getShort(row + 4) & 0xFFFF, digits, matched)) {
+        action.accept(id);
+      }
+    }
+  }
+
+  /**
+   * The bytes of the direct buffers holding the columns, including the room
+   * they have for numbers not appended yet.
+   */
+  public long getOffHeapBytes() {
+    return (long) rows.buffer.capacity() + numbers.buffer.capacity() + texts.buffer.capacity() + params.buffer.capacity();
+  }
+
+  private void putParam(String s) {
+    int offset = params.reserve(2 + s.length());
+    params.buffer.putShort(offset, (short) s.length());
+    putAscii(params.buffer, offset + 2, s);
+  }
+
+  private static int matchDigits(String s, String digits) {
+    int matched = 0;
+    for (int i = 0; i < s.length() && matched < digits.length(); i++) {
+      char c = s.charAt(i);
+      if (isDigit(c)) {
+        if (c != digits.charAt(matched)) {
+          return -1;
+        }
+        matched++;
+      }
+    }
+    return matched;
+  }
+
+  /*
+   * Whether the digits of a number packed in nibbles continue with those of
+   * digits from matched on; the codes of the digits are their values.
+   */
+  private boolean matchNibbles(int offset, int length, String digits, int matched) {
+    ByteBuffer buffer = numbers.buffer;
+    for (int i = 0; i < length && matched < digits.length(); i++) {
+      int pair = buffer.get(offset + i / 2);
+      int code = (i & 1) == 0 ? (pair >>> 4) & 0xF : pair & 0xF;
+      if (code < 10) {
+        if (code != digits.charAt(matched) - '0') {
+          return false;
+        }
+        matched++;
+      }
+    }
+    return matched == digits.length();
+  }
+
+  private static int nibble(char c) {
+    return c < NIBBLES.length ? NIBBLES[c] : -1;
+  }
+
+  private static void putAscii(ByteBuffer buffer, int offset, String s) {
+    for (int i = 0; i < s.length(); i++) {
+      buffer.put(offset + i, (byte) s.charAt(i));
+    }
+  }
+
+  private static String ascii(ByteBuffer buffer, int offset, int length) {
+    char[] chars = new char[length];
+    for (int i = 0; i < length; i++) {
+      chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+    }
+    return new String(chars);
+  }
+
+  private static int length(String component) {
+    return component != null ? component.length() : 0;
+  }
+
+  private static String phoneContextKey(String phoneContext) {
+    if (!phoneContext.startsWith("+")) {
+      return phoneContext.toLowerCase();
+    }
+    StringBuilder sb = new StringBuilder(phoneContext.length());
+    for (int i = 0; i < phoneContext.length(); i++) {
+      char c = phoneContext.charAt(i);
+      if (c == '+' || c >= '0' && c <= '9') {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static int nextDigit(CharSequence s, int from) {
+    while (from < s.length() && !isDigit(s.charAt(from))) {
+      from++;
+    }
+    return from;
+  }
+
+  /**
+   * Reads the number of one id in place, with the getters of
+   * {@link PhoneNumber}. The fixed size part of the row is read when the row
+   * is moved; other components are read from their columns on every call.
+   */
+  public final class Row {
+
+    private int id;
+
+    private int row;
+
+    private int flags;
+
+    private int numberOffset;
+
+    private int numberLength;
+
+    private int phoneContextId;
+
+    private Row() {
+    }
+
+    /**
+     * @throws IndexOutOfBoundsException if there is no number {@code id}
+     */
+    public Row moveTo(int id) {
+      if (id < 0 || id >= size) {
+        throw new IndexOutOfBoundsException("PhoneNumberColumnStore has no number " + id + ".");
+      }
+      this.id = id;
+      this.row = id * ROW_BYTES;
+      ByteBuffer buffer = rows.buffer;
+      this.numberOffset = buffer.getInt(row);
+      this.numberLength = buffer.getShort(row + 4) & 0xFFFF;
+      this.flags = buffer.get(row + 6);
+      this.phoneContextId = buffer.getInt(row + 8);
+      return this;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public boolean isGlobalNumber() {
+      return (flags & GLOBAL_NUMBER) != 0;
+    }
+
+    public boolean isDomainPhoneContext() {
+      return (flags & DOMAIN_PHONE_CONTEXT) != 0;
+    }
+
+    public boolean hasExtension() {
+      return extensionLength() > 0;
+    }
+
+    public boolean hasSubAddress() {
+      return subAddressLength() > 0;
+    }
+
+    public int getParamCount() {
+      return rows.buffer.getShort(row + 24) & 0xFFFF;
+    }
+
+    public String getNumber() {
+      char[] chars = new char[numberLength];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = numberChar(i);
+      }
+      return new String(chars);
+    }
+
+    public String getExtension() {
+      return hasExtension() ? ascii(texts.buffer, textOffset(), extensionLength()) : null;
+    }
+
+    public String getSubAddress() {
+      return hasSubAddress() ? ascii(texts.buffer, textOffset() + extensionLength(), subAddressLength()) : null;
+    }
+
+    public String getPhoneContext() {
+      return phoneContextId >= 0 ? phoneContexts.get(phoneContextId) : null;
+    }
+
+    public Map<String, String> getParams() {
+      PhoneNumberParams numberParams = params();
+      return numberParams != null ? numberParams.asMap() : null;
+    }
+
+    /**
+     * The value laid out as the builder of a parsed number does: number,
+     * extension, sub-address, phone context, then params.
+     */
+    public String getValue() {
+      StringBuilder sb = new StringBuilder(64).append(TEL_PREFIX).append(getNumber());
+      if (hasExtension()) {
+        sb.append(EXTENSION_PREFIX).append(getExtension());
+      }
+      if (hasSubAddress()) {
+        sb.append(ISUB_PREFIX).append(getSubAddress());
+      }
+      String phoneContext = getPhoneContext();
+      if (phoneContext != null) {
+        sb.append(CONTEXT_PREFIX).append(phoneContext);
+      }
+      PhoneNumberParams numberParams = params();
+      for (int i = 0; numberParams != null && i < numberParams.size(); i++) {
+        sb.append(';').append(numberParams.name(i));
+        if (numberParams.value(i) != null) {
+          sb.append('=').append(numberParams.value(i));
+        }
+      }
+      return sb.toString();
+    }
+
+    /**
+     * @see PhoneNumber#getE164()
+     */
+    public String getE164() {
+      if (!hasE164()) {
+        return null;
+      }
+      StringBuilder sb = new StringBuilder(16).append('+');
+      if (!isGlobalNumber()) {
+        String phoneContext = getPhoneContext();
+        for (int i = 0; i < phoneContext.length(); i++) {
+          if (isDigit(phoneContext.charAt(i))) {
+            sb.append(phoneContext.charAt(i));
+          }
+        }
+      }
+      for (int i = 0; i < numberLength; i++) {
+        char c = numberChar(i);
+        if (isDigit(c)) {
+          sb.append(c);
+        }
+      }
+      return sb.toString();
+    }
+
+    public boolean hasE164() {
+      if (isGlobalNumber()) {
+        return true;
+      }
+      // a number with *, # or A-F is stored a byte per character
+      return (flags & (DOMAIN_PHONE_CONTEXT | BYTE_NUMBER)) == 0 && phoneContextId >= 0;
+    }
+
+    /**
+     * Whether the digits of {@link #getE164()} start with the digits of
+     * {@code prefix}, other characters of which are ignored, without building
+     * any string.
+     */
+    public boolean e164StartsWith(CharSequence prefix) {
+      if (!hasE164()) {
+        return false;
+      }
+      int p = nextDigit(prefix, 0);
+      if (!isGlobalNumber()) {
+        String phoneContext = getPhoneContext();
+        for (int i = 0; i < phoneContext.length() && p < prefix.length(); i++) {
+          char c = phoneContext.charAt(i);
+          if (isDigit(c)) {
+            if (c != prefix.charAt(p)) {
+              return false;
+            }
+            p = nextDigit(prefix, p + 1);
+          }
+        }
+      }
+      for (int i = 0; i < numberLength && p < prefix.length(); i++) {
+        char c = numberChar(i);
+        if (isDigit(c)) {
+          if (c != prefix.charAt(p)) {
+            return false;
+          }
+          p = nextDigit(prefix, p + 1);
+        }
+      }
+      return p == prefix.length();
+    }
+
+    /**
+     * @see PhoneNumber#getCanonicalKey()
+     */
+    public String getCanonicalKey() {
+      return toPhoneNumber().getCanonicalKey();
+    }
+
+    /**
+     * Builds the number as a {@link PhoneNumber}, equal to the one appended.
+     */
+    public PhoneNumber toPhoneNumber() {
+      PhoneNumber phoneNumber = new PhoneNumber();
+      phoneNumber.value = getValue();
+      phoneNumber.number = getNumber();
+      phoneNumber.extension = getExtension();
+      phoneNumber.subAddress = getSubAddress();
+      phoneNumber.phoneContext = getPhoneContext();
+      phoneNumber.isGlobalNumber = isGlobalNumber();
+      phoneNumber.isDomainPhoneContext = isDomainPhoneContext();
+      phoneNumber.params = params();
+      return phoneNumber;
+    }
+
+    private int textOffset() {
+      return rows.buffer.getInt(row + 12);
+    }
+
+    private int extensionLength() {
+      return rows.buffer.getShort(row + 16) & 0xFFFF;
+    }
+
+    private int subAddressLength() {
+      return rows.buffer.getShort(row + 18) & 0xFFFF;
+    }
+
+    private char numberChar(int i) {
+      if ((flags & BYTE_NUMBER) != 0) {
+        return (char) numbers.buffer.get(numberOffset + i);
+      }
+      int pair = numbers.buffer.get(numberOffset + i / 2);
+      return NIBBLE_CHARS[(i & 1) == 0 ? (pair >>> 4) & 0xF : pair & 0xF];
+    }
+
+    private PhoneNumberParams params() {
+      int count = getParamCount();
+      if (count == 0) {
+        return null;
+      }
+      PhoneNumberParams numberParams = new PhoneNumberParams();
+      int offset = rows.buffer.getInt(row + 20);
+      for (int i = 0; i < count; i++) {
+        int nameLength = params.buffer.getShort(offset) & 0xFFFF;
+        int valueLength = params.buffer.getShort(offset + 2 + nameLength) & 0xFFFF;
+        numberParams.put(ascii(params.buffer, offset + 2, nameLength), ascii(params.buffer, offset + 4 + nameLength, valueLength));
+        offset += 4 + nameLength + valueLength;
+      }
+      return numberParams;
+    }
+  }
+
+  /*
+   * A direct buffer which doubles when full; the old one is freed when it is
+   * garbage collected.
+   */
+  private static final class Column {
+
+    ByteBuffer buffer;
+
+    int size;
+
+    Column(int capacity) {
+      buffer = ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /*
+     * Returns the offset of bytes more bytes at the end of the column.
+     */
+    int reserve(int bytes) {
+      if (size + (long) bytes > buffer.capacity()) {
+        long capacity = Math.max(size + (long) bytes, buffer.capacity() * 2L);
+        if (capacity > Integer.MAX_VALUE) {
+          if (size + (long) bytes > Integer.MAX_VALUE) {
+            throw new IllegalStateException("PhoneNumberColumnStore column exceeds the 2 GB limit.");
+          }
+          capacity = Integer.MAX_VALUE;
+        }
+        ByteBuffer grown = ByteBuffer.allocateDirect((int) capacity).order(ByteOrder.nativeOrder());
+        ByteBuffer used = buffer.duplicate();
+        used.clear().limit(size);
+        grown.put(used);
+        buffer = grown;
+      }
+      int offset = size;
+      size += bytes;
+      return offset;
+    }
+  }
+}
@@ -0,0 +1,484 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Finds phone numbers by a fragment of their digits, such as the last four,
+ * among millions of entries. Entries are identified by an int id chosen by
+ * the caller, a user id for instance, and indexed on the digits of
+ * {@link PhoneNumber#getNumber()} and {@link PhoneNumber#getExtension()}
+ * with the visual separators and any other non-digit removed.
+ *
+ * Every run of three digits has a posting list of the entries containing it.
+ * A query intersects the lists of its own three digit runs and checks the
+ * few remaining candidates against the stored digits; queries shorter than
+ * three digits scan the stored digits instead. All of it is kept in
+ * primitive arrays.
+ *
+ * Queries may run concurrently with each other; adds and removes take an
+ * exclusive lock. Removed entries are dropped from the arrays once they make
+ * up half of them, or on {@link #compact()}.
+ */
+public final class PhoneNumberDigitIndex {
+
+  private static final int GRAMS = 1000;
+
+  private static final long EMPTY = 0;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+  // per entry, in the order added: the caller's id, where its digits start, the number and extension lengths
+  private int[] ids = new int[64];
+
+  private int[] starts = new int[64];
+
+  private int[] lengths = new int[64];
+
+  private long[] removed = new long[1];
+
+  private int entries;
+
+  private int removedEntries;
+
+  private byte[] digits = new byte[1024];
+
+  private int digitCount;
+
+  private final int[][] postings = new int[GRAMS][];
+
+  private final int[] postingSizes = new int[GRAMS];
+
+  // open addressing from id to entry: id in the high half, entry + 1 in the low one
+  private long[] entryById = new long[64];
+
+  private int liveEntries;
+
+  /**
+   * Indexes {@code phoneNumber} under {@code id}, replacing what was indexed
+   * under that id before.
+   */
+  public void add(int id, PhoneNumber phoneNumber) {
+    String number = phoneNumber.getNumber();
+    if (number == null) {
+      throw new IllegalArgumentException("PhoneNumberDigitIndex numbers must be parsed phone numbers.");
+    }
+    lock.writeLock().lock();
+    try {
+      removeEntry(id);
+      int entry = entries++;
+      if (entry == ids.length) {
+        int capacity = entry * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+      }
+      if ((entry >> 6) >= removed.length) {
+        removed = Arrays.copyOf(removed, removed.length * 2);
+      }
+      ids[entry] = id;
+      starts[entry] = digitCount;
+      int numberLength = appendDigits(number);
+      int extensionLength = phoneNumber.getExtension() != null ? appendDigits(phoneNumber.getExtension()) : 0;
+      lengths[entry] = numberLength << 16 | extensionLength;
+      addGrams(entry, starts[entry], numberLength);
+      addGrams(entry, starts[entry] + numberLength, extensionLength);
+      putEntry(id, entry);
+      liveEntries++;
+      // replacing an id leaves the old entry behind like remove does
+      rebuildIfMostlyRemoved();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @return false if nothing was indexed under {@code id}
+   */
+  public boolean remove(int id) {
+    lock.writeLock().lock();
+    try {
+      if (!removeEntry(id)) {
+        return false;
+      }
+      rebuildIfMostlyRemoved();
+      return true;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void rebuildIfMostlyRemoved() {
+    if (removedEntries > 1024 && removedEntries * 2 > entries) {
+      rebuild();
+    }
+  }
+
+  /**
+   * Drops removed entries from the arrays and trims them to size.
+   */
+  public void compact() {
+    lock.writeLock().lock();
+    try {
+      rebuild();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  public int size() {
+    lock.readLock().lock();
+    try {
+      return liveEntries;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Ids of the numbers whose digits, extension excluded, end with the digits
+   * of {@code query}, in the order they were added.
+   *
+   * @param limit maximum number of ids returned
+   */
+  public int[] findBySuffix(String query, int limit) {
+    return find(query, limit, true);
+  }
+
+  /**
+   * Ids of the numbers whose digits, or extension digits, contain the digits
+   * of {@code query}, in the order they were added.
+   *
+   * @param limit maximum number of ids returned
+   */
+  public int[] findContaining(String query, int limit) {
+    return find(query, limit, false);
+  }
+
+  /**
+   * Approximate bytes of heap used by the index, array headers included.
+   */
+  public long getMemoryFootprint() {
+    lock.readLock().lock();
+    try {
+      long bytes = arrayBytes(ids.length, 4) + arrayBytes(starts.length, 4) + arrayBytes(lengths.length, 4)
+          + arrayBytes(removed.length, 8) + arrayBytes(digits.length, 1) + arrayBytes(entryById.length, 8)
+          + arrayBytes(GRAMS, 4) * 2 + arrayBytes(GRAMS, 4);
+      for (int[] posting : postings) {
+        if (posting != null) {
+          bytes += arrayBytes(posting.length, 4);
+        }
+      }
+      return bytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  private int[] find(String query, int limit, boolean suffix) {
+    byte[] q = queryDigits(query);
+    if (q.length == 0) {
+      throw new IllegalArgumentException("PhoneNumberDigitIndex query " + query + " must contain at least one digit.");
+    }
+    if (limit < 0) {
+      throw new IllegalArgumentException("PhoneNumberDigitIndex limit cannot be negative.");
+    }
+    lock.readLock().lock();
+    try {
+      int[] found = new int[Math.min(limit, 16)];
+      int count = 0;
+      if (q.length < 3) {
+        for (int entry = 0; entry < entries && count < limit; entry++) {
+          if (!isRemoved(entry) && matches(entry, q, suffix)) {
+            found = add(found, count++, ids[entry]);
+          }
+        }
+        return Arrays.copyOf(found, count);
+      }
+
+      int[] candidates = candidates(q);
+      for (int i = 0; i < candidates.length && count < limit; i++) {
+        int entry = candidates[i];
+        if (!isRemoved(entry) && matches(entry, q, suffix)) {
+          found = add(found, count++, ids[entry]);
+        }
+      }
+      return Arrays.copyOf(found, count);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /*
+   * Entries having the two rarest three digit runs of q, which every match
+   * has; the other runs are left to the final check.
+   */
+  private int[] candidates(byte[] q) {
+    int rarest = -1;
+    int second = -1;
+    for (int i = 0; i + 3 <= q.length; i++) {
+      int gram = gram(q, i);
+      if (gram == rarest || gram == second) {
+        continue;
+      }
+      if (rarest < 0 || postingSizes[gram] < postingSizes[rarest]) {
+        second = rarest;
+        rarest = gram;
+      } else if (second < 0 || postingSizes[gram] < postingSizes[second]) {
+        second = gram;
+      }
+    }
+    int[] first = postings[rarest];
+    int firstSize = postingSizes[rarest];
+    if (firstSize == 0) {
+      return new int[0];
+    }
+    if (second < 0) {
+      return Arrays.copyOf(first, firstSize);
+    }
+    int[] other = postings[second];
+    int otherSize = postingSizes[second];
+    int[] both = new int[Math.min(firstSize, otherSize)];
+    int count = 0;
+    for (int i = 0, j = 0; i < firstSize && j < otherSize; ) {
+      if (first[i] < other[j]) {
+        i++;
+      } else if (first[i] > other[j]) {
+        j++;
+      } else {
+        both[count++] = first[i];
+        i++;
+        j++;
+      }
+    }
+    return Arrays.copyOf(both, count);
+  }
+
+  private boolean matches(int entry, byte[] q, boolean suffix) {
+    int start = starts[entry];
+    int numberLength = lengths[entry] >>> 16;
+    if (suffix) {
+      return numberLength >= q.length && regionMatches(start + numberLength - q.length, q);
+    }
+    return contains(start, numberLength, q) || contains(start + numberLength, lengths[entry] & 0xFFFF, q);
+  }
+
+  private boolean contains(int start, int length, byte[] q) {
+    for (int i = start; i + q.length <= start + length; i++) {
+      if (regionMatches(i, q)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean regionMatches(int start, byte[] q) {
+    for (int i = 0; i < q.length; i++) {
+      if (digits[start + i] != q[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int appendDigits(String s) {
+    if (digitCount + s.length() > digits.length) {
+      digits = Arrays.copyOf(digits, Math.max(digits.length * 2, digitCount + s.length()));
+    }
+    int start = digitCount;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits[digitCount++] = (byte) (c - '0');
+      }
+    }
+    return digitCount - start;
+  }
+
+  private void addGrams(int entry, int start, int length) {
+    for (int i = start; i + 3 <= start + length; i++) {
+      int gram = gram(digits, i);
+      int size = postingSizes[gram];
+      int[] posting = postings[gram];
+      // entries only grow, so a repeated run of the same entry is always last
+      if (size > 0 && posting[size - 1] == entry) {
+        continue;
+      }
+      if (posting == null) {
+        posting = postings[gram] = new int[16];
+      } else if (size == posting.length) {
+        posting = postings[gram] = Arrays.copyOf(posting, size * 2);
+      }
+      posting[size] = entry;
+      postingSizes[gram] = size + 1;
+    }
+  }
+
+  private static int gram(byte[] digits, int i) {
+    return digits[i] * 100 + digits[i + 1] * 10 + digits[i + 2];
+  }
+
+  private static byte[] queryDigits(String query) {
+    if (query == null) {
+      throw new IllegalArgumentException("PhoneNumberDigitIndex query cannot be null.");
+    }
+    byte[] q = new byte[query.length()];
+    int length = 0;
+    for (int i = 0; i < query.length(); i++) {
+      char c = query.charAt(i);
+      if (c >= '0' && c <= '9') {
+        q[length++] = (byte) (c - '0');
+      }
+    }
+    return Arrays.copyOf(q, length);
+  }
+
+  private static int[] add(int[] array, int index, int value) {
+    if (index == array.length) {
+      array = Arrays.copyOf(array, Math.max(16, index * 2));
+    }
+    array[index] = value;
+    return array;
+  }
+
+  private boolean isRemoved(int entry) {
+    return (removed[entry >> 6] & 1L << entry) != 0;
+  }
+
+  private boolean removeEntry(int id) {
+    int entry = takeEntry(id);
+    if (entry < 0) {
+      return false;
+    }
+    removed[entry >> 6] |= 1L << entry;
+    removedEntries++;
+    liveEntries--;
+    return true;
+  }
+
+  /*
+   * Rebuilds every array from the live entries, in the same order.
+   */
+  private void rebuild() {
+    int[] oldIds = ids;
+    int[] oldStarts = starts;
+    int[] oldLengths = lengths;
+    long[] oldRemoved = removed;
+    byte[] oldDigits = digits;
+    int oldEntries = entries;
+
+    int capacity = Math.max(64, Integer.highestOneBit(Math.max(1, liveEntries)) * 2);
+    ids = new int[capacity];
+    starts = new int[capacity];
+    lengths = new int[capacity];
+    removed = new long[(capacity + 63) >> 6];
+    digits = new byte[Math.max(1024, digitCount)];
+    entryById = new long[Math.max(64, Integer.highestOneBit(Math.max(1, liveEntries)) * 4)];
+    Arrays.fill(postings, null);
+    Arrays.fill(postingSizes, 0);
+    entries = 0;
+    removedEntries = 0;
+    digitCount = 0;
+
+    for (int old = 0; old < oldEntries; old++) {
+      if ((oldRemoved[old >> 6] & 1L << old) != 0) {
+        continue;
+      }
+      int entry = entries++;
+      int length = (oldLengths[old] >>> 16) + (oldLengths[old] & 0xFFFF);
+      ids[entry] = oldIds[old];
+      starts[entry] = digitCount;
+      lengths[entry] = oldLengths[old];
+      System.arraycopy(oldDigits, oldStarts[old], digits, digitCount, length);
+      digitCount += length;
+      addGrams(entry, starts[entry], oldLengths[old] >>> 16);
+      addGrams(entry, starts[entry] + (oldLengths[old] >>> 16), oldLengths[old] & 0xFFFF);
+      putEntry(ids[entry], entry);
+    }
+    digits = Arrays.copyOf(digits, Math.max(1024, digitCount));
+    for (int gram = 0; gram < GRAMS; gram++) {
+      if (postings[gram] != null) {
+        postings[gram] = Arrays.copyOf(postings[gram], postingSizes[gram]);
+      }
+    }
+  }
+
+  private void putEntry(int id, int entry) {
+    if ((liveEntries + 1) * 2 > entryById.length) {
+      long[] old = entryById;
+      entryById = new long[old.length * 2];
+      for (long slot : old) {
+        if (slot != EMPTY) {
+          insert(slot);
+        }
+      }
+    }
+    insert((long) id << 32 | (entry + 1L));
+  }
+
+  private void insert(long slot) {
+    int mask = entryById.length - 1;
+    int i = hash((int) (slot >>> 32)) & mask;
+    while (entryById[i] != EMPTY) {
+      i = (i + 1) & mask;
+    }
+    entryById[i] = slot;
+  }
+
+  /*
+   * Removes id from the table, shifting back the entries after it so that
+   * probing never stops early, and returns its entry or -1.
+   */
+  private int takeEntry(int id) {
+    int mask = entryById.length - 1;
+    int i = hash(id) & mask;
+    while (entryById[i] != EMPTY) {
+      if ((int) (entryById[i] >>> 32) == id) {
+        int entry = (int) entryById[i] - 1;
+        int hole = i;
+        for (int j = (i + 1) & mask; entryById[j] != EMPTY; j = (j + 1) & mask) {
+          int home = hash((int) (entryById[j] >>> 32)) & mask;
+          // move j into the hole unless its home lies cyclically in (hole, j]
+          if (hole <= j ? home <= hole || home > j : home <= hole && home > j) {
+            entryById[hole] = entryById[j];
+            hole = j;
+          }
+        }
+        entryById[hole] = EMPTY;
+        return entry;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private static int hash(int id) {
+    int h = id * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static long arrayBytes(int length, int elementSize) {
+    return 16 + (long) length * elementSize;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.Token;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts rejected phone numbers by the parser rule that failed and the type of
+ * the offending token, and logs a one line summary of the counts at most once
+ * per summary interval instead of a line per rejected value.
+ *
+ * Summaries are written by the thread recording the first error after the
+ * interval has passed, or on demand with {@link #logSummary()}.
+ */
+public final class PhoneNumberErrorDiagnostics {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PhoneNumberErrorDiagnostics.class);
+
+  public static final Duration DEFAULT_SUMMARY_INTERVAL = Duration.ofMinutes(1);
+
+  private static final int RULES = PhoneNumberParser.ruleNames.length + 1;
+
+  private static final int TOKEN_TYPES = PhoneNumberParser.VOCABULARY.getMaxTokenType() + 2;
+
+  private final long summaryIntervalNanos;
+
+  private final AtomicLongArray totals = new AtomicLongArray(RULES * TOKEN_TYPES);
+
+  // drained a counter at a time, so an increment racing a summary lands in this one or the next
+  private final AtomicLongArray sinceSummary = new AtomicLongArray(RULES * TOKEN_TYPES);
+
+  private final AtomicLong nextSummary;
+
+  private volatile long lastSummary;
+
+  public PhoneNumberErrorDiagnostics() {
+    this(DEFAULT_SUMMARY_INTERVAL);
+  }
+
+  public PhoneNumberErrorDiagnostics(Duration summaryInterval) {
+    if (summaryInterval == null || summaryInterval.isNegative()) {
+      throw new IllegalArgumentException("PhoneNumberErrorDiagnostics summaryInterval cannot be null or negative.");
+    }
+    this.summaryIntervalNanos = summaryInterval.toNanos();
+    this.lastSummary = System.nanoTime();
+    this.nextSummary = new AtomicLong(lastSummary + summaryIntervalNanos);
+  }
+
+  /**
+   * @param ruleIndex index of the parser rule that failed, or -1 if unknown
+   * @param tokenType type of the offending token, {@link Token#EOF} included
+   */
+  void record(int ruleIndex, int tokenType) {
+    int index = index(ruleIndex, tokenType);
+    totals.incrementAndGet(index);
+    sinceSummary.incrementAndGet(index);
+
+    long now = System.nanoTime();
+    long next = nextSummary.get();
+    if (now - next >= 0 && nextSummary.compareAndSet(next, now + summaryIntervalNanos)) {
+      logSummary();
+    }
+  }
+
+  public long getTotal() {
+    long total = 0;
+    for (int i = 0; i < totals.length(); i++) {
+      total += totals.get(i);
+    }
+    return total;
+  }
+
+  /**
+   * Errors recorded so far keyed by {@code rule/token}, for instance
+   * {@code localNumberDigits/ErrorCharacter}, most frequent first.
+   */
+  public Map<String, Long> getCounts() {
+    long[] counts = new long[totals.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = totals.get(i);
+    }
+    return counts(counts);
+  }
+
+  /**
+   * Logs the errors recorded since the last summary, if there were any, and
+   * starts a new summary interval.
+   */
+  public void logSummary() {
+    Map<String, Long> byKey = takeSinceSummary();
+    long now = System.nanoTime();
+    long seconds = Math.max(1, (now - lastSummary) / 1_000_000_000L);
+    lastSummary = now;
+
+    if (byKey.isEmpty()) {
+      return;
+    }
+    long total = 0;
+    for (long count : byKey.values()) {
+      total += count;
+    }
+    LOGGER.warn("rejected {} phone numbers in the last {} s: {}", total, seconds, byKey);
+  }
+
+  /**
+   * Errors recorded since the last call, keyed like {@link #getCounts()}, and
+   * resets them.
+   */
+  Map<String, Long> takeSinceSummary() {
+    long[] counts = new long[sinceSummary.length()];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = sinceSummary.getAndSet(i, 0);
+    }
+    return counts(counts);
+  }
+
+  private static Map<String, Long> counts(long[] counts) {
+    Map<String, Long> unsorted = new LinkedHashMap<>();
+    for (int i = 0; i < counts.length; i++) {
+      long count = counts[i];
+      if (count != 0) {
+        unsorted.put(key(i), count);
+      }
+    }
+    Map<String, Long> sorted = new LinkedHashMap<>();
+    unsorted.entrySet().stream()
+        .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+        .forEachOrdered(e -> sorted.put(e.getKey(), e.getValue()));
+    return sorted;
+  }
+
+  private static int index(int ruleIndex, int tokenType) {
+    int rule = ruleIndex >= 0 && ruleIndex < RULES - 1 ? ruleIndex + 1 : 0;
+    int token = tokenType >= Token.EOF && tokenType < TOKEN_TYPES - 1 ? tokenType + 1 : Token.INVALID_TYPE + 1;
+    return rule * TOKEN_TYPES + token;
+  }
+
+  private static String key(int index) {
+    int rule = index / TOKEN_TYPES - 1;
+    int tokenType = index % TOKEN_TYPES - 1;
+    String ruleName = rule >= 0 ? PhoneNumberParser.ruleNames[rule] : "unknown";
+    String tokenName = tokenType == Token.EOF ? "EOF" : PhoneNumberParser.VOCABULARY.getSymbolicName(tokenType);
+    return ruleName + "/" + (tokenName != null ? tokenName : String.valueOf(tokenType));
+  }
+}
@@ -0,0 +1,396 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Finds the {@code tel:} URIs in free text, such as log files, email bodies or
+ * tickets, and parses them.
+ *
+ * The text is scanned for the {@code tel:} prefix; from each one the
+ * {@link PhoneNumberLexer} finds where a value could end, which is before the
+ * first character none of its modes accepts, and the longest value ending
+ * there which parses is taken. Scanning resumes after it, so values are found
+ * in order and never overlap. Values are parsed whether or not
+ * {@link PhoneNumber#isStrict()}, and are at most
+ * {@link PhoneNumberParseLimits#getMaxLength()} characters long.
+ *
+ * Large input can be split into chunks scanned in parallel. A value starting in
+ * one chunk is read to its end in the next one, and the values the next chunk
+ * found inside it are dropped, so the result is the same as scanning the
+ * whole input at once.
+ */
+public final class PhoneNumberExtractor {
+
+  private static final String PREFIX = "tel:";
+
+  // longer values than this are never looked for, whatever the parse limits
+  private static final int MAX_VALUE_LENGTH = 1 << 16;
+
+  // parse attempts per prefix, from the longest candidate down
+  private static final int MAX_ATTEMPTS = 8;
+
+  private static final int READ_SIZE = 1 << 16;
+
+  private static final int MIN_CHUNK_SIZE = 1 << 20;
+
+  private static final int MAX_CHUNK_SIZE = 64 << 20;
+
+  private PhoneNumberExtractor() {
+  }
+
+  /**
+   * A value found in the input, with the offsets of its first character and
+   * of the character after it.
+   */
+  public static final class Match {
+
+    private final long start;
+
+    private final long end;
+
+    private final PhoneNumber phoneNumber;
+
+    Match(long start, long end, PhoneNumber phoneNumber) {
+      this.start = start;
+      this.end = end;
+      this.phoneNumber = phoneNumber;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getEnd() {
+      return end;
+    }
+
+    public PhoneNumber getPhoneNumber() {
+      return phoneNumber;
+    }
+
+    @Override
+    public String toString() {
+      return start + "-" + end + ": " + phoneNumber.getValue();
+    }
+  }
+
+  /**
+   * @return the values of {@code text} in order, with offsets in characters
+   */
+  public static List<Match> extract(CharSequence text) {
+    List<Match> matches = new ArrayList<>();
+    scan(text, 0, text.length(), 0, PhoneNumberRecognizer.acquire(), matches::add);
+    return matches;
+  }
+
+  /**
+   * Like {@link #extract(CharSequence)}, scanning chunks of {@code text} on
+   * {@code threads} threads.
+   */
+  public static List<Match> extract(CharSequence text, int threads) {
+    int chunkSize = chunkSize(text.length(), threads);
+    List<Chunk> chunks = new ArrayList<>();
+    for (int from = 0; from < text.length(); from += chunkSize) {
+      chunks.add(new Chunk(text, from, Math.min(text.length(), from + chunkSize), 0));
+    }
+    return run(chunks, threads);
+  }
+
+  /**
+   * Reads {@code reader} to its end, handing the values to {@code consumer}
+   * in order as they are found, with offsets in characters. Only the last
+   * characters read are buffered.
+   */
+  public static void extract(Reader reader, Consumer<? super Match> consumer) throws IOException {
+    int maxLength = maxValueLength();
+    PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+    StringBuilder buffer = new StringBuilder();
+    char[] read = new char[READ_SIZE];
+    // offset in the input of the start of the buffer
+    long base = 0;
+    int resume = 0;
+    boolean end = false;
+    while (!end) {
+      int n = reader.read(read);
+      if (n < 0) {
+        end = true;
+      } else {
+        buffer.append(read, 0, n);
+      }
+      // values starting before this cannot be cut short by the end of the buffer
+      int complete = end ? buffer.length() : buffer.length() - maxLength;
+      if (resume < complete) {
+        resume = scan(buffer, resume, complete, base, recognizer, consumer);
+        int consumed = Math.min(resume, buffer.length());
+        buffer.delete(0, consumed);
+        base += consumed;
+        resume -= consumed;
+      }
+    }
+  }
+
+  /**
+   * Maps {@code file}, in UTF-8 or any other ASCII compatible encoding, and
+   * scans chunks of it on {@code threads} threads.
+   *
+   * @return the values of the file in order, with offsets in bytes
+   */
+  public static List<Match> extract(Path file, int threads) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      int chunkSize = chunkSize(size, threads);
+      int maxLength = maxValueLength();
+      List<Chunk> chunks = new ArrayList<>();
+      for (long from = 0; from < size; from += chunkSize) {
+        long to = Math.min(size, from + chunkSize);
+        // mapped past the chunk, so values starting in it can be read to their end
+        ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(size, to + maxLength) - from);
+        chunks.add(new Chunk(new AsciiText(mapped), 0, (int) (to - from), from));
+      }
+      return run(chunks, threads);
+    }
+  }
+
+  private static List<Match> run(List<Chunk> chunks, int threads) {
+    if (threads < 1) {
+      throw new IllegalArgumentException("PhoneNumberExtractor threads must be positive.");
+    }
+    AtomicInteger threadNumber = new AtomicInteger();
+    ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+      Thread thread = new Thread(r, "phone-number-extractor-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Chunk>> scanned = new ArrayList<>();
+      for (Chunk chunk : chunks) {
+        scanned.add(workers.submit(chunk::scan));
+      }
+      List<Match> matches = new ArrayList<>();
+      long resume = 0;
+      for (Future<Chunk> future : scanned) {
+        resume = future.get().merge(resume, matches);
+      }
+      return matches;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("PhoneNumberExtractor was interrupted.", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    } finally {
+      workers.shutdownNow();
+    }
+  }
+
+  /*
+   * Finds the values starting in [from, to) of text, which may run past to up
+   * to the end of text, and returns the offset scanning continues from: to,
+   * or the end of the last value found if past it.
+   */
+  private static int scan(CharSequence text, int from, int to, long base, PhoneNumberRecognizer recognizer, Consumer<? super Match> consumer) {
+    int maxLength = maxValueLength();
+    int position = from;
+    int i;
+    while ((i = indexOfPrefix(text, position, to)) >= 0) {
+      int end = i + PREFIX.length();
+      int limit = (int) Math.min(text.length(), (long) i + maxLength);
+      while (end < limit && isValueCharacter(text.charAt(end))) {
+        end++;
+      }
+      int length = longestValue(text.subSequence(i, end).toString(), recognizer, base + i, consumer);
+      position = i + (length > 0 ? length : PREFIX.length());
+    }
+    return Math.max(position, to);
+  }
+
+  /*
+   * Parses candidate cut at the ends of its tokens, longest first, and hands
+   * the first value that parses to consumer, without the tokens the parse
+   * did not use. A syntax error skips straight to the candidates ending
+   * before the offending token.
+   */
+  private static int longestValue(String candidate, PhoneNumberRecognizer recognizer, long start, Consumer<? super Match> consumer) {
+    int[] ends = recognizer.tokenEnds(candidate);
+    // the first token is the prefix, never a value on its own
+    int k = ends.length - 1;
+    for (int attempt = 0; attempt < MAX_ATTEMPTS && k > 0; attempt++) {
+      try {
+        // the cuts that fail reject nothing, so they stay out of the error diagnostics
+        PhoneNumber phoneNumber = recognizer.probe(candidate.substring(0, ends[k]));
+        // trailing tokens the grammar does not need are not part of the value
+        int length = recognizer.parsedLength();
+        consumer.accept(new Match(start, start + length, phoneNumber));
+        return length;
+      } catch (PhoneNumberParseException e) {
+        k--;
+        int errorOffset = e.getErrorOffset();
+        while (errorOffset > 0 && k > 0 && ends[k] > errorOffset) {
+          k--;
+        }
+      }
+    }
+    return 0;
+  }
+
+  private static int indexOfPrefix(CharSequence text, int from, int to) {
+    if (text instanceof String) {
+      int i = ((String) text).indexOf(PREFIX, from);
+      return i >= 0 && i < to ? i : -1;
+    }
+    int last = Math.min(to, text.length() - PREFIX.length() + 1);
+    for (int i = from; i < last; i++) {
+      if (text.charAt(i) == 't' && text.charAt(i + 1) == 'e' && text.charAt(i + 2) == 'l' && text.charAt(i + 3) == ':') {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /*
+   * Whether some lexer mode has a token other than an error character
+   * starting with or containing c.
+   */
+  private static boolean isValueCharacter(char c) {
+    if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') {
+      return true;
+    }
+    switch (c) {
+      case '+': case '-': case '.': case '(': case ')': case ';': case '=': case '%': case '_': case '!': case '~':
+      case '\'': case '[': case ']': case '*': case '#': case '$': case '&': case '/': case ':': case '?': case '@': case ',':
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static int maxValueLength() {
+    return Math.min(PhoneNumber.getParseLimits().getMaxLength(), MAX_VALUE_LENGTH);
+  }
+
+  private static int chunkSize(long size, int threads) {
+    long perThread = size / Math.max(1, threads * 4L);
+    return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, perThread));
+  }
+
+  /*
+   * The values starting in [from, to) of text, at base + their offset in text.
+   */
+  private static final class Chunk {
+
+    final CharSequence text;
+
+    final int from;
+
+    final int to;
+
+    final long base;
+
+    final List<Match> matches = new ArrayList<>();
+
+    long resume;
+
+    Chunk(CharSequence text, int from, int to, long base) {
+      this.text = text;
+      this.from = from;
+      this.to = to;
+      this.base = base;
+    }
+
+    Chunk scan() {
+      resume = base + PhoneNumberExtractor.scan(text, from, to, base, PhoneNumberRecognizer.acquire(), matches::add);
+      return this;
+    }
+
+    /*
+     * Adds the values a scan of the whole input would have found to out,
+     * given that it reached this chunk at resume, and returns where it would
+     * have left it.
+     */
+    long merge(long resume, List<Match> out) {
+      int next = 0;
+      while (next < matches.size() && matches.get(next).start < resume) {
+        Match skipped = matches.get(next++);
+        if (skipped.end > resume) {
+          // the scan of the whole input went on from resume instead of this value, up to where they meet again
+          resume = base + PhoneNumberExtractor.scan(text, (int) (resume - base), (int) (skipped.end - base), base,
+              PhoneNumberRecognizer.acquire(), out::add);
+        }
+      }
+      out.addAll(matches.subList(next, matches.size()));
+      return Math.max(resume, this.resume);
+    }
+  }
+
+  /*
+   * The bytes of a mapped file as characters, which is exact for the ASCII
+   * characters values are made of.
+   */
+  private static final class AsciiText implements CharSequence {
+
+    private final ByteBuffer bytes;
+
+    AsciiText(ByteBuffer bytes) {
+      this.bytes = bytes;
+    }
+
+    @Override
+    public int length() {
+      return bytes.limit();
+    }
+
+    @Override
+    public char charAt(int index) {
+      return (char) (bytes.get(index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      char[] chars = new char[end - start];
+      for (int i = 0; i < chars.length; i++) {
+        chars[i] = charAt(start + i);
+      }
+      return new String(chars);
+    }
+
+    @Override
+    public String toString() {
+      return subSequence(0, length()).toString();
+    }
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+/**
+ * Error strategy giving up on the first syntax error instead of recovering and
+ * building error nodes for the rest of the input.
+ *
+ * Unlike {@link org.antlr.v4.runtime.BailErrorStrategy} the error is still
+ * reported to the parser's error listeners first, and the default
+ * {@code sync} checks are kept, so exactly the same inputs are rejected as
+ * with the default strategy. The parse then ends with a
+ * {@link ParseCancellationException}.
+ */
+public final class PhoneNumberFailFastErrorStrategy extends DefaultErrorStrategy {
+
+  @Override
+  public void reportError(Parser recognizer, RecognitionException e) {
+    super.reportError(recognizer, e);
+    throw new Failed(e);
+  }
+
+  @Override
+  protected void reportUnwantedToken(Parser recognizer) {
+    super.reportUnwantedToken(recognizer);
+    throw new Failed(null);
+  }
+
+  @Override
+  protected void reportMissingToken(Parser recognizer) {
+    super.reportMissingToken(recognizer);
+    throw new Failed(null);
+  }
+
+  @Override
+  public void recover(Parser recognizer, RecognitionException e) {
+    throw new Failed(e);
+  }
+
+  /*
+   * Rejecting a value is routine, not worth a stack trace.
+   */
+  private static final class Failed extends ParseCancellationException {
+
+    Failed(RecognitionException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+}
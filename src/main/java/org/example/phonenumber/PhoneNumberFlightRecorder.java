@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.time.Duration;
+
+/**
+ * Records parses taking at least a threshold as
+ * {@code org.example.phonenumber.SlowParse} JDK Flight Recorder events, with
+ * the input length, the outcome and, for syntax errors, the rule that
+ * failed. Nothing is recorded unless a recording has the event enabled.
+ */
+public final class PhoneNumberFlightRecorder implements PhoneNumberObserver {
+
+  private final long thresholdNanos;
+
+  public PhoneNumberFlightRecorder(Duration threshold) {
+    if (threshold == null || threshold.isNegative()) {
+      throw new IllegalArgumentException("PhoneNumberFlightRecorder threshold cannot be null or negative.");
+    }
+    this.thresholdNanos = threshold.toNanos();
+  }
+
+  @Override
+  public void accepted(Operation operation, ParsePath path, int length, long nanos) {
+    if (nanos >= thresholdNanos) {
+      commit(operation, path.name(), null, null, length, nanos);
+    }
+  }
+
+  @Override
+  public void rejected(Operation operation, ErrorKind kind, String failedRule, int length, long nanos) {
+    if (nanos >= thresholdNanos) {
+      commit(operation, null, kind.name(), failedRule, length, nanos);
+    }
+  }
+
+  private static void commit(Operation operation, String path, String errorKind, String failedRule, int length, long nanos) {
+    SlowParseEvent event = new SlowParseEvent();
+    if (!event.isEnabled()) {
+      return;
+    }
+    event.operation = operation.name();
+    event.accepted = errorKind == null;
+    event.parsePath = path;
+    event.errorKind = errorKind;
+    event.failedRule = failedRule;
+    event.inputLength = length;
+    event.parseTime = nanos;
+    event.commit();
+  }
+
+  @Name("org.example.phonenumber.SlowParse")
+  @Label("Slow Phone Number Parse")
+  @Category("Phone Numbers")
+  @Description("A phone number value that took longer than the configured threshold to parse")
+  @StackTrace(false)
+  static final class SlowParseEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Accepted")
+    boolean accepted;
+
+    @Label("Parse Path")
+    String parsePath;
+
+    @Label("Error Kind")
+    String errorKind;
+
+    @Label("Failed Rule")
+    String failedRule;
+
+    @Label("Input Length")
+    @Description("Characters, or bytes for UTF-8 input")
+    int inputLength;
+
+    @Label("Parse Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long parseTime;
+  }
+}
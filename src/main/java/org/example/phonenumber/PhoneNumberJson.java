@@ -0,0 +1,480 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming JSON reader and writer for the SCIM representation of phone
+ * numbers, a single object or the {@code phoneNumbers} array:
+ *
+ * <pre>
+ * [{"value":"tel:+1-201-555-0123","display":"work","type":"work","primary":true}]
+ * </pre>
+ *
+ * Values are read straight from the stream, without an intermediate tree or
+ * map, and parsed once; attributes other than these four are skipped. The
+ * canonical value is written as is. Malformed JSON is reported as an
+ * {@link IOException} with the offset of the offending character.
+ */
+public final class PhoneNumberJson {
+
+  private static final String VALUE = "value";
+
+  private static final String DISPLAY = "display";
+
+  private static final String TYPE = "type";
+
+  private static final String PRIMARY = "primary";
+
+  private PhoneNumberJson() {
+  }
+
+  public static String toJson(PhoneNumber phoneNumber) {
+    StringBuilder sb = new StringBuilder(64);
+    write(phoneNumber, sb);
+    return sb.toString();
+  }
+
+  public static String toJson(Iterable<PhoneNumber> phoneNumbers) {
+    StringBuilder sb = new StringBuilder(256);
+    writeArray(phoneNumbers, sb);
+    return sb.toString();
+  }
+
+  public static void write(PhoneNumber phoneNumber, Appendable out) throws IOException {
+    out.append('{');
+    boolean first = true;
+    if (phoneNumber.getValue() != null) {
+      first = appendName(out, VALUE, first);
+      appendQuoted(out, phoneNumber.getValue());
+    }
+    if (phoneNumber.getDisplay() != null) {
+      first = appendName(out, DISPLAY, first);
+      appendQuoted(out, phoneNumber.getDisplay());
+    }
+    if (phoneNumber.getType() != null) {
+      first = appendName(out, TYPE, first);
+      appendQuoted(out, phoneNumber.getType());
+    }
+    if (phoneNumber.getPrimary() != null) {
+      appendName(out, PRIMARY, first);
+      out.append(phoneNumber.getPrimary() ? "true" : "false");
+    }
+    out.append('}');
+  }
+
+  public static void write(PhoneNumber phoneNumber, StringBuilder sb) {
+    try {
+      write(phoneNumber, (Appendable) sb);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static void writeArray(Iterable<PhoneNumber> phoneNumbers, Appendable out) throws IOException {
+    out.append('[');
+    boolean first = true;
+    for (PhoneNumber phoneNumber : phoneNumbers) {
+      if (!first) {
+        out.append(',');
+      }
+      first = false;
+      write(phoneNumber, out);
+    }
+    out.append(']');
+  }
+
+  public static void writeArray(Iterable<PhoneNumber> phoneNumbers, StringBuilder sb) {
+    try {
+      writeArray(phoneNumbers, (Appendable) sb);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public static PhoneNumber fromJson(String json) throws PhoneNumberParseException {
+    try {
+      return read(new StringReader(json));
+    } catch (IOException e) {
+      throw new PhoneNumberParseException(e);
+    }
+  }
+
+  public static List<PhoneNumber> fromJsonArray(String json) throws PhoneNumberParseException {
+    try {
+      return readArray(new StringReader(json));
+    } catch (IOException e) {
+      throw new PhoneNumberParseException(e);
+    }
+  }
+
+  /**
+   * Reads one phone number object. {@code in} is read ahead in blocks, so
+   * whatever follows the object may be consumed too and lost; pass a reader
+   * holding just the object.
+   */
+  public static PhoneNumber read(Reader in) throws IOException, PhoneNumberParseException {
+    return new JsonReader(in).readPhoneNumber();
+  }
+
+  /**
+   * Reads an array of phone number objects, such as the value of
+   * {@code phoneNumbers}; JSON null reads as an empty list.
+   */
+  public static List<PhoneNumber> readArray(Reader in) throws IOException, PhoneNumberParseException {
+    JsonReader reader = new JsonReader(in);
+    List<PhoneNumber> phoneNumbers = new ArrayList<>();
+    int c = reader.nextNonWhitespace();
+    if (c == 'n') {
+      reader.expectLiteral("null");
+      return phoneNumbers;
+    }
+    reader.expect(c, '[');
+    c = reader.nextNonWhitespace();
+    if (c == ']') {
+      return phoneNumbers;
+    }
+    reader.pushBack(c);
+    while (true) {
+      phoneNumbers.add(reader.readPhoneNumber());
+      c = reader.nextNonWhitespace();
+      if (c == ']') {
+        return phoneNumbers;
+      }
+      reader.expect(c, ',');
+    }
+  }
+
+  private static boolean appendName(Appendable out, String name, boolean first) throws IOException {
+    if (!first) {
+      out.append(',');
+    }
+    out.append('"').append(name).append("\":");
+    return false;
+  }
+
+  static void appendQuoted(Appendable out, CharSequence s) throws IOException {
+    out.append('"');
+    int start = 0;
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c >= 0x20 && c != '"' && c != '\\') {
+        continue;
+      }
+      out.append(s, start, i);
+      start = i + 1;
+      switch (c) {
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        case '\r':
+          out.append("\\r");
+          break;
+        case '\t':
+          out.append("\\t");
+          break;
+        default:
+          out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+          break;
+      }
+    }
+    out.append(s, start, s.length()).append('"');
+  }
+
+  /*
+   * Pulls characters from the reader through a small buffer, keeping track
+   * of the offset for error messages.
+   */
+  private static final class JsonReader {
+
+    private final Reader in;
+
+    private final char[] buffer = new char[256];
+
+    private final StringBuilder text = new StringBuilder(64);
+
+    private int position;
+
+    private int limit;
+
+    private long offset;
+
+    private boolean pushedBack;
+
+    private int pushedBackChar;
+
+    JsonReader(Reader in) {
+      this.in = in;
+    }
+
+    PhoneNumber readPhoneNumber() throws IOException, PhoneNumberParseException {
+      expect(nextNonWhitespace(), '{');
+      String value = null;
+      String display = null;
+      String type = null;
+      Boolean primary = null;
+      int c = nextNonWhitespace();
+      if (c != '}') {
+        pushBack(c);
+        while (true) {
+          expect(nextNonWhitespace(), '"');
+          readString();
+          expect(nextNonWhitespace(), ':');
+          if (isName(VALUE)) {
+            value = readNullableString();
+          } else if (isName(DISPLAY)) {
+            display = readNullableString();
+          } else if (isName(TYPE)) {
+            type = readNullableString();
+          } else if (isName(PRIMARY)) {
+            primary = readNullableBoolean();
+          } else {
+            skipValue();
+          }
+          c = nextNonWhitespace();
+          if (c == '}') {
+            break;
+          }
+          expect(c, ',');
+        }
+      }
+
+      PhoneNumber phoneNumber = new PhoneNumber();
+      phoneNumber.setValue(value);
+      phoneNumber.setDisplay(display);
+      phoneNumber.setType(type);
+      phoneNumber.setPrimary(primary);
+      return phoneNumber;
+    }
+
+    /*
+     * SCIM attribute names are case insensitive.
+     */
+    private boolean isName(String name) {
+      if (text.length() != name.length()) {
+        return false;
+      }
+      for (int i = 0; i < name.length(); i++) {
+        if (Character.toLowerCase(text.charAt(i)) != name.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private String readNullableString() throws IOException {
+      int c = nextNonWhitespace();
+      if (c == 'n') {
+        expectLiteral("null");
+        return null;
+      }
+      expect(c, '"');
+      readString();
+      return text.toString();
+    }
+
+    private Boolean readNullableBoolean() throws IOException {
+      int c = nextNonWhitespace();
+      switch (c) {
+        case 'n':
+          expectLiteral("null");
+          return null;
+        case 't':
+          expectLiteral("true");
+          return Boolean.TRUE;
+        case 'f':
+          expectLiteral("false");
+          return Boolean.FALSE;
+        default:
+          throw error("expected a boolean");
+      }
+    }
+
+    /*
+     * Reads the rest of a string whose opening quote was consumed into text.
+     */
+    private void readString() throws IOException {
+      text.setLength(0);
+      while (true) {
+        int c = next();
+        if (c == '"') {
+          return;
+        }
+        if (c < 0) {
+          throw error("unterminated string");
+        }
+        if (c < 0x20) {
+          throw error("unescaped control character in string");
+        }
+        if (c != '\\') {
+          text.append((char) c);
+          continue;
+        }
+        c = next();
+        switch (c) {
+          case '"':
+          case '\\':
+          case '/':
+            text.append((char) c);
+            break;
+          case 'b':
+            text.append('\b');
+            break;
+          case 'f':
+            text.append('\f');
+            break;
+          case 'n':
+            text.append('\n');
+            break;
+          case 'r':
+            text.append('\r');
+            break;
+          case 't':
+            text.append('\t');
+            break;
+          case 'u':
+            int code = 0;
+            for (int i = 0; i < 4; i++) {
+              int digit = Character.digit(next(), 16);
+              if (digit < 0) {
+                throw error("invalid unicode escape");
+              }
+              code = code * 16 + digit;
+            }
+            text.append((char) code);
+            break;
+          default:
+            throw error("invalid escape");
+        }
+      }
+    }
+
+    private void skipValue() throws IOException {
+      int c = nextNonWhitespace();
+      switch (c) {
+        case '"':
+          readString();
+          return;
+        case '{':
+        case '[':
+          int close = c == '{' ? '}' : ']';
+          c = nextNonWhitespace();
+          if (c == close) {
+            return;
+          }
+          pushBack(c);
+          while (true) {
+            if (close == '}') {
+              expect(nextNonWhitespace(), '"');
+              readString();
+              expect(nextNonWhitespace(), ':');
+            }
+            skipValue();
+            c = nextNonWhitespace();
+            if (c == close) {
+              return;
+            }
+            expect(c, ',');
+          }
+        case 't':
+          expectLiteral("true");
+          return;
+        case 'f':
+          expectLiteral("false");
+          return;
+        case 'n':
+          expectLiteral("null");
+          return;
+        default:
+          if (c != '-' && (c < '0' || c > '9')) {
+            throw error("unexpected character");
+          }
+          do {
+            c = next();
+          } while (c >= '0' && c <= '9' || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-');
+          pushBack(c);
+      }
+    }
+
+    void expectLiteral(String literal) throws IOException {
+      // the first character has been read
+      for (int i = 1; i < literal.length(); i++) {
+        if (next() != literal.charAt(i)) {
+          throw error("expected " + literal);
+        }
+      }
+    }
+
+    void expect(int c, char expected) throws IOException {
+      if (c != expected) {
+        throw error(c < 0 ? "unexpected end of input, expected '" + expected + "'" : "expected '" + expected + "'");
+      }
+    }
+
+    int nextNonWhitespace() throws IOException {
+      int c;
+      do {
+        c = next();
+      } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+      return c;
+    }
+
+    private int next() throws IOException {
+      if (pushedBack) {
+        pushedBack = false;
+        return pushedBackChar;
+      }
+      if (position == limit) {
+        int read = in.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+          return -1;
+        }
+        position = 0;
+        limit = read;
+      }
+      offset++;
+      return buffer[position++];
+    }
+
+    /*
+     * Only ever one character, the last one read, or -1 at the end of input.
+     */
+    void pushBack(int c) {
+      pushedBack = true;
+      pushedBackChar = c;
+    }
+
+    private IOException error(String message) {
+      return new IOException("invalid phone number JSON at offset " + (offset - 1) + ": " + message);
+    }
+  }
+}
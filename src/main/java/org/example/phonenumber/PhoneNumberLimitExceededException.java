@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+/**
+ * Thrown when a parse is aborted for going over one of the
+ * {@link PhoneNumberParseLimits}, rather than for the value being invalid.
+ */
+public class PhoneNumberLimitExceededException extends PhoneNumberParseException {
+
+  private final PhoneNumberParseLimits.Limit limit;
+
+  public PhoneNumberLimitExceededException(PhoneNumberParseLimits.Limit limit, String message, int errorOffset) {
+    super(message, errorOffset);
+    this.limit = limit;
+  }
+
+  public PhoneNumberParseLimits.Limit getLimit() {
+    return limit;
+  }
+
+  /*
+   * Carries the exception out of the lexer, which can only throw unchecked
+   * exceptions. Without a stack trace, it is cheap to throw.
+   */
+  static final class Trip extends RuntimeException {
+
+    final PhoneNumberLimitExceededException exception;
+
+    Trip(PhoneNumberLimitExceededException exception) {
+      super(exception.getMessage(), null, false, false);
+      this.exception = exception;
+    }
+  }
+}
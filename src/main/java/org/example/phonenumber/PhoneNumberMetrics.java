@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.example.phonenumber.PhoneNumberObserver.ErrorKind;
+import org.example.phonenumber.PhoneNumberObserver.Operation;
+import org.example.phonenumber.PhoneNumberObserver.ParsePath;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts accepted values by operation and parse path, rejected values by
+ * operation and error kind, and keeps latency histograms of both, for export
+ * to whatever metrics system is in use.
+ */
+public final class PhoneNumberMetrics implements PhoneNumberObserver {
+
+  private static final int OPERATIONS = Operation.values().length;
+
+  private final LongAdder[] accepted = adders(OPERATIONS * ParsePath.values().length);
+
+  private final LongAdder[] rejected = adders(OPERATIONS * ErrorKind.values().length);
+
+  private final LatencyHistogram[] acceptedLatency = histograms(OPERATIONS);
+
+  private final LatencyHistogram[] rejectedLatency = histograms(OPERATIONS);
+
+  @Override
+  public void accepted(Operation operation, ParsePath path, int length, long nanos) {
+    accepted[operation.ordinal() * ParsePath.values().length + path.ordinal()].increment();
+    acceptedLatency[operation.ordinal()].record(nanos);
+  }
+
+  @Override
+  public void rejected(Operation operation, ErrorKind kind, String failedRule, int length, long nanos) {
+    rejected[operation.ordinal() * ErrorKind.values().length + kind.ordinal()].increment();
+    rejectedLatency[operation.ordinal()].record(nanos);
+  }
+
+  public long getAccepted(Operation operation, ParsePath path) {
+    return accepted[operation.ordinal() * ParsePath.values().length + path.ordinal()].sum();
+  }
+
+  public long getAccepted(Operation operation) {
+    long sum = 0;
+    for (ParsePath path : ParsePath.values()) {
+      sum += getAccepted(operation, path);
+    }
+    return sum;
+  }
+
+  public long getRejected(Operation operation, ErrorKind kind) {
+    return rejected[operation.ordinal() * ErrorKind.values().length + kind.ordinal()].sum();
+  }
+
+  public long getRejected(Operation operation) {
+    long sum = 0;
+    for (ErrorKind kind : ErrorKind.values()) {
+      sum += getRejected(operation, kind);
+    }
+    return sum;
+  }
+
+  /**
+   * Live histogram of the time taken to accept a value.
+   */
+  public LatencyHistogram getAcceptedLatency(Operation operation) {
+    return acceptedLatency[operation.ordinal()];
+  }
+
+  /**
+   * Live histogram of the time taken to reject a value.
+   */
+  public LatencyHistogram getRejectedLatency(Operation operation) {
+    return rejectedLatency[operation.ordinal()];
+  }
+
+  public void reset() {
+    for (LongAdder adder : accepted) {
+      adder.reset();
+    }
+    for (LongAdder adder : rejected) {
+      adder.reset();
+    }
+    for (int i = 0; i < OPERATIONS; i++) {
+      acceptedLatency[i].reset();
+      rejectedLatency[i].reset();
+    }
+  }
+
+  private static LongAdder[] adders(int count) {
+    LongAdder[] adders = new LongAdder[count];
+    for (int i = 0; i < count; i++) {
+      adders[i] = new LongAdder();
+    }
+    return adders;
+  }
+
+  private static LatencyHistogram[] histograms(int count) {
+    LatencyHistogram[] histograms = new LatencyHistogram[count];
+    for (int i = 0; i < count; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    return histograms;
+  }
+}
@@ -0,0 +1,310 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link Flow.Processor} parsing phone number values into {@link ParseResult}s.
+ *
+ * Values are only requested from upstream while the subscriber has
+ * outstanding demand, up to {@code batchSize} at a time, and every batch is
+ * parsed in one go on the executor with the same recognizer. Results are
+ * emitted in the order the values arrived. A value that fails to parse
+ * produces a failed {@link ParseResult}; only an upstream error terminates the
+ * stream with {@code onError}, as does an exception thrown by the subscriber,
+ * which also cancels upstream.
+ *
+ * The processor supports a single subscriber.
+ */
+public final class PhoneNumberNormalizationProcessor implements Flow.Processor<String, ParseResult> {
+
+  public static final int DEFAULT_BATCH_SIZE = 256;
+
+  private final Executor executor;
+
+  private final int batchSize;
+
+  private final ConcurrentLinkedQueue<String> inbox = new ConcurrentLinkedQueue<>();
+
+  private final AtomicInteger wip = new AtomicInteger();
+
+  private final AtomicLong requested = new AtomicLong();
+
+  private final AtomicReference<Flow.Subscriber<? super ParseResult>> downstream = new AtomicReference<>();
+
+  private final AtomicReference<Flow.Subscription> upstream = new AtomicReference<>();
+
+  private volatile boolean upstreamDone;
+
+  private volatile Throwable upstreamError;
+
+  private volatile boolean cancelled;
+
+  private volatile long invalidRequest;
+
+  private volatile RejectedExecutionException rejected;
+
+  // only touched by the drain loop
+  private long upstreamOutstanding;
+
+  private long sequence;
+
+  private boolean terminated;
+
+  public PhoneNumberNormalizationProcessor() {
+    this(ForkJoinPool.commonPool(), DEFAULT_BATCH_SIZE);
+  }
+
+  public PhoneNumberNormalizationProcessor(Executor executor, int batchSize) {
+    if (executor == null) {
+      throw new IllegalArgumentException("PhoneNumberNormalizationProcessor executor cannot be null.");
+    }
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("PhoneNumberNormalizationProcessor batchSize must be at least 1.");
+    }
+    this.executor = executor;
+    this.batchSize = batchSize;
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super ParseResult> subscriber) {
+    if (subscriber == null) {
+      throw new NullPointerException("subscriber");
+    }
+    if (!downstream.compareAndSet(null, subscriber)) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(new IllegalStateException("PhoneNumberNormalizationProcessor supports a single subscriber."));
+      return;
+    }
+
+    subscriber.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(long n) {
+        if (n <= 0) {
+          invalidRequest = n;
+        } else {
+          addDemand(n);
+        }
+        drain();
+      }
+
+      @Override
+      public void cancel() {
+        cancelled = true;
+        Flow.Subscription s = upstream.get();
+        if (s != null) {
+          s.cancel();
+        }
+        drain();
+      }
+    });
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    if (!upstream.compareAndSet(null, subscription)) {
+      subscription.cancel();
+      return;
+    }
+    if (cancelled) {
+      subscription.cancel();
+      return;
+    }
+    drain();
+  }
+
+  @Override
+  public void onNext(String item) {
+    if (item == null) {
+      throw new NullPointerException("item");
+    }
+    inbox.offer(item);
+    drain();
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    upstreamError = throwable;
+    upstreamDone = true;
+    drain();
+  }
+
+  @Override
+  public void onComplete() {
+    upstreamDone = true;
+    drain();
+  }
+
+  private void addDemand(long n) {
+    long current;
+    long next;
+    do {
+      current = requested.get();
+      if (current == Long.MAX_VALUE) {
+        return;
+      }
+      next = current + n;
+      if (next < 0) {
+        next = Long.MAX_VALUE;
+      }
+    } while (!requested.compareAndSet(current, next));
+  }
+
+  private void drain() {
+    if (wip.getAndIncrement() == 0) {
+      try {
+        executor.execute(this::drainLoop);
+      } catch (RejectedExecutionException e) {
+        // this thread holds the drain, so the error is signalled in order with the rest
+        rejected = e;
+        drainLoop();
+      }
+    }
+  }
+
+  private void drainLoop() {
+    int missed = 1;
+    do {
+      if (!terminated) {
+        try {
+          drainBatch();
+        } catch (RuntimeException | Error e) {
+          // thrown by the subscriber; keep draining so wip gets back to 0
+          fail(e);
+        }
+      }
+      missed = wip.addAndGet(-missed);
+    } while (missed != 0);
+  }
+
+  private void drainBatch() {
+    Flow.Subscriber<? super ParseResult> subscriber = downstream.get();
+    if (subscriber == null) {
+      return;
+    }
+
+    if (cancelled) {
+      terminated = true;
+      inbox.clear();
+      return;
+    }
+
+    if (rejected != null) {
+      terminate(subscriber, rejected);
+      return;
+    }
+
+    if (invalidRequest != 0) {
+      terminate(subscriber, new IllegalArgumentException("non-positive request: " + invalidRequest));
+      return;
+    }
+
+    long demand = requested.get();
+    long emitted = 0;
+    PhoneNumberRecognizer recognizer = null;
+    while (emitted != demand) {
+      String value = inbox.poll();
+      if (value == null) {
+        break;
+      }
+      upstreamOutstanding--;
+
+      if (recognizer == null) {
+        recognizer = PhoneNumberRecognizer.acquire();
+      }
+      subscriber.onNext(ParseResult.parse(sequence++, value, recognizer));
+      emitted++;
+
+      if (cancelled) {
+        terminated = true;
+        inbox.clear();
+        return;
+      }
+    }
+
+    if (emitted != 0 && demand != Long.MAX_VALUE) {
+      demand = requested.addAndGet(-emitted);
+    }
+
+    if (upstreamDone && inbox.isEmpty()) {
+      terminated = true;
+      Throwable error = upstreamError;
+      if (error != null) {
+        subscriber.onError(error);
+      } else {
+        subscriber.onComplete();
+      }
+      return;
+    }
+
+    // top up what upstream owes us to a full batch once it runs low, but only
+    // while the subscriber still wants more than is already on its way
+    Flow.Subscription s = upstream.get();
+    if (s != null && !upstreamDone && demand > upstreamOutstanding && upstreamOutstanding <= batchSize / 4) {
+      long n = batchSize - upstreamOutstanding;
+      upstreamOutstanding += n;
+      s.request(n);
+    }
+  }
+
+  private void terminate(Flow.Subscriber<? super ParseResult> subscriber, Throwable error) {
+    terminated = true;
+    // an upstream subscribing later is cancelled right away
+    cancelled = true;
+    inbox.clear();
+    Flow.Subscription s = upstream.get();
+    if (s != null) {
+      s.cancel();
+    }
+    subscriber.onError(error);
+  }
+
+  /*
+   * The subscriber threw. It gets onError unless the exception came out of
+   * its onComplete or onError, after which it gets nothing more.
+   */
+  private void fail(Throwable error) {
+    if (terminated) {
+      inbox.clear();
+      return;
+    }
+    try {
+      terminate(downstream.get(), error);
+    } catch (RuntimeException | Error ignored) {
+      // nothing more can be signalled
+    }
+  }
+}
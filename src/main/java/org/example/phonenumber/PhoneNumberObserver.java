@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+/**
+ * Receives the outcome and duration of every value parsed by
+ * {@link PhoneNumber#setValue(String)} and by validating builders, once registered
+ * with {@link PhoneNumber#setObserver(PhoneNumberObserver)}. Without an
+ * observer nothing is measured.
+ *
+ * Observers are called on the parsing thread, from any number of threads at
+ * once, and must neither block nor throw. {@link PhoneNumberMetrics} counts
+ * and times parses, {@link PhoneNumberFlightRecorder} records slow ones as
+ * JDK Flight Recorder events.
+ */
+public interface PhoneNumberObserver {
+
+  enum Operation {
+    SET_VALUE,
+    BUILD
+  }
+
+  /**
+   * How an accepted value was parsed: {@code SLL} is the fast path, {@code LL}
+   * the full context retry taken when SLL prediction fails.
+   */
+  enum ParsePath {
+    SLL,
+    LL
+  }
+
+  enum ErrorKind {
+    /** not valid for the grammar */
+    SYNTAX,
+    /** over one of the {@link PhoneNumberParseLimits} */
+    LIMIT,
+    /** valid for the grammar but rejected afterwards */
+    INVALID
+  }
+
+  void accepted(Operation operation, ParsePath path, int length, long nanos);
+
+  /**
+   * @param failedRule name of the parser rule that failed for syntax errors,
+   *     otherwise null
+   */
+  void rejected(Operation operation, ErrorKind kind, String failedRule, int length, long nanos);
+
+  /**
+   * Passes every outcome to each of {@code observers} in turn.
+   */
+  static PhoneNumberObserver all(PhoneNumberObserver... observers) {
+    PhoneNumberObserver[] copy = observers.clone();
+    return new PhoneNumberObserver() {
+      @Override
+      public void accepted(Operation operation, ParsePath path, int length, long nanos) {
+        for (PhoneNumberObserver observer : copy) {
+          observer.accepted(operation, path, length, nanos);
+        }
+      }
+
+      @Override
+      public void rejected(Operation operation, ErrorKind kind, String failedRule, int length, long nanos) {
+        for (PhoneNumberObserver observer : copy) {
+          observer.rejected(operation, kind, failedRule, length, nanos);
+        }
+      }
+    };
+  }
+}
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Small, insertion-ordered map of tel: URI parameters.
+ *
+ * Parameter names compare case-insensitively (RFC 3966 section 3), so the
+ * lowercase form of each name is computed once when it is added. Numbers
+ * rarely carry more than a handful of params, so entries are kept in parallel
+ * arrays and looked up with a linear scan.
+ *
+ * A parameter may have no value, as in {@code ;name}; its value is null.
+ */
+final class PhoneNumberParams {
+
+  private static final int INITIAL_CAPACITY = 4;
+
+  private String[] names = new String[INITIAL_CAPACITY];
+
+  private String[] lowerCaseNames = new String[INITIAL_CAPACITY];
+
+  private String[] values = new String[INITIAL_CAPACITY];
+
+  private int size;
+
+  private Map<String, String> view;
+
+  PhoneNumberParams() {
+  }
+
+  PhoneNumberParams(Map<String, String> params) {
+    for (Map.Entry<String, String> entry : params.entrySet()) {
+      put(entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Adds a parameter, replacing the value (and the spelling of the name) of an
+   * existing parameter whose name differs only in case. A null or empty
+   * value adds a parameter without a value.
+   */
+  void put(String name, String value) {
+    String lowerCaseName = name != null ? name.toLowerCase() : null;
+    int index = indexOfLowerCase(lowerCaseName);
+    if (index < 0) {
+      if (size == names.length) {
+        int capacity = size * 2;
+        names = Arrays.copyOf(names, capacity);
+        lowerCaseNames = Arrays.copyOf(lowerCaseNames, capacity);
+        values = Arrays.copyOf(values, capacity);
+      }
+      index = size++;
+    }
+    names[index] = name;
+    lowerCaseNames[index] = lowerCaseName;
+    values[index] = value != null && value.isEmpty() ? null : value;
+  }
+
+  /**
+   * Removes the parameter whose name matches ignoring case.
+   *
+   * @return true if a parameter was removed
+   */
+  boolean remove(String name) {
+    int index = indexOf(name);
+    if (index < 0) {
+      return false;
+    }
+    int tail = size - index - 1;
+    System.arraycopy(names, index + 1, names, index, tail);
+    System.arraycopy(lowerCaseNames, index + 1, lowerCaseNames, index, tail);
+    System.arraycopy(values, index + 1, values, index, tail);
+    size--;
+    names[size] = null;
+    lowerCaseNames[size] = null;
+    values[size] = null;
+    return true;
+  }
+
+  /**
+   * Case-insensitive lookup of a parameter value.
+   */
+  String get(String name) {
+    int index = indexOf(name);
+    return index >= 0 ? values[index] : null;
+  }
+
+  int indexOf(String name) {
+    for (int i = 0; i < size; i++) {
+      String n = lowerCaseNames[i];
+      if (n == null ? name == null : n.equalsIgnoreCase(name)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int indexOfLowerCase(String lowerCaseName) {
+    for (int i = 0; i < size; i++) {
+      String n = lowerCaseNames[i];
+      if (n == null ? lowerCaseName == null : n.equals(lowerCaseName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  String name(int index) {
+    return names[index];
+  }
+
+  String lowerCaseName(int index) {
+    return lowerCaseNames[index];
+  }
+
+  String value(int index) {
+    return values[index];
+  }
+
+  PhoneNumberParams copy() {
+    PhoneNumberParams copy = new PhoneNumberParams();
+    copy.names = Arrays.copyOf(names, Math.max(size, INITIAL_CAPACITY));
+    copy.lowerCaseNames = Arrays.copyOf(lowerCaseNames, copy.names.length);
+    copy.values = Arrays.copyOf(values, copy.names.length);
+    copy.size = size;
+    return copy;
+  }
+
+  /*
+   * Implements the params part of RFC 3996 URI Equality: names and values are
+   * compared ignoring case and the order of the params is not significant.
+   */
+  boolean equalsIgnoreCaseAndOrder(PhoneNumberParams other) {
+    if (other == null || size != other.size) {
+      return false;
+    }
+
+    for (int i = 0; i < other.size; i++) {
+      int index = indexOfLowerCase(other.lowerCaseNames[i]);
+      if (index < 0) {
+        return false;
+      }
+
+      String otherValue = other.values[i];
+      if (otherValue == null ? values[index] != null : !otherValue.equalsIgnoreCase(values[index])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /*
+   * Same value as the hashCode() of a HashMap holding the lowercased names and
+   * values, for ASCII values, without building that map.
+   */
+  int hashCodeIgnoreCase() {
+    int hash = 0;
+    for (int i = 0; i < size; i++) {
+      String n = lowerCaseNames[i];
+      hash += (n == null ? 0 : n.hashCode()) ^ hashCodeIgnoreCase(values[i]);
+    }
+    return hash;
+  }
+
+  /*
+   * Folds every char the way String.equalsIgnoreCase compares them, upper
+   * then lower case, so strings it finds equal hash alike: lower casing alone
+   * tells apart chars such as '\u0131' and 'I' which it finds equal.
+   */
+  static int hashCodeIgnoreCase(String s) {
+    if (s == null) {
+      return 0;
+    }
+    int hash = 0;
+    for (int i = 0; i < s.length(); i++) {
+      hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(s.charAt(i)));
+    }
+    return hash;
+  }
+
+  /**
+   * Read-only {@link Map} view over the params, in insertion order, keyed
+   * case-insensitively: {@code get} and {@code containsKey} ignore the case of
+   * the name, and {@code equals} and {@code hashCode} do too, while the
+   * entries keep the names as spelled. Like a {@code TreeMap} ordered by
+   * {@link String#CASE_INSENSITIVE_ORDER}, comparing it with a map whose keys
+   * differ from it only in case is not symmetric.
+   */
+  Map<String, String> asMap() {
+    Map<String, String> v = view;
+    if (v == null) {
+      v = new MapView();
+      view = v;
+    }
+    return v;
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+
+  private final class MapView extends AbstractMap<String, String> {
+
+    private Set<Entry<String, String>> entrySet;
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return (key == null || key instanceof String) && indexOf((String) key) >= 0;
+    }
+
+    @Override
+    public String get(Object key) {
+      return (key == null || key instanceof String) ? PhoneNumberParams.this.get((String) key) : null;
+    }
+
+    /*
+     * Equal to a map of the same size whose every key matches a different
+     * param ignoring case, with an equal value.
+     */
+    @Override
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      }
+      if (!(o instanceof Map) || ((Map<?, ?>) o).size() != size) {
+        return false;
+      }
+      boolean[] matched = new boolean[size];
+      for (Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+        Object key = entry.getKey();
+        int index = key == null || key instanceof String ? indexOf((String) key) : -1;
+        if (index < 0 || matched[index] || !Objects.equals(values[index], entry.getValue())) {
+          return false;
+        }
+        matched[index] = true;
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      int hash = 0;
+      for (int i = 0; i < size; i++) {
+        // indexOf matches keys against the lowercased names
+        hash += hashCodeIgnoreCase(lowerCaseNames[i]) ^ Objects.hashCode(values[i]);
+      }
+      return hash;
+    }
+
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+      Set<Entry<String, String>> es = entrySet;
+      if (es == null) {
+        es = new AbstractSet<Entry<String, String>>() {
+          @Override
+          public Iterator<Entry<String, String>> iterator() {
+            return new Iterator<Entry<String, String>>() {
+              private int next;
+
+              @Override
+              public boolean hasNext() {
+                return next < size;
+              }
+
+              @Override
+              public Entry<String, String> next() {
+                if (next >= size) {
+                  throw new NoSuchElementException();
+                }
+                int i = next++;
+                return new SimpleImmutableEntry<>(names[i], values[i]);
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return size;
+          }
+        };
+        entrySet = es;
+      }
+      return es;
+    }
+  }
+}
@@ -25,11 +25,31 @@ package org.example.phonenumber;
  */
 public class PhoneNumberParseException extends Exception {
 
+  private final int errorOffset;
+
   public PhoneNumberParseException(String message) {
+    this(message, -1);
+  }
+
+  public PhoneNumberParseException(String message, int errorOffset) {
     super(message);
+    this.errorOffset = errorOffset;
   }
 
   public PhoneNumberParseException(Throwable cause) {
+    this(cause, -1);
+  }
+
+  public PhoneNumberParseException(Throwable cause, int errorOffset) {
     super(cause);
+    this.errorOffset = errorOffset;
+  }
+
+  /**
+   * Offset of the character where parsing failed, or -1 when the failure
+   * isn't tied to a position in the value.
+   */
+  public int getErrorOffset() {
+    return errorOffset;
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounds on the work a single parse may do, so that hostile values can't tie
+ * up a thread. The length is checked before parsing starts; the param count,
+ * token count and parse time are checked as the lexer produces tokens, so a
+ * parse that goes over aborts straight away with a
+ * {@link PhoneNumberLimitExceededException}.
+ *
+ * The limits in effect are set with {@link PhoneNumber#setParseLimits}.
+ */
+public final class PhoneNumberParseLimits {
+
+  public enum Limit {
+    LENGTH, PARAMS, TOKENS, TIME
+  }
+
+  /**
+   * No tel URI in real use comes anywhere near these; the parse time isn't
+   * limited by default.
+   */
+  public static final PhoneNumberParseLimits DEFAULT = builder().build();
+
+  public static final PhoneNumberParseLimits NONE = builder()
+      .maxLength(Integer.MAX_VALUE)
+      .maxParams(Integer.MAX_VALUE)
+      .maxTokens(Integer.MAX_VALUE)
+      .build();
+
+  private static final AtomicLongArray TRIPS = new AtomicLongArray(Limit.values().length);
+
+  private final int maxLength;
+
+  private final int maxParams;
+
+  private final int maxTokens;
+
+  private final long maxParseNanos;
+
+  private PhoneNumberParseLimits(Builder builder) {
+    this.maxLength = builder.maxLength;
+    this.maxParams = builder.maxParams;
+    this.maxTokens = builder.maxTokens;
+    this.maxParseNanos = builder.maxParseNanos;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Maximum length of a value in characters; UTF-8 input is measured in bytes,
+   * which is the same for any value that could be valid.
+   */
+  public int getMaxLength() {
+    return maxLength;
+  }
+
+  public int getMaxParams() {
+    return maxParams;
+  }
+
+  /**
+   * Maximum number of tokens lexed by one parse attempt.
+   */
+  public int getMaxTokens() {
+    return maxTokens;
+  }
+
+  /**
+   * @return the maximum parse time, or null if it isn't limited
+   */
+  public Duration getMaxParseTime() {
+    return maxParseNanos > 0 ? Duration.ofNanos(maxParseNanos) : null;
+  }
+
+  long getMaxParseNanos() {
+    return maxParseNanos;
+  }
+
+  /**
+   * Number of parses aborted because they went over {@code limit}, since the
+   * class was loaded.
+   */
+  public static long getTripCount(Limit limit) {
+    return TRIPS.get(limit.ordinal());
+  }
+
+  static PhoneNumberLimitExceededException exceeded(Limit limit, String message, int errorOffset) {
+    TRIPS.incrementAndGet(limit.ordinal());
+    return new PhoneNumberLimitExceededException(limit, message, errorOffset);
+  }
+
+  @Override
+  public String toString() {
+    return "PhoneNumberParseLimits(maxLength=" + maxLength + ", maxParams=" + maxParams + ", maxTokens=" + maxTokens
+        + ", maxParseTime=" + getMaxParseTime() + ")";
+  }
+
+  public static final class Builder {
+
+    int maxLength = 1024;
+
+    int maxParams = 32;
+
+    int maxTokens = 2048;
+
+    long maxParseNanos;
+
+    Builder() {
+    }
+
+    public Builder maxLength(int maxLength) {
+      if (maxLength < 1) {
+        throw new IllegalArgumentException("PhoneNumberParseLimits maxLength must be at least 1.");
+      }
+      this.maxLength = maxLength;
+      return this;
+    }
+
+    public Builder maxParams(int maxParams) {
+      if (maxParams < 0) {
+        throw new IllegalArgumentException("PhoneNumberParseLimits maxParams cannot be negative.");
+      }
+      this.maxParams = maxParams;
+      return this;
+    }
+
+    public Builder maxTokens(int maxTokens) {
+      if (maxTokens < 1) {
+        throw new IllegalArgumentException("PhoneNumberParseLimits maxTokens must be at least 1.");
+      }
+      this.maxTokens = maxTokens;
+      return this;
+    }
+
+    /**
+     * @param maxParseTime the maximum parse time, or null not to limit it
+     */
+    public Builder maxParseTime(Duration maxParseTime) {
+      if (maxParseTime != null && (maxParseTime.isNegative() || maxParseTime.isZero())) {
+        throw new IllegalArgumentException("PhoneNumberParseLimits maxParseTime must be positive.");
+      }
+      this.maxParseNanos = maxParseTime != null ? maxParseTime.toNanos() : 0;
+      return this;
+    }
+
+    public PhoneNumberParseLimits build() {
+      return new PhoneNumberParseLimits(this);
+    }
+  }
+}
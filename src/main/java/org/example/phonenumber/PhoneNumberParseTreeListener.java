@@ -20,6 +20,8 @@
 package org.example.phonenumber;
 
 import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
 import org.antlr.v4.runtime.tree.ErrorNode;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.apache.commons.lang3.StringUtils;
@@ -44,56 +46,58 @@ public class PhoneNumberParseTreeListener extends PhoneNumberParserBaseListener
 
   @Override
   public void enterPhoneNumber(PhoneNumberContext ctx) {
-    LOGGER.debug(indent("--- Enter PhoneNumber -->"));
+    debug("--- Enter PhoneNumber -->");
   }
 
   @Override
   public void exitPhoneNumber(PhoneNumberContext ctx) {
-    LOGGER.debug(indent("<-- Exit PhoneNumber ---"));
+    debug("<-- Exit PhoneNumber ---");
   }
   
   @Override
   public void enterLocalNumber(LocalNumberContext ctx) {
-    LOGGER.debug(indent("--- Enter LocalNumber -->"));
+    debug("--- Enter LocalNumber -->");
     phoneNumberBuilder = new LocalPhoneNumberBuilder();
   }
 
   @Override
   public void exitLocalNumber(LocalNumberContext ctx) {
-    LOGGER.debug(indent("<-- Exit LocalNumber ---"));
-    ((LocalPhoneNumberBuilder) phoneNumberBuilder).subscriberNumber(ctx.localDigits.getText());
+    debug("<-- Exit LocalNumber ---");
+    ((LocalPhoneNumberBuilder) phoneNumberBuilder).subscriberNumber(text(ctx.localDigits.start, ctx.localDigits.stop));
     
-    if (ctx.Ext() != null && !StringUtils.isBlank(ctx.Ext().getText())) {
-      ((LocalPhoneNumberBuilder) phoneNumberBuilder).extension(ctx.Ext().getText());
+    String ext = text(ctx.Ext());
+    if (!StringUtils.isBlank(ext)) {
+      ((LocalPhoneNumberBuilder) phoneNumberBuilder).extension(ext);
     }
     
-    if (ctx.Isub() != null && !StringUtils.isBlank(ctx.Isub().getText())) {
-      ((LocalPhoneNumberBuilder) phoneNumberBuilder).subAddress(ctx.Isub().getText());
+    String isub = text(ctx.Isub());
+    if (!StringUtils.isBlank(isub)) {
+      ((LocalPhoneNumberBuilder) phoneNumberBuilder).subAddress(isub);
     }
   }
 
   @Override
   public void enterLocalNumberDigits(LocalNumberDigitsContext ctx) {
-    LOGGER.debug(indent("--- Enter LocalNumberDigits -->"));
+    debug("--- Enter LocalNumberDigits -->");
   }
 
   @Override
   public void exitLocalNumberDigits(LocalNumberDigitsContext ctx) {
-    LOGGER.debug(indent("<-- Exit LocalNumberDigits ---"));
+    debug("<-- Exit LocalNumberDigits ---");
   }
 
   @Override
   public void enterPhoneContext(PhoneContextContext ctx) {
-    LOGGER.debug(indent("--- Enter PhoneContext -->")); 
+    debug("--- Enter PhoneContext -->");
   }
 
   @Override
   public void exitPhoneContext(PhoneContextContext ctx) {
-    LOGGER.debug(indent("<-- Exit PhoneContext ---"));
+    debug("<-- Exit PhoneContext ---");
     if (!ctx.isEmpty()) {
       if (ctx.dig != null) {
         ((LocalPhoneNumberBuilder) phoneNumberBuilder).isDomainPhoneContext(false);
-        phoneNumberBuilder.phoneContext("+"+ctx.dig.getText());
+        phoneNumberBuilder.phoneContext(text(ctx.CtxPlus().getSymbol(), ctx.dig));
       } else if (ctx.dn != null) {
         ((LocalPhoneNumberBuilder) phoneNumberBuilder).isDomainPhoneContext(true);
         phoneNumberBuilder.phoneContext(ctx.dn.getText());
@@ -103,34 +107,36 @@ public class PhoneNumberParseTreeListener extends PhoneNumberParserBaseListener
 
   @Override
   public void enterParameter(ParameterContext ctx) {
-    LOGGER.debug(indent("--- Enter Parameter -->"));
+    debug("--- Enter Parameter -->");
   }
 
   @Override
   public void exitParameter(ParameterContext ctx) {
-    LOGGER.debug(indent("<-- Exit Parameter ---"));
+    debug("<-- Exit Parameter ---");
     if (!ctx.isEmpty()) {
-      phoneNumberBuilder.param(ctx.ParamName().getText(), ctx.ParamValue().getText());
+      phoneNumberBuilder.param(text(ctx.ParamName()), ctx.ParamValue() != null ? ctx.ParamValue().getText() : null);
     }
   }
 
   @Override
   public void enterGlobalNumber(GlobalNumberContext ctx) {
-    LOGGER.debug(indent("--- Enter GlobalNumber -->"));
+    debug("--- Enter GlobalNumber -->");
     phoneNumberBuilder = new GlobalPhoneNumberBuilder();
   }
 
   @Override
   public void exitGlobalNumber(GlobalNumberContext ctx) {
-    LOGGER.debug(indent("<-- Exit GlobalNumber ---"));
-    ((GlobalPhoneNumberBuilder) phoneNumberBuilder).globalNumber(ctx.globalDigits.getText() + ctx.GlobalNumberDigits().getText());
+    debug("<-- Exit GlobalNumber ---");
+    ((GlobalPhoneNumberBuilder) phoneNumberBuilder).globalNumber(text(ctx.globalDigits, ctx.GlobalNumberDigits().getSymbol()));
 
-    if (ctx.Ext() != null && !StringUtils.isBlank(ctx.Ext().getText())) {
-      phoneNumberBuilder.extension(ctx.Ext().getText());
+    String ext = text(ctx.Ext());
+    if (!StringUtils.isBlank(ext)) {
+      phoneNumberBuilder.extension(ext);
     }
     
-    if (ctx.Isub() != null && !StringUtils.isBlank(ctx.Isub().getText())) {
-      phoneNumberBuilder.subAddress(ctx.Isub().getText());
+    String isub = text(ctx.Isub());
+    if (!StringUtils.isBlank(isub)) {
+      phoneNumberBuilder.subAddress(isub);
     }
   }
 
@@ -146,15 +152,39 @@ public class PhoneNumberParseTreeListener extends PhoneNumberParserBaseListener
 
   @Override
   public void visitTerminal(TerminalNode node) {
-    String text = node.getText();
-    if (StringUtils.isNotEmpty(text.trim())) {
-      LOGGER.debug(indent(text));
+    if (LOGGER.isDebugEnabled()) {
+      String text = node.getText();
+      if (StringUtils.isNotEmpty(text.trim())) {
+        LOGGER.debug(indent(text));
+      }
     }
   }
 
   @Override
   public void visitErrorNode(ErrorNode node) {
-    LOGGER.error(indent(node.getText()));
+    // the error itself has already gone to the parser's error listeners, and
+    // error nodes only ever come after one
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(indent("error: " + node.getText()));
+    }
+  }
+
+  /*
+   * Only the tokens that end up in the phone number are turned into strings,
+   * straight from the input rather than by concatenating child node text.
+   */
+  private static String text(TerminalNode node) {
+    return node != null ? node.getText() : null;
+  }
+
+  private static String text(Token start, Token stop) {
+    return start.getInputStream().getText(Interval.of(start.getStartIndex(), stop.getStopIndex()));
+  }
+
+  private void debug(String s) {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug(indent(s));
+    }
   }
 
   private String indent(String s) {
@@ -169,4 +199,9 @@ public class PhoneNumberParseTreeListener extends PhoneNumberParserBaseListener
   public PhoneNumber getPhoneNumber() throws PhoneNumberParseException {
     return phoneNumberBuilder.build(false);
   }
+
+  void reset() {
+    phoneNumberBuilder = null;
+    indent = -1;
+  }
 }
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parses phone number values asynchronously.
+ *
+ * At most {@code maxPending} parses are queued or running at any time; once
+ * that limit is reached new values are handled according to the
+ * {@link RejectionPolicy}. A value that is already being parsed is not parsed
+ * again, the caller is completed with a copy of the pending result instead.
+ * Parse failures complete the returned future exceptionally with the
+ * {@link PhoneNumberParseException} {@link PhoneNumber#setValue(String)} would
+ * have thrown.
+ *
+ * Unless an executor is given, parses run on virtual threads when the JDK
+ * provides them and on a fixed pool of daemon threads otherwise.
+ */
+public final class PhoneNumberParsingService implements AutoCloseable {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PhoneNumberParsingService.class);
+
+  public enum RejectionPolicy {
+    /**
+     * Fail the returned future with a {@link RejectedExecutionException}.
+     */
+    ABORT,
+    /**
+     * Parse on the calling thread, slowing the caller down to the rate the
+     * service can sustain.
+     */
+    CALLER_RUNS
+  }
+
+  private final Executor executor;
+
+  private final ExecutorService ownedExecutor;
+
+  private final Semaphore pending;
+
+  private final int maxPending;
+
+  private final RejectionPolicy rejectionPolicy;
+
+  private final boolean coalesce;
+
+  private final ConcurrentHashMap<String, CompletableFuture<PhoneNumber>> inFlight = new ConcurrentHashMap<>();
+
+  private final PhoneNumberRecognizer.Pool recognizers = new PhoneNumberRecognizer.Pool();
+
+  private volatile boolean closed;
+
+  private PhoneNumberParsingService(Builder builder) {
+    this.maxPending = builder.maxPending;
+    this.pending = new Semaphore(builder.maxPending);
+    this.rejectionPolicy = builder.rejectionPolicy;
+    this.coalesce = builder.coalesce;
+    if (builder.executor != null) {
+      this.executor = builder.executor;
+      this.ownedExecutor = null;
+    } else {
+      this.ownedExecutor = newDefaultExecutor(builder.parallelism, builder.maxPending);
+      this.executor = this.ownedExecutor;
+    }
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Parses {@code value} on the service's executor.
+   */
+  public CompletableFuture<PhoneNumber> parse(String value) {
+    if (value == null) {
+      CompletableFuture<PhoneNumber> failed = new CompletableFuture<>();
+      failed.completeExceptionally(new PhoneNumberParseException("null values are illegal for phone numbers"));
+      return failed;
+    }
+
+    if (!coalesce) {
+      CompletableFuture<PhoneNumber> promise = new CompletableFuture<>();
+      submit(value, promise);
+      return promise;
+    }
+
+    // callers, the first included, only see dependents of the shared promise,
+    // so none of them can complete it for the others; PhoneNumber is mutable,
+    // so each gets its own instance
+    CompletableFuture<PhoneNumber> promise = new CompletableFuture<>();
+    CompletableFuture<PhoneNumber> existing = inFlight.putIfAbsent(value, promise);
+    if (existing != null) {
+      return dependent(existing);
+    }
+    promise.whenComplete((phoneNumber, e) -> inFlight.remove(value, promise));
+    submit(value, promise);
+    return dependent(promise);
+  }
+
+  /*
+   * Completed like promise, with a copy of its result or with the same
+   * exception: thenApply would wrap failures in a CompletionException, which
+   * callers without coalescing never see.
+   */
+  private static CompletableFuture<PhoneNumber> dependent(CompletableFuture<PhoneNumber> promise) {
+    CompletableFuture<PhoneNumber> future = new CompletableFuture<>();
+    promise.whenComplete((phoneNumber, e) -> {
+      if (e != null) {
+        future.completeExceptionally(e);
+      } else {
+        future.complete(phoneNumber.copy());
+      }
+    });
+    return future;
+  }
+
+  private void submit(String value, CompletableFuture<PhoneNumber> promise) {
+    if (closed) {
+      promise.completeExceptionally(new RejectedExecutionException("PhoneNumberParsingService is closed"));
+      return;
+    }
+
+    if (!pending.tryAcquire()) {
+      reject(value, promise);
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          run(value, promise);
+        } finally {
+          pending.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      pending.release();
+      reject(value, promise);
+    }
+  }
+
+  private void reject(String value, CompletableFuture<PhoneNumber> promise) {
+    if (rejectionPolicy == RejectionPolicy.CALLER_RUNS && !closed) {
+      run(value, promise);
+    } else {
+      promise.completeExceptionally(new RejectedExecutionException("PhoneNumberParsingService has " + maxPending + " parses pending"));
+    }
+  }
+
+  private void run(String value, CompletableFuture<PhoneNumber> promise) {
+    PhoneNumberRecognizer recognizer = recognizers.borrow();
+    try {
+      PhoneNumber phoneNumber = new PhoneNumber();
+      phoneNumber.setValue(value, recognizer);
+      promise.complete(phoneNumber);
+    } catch (PhoneNumberParseException | RuntimeException e) {
+      promise.completeExceptionally(e);
+    } catch (Throwable e) {
+      // don't leave coalesced callers waiting, nor the value in flight forever
+      promise.completeExceptionally(e);
+      throw e;
+    } finally {
+      recognizers.giveBack(recognizer);
+    }
+  }
+
+  /**
+   * Number of parses currently queued or running.
+   */
+  public int getPendingCount() {
+    return maxPending - pending.availablePermits();
+  }
+
+  /**
+   * Stops accepting values. An executor created by the service is shut down,
+   * letting queued parses finish; an executor supplied by the caller is left
+   * alone.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    if (ownedExecutor != null) {
+      ownedExecutor.shutdown();
+    }
+  }
+
+  static ExecutorService newDefaultExecutor(int parallelism, int maxPending) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      // virtual threads need JDK 21, or JDK 19 and 20 with preview features enabled
+    } catch (InvocationTargetException e) {
+      LOGGER.debug("Virtual threads not available, using a thread pool", e.getCause());
+    }
+
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadFactory threadFactory = r -> {
+      Thread thread = new Thread(r, "phone-number-parser-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxPending), threadFactory);
+  }
+
+  public static final class Builder {
+
+    Executor executor;
+
+    int parallelism = Runtime.getRuntime().availableProcessors();
+
+    int maxPending = 1024;
+
+    RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+    boolean coalesce = true;
+
+    Builder() {
+    }
+
+    /**
+     * Executor to parse on. It is not shut down by {@link #close()}.
+     */
+    public Builder executor(Executor executor) {
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Number of platform threads to parse on when virtual threads are not
+     * available and no executor is given.
+     */
+    public Builder parallelism(int parallelism) {
+      if (parallelism < 1) {
+        throw new IllegalArgumentException("PhoneNumberParsingService parallelism must be at least 1.");
+      }
+      this.parallelism = parallelism;
+      return this;
+    }
+
+    public Builder maxPending(int maxPending) {
+      if (maxPending < 1) {
+        throw new IllegalArgumentException("PhoneNumberParsingService maxPending must be at least 1.");
+      }
+      this.maxPending = maxPending;
+      return this;
+    }
+
+    public Builder rejectionPolicy(RejectionPolicy rejectionPolicy) {
+      if (rejectionPolicy == null) {
+        throw new IllegalArgumentException("PhoneNumberParsingService rejectionPolicy cannot be null.");
+      }
+      this.rejectionPolicy = rejectionPolicy;
+      return this;
+    }
+
+    public Builder coalesceIdenticalValues(boolean coalesce) {
+      this.coalesce = coalesce;
+      return this;
+    }
+
+    public PhoneNumberParsingService build() {
+      return new PhoneNumberParsingService(this);
+    }
+  }
+}
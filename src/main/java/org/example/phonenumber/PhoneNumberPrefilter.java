@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import java.util.List;
+
+/**
+ * Rejects values by their characters alone, before any lexing or parsing, so
+ * that bulk input can set aside most invalid values cheaply. A value is only
+ * rejected when the grammar cannot parse all of it; the others are
+ * {@link Verdict#CANDIDATE candidates} which still need parsing. Note that
+ * {@link PhoneNumber#setValue(String)} accepts a valid value followed by
+ * characters the parse does not use, such as {@code tel:+1-201-555-0123 x},
+ * which is rejected here.
+ *
+ * Values are checked in a single pass over their characters, or their UTF-8
+ * bytes, looking each one up in a table of character classes. Both give the
+ * same verdict for the same value.
+ */
+public final class PhoneNumberPrefilter {
+
+  /**
+   * Why a value was rejected, from the first check it fails in this order.
+   */
+  public enum Verdict {
+    /** May be valid; parse it to find out. */
+    CANDIDATE,
+    /** Does not start with {@code tel:}. */
+    NO_PREFIX,
+    /** Has a character no token of the grammar contains, like a space. */
+    INVALID_CHARACTER,
+    /**
+     * Has no digit before the first {@code ;}, or a character which is not
+     * allowed there, such as a letter.
+     */
+    INVALID_NUMBER,
+    /** Has a {@code %} not followed by two uppercase hex digits. */
+    INVALID_PERCENT_ENCODING
+  }
+
+  private static final int VALUE = 1;
+
+  private static final int GLOBAL_DIGIT = 2;
+
+  private static final int LOCAL_DIGIT = 4;
+
+  private static final int SEPARATOR = 8;
+
+  private static final int PERCENT = 16;
+
+  private static final int HEX = 32;
+
+  /*
+   * The classes of each ASCII character; bytes of multi-byte UTF-8 characters
+   * have none.
+   */
+  private static final byte[] CLASSES = new byte[256];
+
+  static {
+    for (char c = '!'; c <= '~'; c++) {
+      if ("\"<>\\^`{|}".indexOf(c) < 0) {
+        CLASSES[c] = VALUE;
+      }
+    }
+    for (char c : "0123456789".toCharArray()) {
+      CLASSES[c] |= GLOBAL_DIGIT | LOCAL_DIGIT | HEX;
+    }
+    for (char c : "ABCDEF".toCharArray()) {
+      CLASSES[c] |= LOCAL_DIGIT | HEX;
+    }
+    for (char c : "*#".toCharArray()) {
+      CLASSES[c] |= LOCAL_DIGIT;
+    }
+    for (char c : "-.()".toCharArray()) {
+      CLASSES[c] |= SEPARATOR;
+    }
+    CLASSES['%'] |= PERCENT;
+  }
+
+  private PhoneNumberPrefilter() {
+  }
+
+  public static Verdict classify(CharSequence value) {
+    int length = value.length();
+    if (length < 4 || value.charAt(0) != 't' || value.charAt(1) != 'e' || value.charAt(2) != 'l' || value.charAt(3) != ':') {
+      return Verdict.NO_PREFIX;
+    }
+    boolean global = length > 4 && value.charAt(4) == '+';
+    int digit = global ? GLOBAL_DIGIT : LOCAL_DIGIT;
+    // the number, up to the first character which is neither a digit nor a separator
+    int i = global ? 5 : 4;
+    int number = 0;
+    for (; i < length; i++) {
+      int classes = classOf(value.charAt(i));
+      if ((classes & (digit | SEPARATOR)) == 0) {
+        break;
+      }
+      number |= classes;
+    }
+    int numberEnd = i;
+    int all = VALUE;
+    int any = 0;
+    for (; i < length; i++) {
+      int classes = classOf(value.charAt(i));
+      all &= classes;
+      any |= classes;
+    }
+    if (all == 0) {
+      return Verdict.INVALID_CHARACTER;
+    }
+    if ((numberEnd < length && value.charAt(numberEnd) != ';') || (number & digit) == 0) {
+      return Verdict.INVALID_NUMBER;
+    }
+    if ((any & PERCENT) != 0) {
+      for (i = numberEnd; i < length; i++) {
+        if (value.charAt(i) == '%' && (i + 2 >= length || (classOf(value.charAt(i + 1)) & classOf(value.charAt(i + 2)) & HEX) == 0)) {
+          return Verdict.INVALID_PERCENT_ENCODING;
+        }
+      }
+    }
+    return Verdict.CANDIDATE;
+  }
+
+  /**
+   * Classifies the {@code length} UTF-8 encoded bytes of {@code utf8} starting
+   * at {@code offset}, without decoding them.
+   */
+  public static Verdict classify(byte[] utf8, int offset, int length) {
+    int end = offset + length;
+    if (length < 4 || utf8[offset] != 't' || utf8[offset + 1] != 'e' || utf8[offset + 2] != 'l' || utf8[offset + 3] != ':') {
+      return Verdict.NO_PREFIX;
+    }
+    boolean global = length > 4 && utf8[offset + 4] == '+';
+    int digit = global ? GLOBAL_DIGIT : LOCAL_DIGIT;
+    int i = global ? offset + 5 : offset + 4;
+    int number = 0;
+    for (; i < end; i++) {
+      int classes = CLASSES[utf8[i] & 0xFF];
+      if ((classes & (digit | SEPARATOR)) == 0) {
+        break;
+      }
+      number |= classes;
+    }
+    int numberEnd = i;
+    int all = VALUE;
+    int any = 0;
+    for (; i < end; i++) {
+      int classes = CLASSES[utf8[i] & 0xFF];
+      all &= classes;
+      any |= classes;
+    }
+    if (all == 0) {
+      return Verdict.INVALID_CHARACTER;
+    }
+    if ((numberEnd < end && utf8[numberEnd] != ';') || (number & digit) == 0) {
+      return Verdict.INVALID_NUMBER;
+    }
+    if ((any & PERCENT) != 0) {
+      for (i = numberEnd; i < end; i++) {
+        if (utf8[i] == '%' && (i + 2 >= end || (CLASSES[utf8[i + 1] & 0xFF] & CLASSES[utf8[i + 2] & 0xFF] & HEX) == 0)) {
+          return Verdict.INVALID_PERCENT_ENCODING;
+        }
+      }
+    }
+    return Verdict.CANDIDATE;
+  }
+
+  /**
+   * Classifies many values at once.
+   */
+  public static Verdict[] classify(List<? extends CharSequence> values) {
+    Verdict[] verdicts = new Verdict[values.size()];
+    for (int i = 0; i < verdicts.length; i++) {
+      verdicts[i] = classify(values.get(i));
+    }
+    return verdicts;
+  }
+
+  /**
+   * Classifies the values at {@code offsets[i]}, {@code lengths[i]} bytes
+   * long, of {@code utf8}, a buffer of many values such as a block read from
+   * a file.
+   */
+  public static Verdict[] classify(byte[] utf8, int[] offsets, int[] lengths) {
+    if (offsets.length != lengths.length) {
+      throw new IllegalArgumentException("PhoneNumberPrefilter offsets and lengths must have the same length.");
+    }
+    Verdict[] verdicts = new Verdict[offsets.length];
+    for (int i = 0; i < verdicts.length; i++) {
+      verdicts[i] = classify(utf8, offsets[i], lengths[i]);
+    }
+    return verdicts;
+  }
+
+  private static int classOf(char c) {
+    return c < 0x80 ? CLASSES[c] : 0;
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Maps digit prefixes, such as country codes, area codes or whole number
+ * blocks, to values and finds the longest prefix matching a phone number.
+ *
+ * Visual separators and the leading plus are ignored, so {@code +1-201} and
+ * {@code 1201} are the same prefix. A phone number is matched on the digits
+ * of its global form, the phone context followed by the number for a local
+ * number, as in {@link PhoneNumber#getE164()}. Numbers without such a form,
+ * like local numbers with a domain name context, never match.
+ *
+ * The trie is kept in flat arrays which are copied on every update and
+ * published as a new snapshot, so lookups take no lock and allocate nothing
+ * while updates, expected to be rare, are serialized.
+ */
+public final class PhoneNumberPrefixTrie<V> {
+
+  private static final int RADIX = 10;
+
+  private static final int ROOT = 0;
+
+  private volatile Snapshot snapshot = new Snapshot(new int[RADIX * 16], new Object[16], 1, 0);
+
+  /**
+   * @throws IllegalArgumentException if {@code prefix} has no digits or
+   *     characters other than digits, visual separators and a leading plus
+   */
+  public synchronized void put(String prefix, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("PhoneNumberPrefixTrie values cannot be null.");
+    }
+    Snapshot copy = snapshot.copy(digitCount(prefix));
+    copy.put(prefix, value);
+    snapshot = copy;
+  }
+
+  /**
+   * Adds the digits of {@code phoneNumber}'s global form, as in
+   * {@link PhoneNumber#getE164()}, as a prefix.
+   */
+  public synchronized void put(PhoneNumber phoneNumber, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("PhoneNumberPrefixTrie values cannot be null.");
+    }
+    String e164 = phoneNumber != null ? phoneNumber.getE164() : null;
+    if (e164 == null) {
+      throw new IllegalArgumentException("PhoneNumberPrefixTrie prefixes must be phone numbers with an E.164 form.");
+    }
+    Snapshot copy = snapshot.copy(e164.length());
+    copy.put(e164, value);
+    snapshot = copy;
+  }
+
+  /**
+   * Adds all the prefixes at once, copying the trie only once.
+   */
+  public synchronized void putAll(Map<String, ? extends V> prefixes) {
+    int digits = 0;
+    for (String prefix : prefixes.keySet()) {
+      digits += digitCount(prefix);
+    }
+    Snapshot copy = snapshot.copy(digits);
+    for (Map.Entry<String, ? extends V> entry : prefixes.entrySet()) {
+      if (entry.getValue() == null) {
+        throw new IllegalArgumentException("PhoneNumberPrefixTrie values cannot be null.");
+      }
+      copy.put(entry.getKey(), entry.getValue());
+    }
+    snapshot = copy;
+  }
+
+  /**
+   * Removes the value of {@code prefix}; longer prefixes are kept.
+   *
+   * @return true if the prefix had a value
+   */
+  public synchronized boolean remove(String prefix) {
+    Snapshot current = snapshot;
+    int node = current.find(prefix);
+    if (node < 0 || current.values[node] == null) {
+      return false;
+    }
+    Snapshot copy = current.copy(0);
+    copy.values[node] = null;
+    copy.size--;
+    snapshot = copy;
+    return true;
+  }
+
+  /**
+   * @return the value of the exact prefix, or null
+   */
+  @SuppressWarnings("unchecked")
+  public V get(String prefix) {
+    Snapshot current = snapshot;
+    int node = current.find(prefix);
+    return node >= 0 ? (V) current.values[node] : null;
+  }
+
+  /**
+   * @return the value of the longest prefix of {@code digits}, or null if no
+   *     prefix matches
+   */
+  @SuppressWarnings("unchecked")
+  public V longestPrefixMatch(CharSequence digits) {
+    Snapshot current = snapshot;
+    long state = current.walk(digits, ROOT, -1);
+    int match = (int) state;
+    return match >= 0 ? (V) current.values[match] : null;
+  }
+
+  /**
+   * @return the value of the longest prefix of {@code phoneNumber}'s global
+   *     form, or null if no prefix matches or the number has no global form
+   */
+  @SuppressWarnings("unchecked")
+  public V longestPrefixMatch(PhoneNumber phoneNumber) {
+    if (phoneNumber == null || !phoneNumber.hasE164()) {
+      return null;
+    }
+    Snapshot current = snapshot;
+    int match = -1;
+    int node = ROOT;
+    if (!phoneNumber.isGlobalNumber()) {
+      // the context continues with the number, so carry on from where it stopped
+      long state = current.walk(phoneNumber.getPhoneContext(), ROOT, -1);
+      node = (int) (state >>> 32);
+      match = (int) state;
+      if (node < 0) {
+        return match >= 0 ? (V) current.values[match] : null;
+      }
+    }
+    match = (int) current.walk(phoneNumber.getNumber(), node, match);
+    return match >= 0 ? (V) current.values[match] : null;
+  }
+
+  public int size() {
+    return snapshot.size;
+  }
+
+  private static int digitCount(String prefix) {
+    if (prefix == null) {
+      throw new IllegalArgumentException("PhoneNumberPrefixTrie prefixes cannot be null.");
+    }
+    int digits = 0;
+    for (int i = 0; i < prefix.length(); i++) {
+      char c = prefix.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits++;
+      } else if (!isSeparator(c) && !(c == '+' && i == 0)) {
+        throw new IllegalArgumentException("PhoneNumberPrefixTrie prefix " + prefix + " must contain only digits, visual separators and a leading plus.");
+      }
+    }
+    if (digits == 0) {
+      throw new IllegalArgumentException("PhoneNumberPrefixTrie prefix " + prefix + " must contain at least one digit.");
+    }
+    return digits;
+  }
+
+  private static boolean isSeparator(char c) {
+    return c == '-' || c == '.' || c == '(' || c == ')';
+  }
+
+  /*
+   * Node n's children are children[n * RADIX + digit], 0 meaning none as the
+   * root is nobody's child.
+   */
+  private static final class Snapshot {
+
+    final int[] children;
+
+    final Object[] values;
+
+    int nodes;
+
+    int size;
+
+    Snapshot(int[] children, Object[] values, int nodes, int size) {
+      this.children = children;
+      this.values = values;
+      this.nodes = nodes;
+      this.size = size;
+    }
+
+    Snapshot copy(int extraNodes) {
+      int capacity = values.length;
+      while (capacity < nodes + extraNodes) {
+        capacity *= 2;
+      }
+      return new Snapshot(Arrays.copyOf(children, capacity * RADIX), Arrays.copyOf(values, capacity), nodes, size);
+    }
+
+    void put(String prefix, Object value) {
+      int node = ROOT;
+      for (int i = 0; i < prefix.length(); i++) {
+        int digit = prefix.charAt(i) - '0';
+        if (digit < 0 || digit >= RADIX) {
+          continue;
+        }
+        int child = children[node * RADIX + digit];
+        if (child == 0) {
+          child = nodes++;
+          children[node * RADIX + digit] = child;
+        }
+        node = child;
+      }
+      if (values[node] == null) {
+        size++;
+      }
+      values[node] = value;
+    }
+
+    int find(String prefix) {
+      int node = ROOT;
+      for (int i = 0; i < prefix.length(); i++) {
+        int digit = prefix.charAt(i) - '0';
+        if (digit < 0 || digit >= RADIX) {
+          continue;
+        }
+        node = children[node * RADIX + digit];
+        if (node == 0) {
+          return -1;
+        }
+      }
+      return node != ROOT ? node : -1;
+    }
+
+    /*
+     * Follows the digits of s from node. Returns the node reached (-1 if the
+     * trie ran out first) in the high half and the deepest node with a value
+     * seen so far (or match) in the low half, packed so nothing is allocated.
+     */
+    long walk(CharSequence s, int node, int match) {
+      for (int i = 0; i < s.length(); i++) {
+        int digit = s.charAt(i) - '0';
+        if (digit < 0 || digit >= RADIX) {
+          continue;
+        }
+        node = children[node * RADIX + digit];
+        if (node == 0) {
+          return ((long) -1 << 32) | (match & 0xFFFFFFFFL);
+        }
+        if (values[node] != null) {
+          match = node;
+        }
+      }
+      return ((long) node << 32) | (match & 0xFFFFFFFFL);
+    }
+  }
+}
@@ -0,0 +1,377 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.LexerATNSimulator;
+import org.antlr.v4.runtime.atn.ParserATNSimulator;
+import org.antlr.v4.runtime.atn.PredictionContextCache;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Lexer, token stream, parser and listener used to parse phone number values,
+ * kept together so they can be reused from one parse to the next.
+ *
+ * Instances are not thread safe; {@link #acquire()} hands out one per thread.
+ */
+final class PhoneNumberRecognizer {
+
+  private static final ThreadLocal<PhoneNumberRecognizer> RECOGNIZERS = ThreadLocal.withInitial(PhoneNumberRecognizer::new);
+
+  private final RecyclingTokenFactory tokenFactory = new RecyclingTokenFactory();
+
+  private final StringCharStream stringStream = new StringCharStream();
+
+  private final Utf8ByteBufferCharStream byteStream = new Utf8ByteBufferCharStream();
+
+  private final PhoneNumberLexer lexer;
+
+  private final ReusableTokenStream tokens;
+
+  private final PhoneNumberParser parser;
+
+  private final PhoneNumberParseTreeListener listener = new PhoneNumberParseTreeListener();
+
+  private final boolean perThreadDfa;
+
+  private boolean inUse;
+
+  private boolean fullContext;
+
+  private boolean syntaxError;
+
+  private int errorOffset;
+
+  private int errorRuleIndex;
+
+  private int errorTokenType;
+
+  private IllegalStateException error;
+
+  private int parsedLength;
+
+  PhoneNumberRecognizer() {
+    perThreadDfa = PhoneNumber.isPerThreadDfa();
+    lexer = new PhoneNumberLexer(stringStream.reset(""));
+    lexer.setTokenFactory(tokenFactory);
+    tokens = new ReusableTokenStream(lexer);
+    parser = new PhoneNumberParser(tokens);
+    if (perThreadDfa) {
+      // own DFA and context cache instead of the static ones all recognizers share
+      lexer.setInterpreter(new LexerATNSimulator(lexer, lexer.getATN(), newDfa(lexer.getATN()), new PredictionContextCache()));
+      parser.setInterpreter(new ParserATNSimulator(parser, parser.getATN(), newDfa(parser.getATN()), new PredictionContextCache()));
+    }
+    parser.setBuildParseTree(true);
+    parser.setErrorHandler(new PhoneNumberFailFastErrorStrategy());
+    parser.removeErrorListeners();
+    parser.addErrorListener(new BaseErrorListener() {
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+        // the error strategy ends the parse right after this
+        errorOffset = offendingSymbol instanceof Token ? ((Token) offendingSymbol).getStartIndex() : charPositionInLine;
+        errorTokenType = offendingSymbol instanceof Token ? ((Token) offendingSymbol).getType() : Token.INVALID_TYPE;
+        ParserRuleContext context = ((Parser) recognizer).getContext();
+        errorRuleIndex = context != null ? context.getRuleIndex() : -1;
+        error = new IllegalStateException("failed to parse at line " + line + " due to " + msg, e);
+      }
+    });
+  }
+
+  /**
+   * Returns the calling thread's recognizer, or a new one if the thread's
+   * recognizer is already busy further up the stack.
+   */
+  static PhoneNumberRecognizer acquire() {
+    PhoneNumberRecognizer recognizer = RECOGNIZERS.get();
+    if (recognizer.inUse) {
+      return new PhoneNumberRecognizer();
+    }
+    if (recognizer.perThreadDfa != PhoneNumber.isPerThreadDfa()) {
+      recognizer = new PhoneNumberRecognizer();
+      RECOGNIZERS.set(recognizer);
+    }
+    return recognizer;
+  }
+
+  /**
+   * Whether the last value needed the full context (LL) retry.
+   */
+  boolean usedFullContext() {
+    return fullContext;
+  }
+
+  /**
+   * Name of the rule that failed if the last value was rejected by the
+   * grammar, otherwise null.
+   */
+  String failedRule() {
+    if (!syntaxError) {
+      return null;
+    }
+    return errorRuleIndex >= 0 && errorRuleIndex < PhoneNumberParser.ruleNames.length ? PhoneNumberParser.ruleNames[errorRuleIndex] : "unknown";
+  }
+
+  /**
+   * Number of characters, or bytes for UTF-8 input, of the last value accepted
+   * that the parse used, as the grammar does not require all of them to be.
+   */
+  int parsedLength() {
+    return parsedLength;
+  }
+
+  private static DFA[] newDfa(ATN atn) {
+    DFA[] dfa = new DFA[atn.getNumberOfDecisions()];
+    for (int i = 0; i < dfa.length; i++) {
+      dfa[i] = new DFA(atn.getDecisionState(i), i);
+    }
+    return dfa;
+  }
+
+  PhoneNumber parse(String value) throws PhoneNumberParseException {
+    return parse(value, true);
+  }
+
+  /**
+   * Parses like {@link #parse(String)} without recording a rejection in the
+   * error diagnostics, for callers trying several cuts of the same text where
+   * failures are expected and reject nothing.
+   */
+  PhoneNumber probe(String value) throws PhoneNumberParseException {
+    return parse(value, false);
+  }
+
+  private PhoneNumber parse(String value, boolean recordErrors) throws PhoneNumberParseException {
+    fullContext = false;
+    syntaxError = false;
+    PhoneNumberParseLimits limits = PhoneNumber.getParseLimits();
+    checkLength(value.length(), limits);
+    return parse(stringStream.reset(value), limits, recordErrors);
+  }
+
+  PhoneNumber parse(ByteBuffer utf8) throws PhoneNumberParseException {
+    fullContext = false;
+    syntaxError = false;
+    PhoneNumberParseLimits limits = PhoneNumber.getParseLimits();
+    // before the stream decodes anything
+    checkLength(utf8.remaining(), limits);
+    int malformedOffset = byteStream.reset(utf8).malformedOffset();
+    if (malformedOffset >= 0) {
+      byteStream.clear();
+      throw new PhoneNumberParseException("malformed UTF-8 at byte " + malformedOffset, malformedOffset);
+    }
+    return parse(byteStream, limits, true);
+  }
+
+  private static void checkLength(int length, PhoneNumberParseLimits limits) throws PhoneNumberLimitExceededException {
+    if (length > limits.getMaxLength()) {
+      throw PhoneNumberParseLimits.exceeded(PhoneNumberParseLimits.Limit.LENGTH,
+          "phone number is longer than " + limits.getMaxLength() + " characters", limits.getMaxLength());
+    }
+  }
+
+  /**
+   * Checks that {@code text}, lexed starting in lexer {@code mode}, is made of
+   * exactly the given token types. Used to validate a single component without
+   * parsing a whole value.
+   */
+  boolean lexesAs(String text, int mode, int... tokenTypes) {
+    inUse = true;
+    try {
+      tokenFactory.recycle();
+      lexer.setInputStream(stringStream.reset(text));
+      lexer.pushMode(mode);
+      for (int tokenType : tokenTypes) {
+        if (lexer.nextToken().getType() != tokenType) {
+          return false;
+        }
+      }
+      return lexer.nextToken().getType() == Token.EOF;
+    } finally {
+      stringStream.reset("");
+      tokenFactory.recycle();
+      inUse = false;
+    }
+  }
+
+  /**
+   * Lexes {@code text}, which starts with a tel: prefix, and returns the end
+   * offsets of its tokens up to the first character no lexer mode accepts or
+   * the next tel: prefix. A value found in running text can only end there.
+   */
+  int[] tokenEnds(String text) {
+    inUse = true;
+    try {
+      tokenFactory.recycle();
+      lexer.setInputStream(stringStream.reset(text));
+      int[] ends = new int[16];
+      int count = 0;
+      for (Token token = lexer.nextToken(); token.getType() != Token.EOF; token = lexer.nextToken()) {
+        if (isErrorCharacter(token.getType()) || token.getType() == PhoneNumberLexer.PrefixTel && count > 0) {
+          break;
+        }
+        if (count == ends.length) {
+          ends = Arrays.copyOf(ends, count * 2);
+        }
+        ends[count++] = token.getStopIndex() + 1;
+        // the tokens are only needed for their offsets
+        tokenFactory.recycle();
+      }
+      return Arrays.copyOf(ends, count);
+    } finally {
+      stringStream.reset("");
+      tokenFactory.recycle();
+      inUse = false;
+    }
+  }
+
+  private static boolean isErrorCharacter(int tokenType) {
+    switch (tokenType) {
+      case PhoneNumberLexer.ErrorCharacter:
+      case PhoneNumberLexer.ParamErrorCharacter:
+      case PhoneNumberLexer.ParamValueErrorCharacter:
+      case PhoneNumberLexer.ExtErrorCharacter:
+      case PhoneNumberLexer.IsubErrorCharacter:
+      case PhoneNumberLexer.CtxErrorCharacter:
+      case PhoneNumberLexer.GlobalErrorCharacter:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private ParseTree parse(CharStream input, PredictionMode predictionMode) {
+    tokenFactory.recycle();
+    input.seek(0);
+    lexer.setInputStream(input);
+    tokens.reset(lexer);
+    parser.setTokenStream(tokens);
+    // not reset by setTokenStream, and left behind when a limit aborted the last parse mid-rule
+    parser.setState(ATNState.INVALID_STATE_NUMBER);
+    parser.getInterpreter().setPredictionMode(predictionMode);
+    errorOffset = -1;
+    errorRuleIndex = -1;
+    error = null;
+    return parser.phoneNumber();
+  }
+
+  private PhoneNumber parse(CharStream input, PhoneNumberParseLimits limits, boolean recordErrors) throws PhoneNumberParseException {
+    inUse = true;
+    tokenFactory.limit(limits);
+    try {
+      ParseTree tree;
+      try {
+        try {
+          tree = parse(input, PredictionMode.SLL);
+        } catch (ParseCancellationException e) {
+          // SLL prediction may fail on input that full context prediction accepts
+          fullContext = true;
+          try {
+            tree = parse(input, PredictionMode.LL);
+          } catch (ParseCancellationException e2) {
+            syntaxError = true;
+            if (recordErrors) {
+              PhoneNumber.getErrorDiagnostics().record(errorRuleIndex, errorTokenType);
+            }
+            throw new PhoneNumberParseException(error != null ? error : new IllegalStateException("failed to parse", e2), sourceOffset(input, errorOffset));
+          }
+        }
+      } catch (PhoneNumberLimitExceededException.Trip trip) {
+        throw trip.exception;
+      }
+      Token stop = ((ParserRuleContext) tree).getStop();
+      parsedLength = stop != null ? sourceOffset(input, stop.getStopIndex() + 1) : 0;
+
+      listener.reset();
+      try {
+        ParseTreeWalker.DEFAULT.walk(listener, tree);
+      } catch (IllegalStateException e) {
+        throw new PhoneNumberParseException(e);
+      }
+
+      return listener.getPhoneNumber();
+    } finally {
+      // the recycled tokens still point at the streams, don't let them pin the input
+      stringStream.reset("");
+      byteStream.clear();
+      tokenFactory.unlimit();
+      tokenFactory.recycle();
+      listener.reset();
+      inUse = false;
+    }
+  }
+
+  /* Offsets are reported in the units of the input: characters, or bytes for UTF-8 */
+  private int sourceOffset(CharStream input, int index) {
+    return input == byteStream ? byteStream.byteOffset(index) : index;
+  }
+
+  /**
+   * Recognizers shared by tasks that may run on short-lived threads (virtual
+   * threads for instance), where a thread local one would rarely be reused.
+   */
+  static final class Pool {
+
+    private final ConcurrentLinkedQueue<PhoneNumberRecognizer> idle = new ConcurrentLinkedQueue<>();
+
+    PhoneNumberRecognizer borrow() {
+      PhoneNumberRecognizer recognizer = idle.poll();
+      // recognizers made before the DFA setting changed are dropped
+      while (recognizer != null && recognizer.perThreadDfa != PhoneNumber.isPerThreadDfa()) {
+        recognizer = idle.poll();
+      }
+      return recognizer != null ? recognizer : new PhoneNumberRecognizer();
+    }
+
+    void giveBack(PhoneNumberRecognizer recognizer) {
+      idle.offer(recognizer);
+    }
+  }
+
+  private static final class ReusableTokenStream extends CommonTokenStream {
+
+    ReusableTokenStream(TokenSource tokenSource) {
+      super(tokenSource);
+    }
+
+    void reset(TokenSource tokenSource) {
+      setTokenSource(tokenSource);
+      // not cleared by setTokenSource in older runtimes
+      fetchedEOF = false;
+    }
+  }
+}
@@ -0,0 +1,625 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Finds the phone numbers added, removed and changed between two large
+ * datasets, such as a SCIM provider's and our directory, keyed by an id of
+ * the caller's choosing, for instance a user id and phone number type. Two
+ * numbers are the same when {@link PhoneNumber#equals} says so: each side is
+ * reduced to the {@link PhoneNumber#getCanonicalKey() canonical key} of its
+ * numbers.
+ *
+ * A {@link Dataset} sorts its entries by a hash of their id, spilling sorted
+ * runs to disk and merging them when over its memory budget, and sums the
+ * hashes of the entries in every range of that hash space, halving the ranges
+ * down to about sixteen entries each. {@link #reconcile(Dataset, Peer)} then
+ * walks both trees from the root, only asking the other side for the hashes
+ * below ranges which differ, and finally for the entries of the smallest
+ * ranges which still differ. Datasets which are mostly identical exchange a
+ * few hashes and entries instead of everything.
+ *
+ * The other side is a {@link Peer}, which a transport implements on top of
+ * the other side's {@code Dataset}; {@link #local(Dataset)} is the in-process
+ * one.
+ */
+public final class PhoneNumberReconciler {
+
+  private static final int MAX_DEPTH = 20;
+
+  private static final int ENTRIES_PER_LEAF = 16;
+
+  private static final long ID_SEED = 0x2545F4914F6CDD1DL;
+
+  private static final long CONTENT_SEED = 0x9FB21C651E98DF25L;
+
+  private static final Comparator<Entry> ORDER = (a, b) -> {
+    int c = Long.compareUnsigned(a.idHash, b.idHash);
+    return c != 0 ? c : a.id.compareTo(b.id);
+  };
+
+  private PhoneNumberReconciler() {
+  }
+
+  /**
+   * The other side of a reconciliation. Nodes are numbered per level, level
+   * {@code l} having {@code 2^l} nodes, and node {@code n} covering the ids
+   * whose hash starts with the {@code l} bits of {@code n}.
+   */
+  public interface Peer {
+
+    /**
+     * @return the deepest level of the other side's tree
+     */
+    int getDepth() throws IOException;
+
+    /**
+     * @return the hashes of {@code nodes}, in the same order
+     */
+    long[] getHashes(int level, int[] nodes) throws IOException;
+
+    /**
+     * @return the entries of {@code nodes}, given in ascending order, in the
+     *     order of the dataset
+     */
+    List<Entry> getEntries(int level, int[] nodes) throws IOException;
+  }
+
+  /**
+   * A peer answering from {@code dataset} directly.
+   */
+  public static Peer local(Dataset dataset) {
+    return new Peer() {
+      @Override
+      public int getDepth() {
+        return dataset.depth;
+      }
+
+      @Override
+      public long[] getHashes(int level, int[] nodes) {
+        return dataset.getHashes(level, nodes);
+      }
+
+      @Override
+      public List<Entry> getEntries(int level, int[] nodes) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        dataset.forEach(level, nodes, entries::add);
+        return entries;
+      }
+    };
+  }
+
+  /**
+   * Compares {@code ours} with {@code theirs}: added entries are theirs
+   * only, removed ones ours only.
+   */
+  public static Result reconcile(Dataset ours, Peer theirs) throws IOException {
+    Result result = new Result();
+    int depth = Math.min(ours.depth, theirs.getDepth());
+    result.roundTrips++;
+
+    int level = 0;
+    int[] nodes = differing(ours, theirs, 0, new int[] {0}, result);
+    while (level < depth && nodes.length > 0) {
+      int[] children = new int[nodes.length * 2];
+      for (int i = 0; i < nodes.length; i++) {
+        children[2 * i] = nodes[i] * 2;
+        children[2 * i + 1] = nodes[i] * 2 + 1;
+      }
+      level++;
+      nodes = differing(ours, theirs, level, children, result);
+    }
+    if (nodes.length == 0) {
+      return result;
+    }
+
+    List<Entry> theirEntries = theirs.getEntries(level, nodes);
+    result.roundTrips++;
+    result.entriesExchanged += theirEntries.size();
+    int[] next = new int[1];
+    ours.forEach(level, nodes, entry -> {
+      int j = next[0];
+      while (j < theirEntries.size() && ORDER.compare(theirEntries.get(j), entry) < 0) {
+        result.added.add(theirEntries.get(j++));
+      }
+      if (j < theirEntries.size() && theirEntries.get(j).id.equals(entry.id)) {
+        Entry their = theirEntries.get(j++);
+        if (!their.canonicalKey.equals(entry.canonicalKey)) {
+          result.changed.add(new Change(entry.id, entry.canonicalKey, their.canonicalKey));
+        }
+      } else {
+        result.removed.add(entry);
+      }
+      next[0] = j;
+    });
+    result.added.addAll(theirEntries.subList(next[0], theirEntries.size()));
+    return result;
+  }
+
+  private static int[] differing(Dataset ours, Peer theirs, int level, int[] nodes, Result result) throws IOException {
+    long[] theirHashes = theirs.getHashes(level, nodes);
+    result.roundTrips++;
+    result.hashesExchanged += nodes.length;
+    long[] ourHashes = ours.getHashes(level, nodes);
+    int[] differing = new int[nodes.length];
+    int count = 0;
+    for (int i = 0; i < nodes.length; i++) {
+      if (ourHashes[i] != theirHashes[i]) {
+        differing[count++] = nodes[i];
+      }
+    }
+    return Arrays.copyOf(differing, count);
+  }
+
+  /**
+   * An id and the canonical key of its phone number.
+   */
+  public static final class Entry {
+
+    private final String id;
+
+    private final String canonicalKey;
+
+    final long idHash;
+
+    final long contentHash;
+
+    public Entry(String id, String canonicalKey) {
+      if (id == null || canonicalKey == null) {
+        throw new IllegalArgumentException("PhoneNumberReconciler entries must have an id and a canonical key.");
+      }
+      this.id = id;
+      this.canonicalKey = canonicalKey;
+      this.idHash = PhoneNumberBloomFilter.hash(id, ID_SEED);
+      this.contentHash = PhoneNumberBloomFilter.hash(canonicalKey, PhoneNumberBloomFilter.hash(id, CONTENT_SEED));
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getCanonicalKey() {
+      return canonicalKey;
+    }
+
+    @Override
+    public String toString() {
+      return id + "=" + canonicalKey;
+    }
+  }
+
+  /**
+   * An id whose phone number differs between the two sides.
+   */
+  public static final class Change {
+
+    private final String id;
+
+    private final String ours;
+
+    private final String theirs;
+
+    Change(String id, String ours, String theirs) {
+      this.id = id;
+      this.ours = ours;
+      this.theirs = theirs;
+    }
+
+    public String getId() {
+      return id;
+    }
+
+    public String getOurs() {
+      return ours;
+    }
+
+    public String getTheirs() {
+      return theirs;
+    }
+
+    @Override
+    public String toString() {
+      return id + ": " + ours + " -> " + theirs;
+    }
+  }
+
+  public static final class Result {
+
+    private final List<Entry> added = new ArrayList<>();
+
+    private final List<Entry> removed = new ArrayList<>();
+
+    private final List<Change> changed = new ArrayList<>();
+
+    private long hashesExchanged;
+
+    private long entriesExchanged;
+
+    private int roundTrips;
+
+    public List<Entry> getAdded() {
+      return Collections.unmodifiableList(added);
+    }
+
+    public List<Entry> getRemoved() {
+      return Collections.unmodifiableList(removed);
+    }
+
+    public List<Change> getChanged() {
+      return Collections.unmodifiableList(changed);
+    }
+
+    public boolean isIdentical() {
+      return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * @return the number of node hashes asked from the peer
+     */
+    public long getHashesExchanged() {
+      return hashesExchanged;
+    }
+
+    /**
+     * @return the number of entries asked from the peer
+     */
+    public long getEntriesExchanged() {
+      return entriesExchanged;
+    }
+
+    /**
+     * @return the number of calls made to the peer
+     */
+    public int getRoundTrips() {
+      return roundTrips;
+    }
+  }
+
+  /**
+   * One side's entries, sorted and summarized by range hashes. Datasets over
+   * their memory budget keep their entries in a temporary file, deleted on
+   * {@link #close()}.
+   */
+  public static final class Dataset implements Closeable {
+
+    private final int depth;
+
+    private final long size;
+
+    // per level, the sums of the content hashes of the entries of each node
+    private final long[][] hashes;
+
+    // per leaf and one past the last, the index of its first entry
+    private final long[] leafEntries;
+
+    // in memory
+    private final Entry[] entries;
+
+    // or in a file, with the byte offset of the first entry of each leaf
+    private final Path file;
+
+    private final long[] leafOffsets;
+
+    private Dataset(int depth, long size, long[] leaves, long[] leafEntries, Entry[] entries, Path file, long[] leafOffsets) {
+      this.depth = depth;
+      this.size = size;
+      this.hashes = new long[depth + 1][];
+      this.hashes[depth] = leaves;
+      for (int level = depth - 1; level >= 0; level--) {
+        long[] below = hashes[level + 1];
+        long[] sums = new long[1 << level];
+        for (int i = 0; i < sums.length; i++) {
+          sums[i] = below[2 * i] + below[2 * i + 1];
+        }
+        hashes[level] = sums;
+      }
+      this.leafEntries = leafEntries;
+      this.entries = entries;
+      this.file = file;
+      this.leafOffsets = leafOffsets;
+    }
+
+    /**
+     * Reads all of {@code records}, id to phone number, into memory.
+     */
+    public static Dataset of(Iterable<? extends Map.Entry<String, PhoneNumber>> records) throws IOException {
+      return sort(records.iterator(), Long.MAX_VALUE, null);
+    }
+
+    /**
+     * Reads {@code records}, id to phone number, sorting them in memory up to
+     * about {@code memoryBudget} bytes and otherwise in runs written to
+     * temporary files in {@code directory}, which are then merged into one.
+     *
+     * @throws IllegalArgumentException if an id is repeated or a phone number
+     *     is not parsed
+     */
+    public static Dataset sort(Iterator<? extends Map.Entry<String, PhoneNumber>> records, long memoryBudget, Path directory) throws IOException {
+      if (memoryBudget <= 0) {
+        throw new IllegalArgumentException("PhoneNumberReconciler memoryBudget must be positive.");
+      }
+      List<Entry> chunk = new ArrayList<>();
+      long chunkBytes = 0;
+      long size = 0;
+      List<Path> runs = new ArrayList<>();
+      try {
+        while (records.hasNext()) {
+          Map.Entry<String, PhoneNumber> record = records.next();
+          String key = record.getValue() != null ? record.getValue().getCanonicalKey() : null;
+          if (key == null) {
+            throw new IllegalArgumentException("PhoneNumberReconciler numbers must be parsed phone numbers.");
+          }
+          Entry entry = new Entry(record.getKey(), key);
+          chunk.add(entry);
+          size++;
+          // strings, entry and list slot
+          chunkBytes += 2L * (entry.id.length() + entry.canonicalKey.length()) + 120;
+          if (chunkBytes > memoryBudget) {
+            if (directory == null) {
+              throw new IllegalArgumentException("PhoneNumberReconciler needs a directory for datasets over the memory budget.");
+            }
+            runs.add(spill(chunk, directory));
+            chunk.clear();
+            chunkBytes = 0;
+          }
+        }
+        if (runs.isEmpty()) {
+          chunk.sort(ORDER);
+          return inMemory(chunk.toArray(new Entry[0]));
+        }
+        if (!chunk.isEmpty()) {
+          runs.add(spill(chunk, directory));
+          chunk.clear();
+        }
+        return merge(runs, size, directory);
+      } finally {
+        for (Path run : runs) {
+          Files.deleteIfExists(run);
+        }
+      }
+    }
+
+    public long size() {
+      return size;
+    }
+
+    public int getDepth() {
+      return depth;
+    }
+
+    /**
+     * @return the hash of the whole dataset, equal on both sides when their
+     *     entries are
+     */
+    public long getRootHash() {
+      return hashes[0][0];
+    }
+
+    long[] getHashes(int level, int[] nodes) {
+      checkLevel(level);
+      long[] result = new long[nodes.length];
+      for (int i = 0; i < nodes.length; i++) {
+        result[i] = hashes[level][nodes[i]];
+      }
+      return result;
+    }
+
+    void forEach(int level, int[] nodes, Consumer<Entry> action) throws IOException {
+      checkLevel(level);
+      int shift = depth - level;
+      if (entries != null) {
+        for (int node : nodes) {
+          for (long i = leafEntries[node << shift]; i < leafEntries[(node + 1) << shift]; i++) {
+            action.accept(entries[(int) i]);
+          }
+        }
+        return;
+      }
+      try (FileChannel channel = FileChannel.open(file)) {
+        for (int node : nodes) {
+          long count = leafEntries[(node + 1) << shift] - leafEntries[node << shift];
+          if (count == 0) {
+            continue;
+          }
+          channel.position(leafOffsets[node << shift]);
+          DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+          for (long i = 0; i < count; i++) {
+            action.accept(read(in));
+          }
+        }
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (file != null) {
+        Files.deleteIfExists(file);
+      }
+    }
+
+    private void checkLevel(int level) {
+      if (level < 0 || level > depth) {
+        throw new IllegalArgumentException("PhoneNumberReconciler level " + level + " is not between 0 and " + depth + ".");
+      }
+    }
+
+    private static Dataset inMemory(Entry[] entries) {
+      int depth = depth(entries.length);
+      long[] leaves = new long[1 << depth];
+      long[] leafEntries = new long[leaves.length + 1];
+      int nextLeaf = 0;
+      for (int i = 0; i < entries.length; i++) {
+        Entry entry = entries[i];
+        checkUnique(i > 0 ? entries[i - 1] : null, entry);
+        int leaf = leaf(entry, depth);
+        while (nextLeaf <= leaf) {
+          leafEntries[nextLeaf++] = i;
+        }
+        leaves[leaf] += entry.contentHash;
+      }
+      while (nextLeaf <= leaves.length) {
+        leafEntries[nextLeaf++] = entries.length;
+      }
+      return new Dataset(depth, entries.length, leaves, leafEntries, entries, null, null);
+    }
+
+    private static Path spill(List<Entry> chunk, Path directory) throws IOException {
+      chunk.sort(ORDER);
+      Path run = Files.createTempFile(directory, "phone-numbers", ".run");
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+        out.writeInt(chunk.size());
+        for (Entry entry : chunk) {
+          write(out, entry);
+        }
+      }
+      return run;
+    }
+
+    /*
+     * Merges the sorted runs into the dataset file, summing the leaf hashes on
+     * the way.
+     */
+    private static Dataset merge(List<Path> runs, long size, Path directory) throws IOException {
+      int depth = depth(size);
+      long[] leaves = new long[1 << depth];
+      long[] leafEntries = new long[leaves.length + 1];
+      long[] leafOffsets = new long[leaves.length + 1];
+      Path file = Files.createTempFile(directory, "phone-numbers", ".dataset");
+      List<DataInputStream> inputs = new ArrayList<>();
+      try {
+        PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> ORDER.compare(a.head, b.head));
+        for (Path path : runs) {
+          DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+          inputs.add(in);
+          Run run = new Run(in, in.readInt());
+          run.head = read(in);
+          queue.add(run);
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+          Entry previous = null;
+          long index = 0;
+          long offset = 0;
+          int nextLeaf = 0;
+          while (!queue.isEmpty()) {
+            Run run = queue.poll();
+            Entry entry = run.head;
+            checkUnique(previous, entry);
+            int leaf = leaf(entry, depth);
+            while (nextLeaf <= leaf) {
+              leafEntries[nextLeaf] = index;
+              leafOffsets[nextLeaf++] = offset;
+            }
+            leaves[leaf] += entry.contentHash;
+            offset += write(out, entry);
+            index++;
+            previous = entry;
+            if (--run.remaining > 0) {
+              run.head = read(run.in);
+              queue.add(run);
+            }
+          }
+          while (nextLeaf <= leaves.length) {
+            leafEntries[nextLeaf] = index;
+            leafOffsets[nextLeaf++] = offset;
+          }
+        }
+        return new Dataset(depth, size, leaves, leafEntries, null, file, leafOffsets);
+      } catch (IOException | RuntimeException e) {
+        Files.deleteIfExists(file);
+        throw e;
+      } finally {
+        for (DataInputStream in : inputs) {
+          in.close();
+        }
+      }
+    }
+
+    private static int depth(long size) {
+      if (size <= ENTRIES_PER_LEAF) {
+        return 0;
+      }
+      return Math.min(MAX_DEPTH, 64 - Long.numberOfLeadingZeros((size - 1) / ENTRIES_PER_LEAF));
+    }
+
+    private static int leaf(Entry entry, int depth) {
+      return depth == 0 ? 0 : (int) (entry.idHash >>> (64 - depth));
+    }
+
+    private static void checkUnique(Entry previous, Entry entry) {
+      if (previous != null && previous.idHash == entry.idHash && previous.id.equals(entry.id)) {
+        throw new IllegalArgumentException("PhoneNumberReconciler id " + entry.id + " is repeated.");
+      }
+    }
+
+    private static long write(DataOutputStream out, Entry entry) throws IOException {
+      byte[] id = entry.id.getBytes(StandardCharsets.UTF_8);
+      byte[] key = entry.canonicalKey.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(id.length);
+      out.write(id);
+      out.writeInt(key.length);
+      out.write(key);
+      return 8 + id.length + key.length;
+    }
+
+    private static Entry read(DataInputStream in) throws IOException {
+      byte[] id = new byte[in.readInt()];
+      in.readFully(id);
+      byte[] key = new byte[in.readInt()];
+      in.readFully(key);
+      return new Entry(new String(id, StandardCharsets.UTF_8), new String(key, StandardCharsets.UTF_8));
+    }
+
+    private static final class Run {
+
+      final DataInputStream in;
+
+      int remaining;
+
+      Entry head;
+
+      Run(DataInputStream in, int remaining) {
+        this.in = in;
+        this.remaining = remaining;
+      }
+    }
+  }
+}
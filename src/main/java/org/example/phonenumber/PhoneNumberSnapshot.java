@@ -0,0 +1,585 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A set of parsed phone numbers stored in a file which is memory-mapped and
+ * queried in place, so that a service holding millions of numbers can start
+ * without parsing them again. Numbers are keyed on
+ * {@link PhoneNumber#getCanonicalKey()}, like {@link PhoneNumberBloomFilter}.
+ *
+ * Every number is stored as its value, its canonical key, a hash of the key
+ * and the lengths of its components, from which {@link #get(PhoneNumber)}
+ * rebuilds it without parsing. Only the value is kept, not the display, type
+ * or primary attributes. A CRC32C checksum of the file can be checked when it
+ * is opened, at the cost of reading all of it.
+ *
+ * A snapshot opened with a log records the numbers added and removed after it
+ * was written in that log, which is replayed the next time the snapshot is
+ * opened with it. A log belongs to one snapshot and is rejected by any other;
+ * writing the current numbers to a new snapshot with {@link #writeTo(Path)}
+ * lets the log start over.
+ */
+public final class PhoneNumberSnapshot implements Closeable {
+
+  private static final int MAGIC = 0x504E5353;
+
+  private static final int LOG_MAGIC = 0x504E534C;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_BYTES = 32;
+
+  private static final int LOG_HEADER_BYTES = 16;
+
+  private static final int RECORD_BYTES = 32;
+
+  private static final int MAX_LENGTH = 0xFFFF;
+
+  private static final long SEED = 0x9E3779B97F4A7C15L;
+
+  private static final int GLOBAL_NUMBER = 1;
+
+  private static final int DOMAIN_PHONE_CONTEXT = 2;
+
+  private static final byte ADD = 1;
+
+  private static final byte REMOVE = 2;
+
+  private static final String TEL_PREFIX = "tel:";
+
+  private static final String EXTENSION_PREFIX = ";ext=";
+
+  private static final String ISUB_PREFIX = ";isub=";
+
+  private static final String CONTEXT_PREFIX = ";phone-context=";
+
+  private final ByteBuffer buffer;
+
+  private final int count;
+
+  private final int slotMask;
+
+  private final int tableOffset;
+
+  private final int poolOffset;
+
+  private final long checksum;
+
+  private final Map<String, PhoneNumber> added = new ConcurrentHashMap<>();
+
+  private final Set<String> removed = ConcurrentHashMap.newKeySet();
+
+  private FileChannel log;
+
+  private PhoneNumberSnapshot(ByteBuffer buffer, boolean verifyChecksum) {
+    this.buffer = buffer;
+    if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot data has no snapshot header.");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot version " + buffer.getInt(4) + " is not supported.");
+    }
+    this.count = buffer.getInt(8);
+    int slots = buffer.getInt(12);
+    this.checksum = buffer.getLong(16);
+    long tableOffset = HEADER_BYTES + (long) count * RECORD_BYTES;
+    long poolOffset = tableOffset + (long) slots * 4;
+    if (count < 0 || slots <= count || Integer.bitCount(slots) != 1 || poolOffset > buffer.capacity()) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot data is corrupt.");
+    }
+    this.slotMask = slots - 1;
+    this.tableOffset = (int) tableOffset;
+    this.poolOffset = (int) poolOffset;
+    if (verifyChecksum && checksum(buffer) != checksum) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot checksum does not match its data.");
+    }
+  }
+
+  /**
+   * Writes the numbers to a new snapshot file. Of numbers with the same
+   * canonical key only the first is kept.
+   *
+   * @throws IllegalArgumentException if a number has no parsed number
+   */
+  public static void write(Path file, Iterable<PhoneNumber> phoneNumbers) throws IOException {
+    List<PhoneNumber> unique = new ArrayList<>();
+    List<String> keys = new ArrayList<>();
+    Set<String> seen = new HashSet<>();
+    for (PhoneNumber phoneNumber : phoneNumbers) {
+      String key = canonicalKey(phoneNumber);
+      if (seen.add(key)) {
+        unique.add(phoneNumber);
+        keys.add(key);
+      }
+    }
+    write(file, unique, keys);
+  }
+
+  /**
+   * Maps a snapshot read-only, without a log.
+   *
+   * @param verifyChecksum whether to read the whole file to check it against
+   *     its checksum
+   */
+  public static PhoneNumberSnapshot open(Path file, boolean verifyChecksum) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("PhoneNumberSnapshot file of " + channel.size() + " bytes exceeds the 2 GB limit.");
+      }
+      return new PhoneNumberSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), verifyChecksum);
+    }
+  }
+
+  /**
+   * Maps a snapshot read-only and replays {@code log}, created if it does not
+   * exist, to which the numbers added and removed from now on are appended. A
+   * record left incomplete at the end of the log, by a crash while it was
+   * written, is dropped.
+   *
+   * @throws IllegalArgumentException if the log was written for another
+   *     snapshot
+   */
+  public static PhoneNumberSnapshot open(Path file, Path log, boolean verifyChecksum) throws IOException {
+    PhoneNumberSnapshot snapshot = open(file, verifyChecksum);
+    snapshot.openLog(log);
+    return snapshot;
+  }
+
+  /**
+   * @return the number equal to {@code phoneNumber}, as it was added, or null
+   */
+  public PhoneNumber get(PhoneNumber phoneNumber) {
+    String key = canonicalKey(phoneNumber);
+    PhoneNumber match = added.get(key);
+    if (match != null || removed.contains(key)) {
+      return match;
+    }
+    int index = find(key);
+    return index >= 0 ? phoneNumber(index) : null;
+  }
+
+  public boolean contains(PhoneNumber phoneNumber) {
+    String key = canonicalKey(phoneNumber);
+    return added.containsKey(key) || !removed.contains(key) && find(key) >= 0;
+  }
+
+  /**
+   * Adds a number, appending it to the log.
+   *
+   * @return false if an equal number is already in the snapshot
+   * @throws IllegalStateException if the snapshot was opened without a log
+   */
+  public synchronized boolean add(PhoneNumber phoneNumber) throws IOException {
+    if (contains(phoneNumber)) {
+      return false;
+    }
+    append(ADD, phoneNumber.getValue());
+    apply(ADD, phoneNumber);
+    return true;
+  }
+
+  /**
+   * Removes the number equal to {@code phoneNumber}, appending it to the log.
+   *
+   * @return false if there was no such number
+   * @throws IllegalStateException if the snapshot was opened without a log
+   */
+  public synchronized boolean remove(PhoneNumber phoneNumber) throws IOException {
+    if (!contains(phoneNumber)) {
+      return false;
+    }
+    append(REMOVE, phoneNumber.getValue());
+    apply(REMOVE, phoneNumber);
+    return true;
+  }
+
+  public int size() {
+    return count - removed.size() + added.size();
+  }
+
+  /**
+   * Calls {@code action} with every number, those of the snapshot file first.
+   */
+  public void forEach(Consumer<? super PhoneNumber> action) {
+    for (int i = 0; i < count; i++) {
+      if (removed.isEmpty() || !removed.contains(key(i))) {
+        action.accept(phoneNumber(i));
+      }
+    }
+    added.values().forEach(action);
+  }
+
+  /**
+   * Writes the current numbers, including those added or removed through the
+   * log, to a new snapshot file.
+   */
+  public void writeTo(Path file) throws IOException {
+    List<PhoneNumber> phoneNumbers = new ArrayList<>(size());
+    List<String> keys = new ArrayList<>(size());
+    forEach(phoneNumber -> {
+      phoneNumbers.add(phoneNumber);
+      keys.add(phoneNumber.getCanonicalKey());
+    });
+    write(file, phoneNumbers, keys);
+  }
+
+  /**
+   * Writes the log records appended so far to the storage device.
+   */
+  public synchronized void force() throws IOException {
+    if (log != null) {
+      log.force(false);
+    }
+  }
+
+  /**
+   * Closes the log. The file stays mapped until the snapshot is garbage
+   * collected.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (log != null) {
+      log.close();
+      log = null;
+    }
+  }
+
+  private static void write(Path file, List<PhoneNumber> phoneNumbers, List<String> keys) throws IOException {
+    int count = phoneNumbers.size();
+    long size = HEADER_BYTES + (long) count * (RECORD_BYTES + 16);
+    for (int i = 0; i < count && size <= Integer.MAX_VALUE; i++) {
+      size += phoneNumbers.get(i).getValue().length() + keys.get(i).length();
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot of " + count + " numbers exceeds the 2 GB limit.");
+    }
+    // at most half full; four ints per number leave room for rounding up to a power of two
+    int slots = Integer.highestOneBit(Math.max(1, count) * 2 - 1) * 2;
+
+    long[] hashes = new long[count];
+    int[] table = new int[slots];
+    for (int i = 0; i < count; i++) {
+      hashes[i] = PhoneNumberBloomFilter.hash(keys.get(i), SEED);
+      int slot = (int) hashes[i] & (slots - 1);
+      while (table[slot] != 0) {
+        slot = (slot + 1) & (slots - 1);
+      }
+      table[slot] = i + 1;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      channel.position(HEADER_BYTES);
+      CRC32C crc = new CRC32C();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+      int offset = 0;
+      for (int i = 0; i < count; i++) {
+        PhoneNumber phoneNumber = phoneNumbers.get(i);
+        String value = phoneNumber.getValue();
+        out.writeLong(hashes[i]);
+        out.writeInt(offset);
+        out.writeShort(value.length());
+        out.writeShort(keys.get(i).length());
+        out.writeShort(phoneNumber.getNumber().length());
+        out.writeShort(length(phoneNumber.getExtension()));
+        out.writeShort(length(phoneNumber.getSubAddress()));
+        out.writeShort(length(phoneNumber.getPhoneContext()));
+        out.writeByte((phoneNumber.isGlobalNumber() ? GLOBAL_NUMBER : 0) | (phoneNumber.isDomainPhoneContext() ? DOMAIN_PHONE_CONTEXT : 0));
+        out.write(new byte[RECORD_BYTES - 25]);
+        offset += value.length() + keys.get(i).length();
+      }
+      for (int entry : table) {
+        out.writeInt(entry);
+      }
+      for (int i = 0; i < count; i++) {
+        out.writeBytes(phoneNumbers.get(i).getValue());
+        out.writeBytes(keys.get(i));
+      }
+      out.flush();
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+      header.putInt(0, MAGIC);
+      header.putInt(4, VERSION);
+      header.putInt(8, count);
+      header.putInt(12, slots);
+      header.putLong(16, crc.getValue());
+      while (header.hasRemaining()) {
+        channel.write(header, header.position());
+      }
+    }
+  }
+
+  /*
+   * Components are stored by their lengths, which are limited so that they
+   * fit a short, and the value must be ASCII so that a byte per character
+   * holds it, as it is for every value the grammar accepts.
+   */
+  private static String canonicalKey(PhoneNumber phoneNumber) {
+    String key = phoneNumber != null ? phoneNumber.getCanonicalKey() : null;
+    if (key == null) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot numbers must be parsed phone numbers.");
+    }
+    String value = phoneNumber.getValue();
+    if (value.length() > MAX_LENGTH || key.length() > MAX_LENGTH) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot values cannot be longer than " + MAX_LENGTH + " characters.");
+    }
+    for (int i = 0; i < value.length(); i++) {
+      if (value.charAt(i) > 0x7F) {
+        throw new IllegalArgumentException("PhoneNumberSnapshot values must be ASCII.");
+      }
+    }
+    return key;
+  }
+
+  private static int length(String component) {
+    return component != null ? component.length() : 0;
+  }
+
+  private static long checksum(ByteBuffer buffer) {
+    ByteBuffer data = buffer.duplicate();
+    data.position(HEADER_BYTES);
+    CRC32C crc = new CRC32C();
+    crc.update(data);
+    return crc.getValue();
+  }
+
+  /*
+   * Open addressing with linear probing over a table at most half full, so a
+   * miss ends at an empty slot after a probe or two.
+   */
+  private int find(String key) {
+    long hash = PhoneNumberBloomFilter.hash(key, SEED);
+    int slot = (int) hash & slotMask;
+    for (int probes = 0; probes <= slotMask; probes++) {
+      int entry = buffer.getInt(tableOffset + slot * 4);
+      if (entry == 0) {
+        return -1;
+      }
+      int record = HEADER_BYTES + (entry - 1) * RECORD_BYTES;
+      if (buffer.getLong(record) == hash && keyEquals(record, key)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & slotMask;
+    }
+    return -1;
+  }
+
+  private boolean keyEquals(int record, String key) {
+    if ((buffer.getShort(record + 14) & 0xFFFF) != key.length()) {
+      return false;
+    }
+    int offset = poolOffset + buffer.getInt(record + 8) + (buffer.getShort(record + 12) & 0xFFFF);
+    for (int i = 0; i < key.length(); i++) {
+      if (buffer.get(offset + i) != key.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String key(int index) {
+    int record = HEADER_BYTES + index * RECORD_BYTES;
+    int valueLength = buffer.getShort(record + 12) & 0xFFFF;
+    return string(buffer, poolOffset + buffer.getInt(record + 8) + valueLength, buffer.getShort(record + 14) & 0xFFFF);
+  }
+
+  /*
+   * The value of a parsed number is laid out as number, extension,
+   * sub-address, phone context then params, so the components are cut from
+   * the value by their lengths.
+   */
+  private PhoneNumber phoneNumber(int index) {
+    int record = HEADER_BYTES + index * RECORD_BYTES;
+    String value = string(buffer, poolOffset + buffer.getInt(record + 8), buffer.getShort(record + 12) & 0xFFFF);
+    int flags = buffer.get(record + 24);
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.value = value;
+    phoneNumber.isGlobalNumber = (flags & GLOBAL_NUMBER) != 0;
+    phoneNumber.isDomainPhoneContext = (flags & DOMAIN_PHONE_CONTEXT) != 0;
+    int start = TEL_PREFIX.length() + (buffer.getShort(record + 16) & 0xFFFF);
+    phoneNumber.number = value.substring(TEL_PREFIX.length(), start);
+    phoneNumber.extension = component(value, start, EXTENSION_PREFIX, buffer.getShort(record + 18) & 0xFFFF);
+    start += segmentLength(EXTENSION_PREFIX, phoneNumber.extension);
+    phoneNumber.subAddress = component(value, start, ISUB_PREFIX, buffer.getShort(record + 20) & 0xFFFF);
+    start += segmentLength(ISUB_PREFIX, phoneNumber.subAddress);
+    phoneNumber.phoneContext = component(value, start, CONTEXT_PREFIX, buffer.getShort(record + 22) & 0xFFFF);
+    start += segmentLength(CONTEXT_PREFIX, phoneNumber.phoneContext);
+    // ;name=value pairs or a bare ;name, neither part containing ';' or '='
+    while (start < value.length()) {
+      int end = value.indexOf(';', start + 1);
+      end = end < 0 ? value.length() : end;
+      int equals = value.indexOf('=', start);
+      if (equals < 0 || equals > end) {
+        phoneNumber.addParam(value.substring(start + 1, end), null);
+      } else {
+        phoneNumber.addParam(value.substring(start + 1, equals), value.substring(equals + 1, end));
+      }
+      start = end;
+    }
+    return phoneNumber;
+  }
+
+  private static String component(String value, int start, String prefix, int length) {
+    return length == 0 ? null : value.substring(start + prefix.length(), start + prefix.length() + length);
+  }
+
+  private static int segmentLength(String prefix, String component) {
+    return component == null ? 0 : prefix.length() + component.length();
+  }
+
+  /*
+   * The log starts with a header holding the checksum of its snapshot,
+   * followed by records of an operation, the length of the value, the value
+   * and a CRC32C of the three.
+   */
+  private void openLog(Path file) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+        header.putInt(0, LOG_MAGIC);
+        header.putInt(4, VERSION);
+        header.putLong(8, checksum);
+        while (header.hasRemaining()) {
+          channel.write(header);
+        }
+      } else {
+        channel.truncate(replay(channel));
+        channel.position(channel.size());
+      }
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    this.log = channel;
+  }
+
+  /*
+   * Applies the complete records of the log and returns where they end.
+   */
+  private long replay(FileChannel channel) throws IOException {
+    if (channel.size() > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot log of " + channel.size() + " bytes exceeds the 2 GB limit.");
+    }
+    // read rather than mapped, as the file is truncated afterwards
+    ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+    while (data.hasRemaining()) {
+      if (channel.read(data, data.position()) < 0) {
+        break;
+      }
+    }
+    if (data.capacity() < LOG_HEADER_BYTES || data.getInt(0) != LOG_MAGIC) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot log has no log header.");
+    }
+    if (data.getInt(4) != VERSION) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot log version " + data.getInt(4) + " is not supported.");
+    }
+    if (data.getLong(8) != checksum) {
+      throw new IllegalArgumentException("PhoneNumberSnapshot log was written for another snapshot.");
+    }
+    int position = LOG_HEADER_BYTES;
+    while (position + 3 <= data.capacity()) {
+      byte operation = data.get(position);
+      int length = data.getShort(position + 1) & 0xFFFF;
+      int end = position + 3 + length + 4;
+      if ((operation != ADD && operation != REMOVE) || end > data.capacity()) {
+        break;
+      }
+      CRC32C crc = new CRC32C();
+      ByteBuffer record = data.duplicate();
+      record.position(position).limit(end - 4);
+      crc.update(record);
+      if ((int) crc.getValue() != data.getInt(end - 4)) {
+        break;
+      }
+      PhoneNumber phoneNumber = new PhoneNumber();
+      try {
+        phoneNumber.setValue(string(data, position + 3, length));
+      } catch (PhoneNumberParseException e) {
+        throw new IllegalArgumentException("PhoneNumberSnapshot log has a value which does not parse.", e);
+      }
+      apply(operation, phoneNumber);
+      position = end;
+    }
+    return position;
+  }
+
+  private static String string(ByteBuffer buffer, int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer data = buffer.duplicate();
+    data.position(offset);
+    data.get(bytes);
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  private void append(byte operation, String value) throws IOException {
+    if (log == null) {
+      throw new IllegalStateException("PhoneNumberSnapshot was opened without a log.");
+    }
+    ByteBuffer record = ByteBuffer.allocate(3 + value.length() + 4);
+    record.put(operation).putShort((short) value.length()).put(value.getBytes(StandardCharsets.ISO_8859_1));
+    CRC32C crc = new CRC32C();
+    crc.update(record.array(), 0, record.position());
+    record.putInt((int) crc.getValue()).flip();
+    while (record.hasRemaining()) {
+      log.write(record);
+    }
+  }
+
+  /*
+   * Numbers added are kept by key, shadowing the snapshot; keys removed from
+   * the snapshot are kept so that lookups skip them.
+   */
+  private void apply(byte operation, PhoneNumber phoneNumber) {
+    String key = canonicalKey(phoneNumber);
+    if (operation == ADD) {
+      PhoneNumber copy = phoneNumber.copy();
+      copy.display = null;
+      copy.type = null;
+      copy.primary = false;
+      added.put(key, copy);
+    } else {
+      added.remove(key);
+      if (find(key) >= 0) {
+        removed.add(key);
+      }
+    }
+  }
+}
@@ -0,0 +1,468 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Counts parsed phone numbers by country code, by phone context, global
+ * against local, and by extension and sub-address use, with a histogram of
+ * number lengths, keeping only the counters and not the numbers.
+ *
+ * Country codes are the values of the longest prefix of each number in a
+ * {@link PhoneNumberPrefixTrie}, which may map calling codes, or any other
+ * prefixes, to labels. Phone contexts are counted in their canonical form, as
+ * in {@link PhoneNumber#getCanonicalKey()}. Keys are interned to ids once per
+ * instance and counted in primitive arrays.
+ *
+ * An instance is not thread-safe. Parallel aggregation gives every worker its
+ * own instance and combines them, as {@link #collector(PhoneNumberPrefixTrie)}
+ * does for fork/join streams, or records through a striped {@link Recorder}
+ * shared by any number of threads.
+ */
+public final class PhoneNumberStatistics implements Consumer<ParseResult> {
+
+  /**
+   * Buckets of {@link #getNumberLengthHistogram()}, the last one counting
+   * numbers of that many digits or more.
+   */
+  public static final int NUMBER_LENGTHS = 32;
+
+  private final PhoneNumberPrefixTrie<String> countryCodes;
+
+  private final Counts byCountryCode = new Counts();
+
+  private final Counts byPhoneContext = new Counts();
+
+  private final long[] numberLengths = new long[NUMBER_LENGTHS];
+
+  private long total;
+
+  private long failures;
+
+  private long global;
+
+  private long domainContext;
+
+  private long extensions;
+
+  private long subAddresses;
+
+  /**
+   * @param countryCodes country codes, or other labels, by number prefix
+   */
+  public PhoneNumberStatistics(PhoneNumberPrefixTrie<String> countryCodes) {
+    if (countryCodes == null) {
+      throw new IllegalArgumentException("PhoneNumberStatistics countryCodes cannot be null.");
+    }
+    this.countryCodes = countryCodes;
+  }
+
+  /**
+   * Collects parse results into one instance per fork/join worker and
+   * combines them, for instance {@code results.parallelStream().collect(...)}.
+   */
+  public static Collector<ParseResult, ?, PhoneNumberStatistics> collector(PhoneNumberPrefixTrie<String> countryCodes) {
+    return Collector.of(() -> new PhoneNumberStatistics(countryCodes), PhoneNumberStatistics::accept,
+        PhoneNumberStatistics::combine, Collector.Characteristics.UNORDERED, Collector.Characteristics.IDENTITY_FINISH);
+  }
+
+  /**
+   * Parses a UTF-8 file of one value per line, blank lines skipped, on the
+   * common fork/join pool and counts the results.
+   */
+  public static PhoneNumberStatistics aggregate(Path file, PhoneNumberPrefixTrie<String> countryCodes) throws IOException {
+    try (Stream<String> lines = Files.lines(file)) {
+      return lines.parallel()
+          .filter(line -> !line.isEmpty())
+          .collect(() -> new PhoneNumberStatistics(countryCodes), PhoneNumberStatistics::parse, PhoneNumberStatistics::combine);
+    }
+  }
+
+  @Override
+  public void accept(ParseResult result) {
+    if (result.isSuccess()) {
+      accept(result.getPhoneNumber());
+    } else {
+      total++;
+      failures++;
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if {@code phoneNumber} has no parsed number
+   */
+  public void accept(PhoneNumber phoneNumber) {
+    if (phoneNumber == null || phoneNumber.getNumber() == null) {
+      throw new IllegalArgumentException("PhoneNumberStatistics numbers must be parsed phone numbers.");
+    }
+    total++;
+    if (phoneNumber.isGlobalNumber()) {
+      global++;
+    } else {
+      if (phoneNumber.isDomainPhoneContext()) {
+        domainContext++;
+      }
+      byPhoneContext.add(phoneContextKey(phoneNumber), 1);
+    }
+    if (phoneNumber.getExtension() != null) {
+      extensions++;
+    }
+    if (phoneNumber.getSubAddress() != null) {
+      subAddresses++;
+    }
+    byCountryCode.add(countryCodes.longestPrefixMatch(phoneNumber), 1);
+    numberLengths[Math.min(NUMBER_LENGTHS - 1, digitCount(phoneNumber.getNumber()))]++;
+  }
+
+  /**
+   * Adds the counts of {@code other} to this instance.
+   *
+   * @return this instance
+   */
+  public PhoneNumberStatistics combine(PhoneNumberStatistics other) {
+    total += other.total;
+    failures += other.failures;
+    global += other.global;
+    domainContext += other.domainContext;
+    extensions += other.extensions;
+    subAddresses += other.subAddresses;
+    for (int i = 0; i < NUMBER_LENGTHS; i++) {
+      numberLengths[i] += other.numberLengths[i];
+    }
+    byCountryCode.addAll(other.byCountryCode);
+    byPhoneContext.addAll(other.byPhoneContext);
+    return this;
+  }
+
+  /**
+   * Parsed and rejected values counted.
+   */
+  public long getTotal() {
+    return total;
+  }
+
+  public long getFailures() {
+    return failures;
+  }
+
+  public long getGlobalNumbers() {
+    return global;
+  }
+
+  public long getLocalNumbers() {
+    return total - failures - global;
+  }
+
+  /**
+   * Local numbers with a domain name rather than a global number prefix as
+   * phone context.
+   */
+  public long getDomainPhoneContexts() {
+    return domainContext;
+  }
+
+  public long getExtensions() {
+    return extensions;
+  }
+
+  public long getSubAddresses() {
+    return subAddresses;
+  }
+
+  /**
+   * Numbers by the count of digits in {@link PhoneNumber#getNumber()}.
+   */
+  public long[] getNumberLengthHistogram() {
+    return numberLengths.clone();
+  }
+
+  /**
+   * @return the count of numbers matching country code {@code countryCode},
+   *     or no prefix at all if {@code countryCode} is null
+   */
+  public long getCountryCodeCount(String countryCode) {
+    return byCountryCode.get(countryCode);
+  }
+
+  /**
+   * @param phoneContext a phone context in any form
+   */
+  public long getPhoneContextCount(String phoneContext) {
+    return byPhoneContext.get(phoneContext != null ? canonicalPhoneContext(phoneContext, phoneContext.indexOf('+') < 0) : null);
+  }
+
+  public int getDistinctPhoneContexts() {
+    return byPhoneContext.size;
+  }
+
+  /**
+   * The {@code n} most frequent country codes, most frequent first. Numbers
+   * matching no prefix are counted under a null key.
+   */
+  public Map<String, Long> getTopCountryCodes(int n) {
+    return byCountryCode.top(n);
+  }
+
+  /**
+   * The {@code n} most frequent phone contexts of local numbers, most frequent
+   * first.
+   */
+  public Map<String, Long> getTopPhoneContexts(int n) {
+    return byPhoneContext.top(n);
+  }
+
+  @Override
+  public String toString() {
+    return "PhoneNumberStatistics(total=" + total + ", failures=" + failures + ", global=" + global
+        + ", local=" + getLocalNumbers() + ", extensions=" + extensions + ", subAddresses=" + subAddresses
+        + ", countryCodes=" + byCountryCode.size + ", phoneContexts=" + byPhoneContext.size + ")";
+  }
+
+  private void parse(String value) {
+    accept(ParseResult.parse(0, value, PhoneNumberRecognizer.acquire()));
+  }
+
+  private static String phoneContextKey(PhoneNumber phoneNumber) {
+    return canonicalPhoneContext(phoneNumber.getPhoneContext(), phoneNumber.isDomainPhoneContext());
+  }
+
+  /*
+   * Lower case domain names and global numbers without visual separators,
+   * returning the context itself, as is common, when it is already canonical.
+   */
+  private static String canonicalPhoneContext(String phoneContext, boolean isDomain) {
+    if (isDomain) {
+      return phoneContext.toLowerCase();
+    }
+    StringBuilder sb = null;
+    for (int i = 0; i < phoneContext.length(); i++) {
+      char c = phoneContext.charAt(i);
+      if (c == '-' || c == '.' || c == '(' || c == ')') {
+        if (sb == null) {
+          sb = new StringBuilder(phoneContext.length()).append(phoneContext, 0, i);
+        }
+      } else if (sb != null) {
+        sb.append(c);
+      }
+    }
+    return sb != null ? sb.toString() : phoneContext;
+  }
+
+  private static int digitCount(String number) {
+    int digits = 0;
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c >= '0' && c <= '9') {
+        digits++;
+      }
+    }
+    return digits;
+  }
+
+  /**
+   * Thread-safe front over a set of stripes, each an instance behind its own
+   * lock. A thread records into the stripe its id hashes to, or the next one
+   * free if that stripe is busy, so threads rarely wait on each other.
+   */
+  public static final class Recorder implements Consumer<ParseResult> {
+
+    private final PhoneNumberStatistics[] stripes;
+
+    private final ReentrantLock[] locks;
+
+    private final PhoneNumberPrefixTrie<String> countryCodes;
+
+    public Recorder(PhoneNumberPrefixTrie<String> countryCodes) {
+      this(countryCodes, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public Recorder(PhoneNumberPrefixTrie<String> countryCodes, int stripes) {
+      if (stripes < 1) {
+        throw new IllegalArgumentException("PhoneNumberStatistics.Recorder stripes must be positive.");
+      }
+      this.countryCodes = countryCodes;
+      this.stripes = new PhoneNumberStatistics[stripes];
+      this.locks = new ReentrantLock[stripes];
+      for (int i = 0; i < stripes; i++) {
+        this.stripes[i] = new PhoneNumberStatistics(countryCodes);
+        this.locks[i] = new ReentrantLock();
+      }
+    }
+
+    @Override
+    public void accept(ParseResult result) {
+      int stripe = lock();
+      try {
+        stripes[stripe].accept(result);
+      } finally {
+        locks[stripe].unlock();
+      }
+    }
+
+    public void accept(PhoneNumber phoneNumber) {
+      int stripe = lock();
+      try {
+        stripes[stripe].accept(phoneNumber);
+      } finally {
+        locks[stripe].unlock();
+      }
+    }
+
+    /**
+     * Combines the stripes into a new instance. Numbers recorded meanwhile may
+     * or may not be counted.
+     */
+    public PhoneNumberStatistics snapshot() {
+      PhoneNumberStatistics snapshot = new PhoneNumberStatistics(countryCodes);
+      for (int i = 0; i < stripes.length; i++) {
+        locks[i].lock();
+        try {
+          snapshot.combine(stripes[i]);
+        } finally {
+          locks[i].unlock();
+        }
+      }
+      return snapshot;
+    }
+
+    private int lock() {
+      long id = Thread.currentThread().getId();
+      int home = (int) Long.remainderUnsigned(id * 0x9E3779B97F4A7C15L >>> 16, stripes.length);
+      for (int i = 0; i < stripes.length; i++) {
+        int stripe = (home + i) % stripes.length;
+        if (locks[stripe].tryLock()) {
+          return stripe;
+        }
+      }
+      locks[home].lock();
+      return home;
+    }
+  }
+
+  /*
+   * Counts by key, with keys interned to dense ids on first sight. The null
+   * key has its own counter.
+   */
+  private static final class Counts {
+
+    final Map<String, Integer> ids = new HashMap<>();
+
+    String[] keys = new String[16];
+
+    long[] counts = new long[16];
+
+    int size;
+
+    long nullCount;
+
+    void add(String key, long count) {
+      if (key == null) {
+        nullCount += count;
+        return;
+      }
+      Integer id = ids.get(key);
+      if (id == null) {
+        id = size++;
+        ids.put(key, id);
+        if (id == keys.length) {
+          keys = Arrays.copyOf(keys, id * 2);
+          counts = Arrays.copyOf(counts, id * 2);
+        }
+        keys[id] = key;
+      }
+      counts[id] += count;
+    }
+
+    void addAll(Counts other) {
+      nullCount += other.nullCount;
+      for (int i = 0; i < other.size; i++) {
+        add(other.keys[i], other.counts[i]);
+      }
+    }
+
+    long get(String key) {
+      if (key == null) {
+        return nullCount;
+      }
+      Integer id = ids.get(key);
+      return id != null ? counts[id] : 0;
+    }
+
+    /*
+     * Keeps the n largest counts in a heap whose head is the smallest of them,
+     * ties going to the smaller key, so the whole key set is never sorted.
+     */
+    Map<String, Long> top(int n) {
+      if (n < 0) {
+        throw new IllegalArgumentException("PhoneNumberStatistics n cannot be negative.");
+      }
+      PriorityQueue<Integer> heap = new PriorityQueue<>((a, b) -> before(a, b) ? 1 : before(b, a) ? -1 : 0);
+      for (int id = nullCount > 0 ? -1 : 0; id < size && n > 0; id++) {
+        if (heap.size() < n) {
+          heap.add(id);
+        } else if (before(id, heap.peek())) {
+          heap.poll();
+          heap.add(id);
+        }
+      }
+      Integer[] top = new Integer[heap.size()];
+      for (int i = top.length - 1; i >= 0; i--) {
+        top[i] = heap.poll();
+      }
+      Map<String, Long> result = new LinkedHashMap<>();
+      for (int id : top) {
+        result.put(id < 0 ? null : keys[id], count(id));
+      }
+      return result;
+    }
+
+    private long count(int id) {
+      return id < 0 ? nullCount : counts[id];
+    }
+
+    /*
+     * Whether id a ranks before id b: a larger count, or the same count and a
+     * smaller key, null first.
+     */
+    private boolean before(int a, int b) {
+      long ca = count(a);
+      long cb = count(b);
+      if (ca != cb) {
+        return ca > cb;
+      }
+      if (a < 0 || b < 0) {
+        return a < 0;
+      }
+      return keys[a].compareTo(keys[b]) < 0;
+    }
+  }
+}
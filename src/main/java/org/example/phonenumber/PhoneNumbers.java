@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * The multi-valued {@code phoneNumbers} attribute of a SCIM user, indexed so
+ * that lookups by number, by type and of the primary number take constant
+ * time however long the list grows.
+ *
+ * Entries are keyed on {@link PhoneNumber#getCanonicalKey()}, so the
+ * collection holds at most one entry per number: adding a number equal to
+ * one already held replaces that entry, in its place, as a SCIM PATCH adding
+ * an existing value does. Types compare ignoring case. At most one entry is
+ * primary: adding a primary entry makes the previous primary entry
+ * non-primary, as SCIM requires of PATCH operations.
+ *
+ * Entries are indexed when they are added, so their value, type and primary
+ * attributes must not be changed while they are held other than through
+ * this collection. Iteration is in the order entries were first added.
+ * Instances are not thread-safe.
+ */
+public final class PhoneNumbers extends AbstractCollection<PhoneNumber> {
+
+  private final Map<String, PhoneNumber> byKey = new LinkedHashMap<>();
+
+  // entries by lowercased type, then by key
+  private final Map<String, Map<String, PhoneNumber>> byType = new HashMap<>();
+
+  private PhoneNumber primary;
+
+  public PhoneNumbers() {
+  }
+
+  /**
+   * @throws IllegalArgumentException if a number has no parsed number
+   */
+  public PhoneNumbers(Iterable<? extends PhoneNumber> phoneNumbers) {
+    merge(phoneNumbers);
+  }
+
+  /**
+   * Adds {@code phoneNumber}, or replaces the entry of an equal number.
+   *
+   * @return false if an entry equal to {@code phoneNumber} and with the same
+   *     display was already held
+   * @throws IllegalArgumentException if {@code phoneNumber} has no parsed number
+   */
+  @Override
+  public boolean add(PhoneNumber phoneNumber) {
+    String key = canonicalKey(phoneNumber);
+    PhoneNumber previous = byKey.get(key);
+    if (previous != null) {
+      if (previous == phoneNumber || previous.equals(phoneNumber) && Objects.equals(previous.getDisplay(), phoneNumber.getDisplay())) {
+        return false;
+      }
+      unindex(key, previous);
+    }
+    byKey.put(key, phoneNumber);
+    index(key, phoneNumber);
+    return true;
+  }
+
+  /**
+   * Adds every number, replacing the entries of equal numbers.
+   *
+   * @return whether the collection changed
+   */
+  public boolean merge(Iterable<? extends PhoneNumber> phoneNumbers) {
+    boolean changed = false;
+    for (PhoneNumber phoneNumber : phoneNumbers) {
+      changed |= add(phoneNumber);
+    }
+    return changed;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends PhoneNumber> phoneNumbers) {
+    return merge(phoneNumbers);
+  }
+
+  /**
+   * Replaces all entries with {@code phoneNumbers}, as a SCIM PATCH replacing
+   * the attribute does.
+   */
+  public void replace(Iterable<? extends PhoneNumber> phoneNumbers) {
+    clear();
+    merge(phoneNumbers);
+  }
+
+  /**
+   * @return the entry of the number equal to {@code phoneNumber}, ignoring
+   *     type and primary, or null
+   */
+  public PhoneNumber get(PhoneNumber phoneNumber) {
+    String key = phoneNumber != null ? phoneNumber.getCanonicalKey() : null;
+    return key != null ? byKey.get(key) : null;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return o instanceof PhoneNumber && get((PhoneNumber) o) != null;
+  }
+
+  /**
+   * Removes the entry of the number equal to {@code o}, ignoring type and
+   * primary.
+   */
+  @Override
+  public boolean remove(Object o) {
+    String key = o instanceof PhoneNumber ? ((PhoneNumber) o).getCanonicalKey() : null;
+    PhoneNumber entry = key != null ? byKey.remove(key) : null;
+    if (entry == null) {
+      return false;
+    }
+    unindex(key, entry);
+    return true;
+  }
+
+  /**
+   * Removes the entries {@code filter} accepts in a single pass.
+   */
+  @Override
+  public boolean removeIf(Predicate<? super PhoneNumber> filter) {
+    boolean changed = false;
+    for (Iterator<Map.Entry<String, PhoneNumber>> it = byKey.entrySet().iterator(); it.hasNext(); ) {
+      Map.Entry<String, PhoneNumber> entry = it.next();
+      if (filter.test(entry.getValue())) {
+        it.remove();
+        unindex(entry.getKey(), entry.getValue());
+        changed = true;
+      }
+    }
+    return changed;
+  }
+
+  @Override
+  public boolean removeAll(Collection<?> c) {
+    Objects.requireNonNull(c);
+    return removeIf(c::contains);
+  }
+
+  @Override
+  public boolean retainAll(Collection<?> c) {
+    Objects.requireNonNull(c);
+    return removeIf(entry -> !c.contains(entry));
+  }
+
+  /**
+   * Removes the entries of {@code type}, ignoring case.
+   *
+   * @return whether any entry was removed
+   */
+  public boolean removeByType(String type) {
+    Map<String, PhoneNumber> entries = type != null ? byType.remove(type.toLowerCase()) : null;
+    if (entries == null) {
+      return false;
+    }
+    byKey.keySet().removeAll(entries.keySet());
+    if (primary != null && type.equalsIgnoreCase(primary.getType())) {
+      primary = null;
+    }
+    return true;
+  }
+
+  @Override
+  public void clear() {
+    byKey.clear();
+    byType.clear();
+    primary = null;
+  }
+
+  @Override
+  public int size() {
+    return byKey.size();
+  }
+
+  @Override
+  public Iterator<PhoneNumber> iterator() {
+    Iterator<Map.Entry<String, PhoneNumber>> entries = byKey.entrySet().iterator();
+    return new Iterator<PhoneNumber>() {
+
+      private Map.Entry<String, PhoneNumber> last;
+
+      @Override
+      public boolean hasNext() {
+        return entries.hasNext();
+      }
+
+      @Override
+      public PhoneNumber next() {
+        last = entries.next();
+        return last.getValue();
+      }
+
+      @Override
+      public void remove() {
+        entries.remove();
+        unindex(last.getKey(), last.getValue());
+      }
+    };
+  }
+
+  /**
+   * @return the primary entry, or null if none is
+   */
+  public PhoneNumber getPrimary() {
+    return primary;
+  }
+
+  /**
+   * Makes the entry of the number equal to {@code phoneNumber} the primary
+   * one, and the previous primary entry non-primary.
+   *
+   * @throws IllegalArgumentException if there is no such entry
+   */
+  public void setPrimary(PhoneNumber phoneNumber) {
+    PhoneNumber entry = get(phoneNumber);
+    if (entry == null) {
+      throw new IllegalArgumentException("PhoneNumbers has no entry for " + (phoneNumber != null ? phoneNumber.getValue() : null) + ".");
+    }
+    if (primary != null && primary != entry) {
+      primary.setPrimary(false);
+    }
+    entry.setPrimary(true);
+    primary = entry;
+  }
+
+  /**
+   * @return the primary entry if it is of {@code type}, ignoring case, or
+   *     else the first entry added of that type, or null
+   */
+  public PhoneNumber getByType(String type) {
+    Map<String, PhoneNumber> entries = type != null ? byType.get(type.toLowerCase()) : null;
+    if (entries == null) {
+      return null;
+    }
+    return primary != null && type.equalsIgnoreCase(primary.getType()) ? primary : entries.values().iterator().next();
+  }
+
+  /**
+   * @return a view of the entries of {@code type}, ignoring case, in the
+   *     order they were added
+   */
+  public Collection<PhoneNumber> getAllByType(String type) {
+    Map<String, PhoneNumber> entries = type != null ? byType.get(type.toLowerCase()) : null;
+    return entries != null ? Collections.unmodifiableCollection(entries.values()) : Collections.emptyList();
+  }
+
+  /**
+   * @return the entries in a new list, such as for the {@code phoneNumbers}
+   *     property of a SCIM user
+   */
+  public List<PhoneNumber> toList() {
+    return new ArrayList<>(byKey.values());
+  }
+
+  private static String canonicalKey(PhoneNumber phoneNumber) {
+    String key = phoneNumber != null ? phoneNumber.getCanonicalKey() : null;
+    if (key == null) {
+      throw new IllegalArgumentException("PhoneNumbers entries must be parsed phone numbers.");
+    }
+    return key;
+  }
+
+  private void index(String key, PhoneNumber entry) {
+    if (entry.getType() != null) {
+      byType.computeIfAbsent(entry.getType().toLowerCase(), type -> new LinkedHashMap<>()).put(key, entry);
+    }
+    if (Boolean.TRUE.equals(entry.getPrimary())) {
+      if (primary != null && primary != entry) {
+        primary.setPrimary(false);
+      }
+      primary = entry;
+    }
+  }
+
+  private void unindex(String key, PhoneNumber entry) {
+    if (entry.getType() != null) {
+      String type = entry.getType().toLowerCase();
+      Map<String, PhoneNumber> entries = byType.get(type);
+      if (entries != null) {
+        entries.remove(key);
+        if (entries.isEmpty()) {
+          byType.remove(type);
+        }
+      }
+    }
+    if (entry == primary) {
+      primary = null;
+    }
+  }
+}
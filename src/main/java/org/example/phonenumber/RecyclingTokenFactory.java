@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Pair;
+
+import java.util.Arrays;
+
+/**
+ * {@link TokenFactory} handing out tokens from a pool that is recycled by
+ * {@link #recycle()} once a parse is complete. Token text is never copied; it
+ * is read from the char stream when {@link Token#getText()} is called.
+ *
+ * Tokens must not be used after the pool has been recycled.
+ *
+ * Since every token the lexer produces goes through the factory, it also
+ * enforces the token, param and time budgets of {@link #limit}.
+ */
+final class RecyclingTokenFactory implements TokenFactory<CommonToken> {
+
+  private static final int INITIAL_POOL_SIZE = 32;
+
+  private static final int MAX_RETAINED_POOL_SIZE = 1024;
+
+  private RecycledToken[] pool = new RecycledToken[INITIAL_POOL_SIZE];
+
+  private static final int TIME_CHECK_INTERVAL = 16;
+
+  private int next;
+
+  private int params;
+
+  private int maxTokens = Integer.MAX_VALUE;
+
+  private int maxParams = Integer.MAX_VALUE;
+
+  private long deadline;
+
+  @Override
+  public CommonToken create(Pair<TokenSource, CharStream> source, int type, String text, int channel, int start, int stop, int line, int charPositionInLine) {
+    checkLimits(type, start);
+    RecycledToken token = nextToken();
+    token.reset(source, type, text, channel, start, stop, line, charPositionInLine);
+    return token;
+  }
+
+  @Override
+  public CommonToken create(int type, String text) {
+    RecycledToken token = nextToken();
+    token.reset(type, text);
+    return token;
+  }
+
+  private RecycledToken nextToken() {
+    if (next == pool.length) {
+      pool = Arrays.copyOf(pool, pool.length * 2);
+    }
+    RecycledToken token = pool[next];
+    if (token == null) {
+      token = new RecycledToken();
+      pool[next] = token;
+    }
+    next++;
+    return token;
+  }
+
+  private void checkLimits(int type, int start) {
+    if (next >= maxTokens) {
+      throw new PhoneNumberLimitExceededException.Trip(PhoneNumberParseLimits.exceeded(PhoneNumberParseLimits.Limit.TOKENS,
+          "phone number has more than " + maxTokens + " tokens", start));
+    }
+    if (type == PhoneNumberLexer.ParamName && ++params > maxParams) {
+      throw new PhoneNumberLimitExceededException.Trip(PhoneNumberParseLimits.exceeded(PhoneNumberParseLimits.Limit.PARAMS,
+          "phone number has more than " + maxParams + " params", start));
+    }
+    if (deadline != 0 && next % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - deadline > 0) {
+      throw new PhoneNumberLimitExceededException.Trip(PhoneNumberParseLimits.exceeded(PhoneNumberParseLimits.Limit.TIME,
+          "phone number took too long to parse", start));
+    }
+  }
+
+  /**
+   * Applies {@code limits} to the tokens created until {@link #unlimit()}, the
+   * parse time counting from now.
+   */
+  void limit(PhoneNumberParseLimits limits) {
+    maxTokens = limits.getMaxTokens();
+    maxParams = limits.getMaxParams();
+    long maxParseNanos = limits.getMaxParseNanos();
+    // 0 means no deadline, so nudge a deadline that happens to fall on it
+    deadline = maxParseNanos > 0 ? (System.nanoTime() + maxParseNanos) | 1 : 0;
+  }
+
+  void unlimit() {
+    maxTokens = Integer.MAX_VALUE;
+    maxParams = Integer.MAX_VALUE;
+    deadline = 0;
+  }
+
+  /**
+   * Number of tokens handed out since the last {@link #recycle()}.
+   */
+  int created() {
+    return next;
+  }
+
+  void recycle() {
+    next = 0;
+    params = 0;
+    if (pool.length > MAX_RETAINED_POOL_SIZE) {
+      // don't hold on to the tokens of an unusually long input
+      pool = new RecycledToken[INITIAL_POOL_SIZE];
+    }
+  }
+
+  private static final class RecycledToken extends CommonToken {
+
+    RecycledToken() {
+      super(Token.INVALID_TYPE);
+    }
+
+    void reset(Pair<TokenSource, CharStream> source, int type, String text, int channel, int start, int stop, int line, int charPositionInLine) {
+      this.source = source;
+      this.type = type;
+      this.text = text;
+      this.channel = channel;
+      this.start = start;
+      this.stop = stop;
+      this.line = line;
+      this.charPositionInLine = charPositionInLine;
+      this.index = -1;
+    }
+
+    void reset(int type, String text) {
+      reset(EMPTY_SOURCE, type, text, Token.DEFAULT_CHANNEL, 0, 0, 0, -1);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * {@link CharStream} over a {@link String} that reads the string in place
+ * instead of copying it into a {@code char[]} the way {@code ANTLRInputStream}
+ * does. Like {@code ANTLRInputStream} it yields UTF-16 code units.
+ */
+final class StringCharStream implements CharStream {
+
+  private String data;
+
+  private int p;
+
+  StringCharStream reset(String data) {
+    this.data = data;
+    this.p = 0;
+    return this;
+  }
+
+  @Override
+  public void consume() {
+    if (p >= data.length()) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    p++;
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0; // undefined
+    }
+    if (i < 0) {
+      i++; // e.g., translate LA(-1) to use offset i=0; then data[p+0-1]
+    }
+    int index = p + i - 1;
+    if (index < 0 || index >= data.length()) {
+      return IntStream.EOF;
+    }
+    return data.charAt(index);
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+  }
+
+  @Override
+  public int index() {
+    return p;
+  }
+
+  @Override
+  public void seek(int index) {
+    p = Math.min(Math.max(index, 0), data.length());
+  }
+
+  @Override
+  public int size() {
+    return data.length();
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    int start = Math.max(interval.a, 0);
+    int stop = Math.min(interval.b, data.length() - 1);
+    if (stop < start) {
+      return "";
+    }
+    return data.substring(start, stop + 1);
+  }
+
+  @Override
+  public String toString() {
+    return data;
+  }
+}
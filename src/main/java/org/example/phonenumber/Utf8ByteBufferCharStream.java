@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * {@link CharStream} reading UTF-8 encoded bytes in place.
+ *
+ * tel: URIs are ASCII, so in the common case symbols are read straight out of
+ * the buffer and a {@link String} is only created when the lexer asks for the
+ * text of a token. Input containing multi-byte sequences is decoded once into
+ * code points, which the lexer will then reject as error characters anyway.
+ * The stream's indexes are code point indexes, {@link #byteOffset(int)} maps
+ * them back to offsets in the buffer. Malformed UTF-8 (overlong forms,
+ * surrogates, truncated sequences) is not decoded, see {@link #malformedOffset()}.
+ *
+ * The buffer's position and limit are read when the stream is created and are
+ * never modified.
+ */
+final class Utf8ByteBufferCharStream implements CharStream {
+
+  private ByteBuffer buffer;
+
+  private int offset;
+
+  private int size;
+
+  private int[] codePoints;
+
+  private int[] byteOffsets;
+
+  private int malformedOffset;
+
+  private int p;
+
+  Utf8ByteBufferCharStream() {
+  }
+
+
+  /**
+   * Points this stream at the remaining bytes of {@code buffer}.
+   */
+  Utf8ByteBufferCharStream reset(ByteBuffer buffer) {
+    this.buffer = buffer;
+    this.offset = buffer.position();
+    this.size = buffer.remaining();
+    this.codePoints = null;
+    this.byteOffsets = null;
+    this.malformedOffset = -1;
+    this.p = 0;
+
+    for (int i = 0; i < size; i++) {
+      if (buffer.get(offset + i) < 0) {
+        decode();
+        break;
+      }
+    }
+    return this;
+  }
+
+  void clear() {
+    this.buffer = null;
+    this.codePoints = null;
+    this.byteOffsets = null;
+    this.malformedOffset = -1;
+    this.size = 0;
+    this.p = 0;
+  }
+
+  /**
+   * Offset, from the buffer's position, of the first byte of the malformed
+   * sequence that stopped decoding, or -1 if the bytes are valid UTF-8.
+   */
+  int malformedOffset() {
+    return malformedOffset;
+  }
+
+  /**
+   * Offset, from the buffer's position, of the byte the code point at
+   * {@code index} starts at. Indexes past the end map to the end of the bytes.
+   */
+  int byteOffset(int index) {
+    if (byteOffsets == null || index < 0) {
+      return index;
+    }
+    return byteOffsets[Math.min(index, size)];
+  }
+
+  private void decode() {
+    int limit = offset + size;
+    int[] decoded = new int[size];
+    int[] offsets = new int[size + 1];
+    int n = 0;
+    int i = offset;
+    while (i < limit) {
+      int b = buffer.get(i) & 0xFF;
+      int length;
+      int cp;
+      int min;
+      if (b < 0x80) {
+        length = 1;
+        cp = b;
+        min = 0;
+      } else if (b >= 0xC2 && b <= 0xDF) {
+        length = 2;
+        cp = b & 0x1F;
+        min = 0x80;
+      } else if (b >= 0xE0 && b <= 0xEF) {
+        length = 3;
+        cp = b & 0x0F;
+        min = 0x800;
+      } else if (b >= 0xF0 && b <= 0xF4) {
+        length = 4;
+        cp = b & 0x07;
+        min = 0x10000;
+      } else {
+        length = 0;
+        cp = 0;
+        min = 0;
+      }
+
+      int j = 1;
+      for (; j < length && i + j < limit; j++) {
+        int c = buffer.get(i + j) & 0xFF;
+        if ((c & 0xC0) != 0x80) {
+          break;
+        }
+        cp = (cp << 6) | (c & 0x3F);
+      }
+
+      if (length == 0 || j < length || cp < min || cp > Character.MAX_CODE_POINT
+          || cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) {
+        // overlong forms and surrogates would smuggle characters past a byte level check
+        malformedOffset = i - offset;
+        break;
+      }
+      offsets[n] = i - offset;
+      decoded[n++] = cp;
+      i += length;
+    }
+    offsets[n] = i - offset;
+    this.codePoints = decoded;
+    this.byteOffsets = offsets;
+    this.size = n;
+  }
+
+  @Override
+  public void consume() {
+    if (p >= size) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    p++;
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0; // undefined
+    }
+    if (i < 0) {
+      i++; // e.g., translate LA(-1) to use offset i=0; then data[p+0-1]
+    }
+    int index = p + i - 1;
+    if (index < 0 || index >= size) {
+      return IntStream.EOF;
+    }
+    return codePoints != null ? codePoints[index] : buffer.get(offset + index);
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+  }
+
+  @Override
+  public int index() {
+    return p;
+  }
+
+  @Override
+  public void seek(int index) {
+    p = Math.min(Math.max(index, 0), size);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    int start = Math.max(interval.a, 0);
+    int stop = Math.min(interval.b, size - 1);
+    if (stop < start) {
+      return "";
+    }
+    int length = stop - start + 1;
+
+    if (codePoints != null) {
+      return new String(codePoints, start, length);
+    }
+    if (buffer.hasArray()) {
+      return new String(buffer.array(), buffer.arrayOffset() + offset + start, length, StandardCharsets.ISO_8859_1);
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = buffer.get(offset + start + i);
+    }
+    return new String(bytes, StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  public String toString() {
+    return getText(Interval.of(0, size - 1));
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the bytes allocated by the current thread using the HotSpot
+ * specific {@code com.sun.management.ThreadMXBean}.
+ */
+final class AllocationMeter {
+
+  interface Operation {
+    void run(int iteration) throws Exception;
+  }
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private AllocationMeter() {
+  }
+
+  static boolean isSupported() {
+    if (!(THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean)) {
+      return false;
+    }
+    com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+    return bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled();
+  }
+
+  static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) THREAD_MX_BEAN).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Runs {@code operation} {@code warmup} times, then returns the average
+   * number of bytes allocated over {@code iterations} further runs.
+   */
+  static long bytesPerOperation(int warmup, int iterations, Operation operation) throws Exception {
+    for (int i = 0; i < warmup; i++) {
+      operation.run(i);
+    }
+    long before = allocatedBytes();
+    for (int i = 0; i < iterations; i++) {
+      operation.run(i);
+    }
+    return (allocatedBytes() - before) / iterations;
+  }
+}
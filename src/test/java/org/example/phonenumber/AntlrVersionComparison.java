@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Generates and compiles the phone number grammar with several ANTLR
+ * versions, each in its own class loader, and runs them over the same corpus.
+ * Reports the inputs on which the versions disagree, then the throughput and
+ * allocation of each version.
+ *
+ * Only the grammar is compared: an input is accepted when the parser reports
+ * no syntax error, whatever the tree listener makes of it afterwards.
+ *
+ * The tool and runtime jars of each version are pinned in the antlr-compare
+ * profile, which copies them to {@code target/antlr-compare-classpath}. Run
+ * with {@code mvn test -Pantlr-compare}, or through {@link #main(String[])}
+ * with the versions to compare as arguments once the profile has copied them.
+ */
+public class AntlrVersionComparison {
+
+  static final String DEFAULT_VERSIONS = "4.5.3,4.11.1";
+
+  static final String CORPUS = "/antlr-compare/corpus.txt";
+
+  static final String DEFAULT_CLASSPATH = "target/antlr-compare-classpath";
+
+  static final Path GRAMMAR_DIR = Paths.get("src/main/antlr4/org/example/phonenumber");
+
+  static final String PACKAGE = "org.example.phonenumber";
+
+  private static final int WARMUP_ROUNDS = 200;
+
+  private static final int MEASURED_ROUNDS = 500;
+
+  @Test
+  @EnabledIfSystemProperty(named = "antlr.compare", matches = "true")
+  public void compare() throws Exception {
+    run(Arrays.asList(System.getProperty("antlr.compare.versions", DEFAULT_VERSIONS).split(",")), System.out);
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Arrays.asList(args) : Arrays.asList(DEFAULT_VERSIONS.split(",")), System.out);
+  }
+
+  static void run(List<String> versions, PrintStream out) throws Exception {
+    List<String> corpus = readCorpus();
+    Path workDir = Files.createDirectories(Paths.get("target", "antlr-compare"));
+
+    List<VersionedParser> parsers = new ArrayList<>();
+    for (String version : versions) {
+      parsers.add(VersionedParser.build(version.trim(), workDir));
+    }
+
+    boolean[][] accepted = new boolean[parsers.size()][];
+    for (int v = 0; v < parsers.size(); v++) {
+      accepted[v] = new boolean[corpus.size()];
+      for (int i = 0; i < corpus.size(); i++) {
+        accepted[v][i] = parsers.get(v).accepts(corpus.get(i));
+      }
+    }
+
+    out.println("Inputs accepted differently:");
+    int differences = 0;
+    for (int i = 0; i < corpus.size(); i++) {
+      boolean same = true;
+      for (int v = 1; v < parsers.size(); v++) {
+        same &= accepted[v][i] == accepted[0][i];
+      }
+      if (!same) {
+        differences++;
+        StringBuilder line = new StringBuilder("  ").append(corpus.get(i));
+        for (int v = 0; v < parsers.size(); v++) {
+          line.append("  ").append(parsers.get(v).version).append('=').append(accepted[v][i] ? "accept" : "reject");
+        }
+        out.println(line);
+      }
+    }
+    if (differences == 0) {
+      out.println("  none");
+    }
+
+    out.println();
+    out.printf(Locale.ROOT, "%-10s %10s %14s %14s%n", "version", "accepted", "parses/s", "bytes/parse");
+    for (int v = 0; v < parsers.size(); v++) {
+      VersionedParser parser = parsers.get(v);
+      int acceptedCount = 0;
+      for (boolean a : accepted[v]) {
+        acceptedCount += a ? 1 : 0;
+      }
+
+      for (int round = 0; round < WARMUP_ROUNDS; round++) {
+        for (String input : corpus) {
+          parser.accepts(input);
+        }
+      }
+      boolean measureAllocation = AllocationMeter.isSupported();
+      long allocatedBefore = measureAllocation ? AllocationMeter.allocatedBytes() : 0;
+      long start = System.nanoTime();
+      for (int round = 0; round < MEASURED_ROUNDS; round++) {
+        for (String input : corpus) {
+          parser.accepts(input);
+        }
+      }
+      long elapsed = System.nanoTime() - start;
+      long parses = (long) MEASURED_ROUNDS * corpus.size();
+      String bytesPerParse = measureAllocation ? String.valueOf((AllocationMeter.allocatedBytes() - allocatedBefore) / parses) : "n/a";
+
+      out.printf(Locale.ROOT, "%-10s %5d/%-4d %14.0f %14s%n", parser.version, acceptedCount, corpus.size(),
+          parses * 1_000_000_000.0 / elapsed, bytesPerParse);
+    }
+  }
+
+  static List<String> readCorpus() throws IOException {
+    try (InputStream in = AntlrVersionComparison.class.getResourceAsStream(CORPUS)) {
+      if (in == null) {
+        throw new IOException("corpus " + CORPUS + " not found on the class path");
+      }
+      return Arrays.stream(new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\r?\n"))
+          .filter(line -> !line.startsWith("#"))
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * The grammar generated, compiled and loaded with one ANTLR version. Nothing
+   * from the version on the test class path is shared with it.
+   */
+  static final class VersionedParser {
+
+    final String version;
+
+    private final Constructor<?> inputStreamConstructor;
+
+    private final Constructor<?> lexerConstructor;
+
+    private final Constructor<?> tokenStreamConstructor;
+
+    private final Constructor<?> parserConstructor;
+
+    private final Method removeErrorListeners;
+
+    private final Method addErrorListener;
+
+    private final Method startRule;
+
+    private final Object errorListener;
+
+    private final boolean[] failed = new boolean[1];
+
+    private VersionedParser(String version, ClassLoader loader) throws ReflectiveOperationException {
+      this.version = version;
+      Class<?> charStream = loader.loadClass("org.antlr.v4.runtime.CharStream");
+      Class<?> tokenSource = loader.loadClass("org.antlr.v4.runtime.TokenSource");
+      Class<?> tokenStream = loader.loadClass("org.antlr.v4.runtime.TokenStream");
+      Class<?> recognizer = loader.loadClass("org.antlr.v4.runtime.Recognizer");
+      Class<?> listenerType = loader.loadClass("org.antlr.v4.runtime.ANTLRErrorListener");
+      Class<?> parser = loader.loadClass(PACKAGE + ".PhoneNumberParser");
+
+      // ANTLRInputStream is deprecated in later versions but still there, and the only choice in 4.5
+      inputStreamConstructor = loader.loadClass("org.antlr.v4.runtime.ANTLRInputStream").getConstructor(String.class);
+      lexerConstructor = loader.loadClass(PACKAGE + ".PhoneNumberLexer").getConstructor(charStream);
+      tokenStreamConstructor = loader.loadClass("org.antlr.v4.runtime.CommonTokenStream").getConstructor(tokenSource);
+      parserConstructor = parser.getConstructor(tokenStream);
+      removeErrorListeners = recognizer.getMethod("removeErrorListeners");
+      addErrorListener = recognizer.getMethod("addErrorListener", listenerType);
+      startRule = parser.getMethod("phoneNumber");
+      errorListener = Proxy.newProxyInstance(loader, new Class<?>[] { listenerType }, (proxy, method, args) -> {
+        if (method.getName().equals("syntaxError")) {
+          failed[0] = true;
+        }
+        return null;
+      });
+    }
+
+    static VersionedParser build(String version, Path workDir) throws Exception {
+      List<Path> toolClassPath = versionJars(version, "tool");
+      Path runtimeJar = versionJars(version, "runtime").get(0);
+      Path generated = workDir.resolve(version).resolve("generated");
+      Path classes = workDir.resolve(version).resolve("classes");
+      deleteRecursively(workDir.resolve(version));
+      Files.createDirectories(generated);
+      Files.createDirectories(classes);
+
+      try (URLClassLoader toolLoader = new URLClassLoader(urls(toolClassPath), ClassLoader.getPlatformClassLoader())) {
+        Class<?> toolClass = toolLoader.loadClass("org.antlr.v4.Tool");
+        // the lexer first, so that the parser finds its tokens file
+        for (String grammar : new String[] { "PhoneNumberLexer.g4", "PhoneNumberParser.g4" }) {
+          Object tool = toolClass.getConstructor(String[].class).newInstance((Object) new String[] {
+              "-o", generated.toString(), "-lib", generated.toString(), "-package", PACKAGE,
+              GRAMMAR_DIR.resolve(grammar).toAbsolutePath().toString() });
+          toolClass.getMethod("processGrammarsOnCommandLine").invoke(tool);
+          int errors = (Integer) toolClass.getMethod("getNumErrors").invoke(tool);
+          if (errors > 0) {
+            throw new IllegalStateException("ANTLR " + version + " reported " + errors + " errors generating " + grammar);
+          }
+          flattenInto(generated);
+        }
+      }
+
+      List<String> sources;
+      try (Stream<Path> files = Files.walk(generated)) {
+        sources = files.filter(p -> p.toString().endsWith(".java")).map(Path::toString).collect(Collectors.toList());
+      }
+      JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+      if (compiler == null) {
+        throw new IllegalStateException("no Java compiler available, run with a JDK");
+      }
+      List<String> arguments = new ArrayList<>(Arrays.asList("-nowarn", "-d", classes.toString(), "-cp", runtimeJar.toString()));
+      arguments.addAll(sources);
+      ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+      if (compiler.run(null, null, diagnostics, arguments.toArray(new String[0])) != 0) {
+        throw new IllegalStateException("compiling the ANTLR " + version + " parser failed:\n" + diagnostics.toString(StandardCharsets.UTF_8));
+      }
+
+      URLClassLoader loader = new URLClassLoader(urls(Arrays.asList(classes, runtimeJar)), ClassLoader.getPlatformClassLoader());
+      return new VersionedParser(version, loader);
+    }
+
+    boolean accepts(String input) {
+      try {
+        failed[0] = false;
+        Object lexer = lexerConstructor.newInstance(inputStreamConstructor.newInstance(input));
+        removeErrorListeners.invoke(lexer);
+        addErrorListener.invoke(lexer, errorListener);
+        Object parser = parserConstructor.newInstance(tokenStreamConstructor.newInstance(lexer));
+        removeErrorListeners.invoke(parser);
+        addErrorListener.invoke(parser, errorListener);
+        startRule.invoke(parser);
+        return !failed[0];
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("parsing with ANTLR " + version + " failed", e);
+      }
+    }
+
+    /*
+     * Older tools mirror the grammar's directory below the output directory;
+     * move everything up so the parser's tokenVocab lookup in -lib works the
+     * same for every version.
+     */
+    private static void flattenInto(Path dir) throws IOException {
+      List<Path> nested;
+      try (Stream<Path> files = Files.walk(dir)) {
+        nested = files.filter(Files::isRegularFile).filter(p -> !p.getParent().equals(dir)).collect(Collectors.toList());
+      }
+      for (Path file : nested) {
+        Files.move(file, dir.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+  }
+
+  /*
+   * The jars the antlr-compare profile copies for version, those the tool
+   * runs with or just the runtime the generated parser is compiled against.
+   */
+  static List<Path> versionJars(String version, String kind) throws IOException {
+    Path dir = Paths.get(System.getProperty("antlr.compare.classpath", DEFAULT_CLASSPATH)).resolve(version).resolve(kind);
+    List<Path> jars = new ArrayList<>();
+    if (Files.isDirectory(dir)) {
+      try (Stream<Path> files = Files.list(dir)) {
+        files.filter(p -> p.toString().endsWith(".jar")).sorted().forEach(jars::add);
+      }
+    }
+    if (jars.isEmpty()) {
+      throw new IOException("no ANTLR " + version + " jars in " + dir + ", list them in the antlr-compare profile of pom.xml"
+          + " and run mvn test -Pantlr-compare");
+    }
+    return jars;
+  }
+
+  private static URL[] urls(List<Path> paths) throws IOException {
+    URL[] urls = new URL[paths.size()];
+    for (int i = 0; i < urls.length; i++) {
+      urls[i] = paths.get(i).toUri().toURL();
+    }
+    return urls;
+  }
+
+  private static void deleteRecursively(Path dir) throws IOException {
+    if (!Files.exists(dir)) {
+      return;
+    }
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path p : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+        Files.delete(p);
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fails when an operation allocates more bytes per call than its budget in
+ * {@code src/test/resources/allocation-budgets/budgets.properties}.
+ *
+ * The budgets are the measured allocations plus some headroom. When a change
+ * legitimately allocates more, or less, update the budget with the value this
+ * test logs, so the next regression is caught again.
+ */
+public class PhoneNumberAllocationBudgetTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PhoneNumberAllocationBudgetTest.class);
+
+  private static final String BUDGETS = "/allocation-budgets/budgets.properties";
+
+  private static final int WARMUP = 20_000;
+
+  private static final int ITERATIONS = 20_000;
+
+  private static final String GLOBAL = "tel:+1-201-555-0123;ext=1234";
+
+  private static final String LOCAL = "tel:863-1234;phone-context=+1-914-555";
+
+  private static final String PARAMS = "tel:+44.20.1234.5678;isub=example.sub.com;par1=abc;par2=ghnkl23";
+
+  private static Properties budgets;
+
+  @BeforeAll
+  public static void loadBudgets() throws IOException {
+    Assumptions.assumeTrue(AllocationMeter.isSupported(), "thread allocation counters not available");
+    budgets = new Properties();
+    try (InputStream in = PhoneNumberAllocationBudgetTest.class.getResourceAsStream(BUDGETS)) {
+      assertNotNull(in, BUDGETS);
+      budgets.load(in);
+    }
+  }
+
+  @Test
+  public void setValueOfAGlobalNumber() throws Exception {
+    checkBudget("setValue.global", i -> new PhoneNumber().setValue(GLOBAL));
+  }
+
+  @Test
+  public void setValueOfALocalNumber() throws Exception {
+    checkBudget("setValue.local", i -> new PhoneNumber().setValue(LOCAL));
+  }
+
+  @Test
+  public void setValueWithParams() throws Exception {
+    checkBudget("setValue.params", i -> new PhoneNumber().setValue(PARAMS));
+  }
+
+  @Test
+  public void buildAGlobalNumber() throws Exception {
+    checkBudget("build.global", i -> new PhoneNumber.GlobalPhoneNumberBuilder()
+        .globalNumber("+1-201-555-0123")
+        .extension("1234")
+        .build());
+  }
+
+  @Test
+  public void buildALocalNumber() throws Exception {
+    checkBudget("build.local", i -> new PhoneNumber.LocalPhoneNumberBuilder()
+        .subscriberNumber("863-1234")
+        .countryCode("1")
+        .areaCode("914")
+        .build());
+  }
+
+  @Test
+  public void equalsAndHashCode() throws Exception {
+    PhoneNumber first = parse(PARAMS);
+    PhoneNumber second = parse("tel:+44-20-1234-5678;isub=example.sub.com;par2=GHNKL23;par1=abc");
+    assertTrue(first.equals(second));
+
+    checkBudget("equals", i -> first.equals(second));
+    checkBudget("hashCode", i -> first.hashCode());
+  }
+
+  private static void checkBudget(String operation, AllocationMeter.Operation run) throws Exception {
+    String budget = budgets.getProperty(operation);
+    assertNotNull(budget, "no budget for " + operation + " in " + BUDGETS);
+    long bytes = AllocationMeter.bytesPerOperation(WARMUP, ITERATIONS, run);
+    LOGGER.info("{}: {} bytes per call, budget {}", operation, bytes, budget);
+    assertTrue(bytes <= Long.parseLong(budget.trim()),
+        operation + " allocates " + bytes + " bytes per call, over its budget of " + budget + " in " + BUDGETS);
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
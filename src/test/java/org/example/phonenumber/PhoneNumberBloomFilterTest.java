@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberBloomFilterTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void equalNumbersHaveTheSameCanonicalKey() throws PhoneNumberParseException {
+    String[][] equal = {
+        {"tel:+1-201-555-0123;ext=12-34;a=B;c=d", "tel:+1(201)555.0123;ext=1234;C=D;A=b"},
+        {"tel:7042;phone-context=Example.COM", "tel:70-42;phone-context=example.com"},
+        {"tel:863-1234;isub=ABC;phone-context=+1-914-555", "tel:8631234;isub=abc;phone-context=+1914555"},
+    };
+    for (String[] pair : equal) {
+      PhoneNumber first = parse(pair[0]);
+      PhoneNumber second = parse(pair[1]);
+      assertEquals(first, second);
+      assertEquals(first.getCanonicalKey(), second.getCanonicalKey());
+    }
+    assertEquals("tel:+12015550123;ext=1234;a=b;c=d", parse(equal[0][0]).getCanonicalKey());
+    assertNotEquals(parse("tel:+1-201-555-0123").getCanonicalKey(), parse("tel:+1-201-555-0124").getCanonicalKey());
+    assertNull(new PhoneNumber().getCanonicalKey());
+  }
+
+  @Test
+  public void hasNoFalseNegativesAndAboutTheConfiguredFalsePositives() throws PhoneNumberParseException {
+    PhoneNumberBloomFilter filter = PhoneNumberBloomFilter.create(20_000, 0.01);
+    for (int i = 0; i < 20_000; i++) {
+      filter.put(number(i));
+    }
+    for (int i = 0; i < 20_000; i++) {
+      assertTrue(filter.mightContain(number(i)));
+    }
+    int falsePositives = 0;
+    for (int i = 20_000; i < 120_000; i++) {
+      if (filter.mightContain(number(i))) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 1_500, falsePositives + " false positives in 100000");
+    assertTrue(filter.getCurrentFpp() < 0.015, String.valueOf(filter.getCurrentFpp()));
+  }
+
+  @Test
+  public void confirmsMatchesWithTheExactCheck() throws PhoneNumberParseException {
+    PhoneNumberBloomFilter filter = PhoneNumberBloomFilter.create(100, 0.001);
+    Set<String> blocked = new HashSet<>();
+    PhoneNumber number = parse("tel:+1-201-555-0123");
+    filter.put(number);
+    blocked.add(number.getCanonicalKey());
+    List<String> checked = new ArrayList<>();
+
+    assertTrue(filter.contains(parse("tel:+1(201)555-0123"), key -> checked.add(key) && blocked.contains(key)));
+    assertFalse(filter.contains(parse("tel:+1-201-555-0124"), key -> checked.add(key) && blocked.contains(key)));
+    assertEquals(List.of("tel:+12015550123"), checked);
+  }
+
+  @Test
+  public void persistsToMappedFiles() throws Exception {
+    Path file = dir.resolve("blocklist.bloom");
+    PhoneNumberBloomFilter filter = PhoneNumberBloomFilter.create(file, 1_000, 0.01);
+    for (int i = 0; i < 1_000; i++) {
+      filter.put(number(i));
+    }
+    filter.force();
+
+    PhoneNumberBloomFilter reopened = PhoneNumberBloomFilter.open(file, false);
+    assertEquals(filter.getBitCount(), reopened.getBitCount());
+    assertEquals(filter.getHashCount(), reopened.getHashCount());
+    for (int i = 0; i < 1_000; i++) {
+      assertTrue(reopened.mightContain(number(i)));
+    }
+    assertThrows(IllegalStateException.class, () -> reopened.put(number(5_000)));
+
+    Path copy = dir.resolve("copy.bloom");
+    PhoneNumberBloomFilter.create(1_000, 0.01).writeTo(copy);
+    assertFalse(PhoneNumberBloomFilter.open(copy, true).mightContain(number(1)));
+
+    Path garbage = Files.write(dir.resolve("garbage.bloom"), new byte[64]);
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberBloomFilter.open(garbage, false));
+  }
+
+  @Test
+  public void acceptsConcurrentAdditions() throws Exception {
+    PhoneNumberBloomFilter filter = PhoneNumberBloomFilter.create(40_000, 0.01);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int first = t * 10_000;
+        futures.add(executor.submit(() -> {
+          for (int i = first; i < first + 10_000; i++) {
+            filter.put(number(i));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    for (int i = 0; i < 40_000; i++) {
+      assertTrue(filter.mightContain(number(i)), String.valueOf(i));
+    }
+  }
+
+  @Test
+  public void rejectsInvalidConfigurations() {
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberBloomFilter.create(0, 0.01));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberBloomFilter.create(10, 0));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberBloomFilter.create(10, 1));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberBloomFilter.create(10, 0.01).put(new PhoneNumber()));
+  }
+
+  private static PhoneNumber number(int i) throws PhoneNumberParseException {
+    return parse(String.format("tel:+1-201-%03d-%04d", i / 10_000, i % 10_000));
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberBulkNormalizerTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void normalizesCsvInOrderAndCollectsRejects() throws IOException {
+    List<String> lines = new ArrayList<>();
+    lines.add("id,name,mobile_phone");
+    for (int i = 0; i < 100; i++) {
+      lines.add(i % 10 == 3
+          ? i + ",\"Doe, Jane\nSecond line\",tel:201 555 0123"
+          : i + ",User " + i + ",tel:+1-201-555-" + (1000 + i) + ";ext=22");
+      if (i == 20) {
+        lines.add("");
+      }
+    }
+    Path input = dir.resolve("users.csv");
+    Files.write(input, lines, StandardCharsets.UTF_8);
+
+    PhoneNumberBulkNormalizer.Summary summary = PhoneNumberBulkNormalizer.run(
+        PhoneNumberBulkNormalizer.parseArguments(new String[] { "--input", input.toString(), "--threads", "3", "--batch-size", "7" }));
+
+    assertEquals(100, summary.records);
+    assertEquals(10, summary.rejected);
+    assertEquals(100, summary.latencies.getCount());
+
+    List<String> output = Files.readAllLines(dir.resolve("users.normalized.csv"), StandardCharsets.UTF_8);
+    assertEquals(91, output.size());
+    assertEquals("id,name,mobile_phone", output.get(0));
+    int row = 1;
+    for (int i = 0; i < 100; i++) {
+      if (i % 10 != 3) {
+        assertEquals(i + ",User " + i + ",tel:+1-201-555-" + (1000 + i) + ";ext=22", output.get(row++));
+      }
+    }
+
+    String rejects = new String(Files.readAllBytes(dir.resolve("users.rejects.csv")), StandardCharsets.UTF_8);
+    assertTrue(rejects.startsWith("line,offset,error,record"));
+    // the header is line 1 and the multi-line records push later ones down
+    assertTrue(rejects.contains(System.lineSeparator() + "5,7,"), rejects);
+    assertTrue(rejects.contains(System.lineSeparator() + "16,7,"), rejects);
+    // and so does the blank line after record 20
+    assertTrue(rejects.contains(System.lineSeparator() + "28,7,"), rejects);
+    assertTrue(rejects.contains("\"3,\"\"Doe, Jane\nSecond line\"\",tel:201 555 0123\""), rejects);
+  }
+
+  @Test
+  public void normalizesNdjsonField() throws IOException {
+    Path input = dir.resolve("contacts.ndjson");
+    Files.write(input, List.of(
+        "{\"id\": 1, \"tags\": [\"a\", {\"phone\": 0}], \"phoneNumber\": \"tel:+44-20-1234-5678;Foo=Bar\", \"note\": \"x\"}",
+        "{\"id\": 2, \"phoneNumber\": \"tel:+44-20-1234-5678;foo\"}",
+        "{\"id\": 3}"), StandardCharsets.UTF_8);
+
+    PhoneNumberBulkNormalizer.Summary summary = PhoneNumberBulkNormalizer.run(
+        PhoneNumberBulkNormalizer.parseArguments(new String[] { "--input", input.toString() }));
+
+    assertEquals(3, summary.records);
+    assertEquals(1, summary.rejected);
+    assertEquals(List.of("{\"id\": 1, \"tags\": [\"a\", {\"phone\": 0}], \"phoneNumber\": \"tel:+44-20-1234-5678;Foo=Bar\", \"note\": \"x\"}",
+        "{\"id\": 2, \"phoneNumber\": \"tel:+44-20-1234-5678;foo\"}"),
+        Files.readAllLines(dir.resolve("contacts.normalized.ndjson"), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void rejectsRecordsWithBrokenEscapes() throws IOException {
+    Path input = dir.resolve("escapes.ndjson");
+    Files.write(input, List.of(
+        "{\"id\": 1, \"phone\": \"tel:+44-20-1234-5678;foo=\\u0041\"}",
+        "{\"id\": 2, \"phone\": \"tel:+44-20-1234-5678;foo=\\u00zz\"}",
+        "{\"id\": 3, \"phone\": \"tel:+44-20-1234-5678;foo=\\u00\"}",
+        "{\"id\": 4, \"phone\": \"tel:+44-20-1234-5678;foo=\\u+041\"}",
+        "{\"id\": 5, \"phone\": \"tel:+1-201-555-0123\"}"), StandardCharsets.UTF_8);
+
+    PhoneNumberBulkNormalizer.Summary summary = PhoneNumberBulkNormalizer.run(
+        PhoneNumberBulkNormalizer.parseArguments(new String[] { "--input", input.toString() }));
+
+    assertEquals(5, summary.records);
+    assertEquals(3, summary.rejected);
+    assertEquals(List.of("{\"id\": 1, \"phone\": \"tel:+44-20-1234-5678;foo=A\"}", "{\"id\": 5, \"phone\": \"tel:+1-201-555-0123\"}"),
+        Files.readAllLines(dir.resolve("escapes.normalized.ndjson"), StandardCharsets.UTF_8));
+    String rejects = new String(Files.readAllBytes(dir.resolve("escapes.rejects.csv")), StandardCharsets.UTF_8);
+    for (int line = 2; line <= 4; line++) {
+      assertTrue(rejects.contains(System.lineSeparator() + line + ",-1,invalid unicode escape"), rejects);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.ref.Reference;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares holding parsed numbers as a {@code List<PhoneNumber>} with a
+ * {@link PhoneNumberColumnStore}: the heap each retains, how long a full
+ * collection takes with it and how long a scan for an E.164 prefix takes.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of values as argument.
+ */
+public class PhoneNumberColumnStoreBenchmark {
+
+  private static final String PREFIX = "+1";
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.values", 200_000));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 200_000);
+  }
+
+  static void run(int count) throws Exception {
+    long base = usedAfterGc();
+    List<PhoneNumber> numbers = new ArrayList<>(count);
+    for (int seed = 0; numbers.size() < count; seed++) {
+      List<String> corpus;
+      try {
+        corpus = PhoneNumberThreadScalingBenchmark.corpus(new Random(seed));
+      } catch (PhoneNumberParseException e) {
+        // the random param names of a few seeds spell a reserved name such as ext
+        continue;
+      }
+      for (String value : corpus.subList(0, Math.min(corpus.size(), count - numbers.size()))) {
+        PhoneNumber phoneNumber = new PhoneNumber();
+        phoneNumber.setValue(value);
+        numbers.add(phoneNumber);
+      }
+    }
+    PhoneNumberColumnStore store = new PhoneNumberColumnStore();
+    long start = System.nanoTime();
+    for (PhoneNumber phoneNumber : numbers) {
+      store.append(phoneNumber);
+    }
+    double appendMillis = (System.nanoTime() - start) / 1e6;
+
+    double objectScan = Double.MAX_VALUE;
+    double storeScan = Double.MAX_VALUE;
+    int[] matches = new int[2];
+    for (int round = 0; round < 20; round++) {
+      start = System.nanoTime();
+      matches[0] = 0;
+      for (PhoneNumber phoneNumber : numbers) {
+        String e164 = phoneNumber.getE164();
+        if (e164 != null && e164.startsWith(PREFIX)) {
+          matches[0]++;
+        }
+      }
+      objectScan = Math.min(objectScan, (System.nanoTime() - start) / 1e6);
+      start = System.nanoTime();
+      matches[1] = 0;
+      store.scanE164Prefix(PREFIX, id -> matches[1]++);
+      storeScan = Math.min(storeScan, (System.nanoTime() - start) / 1e6);
+    }
+
+    long both = usedAfterGc();
+    double bothGc = fullGcMillis();
+    // keeps the numbers reachable up to here, however early the JIT finds them dead
+    Reference.reachabilityFence(numbers);
+    numbers = null;
+    long storeOnly = usedAfterGc();
+    double storeGc = fullGcMillis();
+
+    System.out.printf(Locale.ROOT, "%,d numbers, appended to the store in %.1f ms%n", count, appendMillis);
+    System.out.printf(Locale.ROOT, "%-22s %14s %14s %12s %14s%n", "", "heap bytes", "off-heap bytes", "full gc ms", "scan " + PREFIX + " ms");
+    System.out.printf(Locale.ROOT, "%-22s %,14d %14s %12.1f %14.1f%n", "List<PhoneNumber>", both - storeOnly, "-", bothGc, objectScan);
+    System.out.printf(Locale.ROOT, "%-22s %,14d %,14d %12.1f %14.1f%n", "PhoneNumberColumnStore", storeOnly - base, store.getOffHeapBytes(), storeGc, storeScan);
+    if (matches[0] != matches[1]) {
+      throw new IllegalStateException(matches[0] + " numbers match as objects, " + matches[1] + " in the store");
+    }
+  }
+
+  private static long usedAfterGc() {
+    System.gc();
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  /*
+   * The collection time the garbage collectors report for one System.gc().
+   */
+  private static double fullGcMillis() {
+    long before = gcMillis();
+    System.gc();
+    return gcMillis() - before;
+  }
+
+  private static long gcMillis() {
+    long millis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      millis += Math.max(0, gc.getCollectionTime());
+    }
+    return millis;
+  }
+}
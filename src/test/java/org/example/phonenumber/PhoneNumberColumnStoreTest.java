@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberColumnStoreTest {
+
+  private static final String[] VALUES = {
+      "tel:+1-201-555-0123",
+      "tel:+1-201-555-0123;ext=12-34;a=B;c=d",
+      "tel:+44(20)7946.0018;isub=AbC",
+      "tel:7042;phone-context=Example.COM",
+      "tel:863-1234;isub=ABC;phone-context=+1-914-555;x-y=%4A",
+      "tel:*#A1;ext=5;phone-context=+1914555",
+      "tel:555;phone-context=example.com",
+  };
+
+  @Test
+  public void readsNumbersInPlace() throws PhoneNumberParseException {
+    List<PhoneNumber> numbers = new ArrayList<>();
+    for (String value : VALUES) {
+      numbers.add(parse(value));
+    }
+    numbers.add(parse("tel:+1-201-555-0124;foo;Bar=1;baz"));
+    for (String value : PhoneNumberThreadScalingBenchmark.corpus(new Random(48)).subList(0, 5_000)) {
+      numbers.add(parse(value));
+    }
+    PhoneNumberColumnStore store = new PhoneNumberColumnStore();
+    for (int i = 0; i < numbers.size(); i++) {
+      assertEquals(i, store.append(numbers.get(i)));
+    }
+    assertEquals(numbers.size(), store.size());
+
+    PhoneNumberColumnStore.Row row = store.row(0);
+    for (PhoneNumber number : numbers) {
+      String value = number.getValue();
+      assertEquals(value, row.getValue());
+      assertEquals(number.getNumber(), row.getNumber(), value);
+      assertEquals(number.getExtension(), row.getExtension(), value);
+      assertEquals(number.getSubAddress(), row.getSubAddress(), value);
+      assertEquals(number.getPhoneContext(), row.getPhoneContext(), value);
+      assertEquals(number.isGlobalNumber(), row.isGlobalNumber(), value);
+      assertEquals(number.isDomainPhoneContext(), row.isDomainPhoneContext(), value);
+      assertEquals(number.getParams(), row.getParams(), value);
+      assertEquals(number.getE164(), row.getE164(), value);
+      assertEquals(number.getCanonicalKey(), row.getCanonicalKey(), value);
+      assertEquals(number, row.toPhoneNumber(), value);
+      if (row.getId() + 1 < store.size()) {
+        row.moveTo(row.getId() + 1);
+      }
+    }
+    assertTrue(store.getOffHeapBytes() > 0);
+    assertThrows(IndexOutOfBoundsException.class, () -> store.row(numbers.size()));
+    assertThrows(IllegalArgumentException.class, () -> store.append(new PhoneNumber()));
+  }
+
+  @Test
+  public void appendsParsedBatches() {
+    PhoneNumberRecognizer recognizer = new PhoneNumberRecognizer();
+    List<ParseResult> results = new ArrayList<>();
+    for (String value : new String[] {VALUES[0], "tel:nope", VALUES[3]}) {
+      results.add(ParseResult.parse(results.size(), value, recognizer));
+    }
+    PhoneNumberColumnStore store = new PhoneNumberColumnStore();
+    assertArrayEquals(new int[] {0, -1, 1}, store.appendAll(results));
+    assertEquals(VALUES[3], store.row(1).getValue());
+  }
+
+  @Test
+  public void scansWithoutBuildingNumbers() throws PhoneNumberParseException {
+    PhoneNumberColumnStore store = new PhoneNumberColumnStore();
+    for (String value : VALUES) {
+      store.append(parse(value));
+    }
+
+    assertArrayEquals(new int[] {4, 5}, scanPhoneContext(store, "+1(914)555"));
+    assertArrayEquals(new int[] {3, 6}, scanPhoneContext(store, "EXAMPLE.com"));
+    assertArrayEquals(new int[0], scanPhoneContext(store, "example.org"));
+
+    assertArrayEquals(new int[] {0, 1, 4}, scanE164Prefix(store, "+1"));
+    assertArrayEquals(new int[] {0, 1}, scanE164Prefix(store, "+1 (201)"));
+    assertArrayEquals(new int[] {4}, scanE164Prefix(store, "+1914-555-863-1234"));
+    assertArrayEquals(new int[0], scanE164Prefix(store, "+1914-555-863-12345"));
+
+    List<Integer> ids = new ArrayList<>();
+    store.scan(row -> row.isGlobalNumber() && !row.hasExtension(), ids::add);
+    assertEquals(List.of(0, 2), ids);
+
+    PhoneNumberColumnStore.Row row = store.row(5);
+    assertFalse(row.hasE164());
+    assertNull(row.getE164());
+    assertEquals(1, store.row(4).getParamCount());
+  }
+
+  private static int[] scanPhoneContext(PhoneNumberColumnStore store, String phoneContext) {
+    List<Integer> ids = new ArrayList<>();
+    store.scanPhoneContext(phoneContext, ids::add);
+    return ids.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static int[] scanE164Prefix(PhoneNumberColumnStore store, String prefix) {
+    List<Integer> ids = new ArrayList<>();
+    store.scanE164Prefix(prefix, ids::add);
+    return ids.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Compares suffix and fragment searches in {@link PhoneNumberDigitIndex} with
+ * a linear scan stripping {@link PhoneNumber#getNumber()} with a regular
+ * expression on every row, printing milliseconds per query, the time to build
+ * the index and its memory footprint.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of phone numbers as argument.
+ */
+public class PhoneNumberDigitIndexBenchmark {
+
+  private static final int QUERIES = 200;
+
+  private static final Pattern NON_DIGITS = Pattern.compile("[^0-9]");
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.numbers", 1_000_000));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000);
+  }
+
+  static void run(int count) throws Exception {
+    Random random = new Random(45);
+    PhoneNumber[] numbers = new PhoneNumber[count];
+    for (int i = 0; i < count; i++) {
+      numbers[i] = new PhoneNumber();
+      numbers[i].setValue(random.nextInt(4) == 0
+          ? "tel:" + digits(random, 3) + "-" + digits(random, 4) + ";ext=" + digits(random, 4)
+              + ";phone-context=+1-" + digits(random, 3)
+          : "tel:+" + (1 + random.nextInt(99)) + "-" + digits(random, 3) + "-" + digits(random, 3) + "-"
+              + digits(random, 4));
+    }
+
+    long start = System.nanoTime();
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    for (int i = 0; i < count; i++) {
+      index.add(i, numbers[i]);
+    }
+    System.out.printf(Locale.ROOT, "%,d numbers indexed in %,.0f ms, %,.1f MB%n",
+        count, (System.nanoTime() - start) / 1e6, index.getMemoryFootprint() / 1e6);
+
+    String[] suffixes = new String[QUERIES];
+    String[] fragments = new String[QUERIES];
+    for (int i = 0; i < QUERIES; i++) {
+      suffixes[i] = digits(random, 4);
+      fragments[i] = digits(random, 3 + random.nextInt(4));
+    }
+    measure("index, last 4 digits", suffixes, query -> index.findBySuffix(query, Integer.MAX_VALUE).length);
+    measure("index, fragment", fragments, query -> index.findContaining(query, Integer.MAX_VALUE).length);
+    measure("scan, last 4 digits", suffixes, query -> scan(numbers, query, true));
+    measure("scan, fragment", fragments, query -> scan(numbers, query, false));
+  }
+
+  private static void measure(String name, String[] queries, Search search) {
+    // warm up on a few queries, the scans being too slow to repeat
+    for (int i = 0; i < 5; i++) {
+      search.find(queries[i]);
+    }
+    long found = 0;
+    long start = System.nanoTime();
+    for (String query : queries) {
+      found += search.find(query);
+    }
+    long elapsed = System.nanoTime() - start;
+    System.out.printf(Locale.ROOT, "%-22s %10.3f ms/query %10.1f found/query%n",
+        name, elapsed / 1e6 / queries.length, (double) found / queries.length);
+  }
+
+  /**
+   * The baseline: strips every number to its digits and compares.
+   */
+  private static int scan(PhoneNumber[] numbers, String query, boolean suffix) {
+    List<Integer> found = new ArrayList<>();
+    for (int i = 0; i < numbers.length; i++) {
+      String digits = NON_DIGITS.matcher(numbers[i].getNumber()).replaceAll("");
+      if (suffix ? digits.endsWith(query) : digits.contains(query)
+          || numbers[i].getExtension() != null && NON_DIGITS.matcher(numbers[i].getExtension()).replaceAll("").contains(query)) {
+        found.add(i);
+      }
+    }
+    return found.size();
+  }
+
+  private static String digits(Random random, int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('0' + random.nextInt(10)));
+    }
+    return sb.toString();
+  }
+
+  private interface Search {
+
+    int find(String query);
+  }
+}
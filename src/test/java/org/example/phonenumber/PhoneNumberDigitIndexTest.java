@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberDigitIndexTest {
+
+  @Test
+  public void findsNumbersBySuffixAndFragment() throws PhoneNumberParseException {
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    index.add(1, parse("tel:+1-201-555-0123"));
+    index.add(2, parse("tel:+1-914-555-0123;ext=4567"));
+    index.add(3, parse("tel:863-1234;phone-context=+1-914-555"));
+    index.add(4, parse("tel:+44-20-7946-0000"));
+
+    assertArrayEquals(new int[] {1, 2}, index.findBySuffix("0123", 10));
+    assertArrayEquals(new int[] {1, 2}, index.findBySuffix("555-0123", 10));
+    assertArrayEquals(new int[] {1}, index.findBySuffix("0123", 1));
+    assertArrayEquals(new int[] {}, index.findBySuffix("4567", 10));
+    assertArrayEquals(new int[] {2}, index.findContaining("4567", 10));
+    assertArrayEquals(new int[] {3}, index.findContaining("(863) 12", 10));
+    assertArrayEquals(new int[] {1, 2}, index.findContaining("5550", 10));
+    assertArrayEquals(new int[] {2, 4}, index.findContaining("9", 10));
+    assertArrayEquals(new int[] {4}, index.findBySuffix("00", 10));
+    // the number and its extension are not searched as one
+    assertArrayEquals(new int[] {}, index.findContaining("01234567", 10));
+    assertEquals(4, index.size());
+  }
+
+  @Test
+  public void replacesAndRemovesNumbers() throws PhoneNumberParseException {
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    index.add(7, parse("tel:+1-201-555-0123"));
+    index.add(7, parse("tel:+1-201-555-9876"));
+
+    assertArrayEquals(new int[] {}, index.findBySuffix("0123", 10));
+    assertArrayEquals(new int[] {7}, index.findBySuffix("9876", 10));
+    assertTrue(index.remove(7));
+    assertFalse(index.remove(7));
+    assertArrayEquals(new int[] {}, index.findBySuffix("9876", 10));
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void matchesALinearScan() throws PhoneNumberParseException {
+    Random random = new Random(43);
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    Map<Integer, String[]> expected = new LinkedHashMap<>();
+    for (int i = 0; i < 20_000; i++) {
+      int id = random.nextInt(10_000) - 5_000;
+      if (random.nextInt(4) == 0) {
+        assertEquals(expected.remove(id) != null, index.remove(id));
+        continue;
+      }
+      PhoneNumber phoneNumber = parse(random.nextBoolean()
+          ? "tel:+" + digits(random, 1 + random.nextInt(3)) + "-" + digits(random, 3) + "-" + digits(random, 4)
+          : "tel:" + digits(random, 3) + "-" + digits(random, 4) + ";ext=" + digits(random, 1 + random.nextInt(5))
+              + ";phone-context=+1-" + digits(random, 3));
+      index.add(id, phoneNumber);
+      expected.remove(id);
+      expected.put(id, new String[] {strip(phoneNumber.getNumber()), strip(phoneNumber.getExtension())});
+    }
+    assertEquals(expected.size(), index.size());
+
+    for (int i = 0; i < 500; i++) {
+      String query = digits(random, 1 + random.nextInt(6));
+      List<Integer> suffix = new ArrayList<>();
+      List<Integer> containing = new ArrayList<>();
+      expected.forEach((id, digits) -> {
+        if (digits[0].endsWith(query)) {
+          suffix.add(id);
+        }
+        if (digits[0].contains(query) || digits[1].contains(query)) {
+          containing.add(id);
+        }
+      });
+      assertEquals(suffix, boxed(index.findBySuffix(query, Integer.MAX_VALUE)), query);
+      assertEquals(containing, boxed(index.findContaining(query, Integer.MAX_VALUE)), query);
+    }
+  }
+
+  @Test
+  public void compactingShrinksTheFootprint() throws PhoneNumberParseException {
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    Random random = new Random(44);
+    for (int id = 0; id < 10_000; id++) {
+      index.add(id, parse("tel:+1-" + digits(random, 3) + "-" + digits(random, 3) + "-" + digits(random, 4)));
+    }
+    long full = index.getMemoryFootprint();
+    assertTrue(full > 10_000 * 11, String.valueOf(full));
+
+    for (int id = 1; id < 10_000; id += 2) {
+      index.remove(id);
+    }
+    index.compact();
+    assertTrue(index.getMemoryFootprint() < full * 3 / 4, index.getMemoryFootprint() + " of " + full);
+    assertEquals(5_000, index.size());
+    assertEquals(5_000, index.findContaining("1", Integer.MAX_VALUE).length);
+  }
+
+  @Test
+  public void replacingIdsKeepsTheFootprintBounded() throws PhoneNumberParseException {
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    Random random = new Random(45);
+    for (int id = 0; id < 1_000; id++) {
+      index.add(id, parse("tel:+1-" + digits(random, 3) + "-" + digits(random, 3) + "-" + digits(random, 4)));
+    }
+    long initial = index.getMemoryFootprint();
+
+    for (int round = 0; round < 50; round++) {
+      for (int id = 0; id < 1_000; id++) {
+        index.add(id, parse("tel:+1-" + digits(random, 3) + "-" + digits(random, 3) + "-" + digits(random, 4)));
+      }
+    }
+    assertTrue(index.getMemoryFootprint() < initial * 8, index.getMemoryFootprint() + " of " + initial);
+    assertEquals(1_000, index.size());
+    assertEquals(1_000, index.findContaining("1", Integer.MAX_VALUE).length);
+  }
+
+  @Test
+  public void rejectsInvalidQueries() throws PhoneNumberParseException {
+    PhoneNumberDigitIndex index = new PhoneNumberDigitIndex();
+    assertThrows(IllegalArgumentException.class, () -> index.add(1, new PhoneNumber()));
+    assertThrows(IllegalArgumentException.class, () -> index.findBySuffix("--", 10));
+    assertThrows(IllegalArgumentException.class, () -> index.findContaining(null, 10));
+    assertThrows(IllegalArgumentException.class, () -> index.findContaining("123", -1));
+  }
+
+  private static List<Integer> boxed(int[] ids) {
+    List<Integer> list = new ArrayList<>();
+    Arrays.stream(ids).forEach(list::add);
+    return list;
+  }
+
+  private static String strip(String value) {
+    return value != null ? value.replaceAll("[^0-9]", "") : "";
+  }
+
+  private static String digits(Random random, int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('0' + random.nextInt(10)));
+    }
+    return sb.toString();
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
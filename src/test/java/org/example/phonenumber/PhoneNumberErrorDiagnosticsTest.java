@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberErrorDiagnosticsTest {
+
+  private final PhoneNumberErrorDiagnostics defaultDiagnostics = PhoneNumber.getErrorDiagnostics();
+
+  @AfterEach
+  public void restoreDefaults() {
+    PhoneNumber.setErrorDiagnostics(defaultDiagnostics);
+  }
+
+  @Test
+  public void countsRejectedValuesByRuleAndToken() throws PhoneNumberParseException {
+    PhoneNumberErrorDiagnostics diagnostics = new PhoneNumberErrorDiagnostics(Duration.ZERO);
+    PhoneNumber.setErrorDiagnostics(diagnostics);
+
+    for (int i = 0; i < 3; i++) {
+      assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue("tel:201 555 0123"));
+    }
+    assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue("tel:201-555-0123"));
+    // accepted after the SLL attempt fails, so not an error
+    new PhoneNumber().setValue("tel:+1-201-555-0123;ext=1234");
+
+    Map<String, Long> counts = diagnostics.getCounts();
+    assertEquals(4, diagnostics.getTotal());
+    assertEquals(2, counts.size(), counts.toString());
+    assertEquals(3L, counts.values().iterator().next());
+    counts.keySet().forEach(key -> assertTrue(key.matches("[a-zA-Z]+/[A-Za-z]+"), key));
+  }
+
+  @Test
+  public void summariesDoNotLoseConcurrentErrors() throws Exception {
+    PhoneNumberErrorDiagnostics diagnostics = new PhoneNumberErrorDiagnostics(Duration.ofDays(1));
+    int threads = 4;
+    int perThread = 100_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    long summarized = 0;
+    try {
+      List<Future<?>> recorders = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int ruleIndex = t;
+        recorders.add(executor.submit(() -> {
+          for (int i = 0; i < perThread; i++) {
+            diagnostics.record(ruleIndex, Token.EOF);
+          }
+        }));
+      }
+      while (!recorders.stream().allMatch(Future::isDone)) {
+        summarized += sum(diagnostics.takeSinceSummary());
+      }
+      for (Future<?> recorder : recorders) {
+        recorder.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    summarized += sum(diagnostics.takeSinceSummary());
+
+    assertEquals((long) threads * perThread, diagnostics.getTotal());
+    assertEquals((long) threads * perThread, summarized);
+    assertTrue(diagnostics.takeSinceSummary().isEmpty());
+  }
+
+  private static long sum(Map<String, Long> counts) {
+    return counts.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  @ParameterizedTest
+  @MethodSource({"org.example.phonenumber.PhoneNumberTest#getAllValidPhones", "org.example.phonenumber.PhoneNumberTest#getAllInvalidPhones"})
+  public void failFastRejectsWhatTheDefaultStrategyReportsAndNothingMore(String value) {
+    int[] defaultErrors = new int[1];
+    PhoneNumberParser parser = parser(value, defaultErrors);
+    parser.phoneNumber();
+
+    int[] failFastErrors = new int[1];
+    PhoneNumberParser failFast = parser(value, failFastErrors);
+    failFast.setErrorHandler(new PhoneNumberFailFastErrorStrategy());
+    if (defaultErrors[0] > 0) {
+      assertThrows(ParseCancellationException.class, failFast::phoneNumber);
+      assertEquals(1, failFastErrors[0]);
+    } else {
+      failFast.phoneNumber();
+      assertEquals(0, failFastErrors[0]);
+    }
+  }
+
+  private static PhoneNumberParser parser(String value, int[] errors) {
+    PhoneNumberParser parser = new PhoneNumberParser(new CommonTokenStream(new PhoneNumberLexer(new ANTLRInputStream(value))));
+    parser.removeErrorListeners();
+    parser.addErrorListener(new BaseErrorListener() {
+      @Override
+      public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+        errors[0]++;
+      }
+    });
+    return parser;
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link PhoneNumberExtractor} on a generated call log, in memory,
+ * read through a {@code Reader} and mapped from a file, with the usual regular
+ * expression followed by {@link PhoneNumber#setValue(String)} on every
+ * candidate, printing megabytes per second.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of log lines and threads as arguments.
+ */
+public class PhoneNumberExtractorBenchmark {
+
+  private static final int ROUNDS = 5;
+
+  private static final Pattern CANDIDATE = Pattern.compile("tel:[^\\s,<>\"]+");
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.lines", 500_000),
+        Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors()));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 500_000,
+        args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors());
+  }
+
+  static void run(int lines, int threads) throws Exception {
+    String text = log(new Random(54), lines);
+    Path file = Files.createTempFile("phone-numbers", ".log");
+    try {
+      Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+      System.out.printf(Locale.ROOT, "%,d lines, %.1f MB, %d threads%n", lines, text.length() / 1e6, threads);
+      measure("regex and setValue", text.length(), () -> regex(text));
+      measure("extract(CharSequence)", text.length(), () -> PhoneNumberExtractor.extract(text).size());
+      measure("extract(Reader)", text.length(), () -> {
+        int[] found = new int[1];
+        PhoneNumberExtractor.extract(Files.newBufferedReader(file, StandardCharsets.US_ASCII), match -> found[0]++);
+        return found[0];
+      });
+      measure("extract(CharSequence, n)", text.length(), () -> PhoneNumberExtractor.extract(text, threads).size());
+      measure("extract(Path, n)", text.length(), () -> PhoneNumberExtractor.extract(file, threads).size());
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static void measure(String name, long chars, Callable<Integer> extract) throws Exception {
+    extract.call();
+    int found = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      found = extract.call();
+    }
+    double seconds = (System.nanoTime() - start) / 1e9 / ROUNDS;
+    System.out.printf(Locale.ROOT, "%-26s %8.1f MB/s %,10d values%n", name, chars / 1e6 / seconds, found);
+  }
+
+  /**
+   * The baseline: candidates up to the next blank or delimiter, parsed as is.
+   */
+  private static int regex(String text) {
+    List<PhoneNumber> found = new ArrayList<>();
+    Matcher matcher = CANDIDATE.matcher(text);
+    while (matcher.find()) {
+      PhoneNumber phoneNumber = new PhoneNumber();
+      try {
+        phoneNumber.setValue(matcher.group());
+        found.add(phoneNumber);
+      } catch (PhoneNumberParseException e) {
+        // not a value
+      }
+    }
+    return found.size();
+  }
+
+  private static String log(Random random, int lines) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      sb.append("2024-05-01T12:").append(10 + i % 50).append(":00Z INFO ");
+      switch (random.nextInt(10)) {
+        case 0:
+          sb.append("inbound call from tel:+1-201-555-").append(1000 + random.nextInt(9000)).append(", routed\n");
+          break;
+        case 1:
+          sb.append("transfer to <tel:").append(1000 + random.nextInt(9000)).append(";phone-context=+1-914-555>\n");
+          break;
+        default:
+          sb.append("queue ").append(random.nextInt(100)).append(" depth ").append(random.nextInt(1000))
+              .append(" agents idle ").append(random.nextInt(20)).append('\n');
+          break;
+      }
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PhoneNumberExtractorTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void findsValuesInFreeText() {
+    String text = "Call tel:+1-201-555-0123, or tel:+1-201-555-0124;ext=12. Fax: tel:863-1234;phone-context=+1-914-555.\n"
+        + "Bogus tel:12 and tel: nothing; tel:+44-20-7946-0000abc then tel:+1(914)555-0100 (desk)\n"
+        + "<a href=\"tel:+33-1-23-45-67-89\">tel:+33-1-23-45-67-89</a>";
+    long rejected = PhoneNumber.getErrorDiagnostics().getTotal();
+    List<PhoneNumberExtractor.Match> matches = PhoneNumberExtractor.extract(text);
+    // the cuts tried and dropped are not rejected values
+    assertEquals(rejected, PhoneNumber.getErrorDiagnostics().getTotal());
+
+    assertEquals(List.of("tel:+1-201-555-0123", "tel:+1-201-555-0124;ext=12.", "tel:863-1234;phone-context=+1-914-555.",
+        "tel:+44-20-7946-0000", "tel:+1(914)555-0100", "tel:+33-1-23-45-67-89", "tel:+33-1-23-45-67-89"), values(matches));
+    for (PhoneNumberExtractor.Match match : matches) {
+      assertEquals(match.getPhoneNumber().getValue(), text.substring((int) match.getStart(), (int) match.getEnd()));
+    }
+  }
+
+  @Test
+  public void readsValuesAcrossReads() throws IOException {
+    String text = text(new Random(51), 20_000);
+    List<PhoneNumberExtractor.Match> expected = PhoneNumberExtractor.extract(text);
+
+    List<PhoneNumberExtractor.Match> matches = new ArrayList<>();
+    PhoneNumberExtractor.extract(new TrickleReader(text, new Random(52)), matches::add);
+
+    assertEquals(describe(expected), describe(matches));
+  }
+
+  @Test
+  public void scansChunksInParallelAsAWhole() throws IOException {
+    Random random = new Random(53);
+    StringBuilder sb = new StringBuilder(text(random, 40_000));
+    // a value across the first chunk boundary, with another value inside it
+    sb.setLength((1 << 20) - 12);
+    sb.append(" tel:+1-201-555-0123;x=tel:+1-914-555-0100;y=tel:+1-914-555-0101 ").append(text(random, 20_000));
+    String text = sb.toString();
+    List<PhoneNumberExtractor.Match> expected = PhoneNumberExtractor.extract(text);
+    assertEquals(1, expected.stream().filter(match -> match.getStart() < 1 << 20 && match.getEnd() > 1 << 20).count());
+
+    assertEquals(describe(expected), describe(PhoneNumberExtractor.extract(text, 4)));
+
+    Path file = directory.resolve("text.log");
+    Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+    assertEquals(describe(expected), describe(PhoneNumberExtractor.extract(file, 4)));
+  }
+
+  /*
+   * Log lines with values, invalid values and values followed by other text.
+   */
+  private static String text(Random random, int lines) {
+    String[] values = {"tel:+1-201-555-%04d", "tel:+1-201-555-%04d;ext=%d", "tel:%04d;phone-context=+1-914-555",
+        "tel:+44-20-7946-%04d;foo=bar", "tel:%d", "tel:+1-914-555-%04dabc"};
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      sb.append("2024-05-01 12:00:").append(i % 60);
+      if (random.nextInt(8) == 0) {
+        sb.append(" call from ")
+            .append(String.format(values[random.nextInt(values.length)], random.nextInt(10_000), random.nextInt(100)))
+            .append(random.nextBoolean() ? ", done" : " done").append('\n');
+      } else {
+        sb.append(" call routed to queue ").append(random.nextInt(100)).append('\n');
+      }
+    }
+    return sb.toString();
+  }
+
+  private static List<String> values(List<PhoneNumberExtractor.Match> matches) {
+    return matches.stream().map(match -> match.getPhoneNumber().getValue()).collect(Collectors.toList());
+  }
+
+  private static List<String> describe(List<PhoneNumberExtractor.Match> matches) {
+    return matches.stream().map(PhoneNumberExtractor.Match::toString).collect(Collectors.toList());
+  }
+
+  /**
+   * Hands out a few characters per read.
+   */
+  private static final class TrickleReader extends Reader {
+
+    private final Reader reader;
+
+    private final Random random;
+
+    TrickleReader(String text, Random random) {
+      this.reader = new StringReader(text);
+      this.random = random;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+      return reader.read(cbuf, off, Math.min(len, 1 + random.nextInt(7)));
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberFormattingTest {
+
+  @ParameterizedTest
+  @CsvSource({
+      "tel:+1-201-555-0123;ext=1234, +12015550123",
+      "tel:+44-(0117)-204-2623, +4401172042623",
+      "tel:863-1234;phone-context=+1-914-555, +19145558631234",
+      "tel:7042;phone-context=example.com, ",
+      "tel:*70;phone-context=+1, "
+  })
+  public void rendersE164(String value, String e164) throws PhoneNumberParseException, IOException {
+    PhoneNumber phoneNumber = parse(value);
+
+    assertEquals(e164, phoneNumber.getE164());
+
+    StringBuilder sb = new StringBuilder("x");
+    assertEquals(e164 != null, phoneNumber.appendE164To(sb));
+    assertEquals(e164 != null ? "x" + e164 : "x", sb.toString());
+
+    StringWriter out = new StringWriter();
+    assertEquals(e164 != null, parse(value).appendE164To(out));
+    assertEquals(e164 != null ? e164 : "", out.toString());
+  }
+
+  @Test
+  public void appendsValueAndCachesE164() throws PhoneNumberParseException, IOException {
+    PhoneNumber phoneNumber = parse("tel:863-1234;phone-context=+1-914-555;foo=bar");
+
+    assertEquals("[" + phoneNumber.getValue(), phoneNumber.appendTo(new StringBuilder("[")).toString());
+    assertEquals(phoneNumber.getValue(), phoneNumber.appendTo(new StringWriter()).toString());
+    assertSame(phoneNumber.getE164(), phoneNumber.getE164());
+
+    PhoneNumber changed = phoneNumber.withPhoneContext("+44");
+    assertEquals("+448631234", changed.getE164());
+    assertNull(changed.withPhoneContext("example.com").getE164());
+    assertEquals("+19145558631234", phoneNumber.getE164());
+  }
+
+  @Test
+  public void builderFormatsAllComponents() throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber.LocalPhoneNumberBuilder()
+        .subscriberNumber("555-1234")
+        .countryCode("1")
+        .areaCode("914")
+        .extension("12")
+        .param("foo", "bar")
+        .build();
+
+    assertEquals("tel:555-1234;ext=12;phone-context=+1-914;foo=bar", phoneNumber.getValue());
+  }
+
+  @Test
+  public void appendsWithoutAllocating() throws Exception {
+    Assumptions.assumeTrue(AllocationMeter.isSupported(), "thread allocation counters not available");
+    PhoneNumber phoneNumber = parse("tel:863-1234;phone-context=+1-914-555");
+    StringBuilder sb = new StringBuilder(1024);
+
+    long bytes = AllocationMeter.bytesPerOperation(10_000, 10_000, i -> {
+      sb.setLength(0);
+      phoneNumber.appendTo(sb);
+      phoneNumber.appendE164To(sb);
+    });
+
+    assertFalse(bytes > 0, "expected no allocation, got " + bytes + " bytes per call");
+    assertTrue(sb.length() > 0);
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Compares reading and writing {@code phoneNumbers} arrays with
+ * {@link PhoneNumberJson} and with generic binding as done by reflection
+ * based JSON binders: the document is parsed into maps and lists first, then
+ * bound to the beans' setters, and written by calling every getter.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}.
+ */
+public class PhoneNumberJsonBenchmark {
+
+  private static final int DOCUMENTS = 2_000;
+
+  private static final int ROUNDS = 20;
+
+  @Test
+  public void benchmark() throws Exception {
+    run();
+  }
+
+  public static void main(String[] args) throws Exception {
+    run();
+  }
+
+  static void run() throws Exception {
+    List<String> values = PhoneNumberThreadScalingBenchmark.corpus(new Random(42)).subList(0, DOCUMENTS * 3);
+    String[] documents = new String[DOCUMENTS];
+    List<List<PhoneNumber>> lists = new ArrayList<>();
+    for (int i = 0; i < DOCUMENTS; i++) {
+      List<PhoneNumber> phoneNumbers = new ArrayList<>();
+      for (int j = 0; j < 3; j++) {
+        PhoneNumber phoneNumber = new PhoneNumber();
+        phoneNumber.setValue(values.get(i * 3 + j));
+        phoneNumber.setType(j == 0 ? "work" : "mobile").setDisplay("Line " + j).setPrimary(j == 0);
+        phoneNumbers.add(phoneNumber);
+      }
+      lists.add(phoneNumbers);
+      documents[i] = PhoneNumberJson.toJson(phoneNumbers);
+    }
+    for (int i = 0; i < DOCUMENTS; i++) {
+      if (!GenericBinding.read(documents[i]).equals(PhoneNumberJson.readArray(new StringReader(documents[i])))) {
+        throw new IllegalStateException("bindings disagree on " + documents[i]);
+      }
+    }
+
+    StringBuilder sb = new StringBuilder(1024);
+    Map<String, AllocationMeter.Operation> operations = new LinkedHashMap<>();
+    operations.put("read PhoneNumberJson", i -> PhoneNumberJson.readArray(new StringReader(documents[i % DOCUMENTS])));
+    operations.put("read generic binding", i -> GenericBinding.read(documents[i % DOCUMENTS]));
+    operations.put("write PhoneNumberJson", i -> {
+      sb.setLength(0);
+      PhoneNumberJson.writeArray(lists.get(i % DOCUMENTS), sb);
+    });
+    operations.put("write generic binding", i -> {
+      sb.setLength(0);
+      GenericBinding.write(lists.get(i % DOCUMENTS), sb);
+    });
+
+    System.out.printf(Locale.ROOT, "%,d documents of 3 phone numbers%n", DOCUMENTS);
+    boolean strict = PhoneNumber.isStrict();
+    try {
+      for (boolean parse : new boolean[] {true, false}) {
+        // without parsing, what is left is the cost of the JSON binding itself
+        PhoneNumber.setStrict(parse);
+        for (AllocationMeter.Operation operation : operations.values()) {
+          for (int i = 0; i < DOCUMENTS * ROUNDS; i++) {
+            operation.run(i);
+          }
+        }
+        for (Map.Entry<String, AllocationMeter.Operation> entry : operations.entrySet()) {
+          if (parse || entry.getKey().startsWith("read")) {
+            measure(entry.getKey() + (parse ? "" : " (no parsing)"), entry.getValue());
+          }
+        }
+      }
+    } finally {
+      PhoneNumber.setStrict(strict);
+    }
+  }
+
+  private static void measure(String name, AllocationMeter.Operation operation) throws Exception {
+    long start = System.nanoTime();
+    long bytes = AllocationMeter.isSupported() ? AllocationMeter.bytesPerOperation(0, DOCUMENTS * ROUNDS, operation) : -1;
+    double nanos = (double) (System.nanoTime() - start) / (DOCUMENTS * ROUNDS);
+    System.out.printf(Locale.ROOT, "%-35s %9.0f ns/document %9d bytes/document%n", name, nanos, bytes);
+  }
+
+  /*
+   * What a reflection based binder does: a generic tree first, then setters
+   * found by name; getters found by name when writing.
+   */
+  static final class GenericBinding {
+
+    private static final String[] PROPERTIES = {"value", "display", "type", "primary"};
+
+    static List<PhoneNumber> read(String json) throws Exception {
+      List<PhoneNumber> phoneNumbers = new ArrayList<>();
+      for (Object element : (List<?>) new TreeParser(json).value()) {
+        PhoneNumber phoneNumber = PhoneNumber.class.getConstructor().newInstance();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) element).entrySet()) {
+          String property = (String) entry.getKey();
+          Object value = entry.getValue();
+          Method setter = PhoneNumber.class.getMethod("set" + Character.toUpperCase(property.charAt(0)) + property.substring(1),
+              value instanceof Boolean ? Boolean.class : String.class);
+          setter.invoke(phoneNumber, value);
+        }
+        phoneNumbers.add(phoneNumber);
+      }
+      return phoneNumbers;
+    }
+
+    static void write(List<PhoneNumber> phoneNumbers, StringBuilder sb) throws Exception {
+      sb.append('[');
+      for (int i = 0; i < phoneNumbers.size(); i++) {
+        if (i > 0) {
+          sb.append(',');
+        }
+        sb.append('{');
+        boolean first = true;
+        for (String property : PROPERTIES) {
+          Object value = PhoneNumber.class.getMethod("get" + Character.toUpperCase(property.charAt(0)) + property.substring(1))
+              .invoke(phoneNumbers.get(i));
+          if (value == null) {
+            continue;
+          }
+          if (!first) {
+            sb.append(',');
+          }
+          first = false;
+          sb.append('"').append(property).append("\":");
+          if (value instanceof String) {
+            PhoneNumberJson.appendQuoted(sb, (String) value);
+          } else {
+            sb.append(value);
+          }
+        }
+        sb.append('}');
+      }
+      sb.append(']');
+    }
+  }
+
+  /*
+   * Minimal generic JSON parser producing maps, lists, strings and booleans,
+   * enough for the benchmark documents.
+   */
+  private static final class TreeParser {
+
+    private final String json;
+
+    private int i;
+
+    TreeParser(String json) {
+      this.json = json;
+    }
+
+    Object value() {
+      skipWhitespace();
+      char c = json.charAt(i);
+      if (c == '{') {
+        Map<String, Object> map = new LinkedHashMap<>();
+        i++;
+        skipWhitespace();
+        if (json.charAt(i) == '}') {
+          i++;
+          return map;
+        }
+        do {
+          skipWhitespace();
+          String key = (String) value();
+          skipWhitespace();
+          i++;
+          map.put(key, value());
+          skipWhitespace();
+        } while (json.charAt(i++) == ',');
+        return map;
+      }
+      if (c == '[') {
+        List<Object> list = new ArrayList<>();
+        i++;
+        skipWhitespace();
+        if (json.charAt(i) == ']') {
+          i++;
+          return list;
+        }
+        do {
+          list.add(value());
+          skipWhitespace();
+        } while (json.charAt(i++) == ',');
+        return list;
+      }
+      if (c == '"') {
+        StringBuilder sb = new StringBuilder();
+        i++;
+        while ((c = json.charAt(i++)) != '"') {
+          if (c == '\\') {
+            c = json.charAt(i++);
+            if (c == 'u') {
+              c = (char) Integer.parseInt(json.substring(i, i + 4), 16);
+              i += 4;
+            } else if (c == 'n') {
+              c = '\n';
+            }
+          }
+          sb.append(c);
+        }
+        return sb.toString();
+      }
+      if (json.startsWith("true", i)) {
+        i += 4;
+        return Boolean.TRUE;
+      }
+      if (json.startsWith("false", i)) {
+        i += 5;
+        return Boolean.FALSE;
+      }
+      i += 4;
+      return null;
+    }
+
+    private void skipWhitespace() {
+      while (Character.isWhitespace(json.charAt(i))) {
+        i++;
+      }
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.example.phonenumber.PhoneNumberObserver.Operation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberJsonTest {
+
+  @AfterEach
+  public void restoreDefaults() {
+    PhoneNumber.setObserver(null);
+  }
+
+  @ParameterizedTest
+  @MethodSource("org.example.phonenumber.PhoneNumberTest#getAllValidPhones")
+  public void roundTrips(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    phoneNumber.setDisplay("Work \"main\" line\n").setType("work").setPrimary(true);
+
+    PhoneNumber read = PhoneNumberJson.fromJson(PhoneNumberJson.toJson(phoneNumber));
+
+    assertEquals(phoneNumber, read);
+    assertEquals(phoneNumber.getValue(), read.getValue());
+    assertEquals(phoneNumber.getDisplay(), read.getDisplay());
+  }
+
+  @Test
+  public void writesTheScimAttributes() throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue("tel:+1-201-555-0123;ext=1234");
+    phoneNumber.setType("work");
+
+    assertEquals("{\"value\":\"tel:+1-201-555-0123;ext=1234\",\"type\":\"work\",\"primary\":false}", PhoneNumberJson.toJson(phoneNumber));
+    assertEquals("{\"display\":\"a\\u0001\\\\b\"}", PhoneNumberJson.toJson(new PhoneNumber().setDisplay("a\u0001\\b").setPrimary(null)));
+  }
+
+  @Test
+  public void readsEachValueOnceAndSkipsOtherAttributes() throws PhoneNumberParseException {
+    PhoneNumberMetrics metrics = new PhoneNumberMetrics();
+    PhoneNumber.setObserver(metrics);
+
+    PhoneNumber phoneNumber = PhoneNumberJson.fromJson(" { \"$ref\": {\"a\": [1, -2.5e3, true, null, {}]}, \"Primary\" : true,"
+        + " \"TYPE\":\"home\", \"value\":\"tel:+1-201-555-0123\", \"display\": null, \"other\": \"x\\\"y\" } ");
+
+    assertEquals("tel:+1-201-555-0123", phoneNumber.getValue());
+    assertEquals("home", phoneNumber.getType());
+    assertEquals(Boolean.TRUE, phoneNumber.getPrimary());
+    assertNull(phoneNumber.getDisplay());
+    assertEquals(1, metrics.getAccepted(Operation.SET_VALUE));
+  }
+
+  @Test
+  public void readsAndWritesThePhoneNumbersArray() throws Exception {
+    List<PhoneNumber> phoneNumbers = PhoneNumberJson.fromJsonArray(
+        "[{\"value\":\"tel:+1-201-555-0123\",\"primary\":true}, {\"value\":\"tel:7042;phone-context=example.com\",\"type\":\"other\"}]");
+
+    assertEquals(2, phoneNumbers.size());
+    assertEquals("tel:7042;phone-context=example.com", phoneNumbers.get(1).getValue());
+    assertEquals("[{\"value\":\"tel:+1-201-555-0123\",\"primary\":true},"
+        + "{\"value\":\"tel:7042;phone-context=example.com\",\"type\":\"other\"}]", PhoneNumberJson.toJson(phoneNumbers));
+    assertEquals(List.of(), PhoneNumberJson.readArray(new StringReader("null")));
+    assertEquals(List.of(), PhoneNumberJson.readArray(new StringReader(" [ ] ")));
+  }
+
+  @Test
+  public void rejectsMalformedJsonAndInvalidValues() {
+    PhoneNumberParseException e = assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJson("{\"value\" \"tel:+1-201-555-0123\"}"));
+    assertTrue(e.getCause() instanceof IOException);
+    assertTrue(e.getCause().getMessage().contains("offset 9"), e.getCause().getMessage());
+
+    assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJson("{\"value\":\"tel:+1-201-555-0123\""));
+    assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJson("{\"value\":\"tel:201 555 0123\"}"));
+    assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJson("{\"display\":\"no value\"}"));
+    assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJson("{\"value\":\"tel:+1-201-555-0123\",\"primary\":\"yes\"}"));
+    assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJsonArray("[{\"value\":\"tel:+1-201-555-0123\"} {}]"));
+    for (String truncated : new String[] { "[", "[{", "[{\"other\":1" }) {
+      e = assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJsonArray(truncated));
+      assertTrue(e.getCause().getMessage().contains("unexpected end of input"), truncated + ": " + e.getCause().getMessage());
+    }
+    e = assertThrows(PhoneNumberParseException.class, () -> PhoneNumberJson.fromJson("{"));
+    assertTrue(e.getCause().getMessage().contains("unexpected end of input"), e.getCause().getMessage());
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberNormalizationProcessorTest {
+
+  @Test
+  public void emitsResultsInOrderWithoutTerminatingOnBadValues() throws InterruptedException {
+    PhoneNumberNormalizationProcessor processor = new PhoneNumberNormalizationProcessor();
+    CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+    processor.subscribe(subscriber);
+
+    try (SubmissionPublisher<String> publisher = new SubmissionPublisher<>()) {
+      publisher.subscribe(processor);
+      for (int i = 0; i < 1000; i++) {
+        publisher.submit(i % 10 == 0 ? "tel:201 555 0123" : "tel:+1-201-555-" + (1000 + i));
+      }
+    }
+
+    assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+    assertNull(subscriber.error);
+    assertEquals(1000, subscriber.results.size());
+    for (int i = 0; i < 1000; i++) {
+      ParseResult result = subscriber.results.get(i);
+      assertEquals(i, result.getSequence());
+      if (i % 10 == 0) {
+        assertFalse(result.isSuccess());
+        assertEquals(7, result.getErrorOffset());
+      } else {
+        assertEquals("+1-201-555-" + (1000 + i), result.getPhoneNumber().getNumber());
+      }
+    }
+  }
+
+  @Test
+  public void requestsFromUpstreamOnlyOnDemand() {
+    PhoneNumberNormalizationProcessor processor = new PhoneNumberNormalizationProcessor(Runnable::run, 8);
+    CollectingSubscriber subscriber = new CollectingSubscriber(0);
+    processor.subscribe(subscriber);
+
+    List<Long> upstreamRequests = new ArrayList<>();
+    processor.onSubscribe(new Flow.Subscription() {
+      @Override
+      public void request(long n) {
+        upstreamRequests.add(n);
+      }
+
+      @Override
+      public void cancel() {
+      }
+    });
+    assertTrue(upstreamRequests.isEmpty());
+
+    subscriber.subscription.request(3);
+    assertEquals(List.of(8L), upstreamRequests);
+
+    for (int i = 0; i < 5; i++) {
+      processor.onNext("tel:+44-20-1234-567" + i);
+    }
+    assertEquals(3, subscriber.results.size());
+    assertEquals(List.of(8L), upstreamRequests);
+
+    subscriber.subscription.request(2);
+    assertEquals(5, subscriber.results.size());
+
+    processor.onComplete();
+    assertEquals(0, subscriber.done.getCount());
+  }
+
+  @Test
+  public void failsOnceWhenTheSubscriberThrows() {
+    PhoneNumberNormalizationProcessor processor = new PhoneNumberNormalizationProcessor(Runnable::run, 8);
+    List<Throwable> errors = new ArrayList<>();
+    CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE) {
+      @Override
+      public void onNext(ParseResult item) {
+        super.onNext(item);
+        if (results.size() == 2) {
+          throw new IllegalStateException("subscriber failed");
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        errors.add(throwable);
+        super.onError(throwable);
+      }
+    };
+    processor.subscribe(subscriber);
+    UpstreamSubscription upstream = new UpstreamSubscription();
+    processor.onSubscribe(upstream);
+
+    for (int i = 0; i < 5; i++) {
+      processor.onNext("tel:+44-20-1234-567" + i);
+    }
+    processor.onComplete();
+
+    assertEquals(2, subscriber.results.size());
+    assertEquals(1, errors.size());
+    assertEquals("subscriber failed", errors.get(0).getMessage());
+    assertTrue(upstream.cancelled);
+  }
+
+  @Test
+  public void signalsExecutorRejectionThroughTheDrain() {
+    PhoneNumberNormalizationProcessor processor = new PhoneNumberNormalizationProcessor(task -> {
+      throw new RejectedExecutionException("full");
+    }, 8);
+    List<Throwable> errors = new ArrayList<>();
+    CollectingSubscriber subscriber = new CollectingSubscriber(1) {
+      @Override
+      public void onError(Throwable throwable) {
+        errors.add(throwable);
+        super.onError(throwable);
+      }
+    };
+    processor.subscribe(subscriber);
+    UpstreamSubscription upstream = new UpstreamSubscription();
+    processor.onSubscribe(upstream);
+    processor.onNext("tel:+44-20-1234-5670");
+    subscriber.subscription.request(1);
+
+    assertEquals(1, errors.size());
+    assertInstanceOf(RejectedExecutionException.class, errors.get(0));
+    assertTrue(upstream.cancelled);
+    assertTrue(subscriber.results.isEmpty());
+  }
+
+  private static class UpstreamSubscription implements Flow.Subscription {
+
+    volatile boolean cancelled;
+
+    @Override
+    public void request(long n) {
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+  }
+
+  private static class CollectingSubscriber implements Flow.Subscriber<ParseResult> {
+
+    final List<ParseResult> results = new ArrayList<>();
+
+    final CountDownLatch done = new CountDownLatch(1);
+
+    final long initialRequest;
+
+    volatile Flow.Subscription subscription;
+
+    volatile Throwable error;
+
+    CollectingSubscriber(long initialRequest) {
+      this.initialRequest = initialRequest;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      if (initialRequest > 0) {
+        subscription.request(initialRequest);
+      }
+    }
+
+    @Override
+    public void onNext(ParseResult item) {
+      results.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      done.countDown();
+    }
+  }
+}
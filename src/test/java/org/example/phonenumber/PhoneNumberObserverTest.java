@@ -0,0 +1,156 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.phonenumber.PhoneNumberObserver.ErrorKind;
+import org.example.phonenumber.PhoneNumberObserver.Operation;
+import org.example.phonenumber.PhoneNumberObserver.ParsePath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberObserverTest {
+
+  @TempDir
+  Path dir;
+
+  @AfterEach
+  public void restoreDefaults() {
+    PhoneNumber.setObserver(null);
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.DEFAULT);
+  }
+
+  @Test
+  public void countsOutcomesByOperationPathAndKind() throws PhoneNumberParseException {
+    PhoneNumberMetrics metrics = new PhoneNumberMetrics();
+    PhoneNumber.setObserver(metrics);
+
+    new PhoneNumber().setValue("tel:+1-201-555-0123");
+    new PhoneNumber().setValue("tel:863-1234;phone-context=+1-914-555");
+    assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue("tel:201 555 0123"));
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.builder().maxLength(10).build());
+    assertThrows(PhoneNumberLimitExceededException.class, () -> new PhoneNumber().setValue("tel:+1-201-555-0123"));
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.DEFAULT);
+    new PhoneNumber.GlobalPhoneNumberBuilder().globalNumber("+1-201-555-0123").build();
+
+    assertEquals(2, metrics.getAccepted(Operation.SET_VALUE));
+    assertEquals(1, metrics.getRejected(Operation.SET_VALUE, ErrorKind.SYNTAX));
+    assertEquals(1, metrics.getRejected(Operation.SET_VALUE, ErrorKind.LIMIT));
+    assertEquals(0, metrics.getRejected(Operation.SET_VALUE, ErrorKind.INVALID));
+    assertEquals(1, metrics.getAccepted(Operation.BUILD));
+    assertEquals(0, metrics.getRejected(Operation.BUILD));
+    assertEquals(2, metrics.getAcceptedLatency(Operation.SET_VALUE).getCount());
+    assertEquals(2, metrics.getRejectedLatency(Operation.SET_VALUE).getCount());
+    assertTrue(metrics.getAcceptedLatency(Operation.SET_VALUE).getValueAtPercentile(50) > 0);
+
+    metrics.reset();
+    assertEquals(0, metrics.getAccepted(Operation.SET_VALUE));
+    assertEquals(0, metrics.getAcceptedLatency(Operation.SET_VALUE).getCount());
+  }
+
+  @ParameterizedTest
+  @MethodSource("org.example.phonenumber.PhoneNumberTest#getAllValidPhones")
+  public void acceptsValidValuesOnTheFastPath(String value) throws PhoneNumberParseException {
+    List<String> outcomes = new ArrayList<>();
+    PhoneNumber.setObserver(recorder(outcomes));
+
+    new PhoneNumber().setValue(value);
+
+    assertEquals(List.of("accepted SET_VALUE SLL"), outcomes);
+  }
+
+  @Test
+  public void reportsTheRuleThatFailed() {
+    List<String> outcomes = new ArrayList<>();
+    PhoneNumber.setObserver(PhoneNumberObserver.all(recorder(outcomes), recorder(outcomes)));
+
+    assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue("tel:+1-201-555-0123;ext=12;isub=ab"));
+
+    assertEquals(2, outcomes.size());
+    assertTrue(outcomes.get(0).matches("rejected SET_VALUE SYNTAX [a-zA-Z]+"), outcomes.get(0));
+    assertEquals(outcomes.get(0), outcomes.get(1));
+  }
+
+  @Test
+  public void recordsSlowParsesAsFlightRecorderEvents() throws Exception {
+    PhoneNumber.setObserver(new PhoneNumberFlightRecorder(Duration.ZERO));
+    Path file = dir.resolve("parse.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("org.example.phonenumber.SlowParse");
+      recording.start();
+      new PhoneNumber().setValue("tel:+1-201-555-0123");
+      assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue("tel:201 555 0123"));
+      recording.stop();
+      recording.dump(file);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+    assertEquals(2, events.size());
+    RecordedEvent accepted = events.get(0);
+    assertTrue(accepted.getBoolean("accepted"));
+    assertEquals("SET_VALUE", accepted.getString("operation"));
+    assertEquals(19, accepted.getInt("inputLength"));
+    assertTrue(accepted.getLong("parseTime") > 0);
+    assertNull(accepted.getString("failedRule"));
+    RecordedEvent rejected = events.get(1);
+    assertFalse(rejected.getBoolean("accepted"));
+    assertEquals("SYNTAX", rejected.getString("errorKind"));
+    assertTrue(rejected.getString("failedRule").length() > 0);
+  }
+
+  @Test
+  public void skipsFastParses() throws PhoneNumberParseException {
+    PhoneNumberFlightRecorder recorder = new PhoneNumberFlightRecorder(Duration.ofHours(1));
+    PhoneNumber.setObserver(recorder);
+    new PhoneNumber().setValue("tel:+1-201-555-0123");
+    assertThrows(IllegalArgumentException.class, () -> new PhoneNumberFlightRecorder(Duration.ofSeconds(-1)));
+  }
+
+  private static PhoneNumberObserver recorder(List<String> outcomes) {
+    return new PhoneNumberObserver() {
+      @Override
+      public void accepted(Operation operation, ParsePath path, int length, long nanos) {
+        outcomes.add("accepted " + operation + " " + path);
+      }
+
+      @Override
+      public void rejected(Operation operation, ErrorKind kind, String failedRule, int length, long nanos) {
+        outcomes.add("rejected " + operation + " " + kind + " " + failedRule);
+      }
+    };
+  }
+}
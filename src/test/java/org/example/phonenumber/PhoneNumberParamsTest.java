@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberParamsTest {
+
+  @Test
+  public void lookupIgnoresCaseAndKeepsInsertionOrder() {
+    PhoneNumberParams params = new PhoneNumberParams();
+    params.put("Zeta", "1");
+    params.put("alpha", "2");
+    params.put("ZETA", "3");
+
+    assertEquals(2, params.size());
+    assertEquals("3", params.get("zeta"));
+    assertEquals("ZETA", params.name(0));
+    assertEquals("alpha", params.name(1));
+    assertNull(params.get("beta"));
+
+    assertTrue(params.remove("Alpha"));
+    assertFalse(params.remove("alpha"));
+    assertEquals(1, params.size());
+  }
+
+  @Test
+  public void mapViewIsReadOnly() {
+    PhoneNumberParams params = new PhoneNumberParams();
+    params.put("par2", "ghnkl23");
+
+    Map<String, String> view = params.asMap();
+    assertEquals("ghnkl23", view.get("PAR2"));
+    assertThrows(UnsupportedOperationException.class, () -> view.put("x", "y"));
+
+    Map<String, String> expected = new HashMap<>();
+    expected.put("par2", "ghnkl23");
+    assertEquals(expected, view);
+    assertEquals(view, expected);
+    assertEquals(expected.hashCode(), view.hashCode());
+
+    Map<String, String> otherCase = new HashMap<>();
+    otherCase.put("PAR2", "ghnkl23");
+    assertTrue(view.containsKey("Par2"));
+    assertEquals(view, otherCase);
+    assertEquals(view.hashCode(), new PhoneNumberParams(otherCase).asMap().hashCode());
+    otherCase.put("par2", "ghnkl23");
+    assertNotEquals(view, otherCase);
+  }
+
+  @Test
+  public void hashCodeMatchesLowerCasedHashMap() {
+    PhoneNumberParams params = new PhoneNumberParams();
+    params.put("Par2", "GHNKL23");
+    params.put("foo", "Bar");
+
+    Map<String, String> lowerCased = new HashMap<>();
+    lowerCased.put("par2", "ghnkl23");
+    lowerCased.put("foo", "bar");
+
+    assertEquals(lowerCased.hashCode(), params.hashCodeIgnoreCase());
+
+    // equalsIgnoreCase finds dotless i and I equal, lower casing alone does not
+    PhoneNumberParams dotless = new PhoneNumberParams();
+    dotless.put("x", "\u0131d");
+    PhoneNumberParams upper = new PhoneNumberParams();
+    upper.put("x", "ID");
+    assertTrue(dotless.equalsIgnoreCaseAndOrder(upper));
+    assertEquals(dotless.hashCodeIgnoreCase(), upper.hashCodeIgnoreCase());
+  }
+
+  @Test
+  public void paramsWithoutValue() throws PhoneNumberParseException {
+    PhoneNumberParams params = new PhoneNumberParams();
+    params.put("foo", null);
+    params.put("bar", "");
+    assertNull(params.get("foo"));
+    assertNull(params.value(1));
+    assertEquals(2, params.size());
+
+    PhoneNumber phoneNumber = new PhoneNumber.GlobalPhoneNumberBuilder()
+        .globalNumber("+1-201-555-0123")
+        .param("foo", null)
+        .param("bar", "")
+        .param("baz", "1")
+        .build(false);
+    assertEquals("tel:+1-201-555-0123;foo;bar;baz=1", phoneNumber.getValue());
+    assertEquals("tel:+12015550123;bar;baz=1;foo", phoneNumber.getCanonicalKey());
+    assertThrows(IllegalArgumentException.class, () -> new PhoneNumber.GlobalPhoneNumberBuilder()
+        .globalNumber("+1-201-555-0123")
+        .param("", "1")
+        .build(false));
+  }
+
+  @Test
+  public void phoneNumbersWithParamsInDifferentCaseAndOrderAreEqual() throws PhoneNumberParseException {
+    PhoneNumber first = new PhoneNumber();
+    first.setValue("tel:+44.20.1234.5678;par1=abc;par2=ghnkl23");
+    PhoneNumber second = new PhoneNumber();
+    second.setValue("tel:+44.20.1234.5678;PAR2=GHNKL23;Par1=ABC");
+    PhoneNumber third = new PhoneNumber();
+    third.setValue("tel:+44.20.1234.5678;par2=ghnkl23");
+
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    assertNotEquals(first, third);
+  }
+}
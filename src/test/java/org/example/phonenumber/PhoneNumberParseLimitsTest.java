@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.example.phonenumber.PhoneNumberParseLimits.Limit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PhoneNumberParseLimitsTest {
+
+  @AfterEach
+  public void restoreDefaults() {
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.DEFAULT);
+  }
+
+  @Test
+  public void rejectsLongValuesBeforeParsing() {
+    String value = "tel:+1" + "-1".repeat(1000);
+    long trips = PhoneNumberParseLimits.getTripCount(Limit.LENGTH);
+
+    PhoneNumberLimitExceededException e = assertThrows(PhoneNumberLimitExceededException.class, () -> new PhoneNumber().setValue(value));
+    assertEquals(Limit.LENGTH, e.getLimit());
+    assertEquals(1024, e.getErrorOffset());
+    assertThrows(PhoneNumberLimitExceededException.class,
+        () -> new PhoneNumber().setValue(ByteBuffer.wrap(value.getBytes(StandardCharsets.US_ASCII))));
+    assertEquals(trips + 2, PhoneNumberParseLimits.getTripCount(Limit.LENGTH));
+  }
+
+  @Test
+  public void stopsAtTooManyParams() throws PhoneNumberParseException {
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.builder().maxParams(3).build());
+    new PhoneNumber().setValue("tel:+1-201-555-0123;a=1;b=2;c=3");
+
+    PhoneNumberLimitExceededException e = assertThrows(PhoneNumberLimitExceededException.class,
+        () -> new PhoneNumber().setValue("tel:+1-201-555-0123;a=1;b=2;c=3;d=4;e=5"));
+    assertEquals(Limit.PARAMS, e.getLimit());
+    assertEquals(32, e.getErrorOffset());
+  }
+
+  @Test
+  public void stopsAtTooManyTokens() throws PhoneNumberParseException {
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.builder().maxTokens(20).build());
+    new PhoneNumber().setValue("tel:+1-201-555-0123;ext=1");
+
+    PhoneNumberLimitExceededException e = assertThrows(PhoneNumberLimitExceededException.class,
+        () -> new PhoneNumber().setValue("tel:1-201-555-0123-4567-8901;phone-context=+1"));
+    assertEquals(Limit.TOKENS, e.getLimit());
+
+    // the aborted parse mustn't leave anything behind for the next one
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.DEFAULT);
+    assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue(""));
+    new PhoneNumber().setValue("tel:1-201-555-0123-4567-8901;phone-context=+1");
+  }
+
+  @Test
+  public void stopsWhenOutOfTime() {
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.builder().maxParseTime(Duration.ofNanos(1)).build());
+    long trips = PhoneNumberParseLimits.getTripCount(Limit.TIME);
+
+    PhoneNumberLimitExceededException e = assertThrows(PhoneNumberLimitExceededException.class,
+        () -> new PhoneNumber().setValue("tel:+1-201-555-0123"));
+    assertEquals(Limit.TIME, e.getLimit());
+    assertEquals(trips + 1, PhoneNumberParseLimits.getTripCount(Limit.TIME));
+  }
+
+  @Test
+  public void leavesLexingOfSingleComponentsUnlimited() throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue("tel:+1-201-555-0123;a=1");
+    PhoneNumber.setParseLimits(PhoneNumberParseLimits.builder().maxParams(0).maxTokens(1).build());
+
+    assertEquals("tel:+1-201-555-0123;a=1;b=2", phoneNumber.withParam("b", "2").getValue());
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberParsingServiceTest {
+
+  @Test
+  public void parsesOnDefaultExecutor() throws Exception {
+    try (PhoneNumberParsingService service = PhoneNumberParsingService.builder().build()) {
+      PhoneNumber phoneNumber = service.parse("tel:+1-201-555-0123;ext=1234").get(10, TimeUnit.SECONDS);
+
+      assertEquals("+1-201-555-0123", phoneNumber.getNumber());
+      assertEquals("1234", phoneNumber.getExtension());
+
+      ExecutionException e = assertThrows(ExecutionException.class, () -> service.parse("tel:201 555 0123").get(10, TimeUnit.SECONDS));
+      assertInstanceOf(PhoneNumberParseException.class, e.getCause());
+    }
+  }
+
+  @Test
+  public void rejectsWhenTooManyParsesArePending() {
+    ManualExecutor executor = new ManualExecutor();
+    try (PhoneNumberParsingService service = PhoneNumberParsingService.builder().executor(executor).maxPending(1).build()) {
+      CompletableFuture<PhoneNumber> first = service.parse("tel:+44-20-1234-5678");
+      CompletableFuture<PhoneNumber> second = service.parse("tel:+1-201-555-0123");
+
+      ExecutionException e = assertThrows(ExecutionException.class, second::get);
+      assertInstanceOf(RejectedExecutionException.class, e.getCause());
+      assertEquals(1, service.getPendingCount());
+
+      executor.runAll();
+      assertTrue(first.isDone());
+      assertEquals(0, service.getPendingCount());
+    }
+  }
+
+  @Test
+  public void callerRunsWhenTooManyParsesArePending() throws Exception {
+    ManualExecutor executor = new ManualExecutor();
+    try (PhoneNumberParsingService service = PhoneNumberParsingService.builder()
+        .executor(executor)
+        .maxPending(1)
+        .rejectionPolicy(PhoneNumberParsingService.RejectionPolicy.CALLER_RUNS)
+        .build()) {
+      CompletableFuture<PhoneNumber> first = service.parse("tel:+44-20-1234-5678");
+      CompletableFuture<PhoneNumber> second = service.parse("tel:+1-201-555-0123");
+
+      assertFalse(first.isDone());
+      assertEquals("+1-201-555-0123", second.get().getNumber());
+    }
+  }
+
+  @Test
+  public void coalescesIdenticalValuesInFlight() throws Exception {
+    ManualExecutor executor = new ManualExecutor();
+    try (PhoneNumberParsingService service = PhoneNumberParsingService.builder().executor(executor).build()) {
+      CompletableFuture<PhoneNumber> first = service.parse("tel:+44-20-1234-5678");
+      CompletableFuture<PhoneNumber> second = service.parse("tel:+44-20-1234-5678");
+      assertEquals(1, executor.tasks.size());
+
+      executor.runAll();
+      assertEquals(first.get(), second.get());
+      assertNotSame(first.get(), second.get());
+
+      service.parse("tel:+44-20-1234-5678");
+      assertEquals(1, executor.tasks.size());
+    }
+  }
+
+  @Test
+  public void coalescedCallersCannotCompleteEachOthersFutures() throws Exception {
+    ManualExecutor executor = new ManualExecutor();
+    try (PhoneNumberParsingService service = PhoneNumberParsingService.builder().executor(executor).build()) {
+      CompletableFuture<PhoneNumber> first = service.parse("tel:+44-20-1234-5678");
+      CompletableFuture<PhoneNumber> second = service.parse("tel:+44-20-1234-5678");
+      CompletableFuture<PhoneNumber> third = service.parse("tel:+44-20-1234-5678");
+      PhoneNumber substitute = new PhoneNumber();
+      first.complete(substitute);
+      third.cancel(false);
+
+      executor.runAll();
+      assertSame(substitute, first.get());
+      assertEquals("tel:+44-20-1234-5678", second.get().getValue());
+    }
+  }
+
+  @Test
+  public void failsWithTheParseExceptionWhetherCoalescingOrNot() throws Exception {
+    for (boolean coalesce : new boolean[] { true, false }) {
+      ManualExecutor executor = new ManualExecutor();
+      try (PhoneNumberParsingService service = PhoneNumberParsingService.builder().executor(executor).coalesceIdenticalValues(coalesce).build()) {
+        CompletableFuture<Throwable> handled = service.parse("tel:junk").handle((phoneNumber, e) -> e);
+        CompletableFuture<Throwable> recovered = new CompletableFuture<>();
+        service.parse("tel:junk").exceptionally(e -> {
+          recovered.complete(e);
+          return null;
+        });
+
+        executor.runAll();
+        assertInstanceOf(PhoneNumberParseException.class, handled.get(), "coalesce " + coalesce);
+        assertInstanceOf(PhoneNumberParseException.class, recovered.get(), "coalesce " + coalesce);
+      }
+    }
+  }
+
+  @Test
+  public void completesCoalescedCallersWhenTheParseThrowsAnError() throws Exception {
+    ManualExecutor executor = new ManualExecutor();
+    PhoneNumber.setObserver(new PhoneNumberObserver() {
+      @Override
+      public void accepted(PhoneNumberObserver.Operation operation, PhoneNumberObserver.ParsePath path, int length, long nanos) {
+        throw new LinkageError("runtime does not match the generated parser");
+      }
+
+      @Override
+      public void rejected(PhoneNumberObserver.Operation operation, PhoneNumberObserver.ErrorKind kind, String failedRule, int length, long nanos) {
+      }
+    });
+    try (PhoneNumberParsingService service = PhoneNumberParsingService.builder().executor(executor).build()) {
+      CompletableFuture<PhoneNumber> first = service.parse("tel:+44-20-1234-5678");
+      CompletableFuture<PhoneNumber> second = service.parse("tel:+44-20-1234-5678");
+
+      assertThrows(LinkageError.class, executor::runAll);
+      assertInstanceOf(LinkageError.class, first.handle((phoneNumber, e) -> e).get(10, TimeUnit.SECONDS));
+      assertInstanceOf(LinkageError.class, second.handle((phoneNumber, e) -> e).get(10, TimeUnit.SECONDS));
+
+      PhoneNumber.setObserver(null);
+      service.parse("tel:+44-20-1234-5678");
+      assertEquals(1, executor.tasks.size());
+    } finally {
+      PhoneNumber.setObserver(null);
+    }
+  }
+
+  private static class ManualExecutor implements Executor {
+
+    final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    @Override
+    public void execute(Runnable command) {
+      tasks.add(command);
+    }
+
+    void runAll() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * Compares {@link PhoneNumberPrefilter} on UTF-8 bytes and on strings with
+ * parsing every value, on a batch where a third of the values are invalid by
+ * their characters. Prints nanoseconds per value and the rejected share.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of values as argument.
+ */
+public class PhoneNumberPrefilterBenchmark {
+
+  private static final int ROUNDS = 20;
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.values", 100_000));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 100_000);
+  }
+
+  static void run(int count) throws Exception {
+    List<String> values = new ArrayList<>();
+    List<String> valid = PhoneNumberThreadScalingBenchmark.corpus(new Random(56));
+    Random random = new Random(57);
+    for (int i = 0; i < count; i++) {
+      String value = valid.get(random.nextInt(valid.size()));
+      switch (random.nextInt(9)) {
+        case 0:
+          value = value.replace('-', ' ');
+          break;
+        case 1:
+          value = value.replace('5', 'S');
+          break;
+        case 2:
+          value = value.substring(4);
+          break;
+        default:
+          break;
+      }
+      values.add(value);
+    }
+    byte[] utf8;
+    int[] offsets = new int[count];
+    int[] lengths = new int[count];
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      offsets[i] = sb.length();
+      lengths[i] = values.get(i).length();
+      sb.append(values.get(i));
+    }
+    utf8 = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+    System.out.printf(Locale.ROOT, "%,d values, %.1f bytes on average%n", count, (double) utf8.length / count);
+    measure("prefilter, bytes", count, () -> rejected(PhoneNumberPrefilter.classify(utf8, offsets, lengths)));
+    measure("prefilter, strings", count, () -> rejected(PhoneNumberPrefilter.classify(values)));
+    measure("setValue", count, () -> {
+      int rejected = 0;
+      PhoneNumber phoneNumber = new PhoneNumber();
+      for (String value : values) {
+        try {
+          phoneNumber.setValue(value);
+        } catch (PhoneNumberParseException e) {
+          rejected++;
+        }
+      }
+      return rejected;
+    });
+  }
+
+  private static void measure(String name, int count, IntSupplier batch) {
+    for (int i = 0; i < ROUNDS; i++) {
+      batch.getAsInt();
+    }
+    int rejected = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      rejected = batch.getAsInt();
+    }
+    double nanos = (double) (System.nanoTime() - start) / ROUNDS / count;
+    System.out.printf(Locale.ROOT, "%-20s %9.1f ns/value %6.1f%% rejected%n", name, nanos, 100.0 * rejected / count);
+  }
+
+  private static int rejected(PhoneNumberPrefilter.Verdict[] verdicts) {
+    int rejected = 0;
+    for (PhoneNumberPrefilter.Verdict verdict : verdicts) {
+      if (verdict != PhoneNumberPrefilter.Verdict.CANDIDATE) {
+        rejected++;
+      }
+    }
+    return rejected;
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberPrefilterTest {
+
+  @ParameterizedTest
+  @MethodSource("org.example.phonenumber.PhoneNumberTest#getAllValidPhones")
+  public void keepsValidValues(String value) {
+    assertEquals(PhoneNumberPrefilter.Verdict.CANDIDATE, PhoneNumberPrefilter.classify(value));
+    assertEquals(PhoneNumberPrefilter.Verdict.CANDIDATE, classifyBytes(value));
+  }
+
+  @Test
+  public void rejectsByCharacterClass() {
+    assertVerdict(PhoneNumberPrefilter.Verdict.NO_PREFIX, "+1-201-555-0123");
+    assertVerdict(PhoneNumberPrefilter.Verdict.NO_PREFIX, "TEL:+1-201-555-0123");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_CHARACTER, "tel:+1 201 555 0123");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_CHARACTER, "tel:+1-201-555-0123;ext=12;foo=\"bar\"");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_CHARACTER, "tel:+1-201-555-0123;foo=bär");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_NUMBER, "tel:+1-201-555-O123");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_NUMBER, "tel:+1-20I-555-0123;ext=1");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_NUMBER, "tel:+44-20-7946-0000-ABCD");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_NUMBER, "tel:+;ext=1");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_NUMBER, "tel:--;phone-context=example.com");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_PERCENT_ENCODING, "tel:+1-201-555-0123;foo=%4g");
+    assertVerdict(PhoneNumberPrefilter.Verdict.INVALID_PERCENT_ENCODING, "tel:+1-201-555-0123;isub=%4");
+    assertVerdict(PhoneNumberPrefilter.Verdict.CANDIDATE, "tel:ABC*#-1;phone-context=example.com");
+    assertVerdict(PhoneNumberPrefilter.Verdict.CANDIDATE, "tel:+1-201-555-0123;foo=%4A");
+
+    assertArrayEquals(new PhoneNumberPrefilter.Verdict[] {PhoneNumberPrefilter.Verdict.CANDIDATE, PhoneNumberPrefilter.Verdict.NO_PREFIX},
+        PhoneNumberPrefilter.classify(List.of("tel:+1-201-555-0123", "mailto:x")));
+  }
+
+  /*
+   * Random values near valid ones: both paths agree, and whatever they
+   * reject the grammar cannot parse whole.
+   */
+  @Test
+  public void agreesWithTheParser() {
+    Random random = new Random(55);
+    String alphabet = "0123456789+-.()*#;=%ABCFGabcxz_!~'[]$&/:?@, \"<>\\^`{|}é\t";
+    String[] seeds = {"tel:+1-201-555-0123", "tel:863-1234;phone-context=+1-914-555", "tel:+1-201-555-0123;ext=1234",
+        "tel:7042;phone-context=example.com", "tel:+1-201-555-0123;isub=%41b;foo=%4Abar", "tel:+44(20)7946.0000;a=b;c"};
+    PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+    int candidates = 0;
+    for (int i = 0; i < 100_000; i++) {
+      StringBuilder sb = new StringBuilder(seeds[random.nextInt(seeds.length)]);
+      for (int edits = random.nextInt(3); edits > 0; edits--) {
+        int at = 4 + random.nextInt(sb.length() - 3);
+        char c = alphabet.charAt(random.nextInt(alphabet.length()));
+        if (random.nextBoolean() && at < sb.length()) {
+          sb.setCharAt(at, c);
+        } else {
+          sb.insert(at, c);
+        }
+      }
+      String value = sb.toString();
+      PhoneNumberPrefilter.Verdict verdict = PhoneNumberPrefilter.classify(value);
+      assertEquals(verdict, classifyBytes(value), value);
+      if (verdict == PhoneNumberPrefilter.Verdict.CANDIDATE) {
+        candidates++;
+        continue;
+      }
+      try {
+        recognizer.parse(value);
+        assertTrue(recognizer.parsedLength() < value.length(), value + " was rejected as " + verdict);
+      } catch (PhoneNumberParseException e) {
+        // rejected by both
+      }
+    }
+    assertTrue(candidates > 10_000 && candidates < 90_000, String.valueOf(candidates));
+  }
+
+  private static void assertVerdict(PhoneNumberPrefilter.Verdict expected, String value) {
+    assertEquals(expected, PhoneNumberPrefilter.classify(value), value);
+    assertEquals(expected, classifyBytes(value), value);
+  }
+
+  /*
+   * In the middle of a larger buffer, so that reading past either end of the
+   * value would change the verdict.
+   */
+  private static PhoneNumberPrefilter.Verdict classifyBytes(String value) {
+    byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+    byte[] buffer = new byte[utf8.length + 16];
+    Arrays.fill(buffer, (byte) ';');
+    System.arraycopy(utf8, 0, buffer, 3, utf8.length);
+    return PhoneNumberPrefilter.classify(buffer, 3, utf8.length);
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Compares longest prefix lookups of {@link PhoneNumberPrefixTrie} with the
+ * usual {@code TreeMap<String, V>} approach of stripping the number to its
+ * digits and trying ever shorter prefixes, printing nanoseconds and bytes
+ * allocated per lookup.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of prefixes as argument.
+ */
+public class PhoneNumberPrefixTrieBenchmark {
+
+  private static final int LOOKUPS = 100_000;
+
+  private static final int ROUNDS = 20;
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.prefixes", 50_000));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 50_000);
+  }
+
+  static void run(int prefixCount) throws Exception {
+    Random random = new Random(42);
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    TreeMap<String, String> map = new TreeMap<>();
+    TreeMap<String, String> batch = new TreeMap<>();
+    for (int i = 0; i < prefixCount; i++) {
+      // country code, then area code and exchange of varying depth
+      String prefix = countryCode(random) + digits(random, random.nextInt(7));
+      batch.put(prefix, prefix);
+    }
+    trie.putAll(batch);
+    map.putAll(batch);
+
+    PhoneNumber[] numbers = new PhoneNumber[LOOKUPS];
+    for (int i = 0; i < numbers.length; i++) {
+      String cc = countryCode(random);
+      String value = random.nextInt(4) == 0
+          ? "tel:" + digits(random, 7) + ";phone-context=+" + cc + "-" + digits(random, 3)
+          : "tel:+" + cc + "-" + digits(random, 3) + "-" + digits(random, 3) + "-" + digits(random, 4);
+      numbers[i] = new PhoneNumber();
+      numbers[i].setValue(value);
+      numbers[i].getE164();
+    }
+
+    System.out.printf(Locale.ROOT, "%,d prefixes, %,d lookups per round%n", trie.size(), LOOKUPS);
+    measure("PhoneNumberPrefixTrie", numbers, trie::longestPrefixMatch);
+    measure("TreeMap", numbers, phoneNumber -> longestPrefixMatch(map, phoneNumber.getE164()));
+  }
+
+  private static void measure(String name, PhoneNumber[] numbers, Function<PhoneNumber, String> lookup) throws Exception {
+    int[] matched = new int[1];
+    AllocationMeter.Operation round = r -> {
+      for (PhoneNumber phoneNumber : numbers) {
+        if (lookup.apply(phoneNumber) != null) {
+          matched[0]++;
+        }
+      }
+    };
+    for (int i = 0; i < ROUNDS; i++) {
+      round.run(i);
+    }
+    matched[0] = 0;
+    long start = System.nanoTime();
+    long bytes = AllocationMeter.isSupported() ? AllocationMeter.bytesPerOperation(0, ROUNDS, round) : -1;
+    long elapsed = System.nanoTime() - start;
+    long lookups = (long) ROUNDS * numbers.length;
+    System.out.printf(Locale.ROOT, "%-22s %8.1f ns/lookup %8.1f bytes/lookup %6.2f%% matched%n",
+        name, (double) elapsed / lookups, (double) bytes / numbers.length, 100.0 * matched[0] / lookups);
+  }
+
+  /**
+   * The baseline: strips {@code number} to its digits and looks up ever
+   * shorter prefixes.
+   */
+  static <V> V longestPrefixMatch(TreeMap<String, V> map, String number) {
+    if (number == null) {
+      return null;
+    }
+    StringBuilder sb = new StringBuilder(number.length());
+    for (int i = 0; i < number.length(); i++) {
+      char c = number.charAt(i);
+      if (c >= '0' && c <= '9') {
+        sb.append(c);
+      }
+    }
+    String digits = sb.toString();
+    for (int length = digits.length(); length > 0; length--) {
+      V value = map.get(digits.substring(0, length));
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  private static String countryCode(Random random) {
+    switch (random.nextInt(3)) {
+      case 0:
+        return "1";
+      case 1:
+        return String.valueOf(20 + random.nextInt(80));
+      default:
+        return String.valueOf(200 + random.nextInt(800));
+    }
+  }
+
+  private static String digits(Random random, int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('0' + random.nextInt(10)));
+    }
+    return sb.toString();
+  }
+}
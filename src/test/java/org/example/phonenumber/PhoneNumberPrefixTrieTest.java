@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberPrefixTrieTest {
+
+  @Test
+  public void matchesTheLongestPrefix() throws PhoneNumberParseException {
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    trie.put("+1", "nanp");
+    trie.put("+1-201", "new-jersey");
+    trie.put("+1-201-555", "exchange");
+    trie.put("+44", "uk");
+
+    assertEquals("exchange", trie.longestPrefixMatch(parse("tel:+1-201-555-0123")));
+    assertEquals("new-jersey", trie.longestPrefixMatch(parse("tel:+1-201-556-0123")));
+    assertEquals("nanp", trie.longestPrefixMatch(parse("tel:+1-914-555-0123;ext=201")));
+    assertEquals("uk", trie.longestPrefixMatch("+44 20 7946 0000"));
+    assertNull(trie.longestPrefixMatch(parse("tel:+33-1-23-45-67-89")));
+    assertEquals(4, trie.size());
+  }
+
+  @Test
+  public void matchesLocalNumbersOnTheirPhoneContext() throws PhoneNumberParseException {
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    trie.put("1914555", "context");
+    trie.put("19145558", "exchange");
+
+    assertEquals("exchange", trie.longestPrefixMatch(parse("tel:863-1234;phone-context=+1-914-555")));
+    assertEquals("context", trie.longestPrefixMatch(parse("tel:763-1234;phone-context=+1-914-555")));
+    assertEquals("context", trie.longestPrefixMatch(parse("tel:1234;phone-context=+1-914-555")));
+    assertNull(trie.longestPrefixMatch(parse("tel:863-1234;phone-context=+1-914-556")));
+    assertNull(trie.longestPrefixMatch(parse("tel:863-1234;phone-context=example.com")));
+  }
+
+  @Test
+  public void addsPhoneNumbersByTheirGlobalForm() throws PhoneNumberParseException {
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    trie.put(parse("tel:863-1234;phone-context=+1-914-555"), "desk");
+
+    assertEquals("desk", trie.get("+1-914-555-863-1234"));
+    assertEquals("desk", trie.longestPrefixMatch(parse("tel:+1-914-555-863-1234;ext=5")));
+    assertThrows(IllegalArgumentException.class, () -> trie.put(parse("tel:863-1234;phone-context=example.com"), "desk"));
+  }
+
+  @Test
+  public void rejectsInvalidPrefixes() {
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    assertThrows(IllegalArgumentException.class, () -> trie.put("", "empty"));
+    assertThrows(IllegalArgumentException.class, () -> trie.put("+", "plus"));
+    assertThrows(IllegalArgumentException.class, () -> trie.put("1-2x", "letter"));
+    assertThrows(IllegalArgumentException.class, () -> trie.put("1+2", "plus"));
+    assertThrows(IllegalArgumentException.class, () -> trie.put("12", null));
+    assertEquals(0, trie.size());
+  }
+
+  @Test
+  public void removesOnlyTheGivenPrefix() {
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    Map<String, String> prefixes = new HashMap<>();
+    prefixes.put("1", "short");
+    prefixes.put("1201", "long");
+    trie.putAll(prefixes);
+
+    assertFalse(trie.remove("12"));
+    assertTrue(trie.remove("1"));
+    assertNull(trie.longestPrefixMatch("12025550123"));
+    assertEquals("long", trie.longestPrefixMatch("12015550123"));
+    assertEquals(1, trie.size());
+  }
+
+  @Test
+  public void agreesWithATreeMap() {
+    Random random = new Random(37);
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    TreeMap<String, String> map = new TreeMap<>();
+    for (int i = 0; i < 2_000; i++) {
+      String prefix = digits(random, 1 + random.nextInt(6));
+      trie.put(prefix, prefix);
+      map.put(prefix, prefix);
+      if (random.nextInt(10) == 0) {
+        String removed = map.firstKey();
+        assertTrue(trie.remove(removed));
+        map.remove(removed);
+      }
+    }
+
+    assertEquals(map.size(), trie.size());
+    for (int i = 0; i < 10_000; i++) {
+      String number = digits(random, 4 + random.nextInt(8));
+      assertEquals(PhoneNumberPrefixTrieBenchmark.longestPrefixMatch(map, number), trie.longestPrefixMatch(number), number);
+    }
+  }
+
+  @Test
+  public void readersAlwaysSeeACompleteSnapshot() throws InterruptedException {
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    trie.put("1", "nanp");
+    AtomicBoolean done = new AtomicBoolean();
+    AtomicReference<String> failure = new AtomicReference<>();
+    Thread reader = new Thread(() -> {
+      while (!done.get()) {
+        String match = trie.longestPrefixMatch("12015550123");
+        if (match == null) {
+          failure.set("lost the prefix 1");
+        }
+      }
+    });
+    reader.start();
+    try {
+      Random random = new Random(1);
+      for (int i = 0; i < 5_000; i++) {
+        String prefix = "2" + digits(random, 1 + random.nextInt(5));
+        trie.put(prefix, prefix);
+        trie.remove(prefix);
+      }
+    } finally {
+      done.set(true);
+      reader.join();
+    }
+    assertNull(failure.get());
+  }
+
+  @Test
+  public void lookupsDoNotAllocate() throws Exception {
+    Assumptions.assumeTrue(AllocationMeter.isSupported(), "thread allocation counters not available");
+    PhoneNumberPrefixTrie<String> trie = new PhoneNumberPrefixTrie<>();
+    trie.put("+1-914", "area");
+    trie.put("+1-914-555-8", "exchange");
+    PhoneNumber local = parse("tel:863-1234;phone-context=+1-914-555");
+    PhoneNumber global = parse("tel:+1-914-555-0123");
+    String[] matches = new String[2];
+
+    long bytes = AllocationMeter.bytesPerOperation(10_000, 10_000, i -> {
+      matches[0] = trie.longestPrefixMatch(local);
+      matches[1] = trie.longestPrefixMatch(global);
+    });
+
+    assertFalse(bytes > 0, "expected no allocation, got " + bytes + " bytes per lookup");
+    assertEquals("exchange", matches[0]);
+    assertEquals("area", matches[1]);
+  }
+
+  private static String digits(Random random, int length) {
+    StringBuilder sb = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      sb.append((char) ('0' + random.nextInt(10)));
+    }
+    return sb.toString();
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberRecognizerTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PhoneNumberRecognizerTest.class);
+
+  private static final String[] PHONES = {
+    "tel:+44.20.1234.5678;ext=4567;par2=ghnkl23",
+    "tel:235-1707;ext=4567;phone-context=+1-814-555",
+    "tel:235-1707;isub=example.sub.com;phone-context=+1-814-555;par2=ghnkl23",
+    "tel:7042;phone-context=example.com",
+    "tel:+1(201)555-0123"
+  };
+
+  @Test
+  public void recycledTokensDoNotLeakIntoEarlierResults() throws PhoneNumberParseException {
+    PhoneNumberRecognizer recognizer = PhoneNumberRecognizer.acquire();
+
+    PhoneNumber first = recognizer.parse("tel:235-1707;ext=4567;phone-context=+1-814-555");
+    assertThrows(PhoneNumberParseException.class, () -> recognizer.parse("tel:201 555 0123"));
+    PhoneNumber second = recognizer.parse("tel:+44.20.1234.5678;par2=ghnkl23");
+
+    assertEquals("235-1707", first.getNumber());
+    assertEquals("4567", first.getExtension());
+    assertEquals("+1-814-555", first.getPhoneContext());
+    assertEquals("+44.20.1234.5678", second.getNumber());
+    assertEquals("ghnkl23", second.getParams().get("par2"));
+  }
+
+  @Test
+  public void matchesFreshParserPerValue() throws Exception {
+    for (String phone : PHONES) {
+      PhoneNumber recycled = PhoneNumberRecognizer.acquire().parse(phone);
+      PhoneNumber fresh = parseWithFreshParser(phone);
+
+      assertEquals(fresh, recycled);
+      assertEquals(fresh.getValue(), recycled.getValue());
+    }
+  }
+
+  @Test
+  public void allocatesFarLessThanFreshParserPerValue() throws Exception {
+    Assumptions.assumeTrue(AllocationMeter.isSupported(), "thread allocation counters not available");
+
+    long fresh = AllocationMeter.bytesPerOperation(5_000, 5_000, i -> parseWithFreshParser(PHONES[i % PHONES.length]));
+    long recycled = AllocationMeter.bytesPerOperation(5_000, 5_000, i -> new PhoneNumber().setValue(PHONES[i % PHONES.length]));
+    LOGGER.info("bytes allocated per parse: fresh parser {}, recycled recognizer {}", fresh, recycled);
+
+    assertTrue(recycled * 3 < fresh, "expected recycled (" + recycled + " bytes) to allocate a third of fresh (" + fresh + " bytes)");
+  }
+
+  @Test
+  public void switchesToAPerThreadDfa() throws Exception {
+    PhoneNumberRecognizer shared = PhoneNumberRecognizer.acquire();
+    PhoneNumber.setPerThreadDfa(true);
+    try {
+      PhoneNumberRecognizer perThread = PhoneNumberRecognizer.acquire();
+      assertNotSame(shared, perThread);
+      assertSame(perThread, PhoneNumberRecognizer.acquire());
+      for (String phone : PHONES) {
+        assertEquals(shared.parse(phone).getValue(), perThread.parse(phone).getValue());
+      }
+      assertThrows(PhoneNumberParseException.class, () -> perThread.parse("tel:201 555 0123"));
+    } finally {
+      PhoneNumber.setPerThreadDfa(false);
+    }
+    assertNotSame(shared, PhoneNumberRecognizer.acquire());
+  }
+
+  @Test
+  public void mapsCodePointIndexesToByteOffsets() {
+    Utf8ByteBufferCharStream stream = new Utf8ByteBufferCharStream()
+        .reset(ByteBuffer.wrap("a\u00e9\u20ac\ud83d\ude00b".getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals(5, stream.size());
+    assertEquals(-1, stream.malformedOffset());
+    int[] offsets = {0, 1, 3, 6, 10, 11};
+    for (int i = 0; i < offsets.length; i++) {
+      assertEquals(offsets[i], stream.byteOffset(i));
+    }
+    assertEquals(11, stream.byteOffset(7));
+  }
+
+  private static PhoneNumber parseWithFreshParser(String phone) throws PhoneNumberParseException {
+    PhoneNumberLexer lexer = new PhoneNumberLexer(new ANTLRInputStream(phone));
+    PhoneNumberParser parser = new PhoneNumberParser(new CommonTokenStream(lexer));
+    PhoneNumberParseTreeListener listener = new PhoneNumberParseTreeListener();
+    ParseTreeWalker.DEFAULT.walk(listener, parser.phoneNumber());
+    return listener.getPhoneNumber();
+  }
+}
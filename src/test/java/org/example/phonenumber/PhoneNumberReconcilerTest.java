@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberReconcilerTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void reportsAddedRemovedAndChangedNumbers() throws Exception {
+    Map<String, PhoneNumber> ours = numbers("user-", 20_000, new Random(46));
+    Map<String, PhoneNumber> theirs = new LinkedHashMap<>(ours);
+    theirs.remove("user-17/work");
+    theirs.remove("user-4242/work");
+    theirs.put("user-new/work", parse("tel:+1-201-555-0100"));
+    theirs.put("user-99/work", parse("tel:+1-201-555-0199"));
+    // equal under RFC 3966, so not a change
+    String sameId = "user-100/work";
+    theirs.put(sameId, parse(ours.get(sameId).getValue().replace('-', '.')));
+
+    PhoneNumberReconciler.Result result;
+    try (PhoneNumberReconciler.Dataset our = PhoneNumberReconciler.Dataset.of(ours.entrySet());
+         PhoneNumberReconciler.Dataset their = PhoneNumberReconciler.Dataset.of(theirs.entrySet())) {
+      result = PhoneNumberReconciler.reconcile(our, PhoneNumberReconciler.local(their));
+    }
+
+    assertEquals(List.of("user-new/work"), ids(result.getAdded()));
+    assertEquals(List.of("user-17/work", "user-4242/work"), sorted(ids(result.getRemoved())));
+    assertEquals(1, result.getChanged().size());
+    PhoneNumberReconciler.Change change = result.getChanged().get(0);
+    assertEquals("user-99/work", change.getId());
+    assertEquals(ours.get("user-99/work").getCanonicalKey(), change.getOurs());
+    assertEquals("tel:+12015550199", change.getTheirs());
+    // a few paths down the tree rather than 20,000 entries
+    assertTrue(result.getHashesExchanged() < 200, String.valueOf(result.getHashesExchanged()));
+    assertTrue(result.getEntriesExchanged() < 200, String.valueOf(result.getEntriesExchanged()));
+  }
+
+  @Test
+  public void identicalDatasetsExchangeOnlyTheRootHash() throws Exception {
+    Map<String, PhoneNumber> numbers = numbers("user-", 5_000, new Random(47));
+    List<Map.Entry<String, PhoneNumber>> shuffled = new ArrayList<>(numbers.entrySet());
+    Collections.shuffle(shuffled, new Random(48));
+    try (PhoneNumberReconciler.Dataset ours = PhoneNumberReconciler.Dataset.of(numbers.entrySet());
+         PhoneNumberReconciler.Dataset theirs = PhoneNumberReconciler.Dataset.of(shuffled)) {
+      PhoneNumberReconciler.Result result = PhoneNumberReconciler.reconcile(ours, PhoneNumberReconciler.local(theirs));
+
+      assertTrue(result.isIdentical());
+      assertEquals(ours.getRootHash(), theirs.getRootHash());
+      assertEquals(1, result.getHashesExchanged());
+      assertEquals(2, result.getRoundTrips());
+    }
+  }
+
+  @Test
+  public void sortsOnDiskOverTheMemoryBudget() throws Exception {
+    Map<String, PhoneNumber> ours = numbers("user-", 20_000, new Random(49));
+    Map<String, PhoneNumber> theirs = numbers("contact-", 300, new Random(50));
+    theirs.putAll(ours.entrySet().stream().limit(100).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+
+    try (PhoneNumberReconciler.Dataset inMemory = PhoneNumberReconciler.Dataset.of(ours.entrySet());
+         PhoneNumberReconciler.Dataset onDisk = PhoneNumberReconciler.Dataset.sort(ours.entrySet().iterator(), 64 * 1024, directory);
+         PhoneNumberReconciler.Dataset small = PhoneNumberReconciler.Dataset.of(theirs.entrySet())) {
+      assertEquals(inMemory.getRootHash(), onDisk.getRootHash());
+      assertEquals(inMemory.getDepth(), onDisk.getDepth());
+      assertEquals(1, files().size(), "only the merged dataset is left");
+
+      // the trees have different depths, so the comparison stops at the shallower one
+      PhoneNumberReconciler.Result expected = PhoneNumberReconciler.reconcile(inMemory, PhoneNumberReconciler.local(small));
+      PhoneNumberReconciler.Result result = PhoneNumberReconciler.reconcile(onDisk, PhoneNumberReconciler.local(small));
+      assertEquals(ids(expected.getAdded()), ids(result.getAdded()));
+      assertEquals(ids(expected.getRemoved()), ids(result.getRemoved()));
+      assertEquals(300, result.getAdded().size());
+      assertEquals(19_900, result.getRemoved().size());
+      assertEquals(0, result.getChanged().size());
+
+      PhoneNumberReconciler.Result reverse = PhoneNumberReconciler.reconcile(small, PhoneNumberReconciler.local(onDisk));
+      assertEquals(sorted(ids(result.getAdded())), sorted(ids(reverse.getRemoved())));
+      assertEquals(sorted(ids(result.getRemoved())), sorted(ids(reverse.getAdded())));
+    }
+    assertEquals(0, files().size());
+  }
+
+  @Test
+  public void rejectsRepeatedIdsAndUnparsedNumbers() throws Exception {
+    PhoneNumber number = parse("tel:+1-201-555-0123");
+    List<Map.Entry<String, PhoneNumber>> repeated = List.of(Map.entry("a", number), Map.entry("a", number));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberReconciler.Dataset.of(repeated));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberReconciler.Dataset.sort(repeated.iterator(), 1, directory));
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberReconciler.Dataset.of(List.of(Map.entry("a", new PhoneNumber()))));
+    assertEquals(0, files().size());
+  }
+
+  private List<Path> files() throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.collect(Collectors.toList());
+    }
+  }
+
+  private static Map<String, PhoneNumber> numbers(String prefix, int count, Random random) throws PhoneNumberParseException {
+    Map<String, PhoneNumber> numbers = new LinkedHashMap<>();
+    for (int i = 0; i < count; i++) {
+      numbers.put(prefix + i + "/work", parse(String.format("tel:+1-%03d-555-%04d", 200 + random.nextInt(800), random.nextInt(10_000))));
+    }
+    return numbers;
+  }
+
+  private static List<String> ids(List<PhoneNumberReconciler.Entry> entries) {
+    return entries.stream().map(PhoneNumberReconciler.Entry::getId).collect(Collectors.toList());
+  }
+
+  private static List<String> sorted(List<String> ids) {
+    return new ArrayList<>(new TreeSet<>(ids));
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
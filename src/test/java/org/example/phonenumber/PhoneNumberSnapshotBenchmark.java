@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares starting up by parsing every stored value with mapping a
+ * {@link PhoneNumberSnapshot} of the same numbers, with and without checking
+ * its checksum, then prints the nanoseconds per lookup in the mapped file.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of values as argument.
+ */
+public class PhoneNumberSnapshotBenchmark {
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.values", 200_000));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 200_000);
+  }
+
+  static void run(int count) throws Exception {
+    List<String> values = new ArrayList<>(count);
+    for (int seed = 0; values.size() < count; seed++) {
+      List<String> corpus;
+      try {
+        corpus = PhoneNumberThreadScalingBenchmark.corpus(new Random(seed));
+      } catch (PhoneNumberParseException e) {
+        // the random param names of a few seeds spell a reserved name such as ext
+        continue;
+      }
+      values.addAll(corpus.subList(0, Math.min(corpus.size(), count - values.size())));
+    }
+    Path dir = Files.createTempDirectory("snapshot-benchmark");
+    Path file = dir.resolve("numbers.snapshot");
+    try {
+      long start = System.nanoTime();
+      List<PhoneNumber> numbers = new ArrayList<>(count);
+      for (String value : values) {
+        PhoneNumber phoneNumber = new PhoneNumber();
+        phoneNumber.setValue(value);
+        numbers.add(phoneNumber);
+      }
+      double parseMillis = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      PhoneNumberSnapshot.write(file, numbers);
+      double writeMillis = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      PhoneNumberSnapshot.open(file, false);
+      double openMillis = (System.nanoTime() - start) / 1e6;
+
+      start = System.nanoTime();
+      PhoneNumberSnapshot snapshot = PhoneNumberSnapshot.open(file, true);
+      double verifiedMillis = (System.nanoTime() - start) / 1e6;
+
+      for (int round = 0; round < 3; round++) {
+        for (PhoneNumber number : numbers) {
+          snapshot.contains(number);
+        }
+      }
+      start = System.nanoTime();
+      int found = 0;
+      for (PhoneNumber number : numbers) {
+        if (snapshot.get(number) != null) {
+          found++;
+        }
+      }
+      double lookupNanos = (double) (System.nanoTime() - start) / count;
+
+      System.out.printf(Locale.ROOT, "%,d numbers (%,d distinct), %,d byte snapshot%n", count, snapshot.size(), Files.size(file));
+      System.out.printf(Locale.ROOT, "%-28s %10.1f ms%n", "parse every value", parseMillis);
+      System.out.printf(Locale.ROOT, "%-28s %10.1f ms%n", "write snapshot", writeMillis);
+      System.out.printf(Locale.ROOT, "%-28s %10.1f ms%n", "map snapshot", openMillis);
+      System.out.printf(Locale.ROOT, "%-28s %10.1f ms%n", "map snapshot, checksum", verifiedMillis);
+      System.out.printf(Locale.ROOT, "%-28s %10.1f ns/lookup, %,d found%n", "get from snapshot", lookupNanos, found);
+    } finally {
+      Files.deleteIfExists(file);
+      Files.delete(dir);
+    }
+  }
+}
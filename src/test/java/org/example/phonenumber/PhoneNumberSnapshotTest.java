@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberSnapshotTest {
+
+  private static final String[] VALUES = {
+      "tel:+1-201-555-0123",
+      "tel:+1-201-555-0123;ext=12-34;a=B;c=d",
+      "tel:+44(20)7946.0018;isub=AbC",
+      "tel:7042;phone-context=Example.COM",
+      "tel:863-1234;isub=ABC;phone-context=+1-914-555;x-y=%4A",
+      "tel:*#A1;ext=5;phone-context=+358",
+      "tel:+1-201-555-0124;foo;Bar=1;baz",
+  };
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void rebuildsNumbersWithoutParsing() throws Exception {
+    List<PhoneNumber> numbers = new ArrayList<>();
+    for (String value : VALUES) {
+      numbers.add(parse(value));
+    }
+    numbers.addAll(corpus(2_000));
+    Path file = dir.resolve("numbers.snapshot");
+    PhoneNumberSnapshot.write(file, numbers);
+
+    PhoneNumberSnapshot snapshot = PhoneNumberSnapshot.open(file, true);
+    Set<String> keys = new HashSet<>();
+    for (PhoneNumber number : numbers) {
+      keys.add(number.getCanonicalKey());
+      PhoneNumber stored = snapshot.get(number);
+      assertEquals(number.getValue(), stored.getValue());
+      assertEquals(number, stored);
+      assertEquals(number.getNumber(), stored.getNumber());
+      assertEquals(number.getExtension(), stored.getExtension());
+      assertEquals(number.getSubAddress(), stored.getSubAddress());
+      assertEquals(number.getPhoneContext(), stored.getPhoneContext());
+      assertEquals(number.isDomainPhoneContext(), stored.isDomainPhoneContext());
+      assertEquals(number.getParams(), stored.getParams());
+      assertEquals(number.getE164(), stored.getE164());
+    }
+    assertEquals(keys.size(), snapshot.size());
+    assertTrue(snapshot.contains(parse("tel:+1(201)555.0123")));
+    assertFalse(snapshot.contains(parse("tel:+1-201-555-0124")));
+    assertNull(snapshot.get(parse("tel:7042;phone-context=example.org")));
+
+    List<PhoneNumber> all = new ArrayList<>();
+    snapshot.forEach(all::add);
+    assertEquals(keys.size(), all.size());
+  }
+
+  @Test
+  public void keepsTheFirstOfEqualNumbers() throws Exception {
+    Path file = dir.resolve("numbers.snapshot");
+    PhoneNumberSnapshot.write(file, List.of(parse("tel:+1-201-555-0123"), parse("tel:+1.201.555.0123")));
+    PhoneNumberSnapshot snapshot = PhoneNumberSnapshot.open(file, false);
+    assertEquals(1, snapshot.size());
+    assertEquals("tel:+1-201-555-0123", snapshot.get(parse("tel:+12015550123")).getValue());
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberSnapshot.write(dir.resolve("unparsed.snapshot"), List.of(new PhoneNumber())));
+  }
+
+  @Test
+  public void detectsCorruption() throws Exception {
+    Path file = dir.resolve("numbers.snapshot");
+    PhoneNumberSnapshot.write(file, corpus(100));
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 3] ^= 1;
+    Files.write(file, bytes);
+
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberSnapshot.open(file, true));
+    assertEquals(100, PhoneNumberSnapshot.open(file, false).size());
+    Path garbage = Files.write(dir.resolve("garbage.snapshot"), new byte[64]);
+    assertThrows(IllegalArgumentException.class, () -> PhoneNumberSnapshot.open(garbage, false));
+  }
+
+  @Test
+  public void replaysTheLog() throws Exception {
+    Path file = dir.resolve("numbers.snapshot");
+    Path log = dir.resolve("numbers.log");
+    PhoneNumberSnapshot.write(file, List.of(parse(VALUES[0]), parse(VALUES[3])));
+    assertThrows(IllegalStateException.class, () -> PhoneNumberSnapshot.open(file, false).add(parse(VALUES[1])));
+
+    try (PhoneNumberSnapshot snapshot = PhoneNumberSnapshot.open(file, log, true)) {
+      assertTrue(snapshot.add(parse(VALUES[1])));
+      assertFalse(snapshot.add(parse("tel:+1.201.555.0123")));
+      assertTrue(snapshot.remove(parse(VALUES[0])));
+      assertFalse(snapshot.remove(parse(VALUES[0])));
+      assertTrue(snapshot.add(parse(VALUES[4])));
+      assertTrue(snapshot.remove(parse(VALUES[4])));
+      assertTrue(snapshot.add(parse("tel:+1.201.555.0123")));
+      snapshot.force();
+    }
+    // a record cut short by a crash
+    Files.write(log, new byte[] {1, 0, 40, 't', 'e', 'l'}, StandardOpenOption.APPEND);
+
+    try (PhoneNumberSnapshot snapshot = PhoneNumberSnapshot.open(file, log, true)) {
+      assertEquals(3, snapshot.size());
+      assertEquals("tel:+1.201.555.0123", snapshot.get(parse(VALUES[0])).getValue());
+      assertTrue(snapshot.contains(parse(VALUES[1])));
+      assertTrue(snapshot.contains(parse(VALUES[3])));
+      assertFalse(snapshot.contains(parse(VALUES[4])));
+      assertTrue(snapshot.add(parse(VALUES[5])));
+
+      Path compacted = dir.resolve("compacted.snapshot");
+      snapshot.writeTo(compacted);
+      PhoneNumberSnapshot reopened = PhoneNumberSnapshot.open(compacted, true);
+      assertEquals(4, reopened.size());
+      assertTrue(reopened.contains(parse(VALUES[5])));
+      assertThrows(IllegalArgumentException.class, () -> PhoneNumberSnapshot.open(compacted, log, false));
+    }
+    assertEquals(4, PhoneNumberSnapshot.open(file, log, false).size());
+  }
+
+  private static List<PhoneNumber> corpus(int count) throws PhoneNumberParseException {
+    List<PhoneNumber> numbers = new ArrayList<>();
+    Random random = new Random(47);
+    for (String value : PhoneNumberThreadScalingBenchmark.corpus(random).subList(0, count)) {
+      numbers.add(parse(value));
+    }
+    return numbers;
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+}
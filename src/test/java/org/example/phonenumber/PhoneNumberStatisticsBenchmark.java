@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares counting parsed numbers by country code and phone context with
+ * {@link HashMap} counters in one loop, as done before
+ * {@link PhoneNumberStatistics}, with one instance, with the parallel stream
+ * collector and with a {@link PhoneNumberStatistics.Recorder} shared by
+ * threads. Prints nanoseconds per number.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the number of threads as argument.
+ */
+public class PhoneNumberStatisticsBenchmark {
+
+  private static final int ROUNDS = 10;
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors()));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors());
+  }
+
+  static void run(int threads) throws Exception {
+    PhoneNumberPrefixTrie<String> countryCodes = new PhoneNumberPrefixTrie<>();
+    for (int code = 1; code < 1000; code += 7) {
+      countryCodes.put(Integer.toString(code), Integer.toString(code));
+    }
+    List<ParseResult> results = new ArrayList<>();
+    PhoneNumberRecognizer recognizer = new PhoneNumberRecognizer();
+    for (int seed = 0; results.size() < 100_000; seed++) {
+      List<String> corpus;
+      try {
+        corpus = PhoneNumberThreadScalingBenchmark.corpus(new Random(seed));
+      } catch (PhoneNumberParseException e) {
+        continue;
+      }
+      for (String value : corpus) {
+        results.add(ParseResult.parse(results.size(), value, recognizer));
+      }
+    }
+
+    System.out.printf(Locale.ROOT, "%,d numbers, %d threads%n", results.size(), threads);
+    measure("hash maps", results.size(), () -> {
+      Map<String, Long> byCountryCode = new HashMap<>();
+      Map<String, Long> byPhoneContext = new HashMap<>();
+      long[] counts = new long[3];
+      for (ParseResult result : results) {
+        PhoneNumber phoneNumber = result.getPhoneNumber();
+        byCountryCode.merge(String.valueOf(countryCodes.longestPrefixMatch(phoneNumber)), 1L, Long::sum);
+        if (phoneNumber.isGlobalNumber()) {
+          counts[0]++;
+        } else {
+          byPhoneContext.merge(phoneNumber.getPhoneContext(), 1L, Long::sum);
+        }
+        counts[1] += phoneNumber.getExtension() != null ? 1 : 0;
+        counts[2] += phoneNumber.getSubAddress() != null ? 1 : 0;
+      }
+      return byCountryCode.size() + byPhoneContext.size();
+    });
+    measure("statistics", results.size(), () -> {
+      PhoneNumberStatistics statistics = new PhoneNumberStatistics(countryCodes);
+      results.forEach(statistics);
+      return statistics.getDistinctPhoneContexts();
+    });
+    measure("collector", results.size(),
+        () -> results.parallelStream().collect(PhoneNumberStatistics.collector(countryCodes)).getDistinctPhoneContexts());
+    measure("recorder", results.size(), () -> {
+      PhoneNumberStatistics.Recorder recorder = new PhoneNumberStatistics.Recorder(countryCodes);
+      List<Thread> workers = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        List<ParseResult> part = results.subList(t * results.size() / threads, (t + 1) * results.size() / threads);
+        workers.add(new Thread(() -> part.forEach(recorder)));
+      }
+      workers.forEach(Thread::start);
+      for (Thread worker : workers) {
+        try {
+          worker.join();
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return recorder.snapshot().getDistinctPhoneContexts();
+    });
+  }
+
+  private static void measure(String name, int count, Supplier<Integer> aggregate) {
+    for (int i = 0; i < ROUNDS; i++) {
+      aggregate.get();
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      aggregate.get();
+    }
+    double nanos = (double) (System.nanoTime() - start) / ROUNDS / count;
+    System.out.printf(Locale.ROOT, "%-12s %9.1f ns/number%n", name, nanos);
+  }
+}
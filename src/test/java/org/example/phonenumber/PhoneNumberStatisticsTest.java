@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class PhoneNumberStatisticsTest {
+
+  private static final String[] VALUES = {
+      "tel:+1-201-555-0123",
+      "tel:+1-201-555-0124;ext=12-34",
+      "tel:+44(20)7946.0018;isub=AbC",
+      "tel:7042;phone-context=Example.COM",
+      "tel:7043;ext=1;phone-context=example.com",
+      "tel:863-1234;isub=ABC;phone-context=+1-914-555",
+      "tel:863-1235;phone-context=+1914555",
+      "tel:*#A1;phone-context=+358",
+      "tel:+33-1-23",
+      "201-555-0123",
+  };
+
+  @TempDir
+  Path dir;
+
+  @Test
+  public void countsComponents() {
+    PhoneNumberStatistics statistics = new PhoneNumberStatistics(countryCodes());
+    for (int i = 0; i < VALUES.length; i++) {
+      statistics.accept(ParseResult.parse(i, VALUES[i], new PhoneNumberRecognizer()));
+    }
+
+    assertEquals(10, statistics.getTotal());
+    assertEquals(1, statistics.getFailures());
+    assertEquals(4, statistics.getGlobalNumbers());
+    assertEquals(5, statistics.getLocalNumbers());
+    assertEquals(2, statistics.getDomainPhoneContexts());
+    assertEquals(2, statistics.getExtensions());
+    assertEquals(2, statistics.getSubAddresses());
+    assertEquals(4, statistics.getCountryCodeCount("1"));
+    assertEquals(3, statistics.getCountryCodeCount(null));
+    assertEquals(2, statistics.getPhoneContextCount("EXAMPLE.com"));
+    assertEquals(2, statistics.getPhoneContextCount("+1-914-555"));
+    assertEquals(3, statistics.getDistinctPhoneContexts());
+
+    Map<String, Long> top = new LinkedHashMap<>();
+    top.put("1", 4L);
+    top.put(null, 3L);
+    top.put("33", 1L);
+    assertEquals(top, statistics.getTopCountryCodes(3));
+    assertEquals(List.of("+1914555", "example.com"), new ArrayList<>(statistics.getTopPhoneContexts(2).keySet()));
+    assertEquals(0, statistics.getTopPhoneContexts(0).size());
+
+    long[] lengths = statistics.getNumberLengthHistogram();
+    assertEquals(9, Arrays.stream(lengths).sum());
+    assertEquals(2, lengths[11]);
+    assertEquals(1, lengths[12]);
+    assertEquals(2, lengths[4]);
+    assertThrows(IllegalArgumentException.class, () -> statistics.accept(new PhoneNumber()));
+    assertThrows(IllegalArgumentException.class, () -> new PhoneNumberStatistics(null));
+  }
+
+  @Test
+  public void combinesWorkers() throws Exception {
+    List<ParseResult> results = new ArrayList<>();
+    for (String value : PhoneNumberThreadScalingBenchmark.corpus(new Random(50))) {
+      results.add(ParseResult.parse(results.size(), value, new PhoneNumberRecognizer()));
+    }
+    PhoneNumberStatistics sequential = new PhoneNumberStatistics(countryCodes());
+    results.forEach(sequential);
+
+    PhoneNumberStatistics parallel = results.parallelStream().collect(PhoneNumberStatistics.collector(countryCodes()));
+    assertSame(sequential, parallel);
+
+    PhoneNumberStatistics.Recorder recorder = new PhoneNumberStatistics.Recorder(countryCodes(), 3);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; t++) {
+      List<ParseResult> part = results.subList(t * results.size() / 4, (t + 1) * results.size() / 4);
+      threads.add(new Thread(() -> part.forEach(recorder)));
+    }
+    threads.forEach(Thread::start);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertSame(sequential, recorder.snapshot());
+
+    Path file = dir.resolve("values.txt");
+    List<String> lines = new ArrayList<>();
+    for (ParseResult result : results) {
+      lines.add(result.getInput());
+      lines.add("");
+    }
+    Files.write(file, lines);
+    assertSame(sequential, PhoneNumberStatistics.aggregate(file, countryCodes()));
+  }
+
+  private static void assertSame(PhoneNumberStatistics expected, PhoneNumberStatistics actual) {
+    assertEquals(expected.toString(), actual.toString());
+    assertEquals(expected.getTotal(), actual.getTotal());
+    assertEquals(expected.getDomainPhoneContexts(), actual.getDomainPhoneContexts());
+    assertArrayEquals(expected.getNumberLengthHistogram(), actual.getNumberLengthHistogram());
+    assertEquals(expected.getTopCountryCodes(Integer.MAX_VALUE), actual.getTopCountryCodes(Integer.MAX_VALUE));
+    assertEquals(expected.getTopPhoneContexts(100), actual.getTopPhoneContexts(100));
+  }
+
+  private static PhoneNumberPrefixTrie<String> countryCodes() {
+    PhoneNumberPrefixTrie<String> countryCodes = new PhoneNumberPrefixTrie<>();
+    for (String code : new String[] {"1", "7", "20", "33", "44", "49", "81", "86", "91", "358", "420"}) {
+      countryCodes.put(code, code);
+    }
+    return countryCodes;
+  }
+}
@@ -28,11 +28,16 @@ import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.ThrowingConsumer;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class PhoneNumberTest {
@@ -132,7 +137,9 @@ public class PhoneNumberTest {
       "tel:+44-(0117)-204-2623",
       "tel:+44-07624-958791",
       "tel:+1-(495)-172-7974",//Canada
-      "tel:+1-376-597-9524"
+      "tel:+1-376-597-9524",
+      "tel:+1-201-555-0123;foo", //parameter without a value
+      "tel:+1-201-555-0123;foo;bar=1"
     };
   }
   
@@ -184,6 +191,64 @@ public class PhoneNumberTest {
       assertThrows(PhoneNumberParseException.class, () -> phoneNumber.setValue(phoneUri));
     }
 
+    @ParameterizedTest
+    @MethodSource({"getAllValidPhones", "getAllInvalidPhones"})
+    public void test_parser_with_utf8_bytes(String phoneUri) throws Throwable {
+      PhoneNumber fromString = new PhoneNumber();
+      PhoneNumberParseException stringFailure = null;
+      try {
+        fromString.setValue(phoneUri);
+      } catch (PhoneNumberParseException e) {
+        stringFailure = e;
+      }
+
+      byte[] bytes = phoneUri.getBytes(StandardCharsets.UTF_8);
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 2);
+      direct.put((byte) ' ').put(bytes).put((byte) ' ').position(1).limit(bytes.length + 1);
+      byte[] padded = ("xx" + phoneUri + "yy").getBytes(StandardCharsets.UTF_8);
+
+      for (ThrowingConsumer<PhoneNumber> setter : Arrays.<ThrowingConsumer<PhoneNumber>>asList(
+          pn -> pn.setValue(direct),
+          pn -> pn.setValue(padded, 2, bytes.length))) {
+        PhoneNumber fromBytes = new PhoneNumber();
+        if (stringFailure != null) {
+          assertThrows(PhoneNumberParseException.class, () -> setter.accept(fromBytes));
+        } else {
+          setter.accept(fromBytes);
+          Assertions.assertEquals(fromString, fromBytes);
+          Assertions.assertEquals(fromString.getValue(), fromBytes.getValue());
+        }
+      }
+      Assertions.assertEquals(1, direct.position());
+    }
+
+    @Test
+    public void test_parser_with_non_ascii_bytes() {
+      PhoneNumber phoneNumber = new PhoneNumber();
+      byte[] bytes = "tel:+\u00e944-20-1234-5678".getBytes(StandardCharsets.UTF_8);
+
+      assertThrows(PhoneNumberParseException.class, () -> phoneNumber.setValue(bytes, 0, bytes.length));
+    }
+
+    @Test
+    public void test_parser_with_malformed_utf8_bytes() {
+      byte[][] malformed = {
+        {'t', 'e', 'l', ':', '+', (byte) 0xC0, (byte) 0xAB, '1'}, // overlong '+'
+        {'t', 'e', 'l', ':', '+', '1', (byte) 0xE0, (byte) 0x80, (byte) 0xAD}, // overlong '-'
+        {'t', 'e', 'l', ':', '+', '1', '2', (byte) 0xED, (byte) 0xA0, (byte) 0x80}, // surrogate
+        {'t', 'e', 'l', ':', (byte) 0xC3, (byte) 0xA9, (byte) 0xF4, (byte) 0x90, (byte) 0x80, (byte) 0x80}, // above U+10FFFF
+        {'t', 'e', 'l', ':', '+', '1', (byte) 0xE2, (byte) 0x82}, // truncated
+      };
+      int[] offsets = {5, 6, 7, 6, 6};
+
+      for (int i = 0; i < malformed.length; i++) {
+        byte[] bytes = malformed[i];
+        PhoneNumberParseException e = assertThrows(PhoneNumberParseException.class, () -> new PhoneNumber().setValue(bytes, 0, bytes.length));
+        Assertions.assertEquals("malformed UTF-8 at byte " + offsets[i], e.getMessage());
+        Assertions.assertEquals(offsets[i], e.getErrorOffset());
+      }
+    }
+
     @Test
     public void antlrChangedBehavior() {
 
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measures {@code setValue} throughput from one thread up to the number of
+ * processors, with the DFA shared by all threads and with a DFA per thread,
+ * while the DFA is still cold and once warm. Thread contention monitoring
+ * reports how often and how long the parsing threads were blocked, which is
+ * where synchronization on the shared DFA shows up.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the maximum thread count and the seconds per warm measurement as
+ * arguments.
+ */
+public class PhoneNumberThreadScalingBenchmark {
+
+  private static final int CORPUS_SIZE = 20_000;
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.threads", Runtime.getRuntime().availableProcessors()),
+        Integer.getInteger("benchmark.seconds", 2));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors(),
+        args.length > 1 ? Integer.parseInt(args[1]) : 2);
+  }
+
+  static void run(int maxThreads, int seconds) throws Exception {
+    List<String> corpus = corpus(new Random(40));
+    boolean contention = THREAD_MX_BEAN.isThreadContentionMonitoringSupported();
+    if (contention) {
+      THREAD_MX_BEAN.setThreadContentionMonitoringEnabled(true);
+    }
+    boolean perThreadDfa = PhoneNumber.isPerThreadDfa();
+
+    System.out.printf(Locale.ROOT, "%,d distinct values, up to %d threads, %d s per warm measurement%s%n",
+        corpus.size(), maxThreads, seconds, contention ? "" : ", contention monitoring not supported");
+    System.out.printf(Locale.ROOT, "%-10s %7s %12s %14s %8s %16s %16s%n",
+        "dfa", "threads", "cold ms", "warm parses/s", "scaling", "blocked cold", "blocked warm");
+    try {
+      for (boolean perThread : new boolean[] {false, true}) {
+        PhoneNumber.setPerThreadDfa(perThread);
+        double single = 0;
+        for (int threads : threadCounts(maxThreads)) {
+          Result result = measure(corpus, threads, seconds);
+          if (threads == 1) {
+            single = result.parsesPerSecond;
+          }
+          System.out.printf(Locale.ROOT, "%-10s %7d %12.1f %,14.0f %7.2fx %8d/%5d ms %8d/%5d ms%n",
+              perThread ? "per-thread" : "shared", threads, result.coldMillis, result.parsesPerSecond,
+              result.parsesPerSecond / single, result.coldBlocked, result.coldBlockedMillis,
+              result.warmBlocked, result.warmBlockedMillis);
+        }
+      }
+    } finally {
+      PhoneNumber.setPerThreadDfa(perThreadDfa);
+    }
+  }
+
+  private static List<Integer> threadCounts(int maxThreads) {
+    List<Integer> counts = new ArrayList<>();
+    for (int threads = 1; threads < maxThreads; threads *= 2) {
+      counts.add(threads);
+    }
+    counts.add(maxThreads);
+    return counts;
+  }
+
+  /*
+   * Every round starts cold: on new threads, so per-thread DFAs are new, and
+   * with the shared DFA cleared. Each thread first parses the whole corpus in
+   * its own order, then keeps parsing until the warm measurement ends.
+   */
+  private static Result measure(List<String> corpus, int threads, int seconds) throws InterruptedException {
+    clearSharedDfa();
+    CountDownLatch ready = new CountDownLatch(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    CountDownLatch cold = new CountDownLatch(threads);
+    CountDownLatch warm = new CountDownLatch(1);
+    // per thread: warm parses, blocked count and time cold, then warm
+    AtomicLongArray stats = new AtomicLongArray(5);
+    long[] warmStart = new long[1];
+    long[] warmEnd = new long[1];
+
+    List<Thread> workers = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+      List<String> values = new ArrayList<>(corpus);
+      Collections.shuffle(values, new Random(t));
+      Thread worker = new Thread(() -> {
+        PhoneNumber phoneNumber = new PhoneNumber();
+        ready.countDown();
+        try {
+          start.await();
+          for (String value : values) {
+            phoneNumber.setValue(value);
+          }
+          ThreadInfo coldInfo = THREAD_MX_BEAN.getThreadInfo(Thread.currentThread().getId());
+          cold.countDown();
+          warm.await();
+          long parses = 0;
+          while (System.nanoTime() - warmEnd[0] < 0) {
+            phoneNumber.setValue(values.get((int) (parses % values.size())));
+            parses++;
+          }
+          ThreadInfo warmInfo = THREAD_MX_BEAN.getThreadInfo(Thread.currentThread().getId());
+          stats.addAndGet(0, parses);
+          stats.addAndGet(1, coldInfo.getBlockedCount());
+          stats.addAndGet(2, Math.max(0, coldInfo.getBlockedTime()));
+          stats.addAndGet(3, warmInfo.getBlockedCount() - coldInfo.getBlockedCount());
+          stats.addAndGet(4, Math.max(0, warmInfo.getBlockedTime() - coldInfo.getBlockedTime()));
+        } catch (InterruptedException | PhoneNumberParseException e) {
+          throw new IllegalStateException(e);
+        }
+      }, "scaling-" + t);
+      workers.add(worker);
+      worker.start();
+    }
+
+    ready.await();
+    long coldStart = System.nanoTime();
+    start.countDown();
+    cold.await();
+    long coldEnd = System.nanoTime();
+    warmStart[0] = System.nanoTime();
+    warmEnd[0] = warmStart[0] + seconds * 1_000_000_000L;
+    warm.countDown();
+    for (Thread worker : workers) {
+      worker.join();
+    }
+
+    Result result = new Result();
+    result.coldMillis = (coldEnd - coldStart) / 1e6;
+    result.parsesPerSecond = stats.get(0) / ((System.nanoTime() - warmStart[0]) / 1e9);
+    result.coldBlocked = stats.get(1);
+    result.coldBlockedMillis = stats.get(2);
+    result.warmBlocked = stats.get(3);
+    result.warmBlockedMillis = stats.get(4);
+    return result;
+  }
+
+  private static void clearSharedDfa() {
+    clear(PhoneNumberLexer._decisionToDFA, PhoneNumberLexer._ATN);
+    clear(PhoneNumberParser._decisionToDFA, PhoneNumberParser._ATN);
+  }
+
+  private static void clear(DFA[] dfa, ATN atn) {
+    for (int i = 0; i < dfa.length; i++) {
+      dfa[i] = new DFA(atn.getDecisionState(i), i);
+    }
+  }
+
+  /*
+   * Every shape the grammar accepts, with varied digits, separators and param
+   * names, so that the DFA keeps meeting new input while it warms up.
+   */
+  static List<String> corpus(Random random) throws PhoneNumberParseException {
+    List<String> corpus = new ArrayList<>(CORPUS_SIZE);
+    String separators = "-.()";
+    while (corpus.size() < CORPUS_SIZE) {
+      StringBuilder sb = new StringBuilder("tel:");
+      boolean global = random.nextBoolean();
+      if (global) {
+        sb.append('+').append(1 + random.nextInt(998));
+      } else {
+        sb.append(random.nextInt(10));
+      }
+      int groups = 1 + random.nextInt(4);
+      for (int g = 0; g < groups; g++) {
+        sb.append(separators.charAt(random.nextInt(2)));
+        for (int d = 1 + random.nextInt(4); d > 0; d--) {
+          sb.append(random.nextInt(10));
+        }
+      }
+      switch (random.nextInt(3)) {
+        case 0:
+          sb.append(";ext=").append(random.nextInt(100_000));
+          break;
+        case 1:
+          sb.append(";isub=").append(Integer.toString(random.nextInt(1 << 20), 36));
+          break;
+        default:
+          break;
+      }
+      if (!global) {
+        sb.append(";phone-context=");
+        if (random.nextBoolean()) {
+          sb.append('+').append(1 + random.nextInt(998)).append('-').append(random.nextInt(1000));
+        } else {
+          sb.append(Integer.toString(random.nextInt(1 << 20), 36)).append(".example.com");
+        }
+      }
+      for (int p = random.nextInt(3); p > 0; p--) {
+        sb.append(';').append(Integer.toString(10 + random.nextInt(1 << 16), 36)).append('=')
+            .append(Integer.toString(random.nextInt(1 << 16), 36));
+      }
+      String value = sb.toString();
+      new PhoneNumber().setValue(value);
+      corpus.add(value);
+    }
+    return corpus;
+  }
+
+  private static final class Result {
+
+    double coldMillis;
+
+    double parsesPerSecond;
+
+    long coldBlocked;
+
+    long coldBlockedMillis;
+
+    long warmBlocked;
+
+    long warmBlockedMillis;
+  }
+}
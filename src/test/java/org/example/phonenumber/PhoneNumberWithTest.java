@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumberWithTest {
+
+  @ParameterizedTest
+  @MethodSource("org.example.phonenumber.PhoneNumberTest#getAllValidPhones")
+  public void matchesFullParse(String phoneUri) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = parse(phoneUri);
+
+    assertMatchesFullParse(phoneNumber.withParam("foo", "bar"));
+    assertMatchesFullParse(phoneNumber.withParam("foo", "bar").withParam("FOO", "baz+1"));
+    assertMatchesFullParse(phoneNumber.withParam("foo", "bar").withoutParam("Foo"));
+    assertMatchesFullParse(phoneNumber.withParam("foo", null));
+    assertMatchesFullParse(phoneNumber.withParam("foo", "bar").withParam("Foo", null).withParam("baz", "1"));
+    if (phoneNumber.getParams() != null) {
+      for (String name : phoneNumber.getParams().keySet()) {
+        assertMatchesFullParse(phoneNumber.withoutParam(name));
+      }
+    }
+
+    if (phoneNumber.getSubAddress() == null) {
+      assertMatchesFullParse(phoneNumber.withExtension("(12).34-5"));
+      assertMatchesFullParse(phoneNumber.withExtension("99").withExtension(null));
+    }
+    if (phoneNumber.getExtension() == null) {
+      assertMatchesFullParse(phoneNumber.withSubAddress("sub.example.com"));
+      assertMatchesFullParse(phoneNumber.withSubAddress("sub").withSubAddress(null));
+    }
+    if (!phoneNumber.isGlobalNumber()) {
+      assertMatchesFullParse(phoneNumber.withPhoneContext("example.com"));
+      assertMatchesFullParse(phoneNumber.withPhoneContext("+1-(814)"));
+    }
+  }
+
+  @Test
+  public void keepsOriginalUnchanged() throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = parse("tel:7042;phone-context=example.com;foo=bar");
+    phoneNumber.setDisplay("front desk");
+
+    PhoneNumber changed = phoneNumber.withExtension("12").withParam("foo", "baz");
+
+    assertEquals("tel:7042;ext=12;phone-context=example.com;foo=baz", changed.getValue());
+    assertEquals("front desk", changed.getDisplay());
+    assertEquals("tel:7042;phone-context=example.com;foo=bar", phoneNumber.getValue());
+    assertEquals("bar", phoneNumber.getParams().get("foo"));
+  }
+
+  @Test
+  public void setsParamsWithoutValue() throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = parse("tel:+1-201-555-0123;foo=bar");
+
+    PhoneNumber changed = phoneNumber.withParam("FOO", null);
+
+    assertEquals("tel:+1-201-555-0123;FOO", changed.getValue());
+    assertTrue(changed.getParams().containsKey("foo"));
+    assertNull(changed.getParams().get("foo"));
+    assertEquals(parse("tel:+1-201-555-0123;FOO"), changed);
+  }
+
+  @Test
+  public void rejectsInvalidComponents() throws PhoneNumberParseException {
+    PhoneNumber global = parse("tel:+1-201-555-0123;ext=1234");
+    PhoneNumber local = parse("tel:7042;phone-context=example.com");
+
+    assertThrows(IllegalArgumentException.class, () -> global.withExtension("#44"));
+    assertThrows(IllegalArgumentException.class, () -> global.withSubAddress("sub"));
+    assertThrows(IllegalArgumentException.class, () -> global.withPhoneContext("+44"));
+    assertThrows(IllegalArgumentException.class, () -> global.withParam("ext", "12"));
+    assertThrows(IllegalArgumentException.class, () -> global.withParam("a b", "12"));
+    assertThrows(IllegalArgumentException.class, () -> global.withParam("foo", "a;b"));
+    assertThrows(IllegalArgumentException.class, () -> global.withParam("foo", ""));
+    assertThrows(IllegalArgumentException.class, () -> global.withParam("a b", null));
+    assertThrows(IllegalArgumentException.class, () -> global.withParam(null, null));
+    assertThrows(IllegalArgumentException.class, () -> local.withPhoneContext(null));
+    assertThrows(IllegalArgumentException.class, () -> local.withPhoneContext("+"));
+    assertThrows(IllegalArgumentException.class, () -> local.withPhoneContext("example.1"));
+    assertThrows(IllegalArgumentException.class, () -> local.withSubAddress("sub;x"));
+  }
+
+  private static PhoneNumber parse(String value) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber;
+  }
+
+  private static void assertMatchesFullParse(PhoneNumber changed) throws PhoneNumberParseException {
+    PhoneNumber parsed = parse(changed.getValue());
+    assertEquals(parsed, changed);
+    assertEquals(parsed.getValue(), changed.getValue());
+    assertEquals(parsed.getNumber(), changed.getNumber());
+    assertEquals(parsed.getExtension(), changed.getExtension());
+    assertEquals(parsed.getSubAddress(), changed.getSubAddress());
+    assertEquals(parsed.getPhoneContext(), changed.getPhoneContext());
+    assertEquals(parsed.isDomainPhoneContext(), changed.isDomainPhoneContext());
+    assertEquals(parsed.getParams(), changed.getParams());
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares merging a batch of numbers into a user's list by scanning the list
+ * with {@link PhoneNumber#equals} and demoting the other primaries, as done
+ * before {@link PhoneNumbers}, with {@link PhoneNumbers#merge(Iterable)}.
+ * Half of every batch is already in the list. Prints milliseconds per merge.
+ *
+ * Run with {@code mvn test -Pbenchmark}, or through {@link #main(String[])}
+ * with the largest list size as argument.
+ */
+public class PhoneNumbersBenchmark {
+
+  private static final int ROUNDS = 5;
+
+  @Test
+  public void benchmark() throws Exception {
+    run(Integer.getInteger("benchmark.values", 2_000));
+  }
+
+  public static void main(String[] args) throws Exception {
+    run(args.length > 0 ? Integer.parseInt(args[0]) : 2_000);
+  }
+
+  static void run(int maxSize) throws Exception {
+    System.out.printf(Locale.ROOT, "%8s %14s %14s%n", "size", "list ms", "indexed ms");
+    for (int size = 100; size <= maxSize; size *= 2) {
+      List<PhoneNumber> existing = numbers(0, size);
+      List<PhoneNumber> incoming = numbers(size / 2, size);
+      double list = measure(() -> listMerge(copies(existing), incoming));
+      double indexed = measure(() -> new PhoneNumbers(copies(existing)).merge(incoming));
+      System.out.printf(Locale.ROOT, "%,8d %14.2f %14.2f%n", size, list, indexed);
+    }
+  }
+
+  private static double measure(Runnable merge) {
+    merge.run();
+    long start = System.nanoTime();
+    for (int i = 0; i < ROUNDS; i++) {
+      merge.run();
+    }
+    return (System.nanoTime() - start) / 1e6 / ROUNDS;
+  }
+
+  private static void listMerge(List<PhoneNumber> phoneNumbers, List<PhoneNumber> incoming) {
+    for (PhoneNumber phoneNumber : incoming) {
+      int index = phoneNumbers.indexOf(phoneNumber);
+      if (index >= 0) {
+        phoneNumbers.set(index, phoneNumber);
+      } else {
+        phoneNumbers.add(phoneNumber);
+      }
+      if (phoneNumber.getPrimary()) {
+        for (PhoneNumber other : phoneNumbers) {
+          if (other != phoneNumber && other.getPrimary()) {
+            other.setPrimary(false);
+          }
+        }
+      }
+    }
+  }
+
+  private static List<PhoneNumber> copies(List<PhoneNumber> phoneNumbers) {
+    List<PhoneNumber> copies = new ArrayList<>(phoneNumbers.size());
+    for (PhoneNumber phoneNumber : phoneNumbers) {
+      copies.add(phoneNumber.copy());
+    }
+    return copies;
+  }
+
+  private static List<PhoneNumber> numbers(int first, int count) throws PhoneNumberParseException {
+    String[] types = {"work", "home", "mobile", "other"};
+    List<PhoneNumber> numbers = new ArrayList<>(count);
+    for (int i = first; i < first + count; i++) {
+      PhoneNumber phoneNumber = new PhoneNumber();
+      phoneNumber.setValue(String.format(Locale.ROOT, "tel:+1-201-55%d-%04d", i / 10_000, i % 10_000));
+      numbers.add(phoneNumber.setType(types[i % types.length]).setPrimary(i % 100 == 0));
+    }
+    return numbers;
+  }
+}
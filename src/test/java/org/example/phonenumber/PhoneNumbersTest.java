@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+
+ * http://www.apache.org/licenses/LICENSE-2.0
+
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.example.phonenumber;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhoneNumbersTest {
+
+  @Test
+  public void keepsOneEntryPerNumber() throws PhoneNumberParseException {
+    PhoneNumbers phoneNumbers = new PhoneNumbers();
+    assertTrue(phoneNumbers.add(number("tel:+1-201-555-0123", "work", false)));
+    assertTrue(phoneNumbers.add(number("tel:+1-201-555-0124", "home", false)));
+    assertFalse(phoneNumbers.add(number("tel:+1-201-555-0123", "WORK", false)));
+
+    PhoneNumber mobile = number("tel:+1.201.555.0123", "mobile", false);
+    assertTrue(phoneNumbers.add(mobile));
+    assertEquals(2, phoneNumbers.size());
+    assertEquals(List.of("tel:+1.201.555.0123", "tel:+1-201-555-0124"), values(phoneNumbers));
+    assertSame(mobile, phoneNumbers.get(number("tel:+12015550123", null, false)));
+    assertTrue(phoneNumbers.contains(number("tel:+12015550123", "pager", true)));
+    assertNull(phoneNumbers.getByType("work"));
+    assertSame(mobile, phoneNumbers.getByType("Mobile"));
+
+    assertTrue(phoneNumbers.remove(number("tel:+1(201)555-0124", null, false)));
+    assertFalse(phoneNumbers.remove(number("tel:+1(201)555-0124", null, false)));
+    assertNull(phoneNumbers.getByType("home"));
+    assertThrows(IllegalArgumentException.class, () -> phoneNumbers.add(new PhoneNumber()));
+  }
+
+  @Test
+  public void allowsOnePrimaryEntry() throws PhoneNumberParseException {
+    PhoneNumber first = number("tel:+1-201-555-0123", "work", true);
+    PhoneNumber second = number("tel:+1-201-555-0124", "work", true);
+    PhoneNumber third = number("tel:+1-201-555-0125", "work", false);
+    PhoneNumbers phoneNumbers = new PhoneNumbers(List.of(first, second, third));
+
+    assertSame(second, phoneNumbers.getPrimary());
+    assertFalse(first.getPrimary());
+    assertSame(second, phoneNumbers.getByType("WORK"));
+
+    phoneNumbers.setPrimary(number("tel:+12015550125", null, false));
+    assertSame(third, phoneNumbers.getPrimary());
+    assertFalse(second.getPrimary());
+    assertTrue(third.getPrimary());
+    assertSame(third, phoneNumbers.getByType("work"));
+    assertThrows(IllegalArgumentException.class, () -> phoneNumbers.setPrimary(number("tel:+1-201-555-0199", null, false)));
+
+    phoneNumbers.remove(third);
+    assertNull(phoneNumbers.getPrimary());
+    assertSame(first, phoneNumbers.getByType("work"));
+  }
+
+  @Test
+  public void mergesAndPatches() throws PhoneNumberParseException {
+    PhoneNumbers phoneNumbers = new PhoneNumbers();
+    List<PhoneNumber> existing = new ArrayList<>();
+    List<PhoneNumber> incoming = new ArrayList<>();
+    for (int i = 0; i < 2_000; i++) {
+      existing.add(number(String.format("tel:+1-201-555-%04d", i), i % 2 == 0 ? "work" : "home", i == 10));
+      incoming.add(number(String.format("tel:+1.201.555.%04d", i + 1_000), "other", i == 1_500));
+    }
+    phoneNumbers.merge(existing);
+    assertTrue(phoneNumbers.merge(incoming));
+    assertFalse(phoneNumbers.merge(incoming));
+    assertEquals(3_000, phoneNumbers.size());
+    assertEquals("tel:+1.201.555.2500", phoneNumbers.getPrimary().getValue());
+    assertEquals(500, phoneNumbers.getAllByType("WORK").size());
+    assertEquals(2_000, phoneNumbers.getAllByType("other").size());
+
+    assertTrue(phoneNumbers.removeByType("other"));
+    assertFalse(phoneNumbers.removeByType("other"));
+    assertNull(phoneNumbers.getPrimary());
+    assertEquals(1_000, phoneNumbers.size());
+
+    assertTrue(phoneNumbers.removeIf(phoneNumber -> phoneNumber.getValue().endsWith("0")));
+    assertEquals(900, phoneNumbers.size());
+    for (Iterator<PhoneNumber> it = phoneNumbers.iterator(); it.hasNext(); ) {
+      if ("home".equals(it.next().getType())) {
+        it.remove();
+      }
+    }
+    assertEquals(400, phoneNumbers.size());
+    assertTrue(phoneNumbers.getAllByType("home").isEmpty());
+    assertEquals(400, phoneNumbers.getAllByType("work").size());
+
+    phoneNumbers.replace(existing.subList(0, 3));
+    assertEquals(List.of("tel:+1-201-555-0000", "tel:+1-201-555-0001", "tel:+1-201-555-0002"), values(phoneNumbers));
+    assertEquals(phoneNumbers.toList(), new ArrayList<>(phoneNumbers));
+  }
+
+  private static List<String> values(PhoneNumbers phoneNumbers) {
+    List<String> values = new ArrayList<>();
+    for (PhoneNumber phoneNumber : phoneNumbers) {
+      values.add(phoneNumber.getValue());
+    }
+    return values;
+  }
+
+  private static PhoneNumber number(String value, String type, boolean primary) throws PhoneNumberParseException {
+    PhoneNumber phoneNumber = new PhoneNumber();
+    phoneNumber.setValue(value);
+    return phoneNumber.setType(type).setPrimary(primary);
+  }
+}